@@ -1,14 +1,36 @@
 package com.educativo.bot;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
 
 import com.educativo.bot.comandos.ComandoMaterias;
 import com.educativo.bot.comandos.ComandoSistema;
 import com.educativo.bot.comandos.ComandoTareas;
 import com.educativo.bot.interfaces.Comando;
 import com.educativo.bot.interfaces.GestorDatos;
-import com.educativo.bot.servicios.GestorDatosArchivo;
+import com.educativo.bot.servicios.CerrojosComandos;
+import com.educativo.bot.servicios.Codecs;
+import com.educativo.bot.servicios.ConfiguracionDatos;
+import com.educativo.bot.servicios.DespachadorComandos;
+import com.educativo.bot.servicios.FabricaGestorDatos;
+import com.educativo.bot.servicios.GestorCarga;
+import com.educativo.bot.servicios.GestorDatosAsincrono;
+import com.educativo.bot.servicios.GestorDatosCache;
+import com.educativo.bot.servicios.GestorDatosExclusivo;
+import com.educativo.bot.servicios.GestorDatosReplicado;
+import com.educativo.bot.servicios.GestorDatosSeguidor;
+import com.educativo.bot.servicios.LimitadorComandos;
+import com.educativo.bot.servicios.NivelCarga;
+import com.educativo.bot.servicios.RegistroContadores;
+import com.educativo.bot.servicios.ReporteActividad;
+import com.educativo.bot.servicios.RepositorioAcademico;
+import com.educativo.bot.utils.Configuracion;
 
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
@@ -40,10 +62,23 @@ public class BotEducativo extends ListenerAdapter {
     // ENCAPSULAMIENTO: Atributos privados
     private static final String VERSION = "1.0.0";
     private static final String PREFIJO_COMANDO = "!";
+    private static final Pattern SUBCOMANDO_VALIDO = Pattern.compile("[A-Za-z]{1,20}");
     
     private final JDA jda;                                    // Instancia de la API de Discord
     private final Map<String, Comando> comandos;             // Mapa de comandos disponibles
-    private final GestorDatos gestorDatos;                   // Sistema de persistencia de datos
+    private final DespachadorComandos despachador;           // Ejecuta los comandos fuera del hilo de eventos
+    private final LimitadorComandos limitador;               // Ritmo máximo de comandos por usuario, canal y servidor
+    private final GestorCarga gestorCarga;                   // Degrada el servicio si el bot se satura
+    private final Map<String, Instant> actividadPostergada;  // Últimas actividades sin guardar por carga crítica
+    private final CerrojosComandos cerrojosComandos;         // Por usuario, o generales si hay datos compartidos
+    private final GestorDatosAsincrono gestorDatos;          // Sistema de persistencia de datos (E/S fuera del hilo de eventos)
+    private final GestorDatosExclusivo exclusivo;            // Bloqueo entre instancias (null = desactivado)
+    private final GestorDatosSeguidor seguidor;              // Réplica de solo lectura (null = esta instancia escribe)
+    private long versionCargada = -1;                        // Versión de la réplica con la que se cargó el repositorio
+    private final RegistroContadores contadoresUso;          // Usos de comandos en memoria, guardados periódicamente
+    private final RepositorioAcademico repositorio;          // Materias, tareas y usuarios (persistidos)
+    private final Duration vigenciaActividad;                // Cuánto se recuerda la última actividad de un usuario
+    private final boolean estadisticasPorServidor;           // Estadísticas bajo "servidor/<id>/" (solo modo fragmentado)
     private final long tiempoInicio;                         // Timestamp de inicio del bot
     
     /**
@@ -56,7 +91,33 @@ public class BotEducativo extends ListenerAdapter {
     public BotEducativo(String token) throws Exception {
         this.tiempoInicio = System.currentTimeMillis();
         this.comandos = new HashMap<>();
-        this.gestorDatos = new GestorDatosArchivo("datos/bot_educativo.json");
+        this.despachador = DespachadorComandos.desdeConfiguracion();
+        this.limitador = LimitadorComandos.desdeConfiguracion();
+        this.gestorCarga = GestorCarga.desdeConfiguracion(despachador::getEnCola);
+        this.actividadPostergada = new ConcurrentHashMap<>();
+        this.cerrojosComandos = new CerrojosComandos();
+        ConfiguracionDatos configDatos = ConfiguracionDatos.desdeConfiguracion("datos/bot_educativo.json");
+        this.estadisticasPorServidor = configDatos.isSeparadoPorServidor();
+        this.gestorDatos = FabricaGestorDatos.crearAsincrono(configDatos);
+        this.contadoresUso = new RegistroContadores(gestorDatos,
+                Configuracion.getLargo("bot.contadores.intervalo", 10000));
+        gestorCarga.alCambiarNivel(this::aplicarNivelCarga);
+        this.vigenciaActividad = Duration.ofDays(Math.max(1, Configuracion.getEntero("bot.actividad.vigencia.dias", 30)));
+        this.seguidor = gestorDatos.getDelegado() instanceof GestorDatosSeguidor
+                ? (GestorDatosSeguidor) gestorDatos.getDelegado() : null;
+        // Una réplica de solo lectura no enfría: recibe lo que enfría el primario
+        this.repositorio = new RepositorioAcademico(gestorDatos,
+                Configuracion.getLargo("bot.academico.intervalo", 2000),
+                seguidor != null ? 0 : Math.max(0, Configuracion.getEntero("bot.academico.frio.dias", 30)));
+        repositorio.setCerrojos(cerrojosComandos); // El guardado no lee objetos a mitad de un comando
+        
+        // Si otra instancia tiene los datos, este bot espera sin responder hasta reemplazarla
+        this.exclusivo = gestorDatos.getDelegado() instanceof GestorDatosExclusivo
+                ? (GestorDatosExclusivo) gestorDatos.getDelegado() : null;
+        if (exclusivo != null) {
+            repositorio.setEnfriadoActivo(!exclusivo.isEnEspera());
+            exclusivo.alPromover(this::tomarControl);
+        }
         
         // Configurar e inicializar JDA (Java Discord API)
         this.jda = JDABuilder.createDefault(token)
@@ -83,8 +144,8 @@ public class BotEducativo extends ListenerAdapter {
      */
     @Override
     public void onMessageReceived(MessageReceivedEvent event) {
-        // Ignorar mensajes de bots (incluyendo el nuestro)
-        if (event.getAuthor().isBot()) {
+        // Ignorar mensajes de bots (incluyendo el nuestro), y todo mientras otra instancia atiende
+        if (event.getAuthor().isBot() || isEnEspera()) {
             return;
         }
         
@@ -96,8 +157,57 @@ public class BotEducativo extends ListenerAdapter {
             return;
         }
         
-        // Procesar el comando
-        procesarComando(event, contenido);
+        // Interpretar el comando acá (es barato) y ejecutarlo en el despachador:
+        // un comando lento no demora los eventos que llegan detrás
+        String[] partes = contenido.substring(PREFIJO_COMANDO.length()).trim().split("\\s+");
+        if (partes.length == 0 || partes[0].isEmpty()) {
+            return;
+        }
+        String nombreComando = partes[0].toLowerCase();
+        String[] argumentos = new String[partes.length - 1];
+        System.arraycopy(partes, 1, argumentos, 0, argumentos.length);
+        
+        // Los comandos de un mismo canal se ejecutan en orden (y sus respuestas salen en orden);
+        // los de canales distintos, en paralelo
+        String canalId = event.getChannel().getId();
+        Runnable alRechazar = () -> enviarMensaje(event,
+                "⏳ El bot está muy ocupado en este momento. Intenta de nuevo en unos segundos.");
+        
+        // POLIMORFISMO: Buscar el comando
+        Comando comando = comandos.get(nombreComando);
+        
+        // Con replicación, cada mensaje lo responde una sola instancia: la otra no
+        // repite los avisos de límite, de comando desconocido ni de carga
+        if (!respondeEstaInstancia(seguidor != null, hayReplicaAtendiendo(), comando, argumentos)) {
+            return;
+        }
+        
+        // Limitar el ritmo antes de despachar: un comando rechazado no ocupa la cola
+        LimitadorComandos.Rechazo rechazo = limitador.intentar(comando != null ? nombreComando : null,
+                event.getAuthor().getId(), canalId, event.isFromGuild() ? event.getGuild().getId() : null);
+        if (rechazo != null) {
+            if (rechazo.isAvisar()) {
+                enviarMensaje(event, "🚦 " + describirRechazo(rechazo));
+            }
+            return;
+        }
+        
+        if (comando == null) {
+            // También por la cola del canal, para no responder antes que los comandos anteriores
+            despachador.despachar(canalId, () -> enviarMensaje(event,
+                    "❌ Comando no encontrado. Usa `!sistema ayuda` para ver comandos disponibles."), alRechazar);
+            return;
+        }
+        
+        // Con el bot saturado, las consultas caras esperan a que baje la carga
+        if (!gestorCarga.admitir(comando, argumentos)) {
+            despachador.despachar(canalId, () -> enviarMensaje(event,
+                    "⏳ El bot tiene mucha carga en este momento: las estadísticas y el ranking vuelven en unos minutos."),
+                    null);
+            return;
+        }
+        
+        despachador.despachar(canalId, () -> procesarComando(event, nombreComando, comando, argumentos), alRechazar);
     }
     
     /**
@@ -108,6 +218,9 @@ public class BotEducativo extends ListenerAdapter {
      */
     @Override
     public void onGuildMemberJoin(GuildMemberJoinEvent event) {
+        if (isEnEspera() || seguidor != null) {
+            return; // La instancia activa (o la primaria) ya da la bienvenida
+        }
         try {
             // Buscar el canal de bienvenida
             TextChannel canalBienvenida = event.getGuild().getTextChannelsByName("bienvenida", true)
@@ -145,30 +258,30 @@ public class BotEducativo extends ListenerAdapter {
     }
     
     /**
-     * MÉTODOS: Procesa un comando recibido
+     * MÉTODOS: Ejecuta un comando ya interpretado (en un hilo del despachador)
      * Demuestra encapsulamiento al abstraer la lógica de procesamiento
      * 
+     * Los comandos trabajan sobre los mismos objetos en memoria (usuarios, tareas...):
+     * las consultas se ejecutan en paralelo, y los cambios de usuarios distintos también.
+     * Un comando que modifica datos compartidos (materias) se ejecuta solo
+     * (ver {@link CerrojosComandos}).
+     * 
      * @param event Evento del mensaje
-     * @param contenidoMensaje Contenido completo del mensaje
+     * @param nombreComando Nombre del comando, en minúsculas
+     * @param comando Comando a ejecutar
+     * @param argumentos Argumentos después del nombre
      */
-    private void procesarComando(MessageReceivedEvent event, String contenidoMensaje) {
+    private void procesarComando(MessageReceivedEvent event, String nombreComando, Comando comando,
+                                 String[] argumentos) {
         try {
-            // Extraer comando y argumentos
-            String[] partes = contenidoMensaje.substring(PREFIJO_COMANDO.length()).trim().split("\\s+");
-            
-            if (partes.length == 0 || partes[0].isEmpty()) {
-                return;
-            }
-            
-            String nombreComando = partes[0].toLowerCase();
-            String[] argumentos = new String[partes.length - 1];
-            System.arraycopy(partes, 1, argumentos, 0, argumentos.length);
-            
-            // POLIMORFISMO: Buscar y ejecutar comando
-            Comando comando = comandos.get(nombreComando);
-            
-            if (comando == null) {
-                enviarMensaje(event, "❌ Comando no encontrado. Usa `!sistema ayuda` para ver comandos disponibles.");
+            // Una réplica solo atiende consultas; el resto lo responde la instancia primaria.
+            // Si hay una réplica conectada que atiende consultas, el primario se las deja.
+            if (seguidor != null) {
+                if (!comando.esSoloLectura(argumentos)) {
+                    return;
+                }
+                actualizarDesdeReplica();
+            } else if (comando.esSoloLectura(argumentos) && hayReplicaAtendiendo()) {
                 return;
             }
             
@@ -181,15 +294,30 @@ public class BotEducativo extends ListenerAdapter {
             
             // Ejecutar comando usando POLIMORFISMO
             String canalId = event.getChannel().getId();
-            String respuesta = comando.ejecutar(argumentos, canalId, usuarioId);
+            String servidorId = event.isFromGuild() ? event.getGuild().getId() : null;
+            String respuesta;
+            long inicio = System.nanoTime();
+            List<Lock> cerrojos = cerrojosComandos.tomar(usuarioId, comando.esSoloLectura(argumentos),
+                    comando.usaSoloDatosDelUsuario(argumentos));
+            try {
+                respuesta = comando.ejecutar(argumentos, canalId, usuarioId, servidorId);
+            } finally {
+                cerrojosComandos.soltar(cerrojos);
+                gestorCarga.registrarEjecucion((System.nanoTime() - inicio) / 1_000_000);
+            }
             
             // Enviar respuesta
             if (respuesta != null && !respuesta.trim().isEmpty()) {
                 enviarMensaje(event, respuesta);
             }
             
-            // Registrar uso del comando
-            registrarUsoComando(nombreComando, usuarioId);
+            // Registrar uso del comando (por servidor; los mensajes directos cuentan como globales)
+            // La réplica no puede escribir: sus consultas no se cuentan
+            if (seguidor != null) {
+                return;
+            }
+            String subcomando = argumentos.length > 0 && !respuestaConError(respuesta) ? argumentos[0] : null;
+            registrarUsoComando(nombreComando, subcomando, usuarioId, servidorId);
             
         } catch (Exception e) {
             System.err.println("Error procesando comando: " + e.getMessage());
@@ -204,15 +332,17 @@ public class BotEducativo extends ListenerAdapter {
     private void registrarComandos() {
         // Crear instancias de comandos unificados por funcionalidad - POLIMORFISMO en acción
         Comando[] comandosDisponibles = {
-            new ComandoMaterias(),        // Comandos de gestión de materias académicas
-            new ComandoTareas(),          // Comandos de gestión de tareas y asignaciones
-            new ComandoSistema(),         // Comandos de sistema: ayuda, puntos, bienvenida, info
+            new ComandoMaterias(repositorio), // Comandos de gestión de materias académicas
+            new ComandoTareas(repositorio),   // Comandos de gestión de tareas y asignaciones
+            new ComandoSistema(repositorio, new ReporteActividad(gestorDatos, estadisticasPorServidor), this::describirReplicacion,
+                    this::describirDespacho), // Comandos de sistema: ayuda, puntos, bienvenida, info, uso
             // Aquí podrías añadir más grupos de comandos que implementen la interfaz Comando
         };
         
         // Registrar cada comando usando POLIMORFISMO
         for (Comando comando : comandosDisponibles) {
             comandos.put(comando.getNombre(), comando);
+            limitador.configurarComando(comando.getNombre());
             System.out.println("✅ Grupo de comandos registrado: " + comando.getNombre());
         }
     }
@@ -240,28 +370,77 @@ public class BotEducativo extends ListenerAdapter {
      * MÉTODOS: Registra el uso de un comando para estadísticas
      * 
      * @param nombreComando Nombre del comando usado
+     * @param subcomando Subcomando ejecutado (null si no hubo o no era válido)
      * @param usuarioId ID del usuario que lo usó
+     * @param servidorId ID del servidor donde se usó (null en mensajes directos)
      */
-    private void registrarUsoComando(String nombreComando, String usuarioId) {
+    private void registrarUsoComando(String nombreComando, String subcomando, String usuarioId, String servidorId) {
         try {
-            // Obtener estadísticas actuales
-            String clave = "stats_comando_" + nombreComando;
-            Integer usos = (Integer) gestorDatos.obtener(clave);
-            if (usos == null) {
-                usos = 0;
+            // Contadores del comando y subcomando: se suman en memoria
+            // y se guardan en el próximo checkpoint, sin E/S por mensaje
+            contadoresUso.incrementar(claveEstadistica(servidorId, "stats_comando_" + nombreComando));
+            if (subcomando != null && SUBCOMANDO_VALIDO.matcher(subcomando).matches()) {
+                contadoresUso.incrementar(claveEstadistica(servidorId,
+                        "stats_subcomando_" + nombreComando + "_" + subcomando.toLowerCase()));
             }
             
-            // Incrementar y guardar
-            gestorDatos.guardar(clave, usos + 1);
-            
-            // Registrar última actividad del usuario
-            gestorDatos.guardar("ultima_actividad_" + usuarioId, System.currentTimeMillis());
+            // Registrar última actividad del usuario: vence si deja de usar el bot,
+            // así los datos crecen con los usuarios activos y no con todos los históricos
+            // Con carga crítica se guarda solo la más reciente de cada usuario cuando baje la carga
+            String claveActividad = claveEstadistica(servidorId, "ultima_actividad_" + usuarioId);
+            if (gestorCarga.isPostergarEscrituras()) {
+                actividadPostergada.put(claveActividad, Instant.now());
+            } else {
+                gestorDatos.guardarAsincrono(claveActividad, Instant.now(), Codecs.MARCA_TIEMPO, vigenciaActividad);
+            }
             
         } catch (Exception e) {
             System.err.println("Error registrando uso de comando: " + e.getMessage());
         }
     }
     
+    /**
+     * FUNCIONES: Clave de una estadística. Solo el modo fragmentado las separa por
+     * servidor; en los demás siguen siendo globales para no dejar huérfanos los
+     * datos ya guardados ni las familias diferidas configuradas (bot.datos.carga.diferida)
+     */
+    private String claveEstadistica(String servidorId, String clave) {
+        return estadisticasPorServidor ? GestorDatos.claveServidor(servidorId, clave) : clave;
+    }
+    
+    /**
+     * Aplica un cambio de nivel de carga: con carga crítica se postergan los contadores
+     * de uso y la última actividad; al salir de ella se guarda lo postergado
+     */
+    private void aplicarNivelCarga(NivelCarga nivel) {
+        boolean postergar = nivel == NivelCarga.CRITICA;
+        contadoresUso.setPostergado(postergar);
+        if (!postergar) {
+            guardarActividadPostergada();
+        }
+    }
+    
+    private void guardarActividadPostergada() {
+        int guardadas = 0;
+        for (Map.Entry<String, Instant> entrada : actividadPostergada.entrySet()) {
+            if (actividadPostergada.remove(entrada.getKey(), entrada.getValue())) {
+                gestorDatos.guardarAsincrono(entrada.getKey(), entrada.getValue(), Codecs.MARCA_TIEMPO, vigenciaActividad);
+                guardadas++;
+            }
+        }
+        if (guardadas > 0) {
+            System.out.println("💾 Guardadas " + guardadas + " actividades postergadas por carga");
+        }
+    }
+    
+    /**
+     * FUNCIONES: Indica si la respuesta de un comando es un mensaje de error
+     * (por ejemplo un subcomando inexistente, que no debe contarse)
+     */
+    private static boolean respuestaConError(String respuesta) {
+        return respuesta != null && respuesta.startsWith("❌");
+    }
+    
     /**
      * FUNCIONES: Función estática para dividir mensajes largos
      * Demuestra el concepto de FUNCIONES (métodos estáticos utilitarios)
@@ -326,19 +505,155 @@ public class BotEducativo extends ListenerAdapter {
         stats.append("⚡ Comandos registrados: ").append(comandos.size()).append("\n");
         stats.append("🏛️ Servidores conectados: ").append(jda.getGuilds().size()).append("\n");
         stats.append("👥 Usuarios visibles: ").append(jda.getUsers().size()).append("\n");
-        stats.append("📁 Sistema de datos: ").append(gestorDatos.getClass().getSimpleName()).append("\n");
+        stats.append("📁 Sistema de datos: ").append(describirAlmacenamiento()).append("\n");
+        if (getAlmacenamiento() instanceof GestorDatosCache) {
+            GestorDatosCache cache = (GestorDatosCache) getAlmacenamiento();
+            stats.append("🧠 Cache de datos: ").append(cache.getTamanio()).append(" entradas, ")
+                 .append(String.format("%.1f", cache.getPorcentajeAciertos())).append("% de aciertos, ")
+                 .append(cache.getDesalojos()).append(" descartes\n");
+        }
+        String replicacion = describirReplicacion();
+        if (replicacion != null) {
+            stats.append("📡 Replicación: ").append(replicacion).append("\n");
+        }
+        stats.append("📬 Comandos: ").append(describirDespacho()).append("\n");
         stats.append("🔢 Versión: ").append(VERSION);
         
         return stats.toString();
     }
     
+    /**
+     * Gestor que guarda los datos, debajo del asíncrono y del bloqueo entre instancias
+     * @return Gestor real, o null si está en espera sin réplica
+     */
+    private GestorDatos getAlmacenamiento() {
+        GestorDatos almacenamiento = exclusivo != null ? exclusivo.getDelegado() : gestorDatos.getDelegado();
+        return almacenamiento instanceof GestorDatosReplicado
+                ? ((GestorDatosReplicado) almacenamiento).getDelegado() : almacenamiento;
+    }
+    
+    /**
+     * Estado de la replicación: seguidores del primario, o atraso y ritmo de la réplica
+     * @return Descripción de una línea, o null si esta instancia no replica
+     */
+    private String describirReplicacion() {
+        if (seguidor != null) {
+            return String.format("réplica de solo lectura %s, atraso %d cambios (%d ms), %.1f cambios/s, %d aplicados",
+                    seguidor.isConectado() ? "conectada" : "desconectada", seguidor.getRetrasoRegistros(),
+                    seguidor.getRetrasoMs(), seguidor.getRegistrosPorSegundo(), seguidor.getRegistrosAplicados());
+        }
+        GestorDatosReplicado primario = getReplicado();
+        if (primario != null) {
+            return String.format("primario con %d seguidor(es) (%d atienden consultas), %d cambios, %d enviados (%d KB)",
+                    primario.getSeguidores(), primario.getSeguidoresQueAtienden(), primario.getSecuencia(),
+                    primario.getRegistrosEnviados(), primario.getBytesEnviados() / 1024);
+        }
+        return null;
+    }
+    
+    /**
+     * Lado primario de la replicación, debajo del asíncrono y del bloqueo entre instancias
+     * @return Gestor replicado, o null si esta instancia no transmite sus cambios
+     */
+    private GestorDatosReplicado getReplicado() {
+        GestorDatos almacenamiento = exclusivo != null ? exclusivo.getDelegado() : gestorDatos.getDelegado();
+        return almacenamiento instanceof GestorDatosReplicado ? (GestorDatosReplicado) almacenamiento : null;
+    }
+    
+    /**
+     * Decide si esta instancia responde un mensaje cuando hay replicación
+     * Una réplica solo responde las consultas (de solo lectura), y solo si el comando existe;
+     * el primario responde todo lo demás, y las consultas si no hay réplica que las atienda.
+     *
+     * @param esSeguidor true si esta instancia es una réplica de solo lectura
+     * @param hayReplicaAtendiendo true si una réplica conectada atiende las consultas del primario
+     * @param comando Comando pedido (null si no existe)
+     * @param argumentos Argumentos del comando
+     * @return true si esta instancia responde (incluidos los avisos de rechazo)
+     */
+    static boolean respondeEstaInstancia(boolean esSeguidor, boolean hayReplicaAtendiendo, Comando comando,
+                                         String[] argumentos) {
+        boolean consulta = comando != null && comando.esSoloLectura(argumentos);
+        return esSeguidor ? consulta : !(consulta && hayReplicaAtendiendo);
+    }
+    
+    /**
+     * Indica si una réplica conectada responde las consultas en lugar de esta instancia
+     * (así cada consulta recibe una sola respuesta)
+     */
+    private boolean hayReplicaAtendiendo() {
+        GestorDatosReplicado primario = getReplicado();
+        return primario != null && primario.getSeguidoresQueAtienden() > 0;
+    }
+    
+    /**
+     * Estado del despacho de comandos: hilos y cola, nivel de carga y límites de ritmo
+     */
+    private String describirDespacho() {
+        return despachador.getEstado() + "; carga: " + gestorCarga.getEstado() + "; límites: " + limitador.getEstado();
+    }
+    
+    /**
+     * Aviso para el usuario cuando un comando supera un límite de ritmo
+     * Se envía solo al primer rechazo de una racha; los siguientes se ignoran sin responder.
+     */
+    private static String describirRechazo(LimitadorComandos.Rechazo rechazo) {
+        long segundos = Math.max(1, (rechazo.getEsperaMs() + 999) / 1000);
+        switch (rechazo.getAmbito()) {
+            case CANAL:
+                return "Este canal está enviando demasiados comandos. Espera " + segundos
+                        + " s; mientras tanto los comandos se ignoran.";
+            case SERVIDOR:
+                return "El servidor está enviando demasiados comandos. Espera " + segundos
+                        + " s; mientras tanto los comandos se ignoran.";
+            default:
+                return "Vas muy rápido. Espera " + segundos
+                        + " s; mientras tanto tus comandos se ignoran.";
+        }
+    }
+    
+    /**
+     * En la réplica, vuelve a leer los datos académicos si llegaron cambios del primario
+     * desde la última consulta (el repositorio los tiene en memoria)
+     */
+    private synchronized void actualizarDesdeReplica() {
+        long version = seguidor.getVersionAcademica();
+        if (version != versionCargada) {
+            repositorio.recargar();
+            versionCargada = version;
+        }
+    }
+    
+    private String describirAlmacenamiento() {
+        GestorDatos almacenamiento = getAlmacenamiento();
+        String nombre = almacenamiento != null ? almacenamiento.getClass().getSimpleName() : "ninguno";
+        return isEnEspera() ? nombre + " (en espera: otra instancia está activa)" : nombre;
+    }
+    
+    /**
+     * Indica si otra instancia del bot tiene los datos y esta solo espera
+     */
+    private boolean isEnEspera() {
+        return exclusivo != null && exclusivo.isEnEspera();
+    }
+    
+    /**
+     * La otra instancia terminó y esta pasa a atender: los datos académicos en
+     * memoria pueden ser de antes, así que se vuelven a leer
+     */
+    private void tomarControl() {
+        repositorio.recargar();
+        repositorio.setEnfriadoActivo(true);
+        System.out.println("▶️ Bot Educativo activo: la instancia anterior terminó");
+    }
+    
     /**
      * MÉTODOS: Imprime estadísticas al iniciar
      */
     private void imprimirEstadisticasInicio() {
         System.out.println("📊 Estadísticas de inicio:");
         System.out.println("   • Comandos cargados: " + comandos.size());
-        System.out.println("   • Sistema de datos: " + gestorDatos.getClass().getSimpleName());
+        System.out.println("   • Sistema de datos: " + describirAlmacenamiento());
         System.out.println("   • Versión: " + VERSION);
         System.out.println("🚀 ¡Bot listo para ayudar a los estudiantes!");
     }
@@ -349,9 +664,26 @@ public class BotEducativo extends ListenerAdapter {
     public void cerrar() {
         System.out.println("🔄 Cerrando Bot Educativo...");
         
-        // Sincronizar datos pendientes
+        // Terminar los comandos en curso antes de guardar lo que cambiaron
+        if (despachador != null) {
+            despachador.cerrar();
+        }
+        if (gestorCarga != null) {
+            gestorCarga.cerrar();
+            guardarActividadPostergada();
+        }
+        
+        // Guardar los contadores de uso y los datos académicos antes de cerrar la persistencia
+        if (contadoresUso != null) {
+            contadoresUso.cerrar();
+        }
+        if (repositorio != null) {
+            repositorio.cerrar();
+        }
+        
+        // Sincronizar datos pendientes y detener la escritura diferida
         if (gestorDatos != null) {
-            gestorDatos.sincronizar();
+            gestorDatos.cerrar();
         }
         
         // Cerrar conexión de Discord
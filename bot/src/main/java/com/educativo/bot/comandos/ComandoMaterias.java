@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 import com.educativo.bot.modelos.Materia;
 import com.educativo.bot.modelos.Tarea;
 import com.educativo.bot.modelos.Usuario;
+import com.educativo.bot.servicios.RepositorioAcademico;
 
 /**
  * COMANDOS DE MATERIAS UNIFICADOS
@@ -23,12 +24,15 @@ import com.educativo.bot.modelos.Usuario;
  */
 public class ComandoMaterias extends ComandoBase {
     
-    // ENCAPSULAMIENTO: Datos estáticos compartidos
-    private static final List<Materia> materias = new ArrayList<>();
-    private static final List<Tarea> tareas = new ArrayList<>();
-    private static final List<Usuario> usuarios = new ArrayList<>();
+    // ENCAPSULAMIENTO: Datos compartidos con los demás comandos
+    private final RepositorioAcademico repositorio;
     
-    public ComandoMaterias() {
+    /**
+     * Constructor del comando
+     * 
+     * @param repositorio Materias, tareas y usuarios compartidos por todos los comandos
+     */
+    public ComandoMaterias(RepositorioAcademico repositorio) {
         super(
             "materia",
             "Gestión completa de materias académicas",
@@ -48,6 +52,15 @@ public class ComandoMaterias extends ComandoBase {
             "• `!materia desarchivar <código>` - Desarchivar materia",
             false
         );
+        this.repositorio = repositorio;
+    }
+    
+    /**
+     * Listar materias y ver las tareas de una materia no modifican nada
+     */
+    @Override
+    public boolean esSoloLectura(String[] args) {
+        return args.length > 0 && (args[0].equalsIgnoreCase("listar") || args[0].equalsIgnoreCase("tareas"));
     }
     
     @Override
@@ -110,12 +123,16 @@ public class ComandoMaterias extends ComandoBase {
         
         // Crear materia
         Materia nuevaMateria = new Materia(UUID.randomUUID().toString(), codigo, nombre, descripcion, profesor, usuarioId);
-        materias.add(nuevaMateria);
+        repositorio.agregarMateria(nuevaMateria);
+        List<Materia> materias = repositorio.getMaterias();
         
         // Dar puntos al usuario por crear su primera materia
-        Usuario usuario = obtenerOCrearUsuario(usuarioId);
-        if (materias.stream().filter(m -> m.getCreadorId().equals(usuarioId)).count() == 1) {
+        Usuario usuario = repositorio.obtenerOCrearUsuario(usuarioId);
+        boolean primeraMateria = repositorio.getCantidadMateriasFriasPorUsuario(usuarioId) == 0 &&
+                materias.stream().filter(m -> m.getCreadorId().equals(usuarioId)).count() == 1;
+        if (primeraMateria) {
             usuario.agregarPuntos(5, "Primera materia creada");
+            repositorio.usuarioModificado(usuario);
         }
         
         return "✅ **Materia creada exitosamente**\n\n" +
@@ -123,12 +140,12 @@ public class ComandoMaterias extends ComandoBase {
                (descripcion.isEmpty() ? "" : "📝 " + descripcion + "\n") +
                (profesor.isEmpty() ? "" : "👨‍🏫 " + profesor + "\n") +
                "🆔 ID: `" + nuevaMateria.getId() + "`\n" +
-               (materias.stream().filter(m -> m.getCreadorId().equals(usuarioId)).count() == 1 ? 
-                "🎉 +5 puntos por crear tu primera materia!" : "");
+               (primeraMateria ? "🎉 +5 puntos por crear tu primera materia!" : "");
     }
     
     private String listarMaterias(String[] args) {
-        if (materias.isEmpty()) {
+        List<Materia> materias = repositorio.getMaterias();
+        if (materias.isEmpty() && repositorio.getCantidadMateriasFrias() == 0) {
             return "📚 **No hay materias registradas**\n\n" +
                    "Crea una materia con: `!materia crear <código> \"<nombre>\"`";
         }
@@ -136,6 +153,11 @@ public class ComandoMaterias extends ComandoBase {
         String filtro = args.length > 1 ? args[1].toLowerCase() : "todas";
         StringBuilder sb = new StringBuilder();
         
+        // Las archivadas hace tiempo están en frío: las activas no las necesitan
+        if (!filtro.equals("activas")) {
+            materias.addAll(repositorio.getMateriasFrias());
+        }
+        
         switch (filtro) {
             case "activas":
                 sb.append("📚 **MATERIAS ACTIVAS**\n\n");
@@ -184,10 +206,9 @@ public class ComandoMaterias extends ComandoBase {
             return "❌ Solo el creador de la materia puede eliminarla.";
         }
         
-        // Verificar si tiene tareas asociadas
-        long tareasAsociadas = tareas.stream()
-            .filter(t -> codigo.equals(t.getMateria()))
-            .count();
+        // Verificar si tiene tareas asociadas (también las que están en frío)
+        long tareasAsociadas = repositorio.getTareasPorMateria(codigo).size()
+                + repositorio.getCantidadTareasFriasPorMateria(codigo);
         
         if (tareasAsociadas > 0) {
             return "❌ No se puede eliminar la materia `" + codigo + "` porque tiene " + 
@@ -195,7 +216,7 @@ public class ComandoMaterias extends ComandoBase {
                    "Elimina primero las tareas o archiva la materia con `!materia archivar " + codigo + "`.";
         }
         
-        materias.remove(materia);
+        repositorio.eliminarMateria(materia);
         return "✅ Materia `" + codigo + "` eliminada exitosamente.";
     }
     
@@ -212,17 +233,20 @@ public class ComandoMaterias extends ComandoBase {
             return "❌ Materia `" + codigo + "` no encontrada.";
         }
         
-        List<Tarea> tareasMateria = tareas.stream()
-            .filter(t -> codigo.equals(t.getMateria()))
-            .collect(Collectors.toList());
+        List<Tarea> tareasMateria = repositorio.getTareasPorMateria(codigo);
+        String filtro = args.length > 2 ? args[2].toLowerCase() : "todas";
+        
+        // Las tareas en frío están todas completadas: solo se leen si el filtro las incluye
+        if (filtro.equals("todas") || filtro.equals("completadas")) {
+            tareasMateria.addAll(repositorio.getTareasFriasPorMateria(codigo));
+        }
         
-        if (tareasMateria.isEmpty()) {
+        if (tareasMateria.isEmpty() && repositorio.getCantidadTareasFriasPorMateria(codigo) == 0) {
             return "📝 **Materia: " + materia.getNombre() + "**\n\n" +
                    "No hay tareas para esta materia.\n" +
                    "Crea una con: `!tarea crear \"<título>\" \"<descripción>\" " + codigo + "`";
         }
         
-        String filtro = args.length > 2 ? args[2].toLowerCase() : "todas";
         return formatearListaTareas(tareasMateria, filtro, "Materia: " + materia.getNombre());
     }
     
@@ -248,6 +272,7 @@ public class ComandoMaterias extends ComandoBase {
         }
         
         materia.setActiva(false);
+        repositorio.materiaModificada(materia);
         return "📦 **Materia archivada**\n\n" +
                "📚 " + materia.getCodigo() + " - " + materia.getNombre() + "\n" +
                "💡 Usa `!materia desarchivar " + codigo + "` para restaurarla.";
@@ -275,6 +300,7 @@ public class ComandoMaterias extends ComandoBase {
         }
         
         materia.setActiva(true);
+        repositorio.materiaModificada(materia);
         return "✅ **Materia restaurada**\n\n" +
                "📚 " + materia.getCodigo() + " - " + materia.getNombre() + "\n" +
                "🎯 La materia está ahora activa nuevamente.";
@@ -285,21 +311,7 @@ public class ComandoMaterias extends ComandoBase {
     // ========================
     
     private Materia buscarMateriaPorCodigo(String codigo) {
-        return materias.stream()
-            .filter(m -> m.getCodigo().equalsIgnoreCase(codigo))
-            .findFirst()
-            .orElse(null);
-    }
-    
-    private Usuario obtenerOCrearUsuario(String usuarioId) {
-        return usuarios.stream()
-            .filter(u -> u.getId().equals(usuarioId))
-            .findFirst()
-            .orElseGet(() -> {
-                Usuario nuevoUsuario = new Usuario(usuarioId, "Usuario" + usuarios.size());
-                usuarios.add(nuevoUsuario);
-                return nuevoUsuario;
-            });
+        return repositorio.buscarMateria(codigo);
     }
     
     private String formatearMateriaResumen(Materia materia) {
@@ -320,9 +332,8 @@ public class ComandoMaterias extends ComandoBase {
             sb.append("👨‍🏫 ").append(materia.getProfesor()).append("\n");
         }
         
-        long tareasCount = tareas.stream()
-            .filter(t -> materia.getCodigo().equals(t.getMateria()))
-            .count();
+        long tareasCount = repositorio.getTareasPorMateria(materia.getCodigo()).size()
+                + repositorio.getCantidadTareasFriasPorMateria(materia.getCodigo());
         sb.append("📋 Tareas: ").append(tareasCount).append("\n\n");
         
         return sb.toString();
@@ -419,39 +430,4 @@ public class ComandoMaterias extends ComandoBase {
         
         return resultado;
     }
-    
-    // ========================
-    // MÉTODOS ESTÁTICOS PARA ACCESO COMPARTIDO
-    // ========================
-    
-    /**
-     * Permite acceso a la lista de materias desde otros comandos
-     */
-    public static List<Materia> getMaterias() {
-        return new ArrayList<>(materias);
-    }
-    
-    /**
-     * Permite acceso a la lista de tareas desde otros comandos
-     */
-    public static List<Tarea> getTareas() {
-        return new ArrayList<>(tareas);
-    }
-    
-    /**
-     * Busca una materia por código desde otros comandos
-     */
-    public static Materia buscarMateria(String codigo) {
-        return materias.stream()
-            .filter(m -> m.getCodigo().equalsIgnoreCase(codigo))
-            .findFirst()
-            .orElse(null);
-    }
-    
-    /**
-     * Agrega una tarea a la lista desde otros comandos
-     */
-    public static void agregarTarea(Tarea tarea) {
-        tareas.add(tarea);
-    }
-}
+}
\ No newline at end of file
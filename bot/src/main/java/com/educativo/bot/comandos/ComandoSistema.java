@@ -1,10 +1,15 @@
 package com.educativo.bot.comandos;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import com.educativo.bot.modelos.Materia;
+import com.educativo.bot.modelos.Tarea;
 import com.educativo.bot.modelos.Usuario;
+import com.educativo.bot.servicios.ReporteActividad;
+import com.educativo.bot.servicios.RepositorioAcademico;
 
 /**
  * COMANDOS DE SISTEMA UNIFICADOS
@@ -20,15 +25,56 @@ import com.educativo.bot.modelos.Usuario;
  */
 public class ComandoSistema extends ComandoBase {
     
-    // ENCAPSULAMIENTO: Lista de usuarios para gestión de puntos
-    private static final List<Usuario> usuarios = new ArrayList<>();
     private static final String VERSION_BOT = "2.0.0";
     
-    public ComandoSistema() {
+    // ENCAPSULAMIENTO: Usuarios, materias y tareas compartidos con los demás comandos
+    private final RepositorioAcademico repositorio;
+    
+    // Reporte de uso a partir de las estadísticas persistidas (null = no disponible)
+    private final ReporteActividad reporteActividad;
+    
+    // Estado de la replicación de datos para las estadísticas (null = sin replicación)
+    private final Supplier<String> estadoReplicacion;
+    
+    // Estado de la ejecución de comandos para las estadísticas (null = no disponible)
+    private final Supplier<String> estadoDespacho;
+    
+    /**
+     * Constructor del comando
+     * 
+     * @param repositorio Materias, tareas y usuarios compartidos por todos los comandos
+     * @param reporteActividad Reporte de uso por comando y usuarios activos (puede ser null)
+     */
+    public ComandoSistema(RepositorioAcademico repositorio, ReporteActividad reporteActividad) {
+        this(repositorio, reporteActividad, null);
+    }
+    
+    /**
+     * Constructor del comando con el estado de la replicación
+     * 
+     * @param repositorio Materias, tareas y usuarios compartidos por todos los comandos
+     * @param reporteActividad Reporte de uso por comando y usuarios activos (puede ser null)
+     * @param estadoReplicacion Descripción actual de la replicación; puede ser null, o devolver null si no hay
+     */
+    public ComandoSistema(RepositorioAcademico repositorio, ReporteActividad reporteActividad,
+                          Supplier<String> estadoReplicacion) {
+        this(repositorio, reporteActividad, estadoReplicacion, null);
+    }
+    
+    /**
+     * Constructor del comando con el estado de la replicación y de la ejecución de comandos
+     * 
+     * @param repositorio Materias, tareas y usuarios compartidos por todos los comandos
+     * @param reporteActividad Reporte de uso por comando y usuarios activos (puede ser null)
+     * @param estadoReplicacion Descripción actual de la replicación; puede ser null, o devolver null si no hay
+     * @param estadoDespacho Hilos, cola, esperas, nivel de carga y límites de ritmo de los comandos; puede ser null
+     */
+    public ComandoSistema(RepositorioAcademico repositorio, ReporteActividad reporteActividad,
+                          Supplier<String> estadoReplicacion, Supplier<String> estadoDespacho) {
         super(
             "sistema",
             "Comandos de sistema, ayuda y configuración del bot",
-            "!sistema [ayuda|puntos|bienvenida|info|stats] [parámetros]\n\n" +
+            "!sistema [ayuda|puntos|bienvenida|info|stats|uso] [parámetros]\n\n" +
             "**AYUDA Y DOCUMENTACIÓN:**\n" +
             "• `!sistema ayuda [comando]` - Ayuda general o específica\n" +
             "• `!sistema info` - Información del bot\n\n" +
@@ -39,9 +85,70 @@ public class ComandoSistema extends ComandoBase {
             "**BIENVENIDA:**\n" +
             "• `!sistema bienvenida [@usuario]` - Mensaje de bienvenida\n\n" +
             "**ESTADÍSTICAS:**\n" +
-            "• `!sistema stats` - Estadísticas del bot y usuarios",
+            "• `!sistema stats` - Estadísticas del bot y usuarios\n" +
+            "• `!sistema uso [horas]` - Usos por comando y usuarios activos del servidor",
             false
         );
+        this.repositorio = repositorio;
+        this.reporteActividad = reporteActividad;
+        this.estadoReplicacion = estadoReplicacion;
+        this.estadoDespacho = estadoDespacho;
+    }
+    
+    /**
+     * Todo es de consulta salvo ver puntos propios o de otro usuario,
+     * que lo registra si todavía no existe (el ranking no registra a nadie)
+     */
+    @Override
+    public boolean esSoloLectura(String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("puntos")) {
+            return args.length > 1 && args[1].equalsIgnoreCase("ranking");
+        }
+        return true;
+    }
+    
+    /**
+     * La ayuda y la información no usan datos; ver los puntos propios solo usa los
+     * del usuario. El ranking, las estadísticas y los puntos de otro usuario no.
+     */
+    @Override
+    public boolean usaSoloDatosDelUsuario(String[] args) {
+        if (args.length == 0) {
+            return true;
+        }
+        switch (args[0].toLowerCase()) {
+            case "ayuda":
+            case "info":
+                return true;
+            case "puntos":
+                return args.length == 1 || !(args[1].equalsIgnoreCase("ranking") || args[1].startsWith("@"));
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Las estadísticas, el reporte de uso y el ranking recorren todos los datos
+     */
+    @Override
+    public boolean esCostoso(String[] args) {
+        if (args.length == 0) {
+            return false;
+        }
+        String accion = args[0].toLowerCase();
+        return accion.equals("stats") || accion.equals("uso")
+                || (accion.equals("puntos") && args.length > 1 && args[1].equalsIgnoreCase("ranking"));
+    }
+    
+    /**
+     * El reporte de uso depende del servidor; el resto de los subcomandos no
+     */
+    @Override
+    public String ejecutar(String[] args, String canalId, String usuarioId, String servidorId) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("uso")) {
+            return ejecutarComandoUso(args, servidorId);
+        }
+        return ejecutar(args, canalId, usuarioId);
     }
     
     @Override
@@ -64,9 +171,11 @@ public class ComandoSistema extends ComandoBase {
                 return ejecutarComandoInfo();
             case "stats":
                 return ejecutarComandoStats();
+            case "uso":
+                return ejecutarComandoUso(args, null);
             default:
                 return "❌ Tipo de comando no válido: `" + tipoComando + "`\n" +
-                       "Tipos disponibles: `ayuda`, `puntos`, `bienvenida`, `info`, `stats`";
+                       "Tipos disponibles: `ayuda`, `puntos`, `bienvenida`, `info`, `stats`, `uso`";
         }
     }
     
@@ -106,7 +215,8 @@ public class ComandoSistema extends ComandoBase {
         sb.append("• `!sistema puntos [usuario|ranking]` - Sistema de puntos\n");
         sb.append("• `!sistema bienvenida` - Mensajes de bienvenida\n");
         sb.append("• `!sistema info` - Información del bot\n");
-        sb.append("• `!sistema stats` - Estadísticas generales\n\n");
+        sb.append("• `!sistema stats` - Estadísticas generales\n");
+        sb.append("• `!sistema uso [horas]` - Uso de comandos en el servidor\n\n");
         
         sb.append("**📖 AYUDA ESPECÍFICA:**\n");
         sb.append("Usa `!sistema ayuda <comando>` para obtener ayuda detallada.\n");
@@ -261,10 +371,11 @@ public class ComandoSistema extends ComandoBase {
         sb.append("• 💚 Estado: ").append(usuario.estaActivo() ? "Activo" : "Inactivo").append("\n");
         
         // Agregar estadísticas de tareas si están disponibles
-        String estadisticasTareas = ComandoTareas.getEstadisticasUsuario(idConsulta);
+        String estadisticasTareas = ComandoTareas.getEstadisticasUsuario(repositorio, idConsulta);
         sb.append("• 📝 Tareas: ").append(estadisticasTareas).append("\n");
         
         // Calcular posición en ranking
+        List<Usuario> usuarios = repositorio.getUsuarios();
         List<Usuario> ranking = usuarios.stream()
             .sorted((u1, u2) -> Integer.compare(u2.getPuntos(), u1.getPuntos()))
             .collect(Collectors.toList());
@@ -280,10 +391,7 @@ public class ComandoSistema extends ComandoBase {
             int limite = Integer.parseInt(limitStr);
             limite = Math.max(1, Math.min(limite, 50)); // Entre 1 y 50
             
-            List<Usuario> ranking = usuarios.stream()
-                .sorted((u1, u2) -> Integer.compare(u2.getPuntos(), u1.getPuntos()))
-                .limit(limite)
-                .collect(Collectors.toList());
+            List<Usuario> ranking = repositorio.getMejoresUsuarios(limite);
             
             if (ranking.isEmpty()) {
                 return "🏆 **No hay usuarios con puntos registrados**\n\n" +
@@ -385,16 +493,21 @@ public class ComandoSistema extends ComandoBase {
      * ESTADÍSTICAS DEL BOT
      */
     private String ejecutarComandoStats() {
+        List<Usuario> usuarios = repositorio.getUsuarios();
         int totalUsuarios = usuarios.size();
         int usuariosActivos = (int) usuarios.stream().filter(Usuario::estaActivo).count();
         int totalPuntos = usuarios.stream().mapToInt(Usuario::getPuntos).sum();
         
         // Obtener estadísticas de materias y tareas
-        List<com.educativo.bot.modelos.Materia> materias = ComandoMaterias.getMaterias();
-        List<com.educativo.bot.modelos.Tarea> tareas = ComandoTareas.getTareas();
+        // Lo que está en frío (materias archivadas, tareas completadas) se cuenta sin leerlo
+        List<Materia> materiasCalientes = repositorio.getMaterias();
+        List<Tarea> tareasCalientes = repositorio.getTareas();
+        int totalMaterias = materiasCalientes.size() + repositorio.getCantidadMateriasFrias();
+        int totalTareas = tareasCalientes.size() + repositorio.getCantidadTareasFrias();
         
-        long materiasActivas = materias.stream().filter(com.educativo.bot.modelos.Materia::isActiva).count();
-        long tareasCompletadas = tareas.stream().filter(com.educativo.bot.modelos.Tarea::isCompletada).count();
+        long materiasActivas = materiasCalientes.stream().filter(Materia::isActiva).count();
+        long tareasCompletadas = tareasCalientes.stream().filter(Tarea::isCompletada).count()
+                + repositorio.getCantidadTareasFrias();
         
         return "📊 **ESTADÍSTICAS DEL BOT**\n\n" +
                "👥 **Usuarios:**\n" +
@@ -402,38 +515,67 @@ public class ComandoSistema extends ComandoBase {
                "• Usuarios activos: " + usuariosActivos + "\n" +
                "• Promedio puntos/usuario: " + (totalUsuarios > 0 ? totalPuntos / totalUsuarios : 0) + "\n\n" +
                "📚 **Materias:**\n" +
-               "• Total creadas: " + materias.size() + "\n" +
+               "• Total creadas: " + totalMaterias + "\n" +
                "• Materias activas: " + materiasActivas + "\n" +
-               "• Materias archivadas: " + (materias.size() - materiasActivas) + "\n\n" +
+               "• Materias archivadas: " + (totalMaterias - materiasActivas) + "\n\n" +
                "📝 **Tareas:**\n" +
-               "• Total creadas: " + tareas.size() + "\n" +
+               "• Total creadas: " + totalTareas + "\n" +
                "• Tareas completadas: " + tareasCompletadas + "\n" +
-               "• Tareas pendientes: " + (tareas.size() - tareasCompletadas) + "\n" +
-               "• Tasa de completación: " + (tareas.size() > 0 ? (tareasCompletadas * 100 / tareas.size()) : 0) + "%\n\n" +
+               "• Tareas pendientes: " + (totalTareas - tareasCompletadas) + "\n" +
+               "• Tasa de completación: " + (totalTareas > 0 ? (tareasCompletadas * 100 / totalTareas) : 0) + "%\n\n" +
                "💎 **Sistema de puntos:**\n" +
                "• Total puntos en circulación: " + totalPuntos + "\n" +
-               "• Usuario con más puntos: " + obtenerUsuarioConMasPuntos() + "\n\n" +
+               "• Usuario con más puntos: " + obtenerUsuarioConMasPuntos(usuarios) + "\n\n" +
                "⚡ **Estado del sistema:**\n" +
                "• ✅ Comandos de materias: Operativo\n" +
                "• ✅ Comandos de tareas: Operativo\n" +
                "• ✅ Sistema de puntos: Operativo\n" +
-               "• ✅ Gestión de usuarios: Operativo\n\n" +
+               "• ✅ Gestión de usuarios: Operativo\n" +
+               describirReplicacion() +
+               describirDespacho() + "\n" +
                "🔄 **Última actualización:** Bot Educativo v" + VERSION_BOT;
     }
     
+    private String describirReplicacion() {
+        String estado = estadoReplicacion != null ? estadoReplicacion.get() : null;
+        return estado != null ? "• 📡 Replicación: " + estado + "\n" : "";
+    }
+    
+    private String describirDespacho() {
+        String estado = estadoDespacho != null ? estadoDespacho.get() : null;
+        return estado != null ? "• 📬 Comandos: " + estado + "\n" : "";
+    }
+    
+    /**
+     * REPORTE DE USO
+     * Usos por comando y usuarios activos, leídos de las estadísticas persistidas
+     */
+    private String ejecutarComandoUso(String[] args, String servidorId) {
+        if (reporteActividad == null) {
+            return "❌ El reporte de uso no está disponible.";
+        }
+        
+        int horas = 24;
+        if (args.length > 1) {
+            try {
+                horas = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                return "❌ Las horas deben ser un número. Ejemplo: `!sistema uso 48`";
+            }
+            if (horas < 1) {
+                return "❌ Las horas deben ser al menos 1.";
+            }
+        }
+        
+        return reporteActividad.generarReporte(servidorId, Duration.ofHours(horas));
+    }
+    
     // ========================
     // MÉTODOS AUXILIARES
     // ========================
     
     private Usuario obtenerOCrearUsuario(String usuarioId) {
-        return usuarios.stream()
-            .filter(u -> u.getId().equals(usuarioId))
-            .findFirst()
-            .orElseGet(() -> {
-                Usuario nuevoUsuario = new Usuario(usuarioId, "Usuario" + usuarios.size());
-                usuarios.add(nuevoUsuario);
-                return nuevoUsuario;
-            });
+        return repositorio.obtenerOCrearUsuario(usuarioId);
     }
     
     private String extraerIdUsuario(String mencion) {
@@ -444,7 +586,7 @@ public class ComandoSistema extends ComandoBase {
         return mencion;
     }
     
-    private String obtenerUsuarioConMasPuntos() {
+    private String obtenerUsuarioConMasPuntos(List<Usuario> usuarios) {
         return usuarios.stream()
             .max((u1, u2) -> Integer.compare(u1.getPuntos(), u2.getPuntos()))
             .map(u -> u.getNombre() + " (" + u.getPuntos() + " pts)")
@@ -467,39 +609,4 @@ public class ComandoSistema extends ComandoBase {
             return String.format("%d segundos", segundos);
         }
     }
-    
-    // ========================
-    // MÉTODOS ESTÁTICOS PARA ACCESO COMPARTIDO
-    // ========================
-    
-    /**
-     * Permite acceso a la lista de usuarios desde otros comandos
-     */
-    public static List<Usuario> getUsuarios() {
-        return new ArrayList<>(usuarios);
-    }
-    
-    /**
-     * Busca un usuario por ID
-     */
-    public static Usuario buscarUsuario(String usuarioId) {
-        return usuarios.stream()
-            .filter(u -> u.getId().equals(usuarioId))
-            .findFirst()
-            .orElse(null);
-    }
-    
-    /**
-     * Crea o obtiene un usuario
-     */
-    public static Usuario obtenerOCrearUsuarioEstatico(String usuarioId) {
-        return usuarios.stream()
-            .filter(u -> u.getId().equals(usuarioId))
-            .findFirst()
-            .orElseGet(() -> {
-                Usuario nuevoUsuario = new Usuario(usuarioId, "Usuario" + usuarios.size());
-                usuarios.add(nuevoUsuario);
-                return nuevoUsuario;
-            });
-    }
-}
+}
\ No newline at end of file
@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 import com.educativo.bot.modelos.Materia;
 import com.educativo.bot.modelos.Tarea;
 import com.educativo.bot.modelos.Usuario;
+import com.educativo.bot.servicios.RepositorioAcademico;
 
 /**
  * COMANDOS DE TAREAS UNIFICADOS
@@ -27,11 +28,15 @@ import com.educativo.bot.modelos.Usuario;
  */
 public class ComandoTareas extends ComandoBase {
     
-    // ENCAPSULAMIENTO: Datos estáticos compartidos
-    private static final List<Tarea> tareas = new ArrayList<>();
-    private static final List<Usuario> usuarios = new ArrayList<>();
+    // ENCAPSULAMIENTO: Datos compartidos con los demás comandos
+    private final RepositorioAcademico repositorio;
     
-    public ComandoTareas() {
+    /**
+     * Constructor del comando
+     * 
+     * @param repositorio Materias, tareas y usuarios compartidos por todos los comandos
+     */
+    public ComandoTareas(RepositorioAcademico repositorio) {
         super(
             "tarea",
             "Gestión completa de tareas de estudio",
@@ -53,6 +58,31 @@ public class ComandoTareas extends ComandoBase {
             "• `!tarea prioridad <número> <1-3>` - Cambiar prioridad",
             false
         );
+        this.repositorio = repositorio;
+    }
+    
+    /**
+     * Solo listar las tareas no modifica nada
+     */
+    @Override
+    public boolean esSoloLectura(String[] args) {
+        return args.length > 0 && args[0].equalsIgnoreCase("listar");
+    }
+    
+    /**
+     * Cada usuario trabaja solo con sus tareas y sus puntos (las materias solo se leen)
+     */
+    @Override
+    public boolean usaSoloDatosDelUsuario(String[] args) {
+        return true;
+    }
+    
+    /**
+     * Listar las completadas descomprime las tareas en frío
+     */
+    @Override
+    public boolean esCostoso(String[] args) {
+        return args.length > 1 && args[0].equalsIgnoreCase("listar") && args[1].equalsIgnoreCase("completadas");
     }
     
     @Override
@@ -120,7 +150,7 @@ public class ComandoTareas extends ComandoBase {
         
         // Verificar materia si no es "General"
         if (!codigoMateria.equals("General")) {
-            Materia materia = ComandoMaterias.buscarMateria(codigoMateria);
+            Materia materia = repositorio.buscarMateria(codigoMateria);
             if (materia == null) {
                 return "❌ Materia `" + codigoMateria + "` no encontrada.\n" +
                        "Usa `!materia listar` para ver materias disponibles, o crea la tarea sin materia específica.";
@@ -129,13 +159,10 @@ public class ComandoTareas extends ComandoBase {
         
         // Crear tarea
         Tarea nuevaTarea = new Tarea(UUID.randomUUID().toString(), titulo, descripcion, codigoMateria, usuarioId, prioridad);
-        tareas.add(nuevaTarea);
-        
-        // Agregar tarea a la lista estática compartida de ComandoMaterias
-        ComandoMaterias.agregarTarea(nuevaTarea);
+        repositorio.agregarTarea(nuevaTarea);
         
-        // Obtener usuario y dar puntos
-        Usuario usuario = obtenerOCrearUsuario(usuarioId);
+        // Registrar al usuario si es su primera vez
+        repositorio.obtenerOCrearUsuario(usuarioId);
         
         StringBuilder respuesta = new StringBuilder();
         respuesta.append("✅ **Tarea creada exitosamente**\n\n");
@@ -151,11 +178,10 @@ public class ComandoTareas extends ComandoBase {
     }
     
     private String listarTareas(String[] args, String usuarioId) {
-        List<Tarea> tareasUsuario = tareas.stream()
-            .filter(t -> t.getCreadorId().equals(usuarioId))
-            .collect(Collectors.toList());
+        List<Tarea> tareasUsuario = repositorio.getTareasPorUsuario(usuarioId);
+        int tareasFrias = repositorio.getCantidadTareasFriasPorUsuario(usuarioId);
         
-        if (tareasUsuario.isEmpty()) {
+        if (tareasUsuario.isEmpty() && tareasFrias == 0) {
             return "📝 **No tienes tareas registradas**\n\n" +
                    "Crea una tarea con: `!tarea crear \"<título>\"`";
         }
@@ -163,11 +189,25 @@ public class ComandoTareas extends ComandoBase {
         // Verificar si es filtro por materia
         if (args.length > 2 && args[1].toLowerCase().equals("materia")) {
             String codigoMateria = args[2].toUpperCase();
-            return listarTareasPorMateria(tareasUsuario, codigoMateria);
+            return listarTareasPorMateria(conTareasFrias(tareasUsuario, usuarioId), codigoMateria);
         }
         
         String filtro = args.length > 1 ? args[1].toLowerCase() : "todas";
-        return formatearListaTareas(tareasUsuario, filtro, "Mis Tareas");
+        
+        // Las completadas hace tiempo están en frío: solo se leen si se piden
+        if (filtro.equals("completadas")) {
+            return formatearListaTareas(conTareasFrias(tareasUsuario, usuarioId), filtro, "Mis Tareas");
+        }
+        // Con almacenamiento "jdbc" las vencidas salen del índice de la base de datos
+        if (filtro.equals("vencidas")) {
+            return formatearListaTareas(repositorio.getTareasVencidasPorUsuario(usuarioId), filtro, "Mis Tareas");
+        }
+        String lista = formatearListaTareas(tareasUsuario, filtro, "Mis Tareas");
+        if (filtro.equals("todas") && tareasFrias > 0) {
+            lista += "\n📦 *" + tareasFrias + " tarea(s) completada(s) hace tiempo no se muestran: " +
+                     "`!tarea listar completadas`*";
+        }
+        return lista;
     }
     
     private String completarTarea(String[] args, String usuarioId) {
@@ -179,9 +219,7 @@ public class ComandoTareas extends ComandoBase {
         
         try {
             int numero = Integer.parseInt(args[1]);
-            List<Tarea> tareasUsuario = tareas.stream()
-                .filter(t -> t.getCreadorId().equals(usuarioId))
-                .collect(Collectors.toList());
+            List<Tarea> tareasUsuario = repositorio.getTareasPorUsuario(usuarioId);
             
             if (numero < 1 || numero > tareasUsuario.size()) {
                 return "❌ Número de tarea inválido. Debe estar entre 1 y " + tareasUsuario.size();
@@ -194,14 +232,16 @@ public class ComandoTareas extends ComandoBase {
             }
             
             tarea.setCompletada(true);
+            repositorio.tareaModificada(tarea);
             
             // Otorgar puntos basados en prioridad
-            Usuario usuario = obtenerOCrearUsuario(usuarioId);
+            Usuario usuario = repositorio.obtenerOCrearUsuario(usuarioId);
             int puntosBase = 10;
             int puntosBonus = tarea.getPrioridad() * 5; // 5, 10 o 15 puntos bonus
             int puntosTotal = puntosBase + puntosBonus;
             
             usuario.agregarPuntos(puntosTotal, "Tarea completada: " + tarea.getTitulo());
+            repositorio.usuarioModificado(usuario);
             
             return "✅ **Tarea completada**\n\n" +
                    "📝 " + tarea.getTitulo() + "\n" +
@@ -222,16 +262,14 @@ public class ComandoTareas extends ComandoBase {
         
         try {
             int numero = Integer.parseInt(args[1]);
-            List<Tarea> tareasUsuario = tareas.stream()
-                .filter(t -> t.getCreadorId().equals(usuarioId))
-                .collect(Collectors.toList());
+            List<Tarea> tareasUsuario = repositorio.getTareasPorUsuario(usuarioId);
             
             if (numero < 1 || numero > tareasUsuario.size()) {
                 return "❌ Número de tarea inválido.";
             }
             
             Tarea tarea = tareasUsuario.get(numero - 1);
-            tareas.remove(tarea);
+            repositorio.eliminarTarea(tarea);
             
             return "✅ Tarea `" + tarea.getTitulo() + "` eliminada exitosamente.";
             
@@ -249,9 +287,7 @@ public class ComandoTareas extends ComandoBase {
         
         try {
             int numero = Integer.parseInt(args[1]);
-            List<Tarea> tareasUsuario = tareas.stream()
-                .filter(t -> t.getCreadorId().equals(usuarioId))
-                .collect(Collectors.toList());
+            List<Tarea> tareasUsuario = repositorio.getTareasPorUsuario(usuarioId);
             
             if (numero < 1 || numero > tareasUsuario.size()) {
                 return "❌ Número de tarea inválido.";
@@ -269,6 +305,7 @@ public class ComandoTareas extends ComandoBase {
             
             Tarea tarea = tareasUsuario.get(numero - 1);
             tarea.setFechaVencimiento(fechaVencimiento);
+            repositorio.tareaModificada(tarea);
             
             return "✅ **Fecha de vencimiento establecida**\n\n" +
                    "📝 Tarea: " + tarea.getTitulo() + "\n" +
@@ -296,9 +333,7 @@ public class ComandoTareas extends ComandoBase {
                 return "❌ La prioridad debe estar entre 1 (baja) y 3 (alta).";
             }
             
-            List<Tarea> tareasUsuario = tareas.stream()
-                .filter(t -> t.getCreadorId().equals(usuarioId))
-                .collect(Collectors.toList());
+            List<Tarea> tareasUsuario = repositorio.getTareasPorUsuario(usuarioId);
             
             if (numero < 1 || numero > tareasUsuario.size()) {
                 return "❌ Número de tarea inválido.";
@@ -307,6 +342,7 @@ public class ComandoTareas extends ComandoBase {
             Tarea tarea = tareasUsuario.get(numero - 1);
             int prioridadAnterior = tarea.getPrioridad();
             tarea.setPrioridad(nuevaPrioridad);
+            repositorio.tareaModificada(tarea);
             
             return "✅ **Prioridad actualizada**\n\n" +
                    "📝 Tarea: " + tarea.getTitulo() + "\n" +
@@ -322,6 +358,12 @@ public class ComandoTareas extends ComandoBase {
     // MÉTODOS AUXILIARES
     // ========================
     
+    private List<Tarea> conTareasFrias(List<Tarea> tareasUsuario, String usuarioId) {
+        List<Tarea> todas = new ArrayList<>(tareasUsuario);
+        todas.addAll(repositorio.getTareasFriasPorUsuario(usuarioId));
+        return todas;
+    }
+    
     private String listarTareasPorMateria(List<Tarea> tareasUsuario, String codigoMateria) {
         List<Tarea> tareasMateria = tareasUsuario.stream()
             .filter(t -> t.getMateria().equalsIgnoreCase(codigoMateria))
@@ -335,17 +377,6 @@ public class ComandoTareas extends ComandoBase {
         return formatearListaTareas(tareasMateria, "todas", "Tareas de " + codigoMateria);
     }
     
-    private Usuario obtenerOCrearUsuario(String usuarioId) {
-        return usuarios.stream()
-            .filter(u -> u.getId().equals(usuarioId))
-            .findFirst()
-            .orElseGet(() -> {
-                Usuario nuevoUsuario = new Usuario(usuarioId, "Usuario" + usuarios.size());
-                usuarios.add(nuevoUsuario);
-                return nuevoUsuario;
-            });
-    }
-    
     private String getPrioridadTexto(int prioridad) {
         switch (prioridad) {
             case 1: return "🟢 Baja";
@@ -471,43 +502,28 @@ public class ComandoTareas extends ComandoBase {
     }
     
     // ========================
-    // MÉTODOS ESTÁTICOS PARA ACCESO COMPARTIDO
+    // MÉTODOS PARA ACCESO COMPARTIDO
     // ========================
     
-    /**
-     * Permite acceso a la lista de tareas desde otros comandos
-     */
-    public static List<Tarea> getTareas() {
-        return new ArrayList<>(tareas);
-    }
-    
-    /**
-     * Busca tareas por usuario
-     */
-    public static List<Tarea> getTareasPorUsuario(String usuarioId) {
-        return tareas.stream()
-            .filter(t -> t.getCreadorId().equals(usuarioId))
-            .collect(Collectors.toList());
-    }
-    
     /**
      * Obtiene estadísticas de tareas por usuario
      */
-    public static String getEstadisticasUsuario(String usuarioId) {
-        List<Tarea> tareasUsuario = getTareasPorUsuario(usuarioId);
+    public static String getEstadisticasUsuario(RepositorioAcademico repositorio, String usuarioId) {
+        List<Tarea> tareasUsuario = repositorio.getTareasPorUsuario(usuarioId);
+        int tareasFrias = repositorio.getCantidadTareasFriasPorUsuario(usuarioId); // Todas completadas
         
-        if (tareasUsuario.isEmpty()) {
+        if (tareasUsuario.isEmpty() && tareasFrias == 0) {
             return "Sin tareas registradas";
         }
         
-        long completadas = tareasUsuario.stream().filter(Tarea::isCompletada).count();
-        long pendientes = tareasUsuario.size() - completadas;
+        long completadas = tareasUsuario.stream().filter(Tarea::isCompletada).count() + tareasFrias;
+        long pendientes = tareasUsuario.size() + tareasFrias - completadas;
         long vencidas = tareasUsuario.stream()
             .filter(t -> !t.isCompletada() && t.getFechaVencimiento() != null && 
                     t.getFechaVencimiento().isBefore(LocalDateTime.now()))
             .count();
         
         return String.format("Total: %d | Completadas: %d | Pendientes: %d | Vencidas: %d", 
-                           tareasUsuario.size(), completadas, pendientes, vencidas);
+                           tareasUsuario.size() + tareasFrias, completadas, pendientes, vencidas);
     }
 }
@@ -0,0 +1,34 @@
+package com.educativo.bot.interfaces;
+
+/**
+ * CONCEPTO: GENÉRICOS
+ * 
+ * Un Codec sabe convertir un tipo concreto T al formato que guarda el
+ * GestorDatos y viceversa. Así quien lee un dato recibe directamente el
+ * tipo correcto, sin casts ni sorpresas (por ejemplo, un número que vuelve
+ * del JSON como Double en lugar de Integer).
+ * 
+ * La forma almacenada solo puede usar tipos simples que cualquier gestor
+ * sabe persistir: números, textos, booleanos, listas y mapas de ellos.
+ * 
+ * @param <T> Tipo de dato que maneja el codec
+ */
+public interface Codec<T> {
+    
+    /**
+     * Convierte el valor a su forma almacenable
+     * 
+     * @param valor Valor a guardar (no nulo)
+     * @return Forma almacenable del valor
+     */
+    Object codificar(T valor);
+    
+    /**
+     * Reconstruye el valor a partir de su forma almacenada
+     * 
+     * @param almacenado Lo que devolvió el gestor (no nulo)
+     * @return El valor reconstruido
+     * @throws IllegalArgumentException si lo almacenado no tiene el formato esperado
+     */
+    T decodificar(Object almacenado);
+}
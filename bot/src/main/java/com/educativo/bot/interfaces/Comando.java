@@ -23,6 +23,57 @@ public interface Comando {
      */
     String ejecutar(String[] args, String canalId, String usuarioId);
     
+    /**
+     * Ejecuta el comando sabiendo además en qué servidor se usó
+     * Por defecto ignora el servidor; los comandos con datos por servidor lo sobrescriben.
+     * 
+     * @param args Argumentos del comando (palabras después del comando)
+     * @param canalId ID del canal donde se ejecutó el comando
+     * @param usuarioId ID del usuario que ejecutó el comando
+     * @param servidorId ID del servidor, o null en mensajes directos
+     * @return Mensaje de respuesta para enviar al canal
+     */
+    default String ejecutar(String[] args, String canalId, String usuarioId, String servidorId) {
+        return ejecutar(args, canalId, usuarioId);
+    }
+    
+    /**
+     * Indica si el comando, con estos argumentos, solo consulta datos sin modificarlos
+     * Una réplica de solo lectura atiende únicamente los comandos que devuelven true.
+     * Por defecto se supone que el comando puede modificar datos.
+     * 
+     * @param args Argumentos del comando (palabras después del comando)
+     * @return true si no modifica ningún dato
+     */
+    default boolean esSoloLectura(String[] args) {
+        return false;
+    }
+    
+    /**
+     * Indica si el comando, con estos argumentos, solo usa datos de quien lo ejecuta
+     * (sus tareas, sus puntos). Esos comandos se ejecutan en paralelo con los de otros
+     * usuarios; los demás se ordenan respecto de todos.
+     * Por defecto se supone que puede usar datos compartidos o de otros usuarios.
+     * 
+     * @param args Argumentos del comando (palabras después del comando)
+     * @return true si solo lee o modifica datos del usuario que lo ejecuta
+     */
+    default boolean usaSoloDatosDelUsuario(String[] args) {
+        return false;
+    }
+    
+    /**
+     * Indica si el comando, con estos argumentos, es una consulta cara (recorre todos los
+     * datos o lee datos comprimidos) que puede dejarse sin responder cuando el bot está saturado
+     * Por defecto se supone que no lo es.
+     * 
+     * @param args Argumentos del comando (palabras después del comando)
+     * @return true si puede rechazarse bajo carga alta
+     */
+    default boolean esCostoso(String[] args) {
+        return false;
+    }
+    
     /**
      * Obtiene el nombre del comando (por ejemplo: "ayuda", "tarea", "puntos")
      * 
@@ -1,5 +1,12 @@
 package com.educativo.bot.interfaces;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
 /**
  * CONCEPTO: INTERFACES (continuación)
  * 
@@ -9,6 +16,41 @@ package com.educativo.bot.interfaces;
  */
 public interface GestorDatos {
     
+    /**
+     * Prefijo de las claves que pertenecen a un servidor (guild) de Discord.
+     * Los gestores que separan los datos por servidor lo usan para elegir el archivo;
+     * para el resto es una clave más.
+     */
+    String PREFIJO_SERVIDOR = "servidor/";
+    
+    /**
+     * Construye la clave de un dato que pertenece a un servidor
+     * 
+     * @param servidorId ID del servidor de Discord (null = dato global)
+     * @param clave Clave del dato dentro del servidor
+     * @return Clave completa ("servidor/<id>/<clave>"), o la clave tal cual si no hay servidor
+     */
+    static String claveServidor(String servidorId, String clave) {
+        return servidorId != null ? PREFIJO_SERVIDOR + servidorId + "/" + clave : clave;
+    }
+    
+    /**
+     * Calcula el primer texto que ya no empieza con el prefijo (límite exclusivo
+     * para recorrer un prefijo como un rango)
+     * 
+     * @param prefijo Prefijo de claves
+     * @return Límite superior exclusivo, o null si no hay límite
+     */
+    static String finDePrefijo(String prefijo) {
+        for (int i = prefijo.length() - 1; i >= 0; i--) {
+            char c = prefijo.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                return prefijo.substring(0, i) + (char) (c + 1);
+            }
+        }
+        return null;
+    }
+    
     /**
      * Guarda datos en el sistema de almacenamiento
      * 
@@ -42,9 +84,190 @@ public interface GestorDatos {
      */
     boolean existe(String clave);
     
+    /**
+     * Guarda un dato tipado usando su codec
+     * 
+     * @param clave Identificador único del dato
+     * @param valor Dato a guardar
+     * @param codec Codec que convierte el dato a su forma almacenable
+     * @return true si se guardó correctamente, false si hubo error
+     */
+    default <T> boolean guardar(String clave, T valor, Codec<T> codec) {
+        return guardar(clave, codec.codificar(valor));
+    }
+    
+    /**
+     * Guarda un dato que vence pasado un tiempo (por ejemplo, la última actividad de un usuario)
+     * Una vez vencido, el dato deja de verse y se descarta de memoria y del archivo.
+     * Guardar de nuevo la clave renueva el vencimiento; guardarla sin vigencia lo quita.
+     * Los gestores que no manejan vencimientos guardan el dato sin vencimiento.
+     * 
+     * @param clave Identificador único del dato
+     * @param valor Dato a guardar
+     * @param vigencia Tiempo durante el que el dato es válido
+     * @return true si se guardó correctamente, false si hubo error
+     */
+    default boolean guardar(String clave, Object valor, Duration vigencia) {
+        return guardar(clave, valor);
+    }
+    
+    /**
+     * Obtiene el momento en que vence un dato guardado con vigencia
+     * Lo usan quienes guardan copias del dato (por ejemplo la cache) para no
+     * seguir mostrándolo después de vencido.
+     * 
+     * @param clave Identificador único del dato
+     * @return Momento de vencimiento en milisegundos desde epoch, o 0 si el dato no
+     *         vence, no existe o el gestor no maneja vencimientos
+     */
+    default long obtenerVencimiento(String clave) {
+        return 0;
+    }
+    
+    /**
+     * Guarda un dato tipado que vence pasado un tiempo
+     * 
+     * @param clave Identificador único del dato
+     * @param valor Dato a guardar
+     * @param codec Codec que convierte el dato a su forma almacenable
+     * @param vigencia Tiempo durante el que el dato es válido
+     * @return true si se guardó correctamente, false si hubo error
+     */
+    default <T> boolean guardar(String clave, T valor, Codec<T> codec, Duration vigencia) {
+        return guardar(clave, codec.codificar(valor), vigencia);
+    }
+    
+    /**
+     * Obtiene un dato tipado usando su codec
+     * 
+     * @param clave Identificador único del dato
+     * @param codec Codec que reconstruye el dato
+     * @return El dato reconstruido o null si no existe
+     * @throws IllegalArgumentException si lo almacenado no corresponde al codec
+     */
+    default <T> T obtener(String clave, Codec<T> codec) {
+        Object almacenado = obtener(clave);
+        return almacenado != null ? codec.decodificar(almacenado) : null;
+    }
+    
+    /**
+     * Guarda varios datos de una vez
+     * Las implementaciones que persisten en disco lo hacen en una sola pasada;
+     * por defecto equivale a llamar a guardar() con cada entrada.
+     * 
+     * @param datos Claves y valores a guardar
+     * @return true si se guardaron todos, false si alguno falló
+     */
+    default boolean guardarTodos(Map<String, ?> datos) {
+        boolean todosGuardados = true;
+        for (Map.Entry<String, ?> entrada : datos.entrySet()) {
+            todosGuardados &= guardar(entrada.getKey(), entrada.getValue());
+        }
+        return todosGuardados;
+    }
+    
+    /**
+     * Obtiene varios datos de una vez
+     * 
+     * @param claves Claves a buscar
+     * @return Mapa con las claves encontradas y sus valores (las inexistentes no aparecen)
+     */
+    default Map<String, Object> obtenerTodos(Collection<String> claves) {
+        Map<String, Object> encontrados = new LinkedHashMap<>();
+        for (String clave : claves) {
+            Object valor = obtener(clave);
+            if (valor != null) {
+                encontrados.put(clave, valor);
+            }
+        }
+        return encontrados;
+    }
+    
+    /**
+     * Lee, modifica y guarda un dato como una única operación atómica:
+     * dos hilos que incrementan el mismo contador no pierden incrementos.
+     * La implementación por defecto bloquea todo el gestor; las implementaciones
+     * concretas bloquean solo lo necesario.
+     * 
+     * A diferencia de las demás escrituras, que devuelven false, actualizar lanza una
+     * excepción cuando no puede aplicar el cambio: el valor devuelto null ya significa
+     * "el dato quedó eliminado", así que no sirve para avisar de un fallo. Quien
+     * acumula cambios (por ejemplo los contadores de uso) se basa en eso para
+     * reintentarlos en vez de darlos por guardados.
+     * 
+     * @param clave Identificador único del dato
+     * @param funcion Recibe el valor actual (null si no existe) y devuelve el nuevo
+     *                (null para eliminar el dato). Puede llamarse más de una vez si hay
+     *                competencia, así que no debe tener efectos secundarios.
+     * @return El nuevo valor guardado (null si el dato no existe o se eliminó)
+     * @throws IllegalStateException si el cambio no se aplicó: almacenamiento en espera,
+     *         réplica de solo lectura o error de E/S
+     */
+    default Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        synchronized (this) {
+            Object nuevo = funcion.apply(obtener(clave));
+            if (nuevo == null) {
+                eliminar(clave);
+            } else if (!guardar(clave, nuevo)) {
+                throw new IllegalStateException("No se pudo actualizar el dato con clave '" + clave + "'");
+            }
+            return nuevo;
+        }
+    }
+    
+    /**
+     * Versión tipada de {@link #actualizar(String, UnaryOperator)}
+     * 
+     * @param clave Identificador único del dato
+     * @param codec Codec del dato
+     * @param funcion Recibe el valor actual (null si no existe) y devuelve el nuevo (null para eliminar)
+     * @return El nuevo valor guardado
+     * @throws IllegalStateException si el cambio no se aplicó
+     */
+    default <T> T actualizar(String clave, Codec<T> codec, UnaryOperator<T> funcion) {
+        Object nuevo = actualizar(clave, actual -> {
+            T resultado = funcion.apply(actual != null ? codec.decodificar(actual) : null);
+            return resultado != null ? codec.codificar(resultado) : null;
+        });
+        return nuevo != null ? codec.decodificar(nuevo) : null;
+    }
+    
+    /**
+     * Recorre en orden las entradas con clave en [desde, hasta)
+     * Todo gestor debe poder hacerlo: las estadísticas, los reportes y la copia
+     * completa de la replicación dependen de este recorrido. Los que guardan las
+     * claves ordenadas leen a medida que se avanza; los que no (índice hash)
+     * ordenan primero las claves del rango. En ambos casos el cursor refleja los
+     * cambios hechos mientras se recorre sin lanzar excepciones.
+     * 
+     * @param desde Primera clave incluida (null = desde el principio)
+     * @param hasta Primera clave excluida (null = hasta el final)
+     * @return Cursor de solo lectura sobre las entradas
+     */
+    Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta);
+    
+    /**
+     * Recorre en orden las entradas cuya clave empieza con el prefijo
+     * (por ejemplo "stats_comando_") sin recorrer el resto de las claves
+     * 
+     * @param prefijo Prefijo de las claves buscadas
+     * @return Cursor de solo lectura sobre las entradas
+     */
+    default Iterator<Map.Entry<String, Object>> escanearPrefijo(String prefijo) {
+        return escanearRango(prefijo, finDePrefijo(prefijo));
+    }
+    
     /**
      * Guarda todos los datos pendientes (flush)
      * Útil para sistemas que guardan en lotes
      */
     void sincronizar();
+    
+    /**
+     * Libera los recursos del gestor (hilos, archivos abiertos) tras
+     * sincronizar los datos pendientes. Por defecto solo sincroniza.
+     */
+    default void cerrar() {
+        sincronizar();
+    }
 }
@@ -74,6 +74,37 @@ public class Materia {
         this(id, nombre, codigo, null, null, creadorId);
     }
     
+    /**
+     * Constructor de restauración
+     * Reconstruye una materia guardada conservando su fecha, color, tareas y estado
+     * 
+     * @param id Identificador único
+     * @param nombre Nombre de la materia
+     * @param codigo Código de la materia
+     * @param descripcion Descripción
+     * @param profesor Nombre del profesor
+     * @param creadorId ID del usuario creador
+     * @param fechaCreacion Fecha de creación original
+     * @param tareasIds IDs de las tareas asociadas
+     * @param color Color de la materia
+     * @param activa Si la materia está activa
+     */
+    public Materia(String id, String nombre, String codigo, String descripcion, String profesor,
+                   String creadorId, LocalDateTime fechaCreacion, List<String> tareasIds,
+                   String color, boolean activa) {
+        this(id, nombre, codigo, descripcion, profesor, creadorId);
+        if (fechaCreacion != null) {
+            this.fechaCreacion = fechaCreacion;
+        }
+        if (tareasIds != null) {
+            this.tareasIds.addAll(tareasIds);
+        }
+        if (color != null) {
+            this.color = color;
+        }
+        this.activa = activa;
+    }
+    
     // MÉTODOS GETTER - Acceso controlado de lectura
     
     public String getId() {
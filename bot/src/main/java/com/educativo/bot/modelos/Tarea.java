@@ -24,6 +24,7 @@ public class Tarea {
     private LocalDateTime fechaVencimiento; // Cuándo vence la tarea
     private String creadorId;             // ID del usuario que creó la tarea
     private boolean completada;           // Si la tarea está completada
+    private LocalDateTime fechaCompletada; // Cuándo se completó (null si está pendiente o no se registró)
     private int prioridad;                // Prioridad (1=baja, 2=media, 3=alta)
     
     /**
@@ -59,6 +60,43 @@ public class Tarea {
         this.fechaVencimiento = null; // Se establece después con el setter
     }
     
+    /**
+     * Constructor de restauración
+     * Reconstruye una tarea guardada conservando su fecha de creación y su estado
+     * 
+     * @param id Identificador único
+     * @param titulo Título de la tarea
+     * @param descripcion Descripción de la tarea
+     * @param materia Materia correspondiente
+     * @param creadorId ID del creador
+     * @param prioridad Nivel de prioridad (1-3)
+     * @param fechaCreacion Fecha de creación original
+     * @param fechaVencimiento Fecha de vencimiento, o null si no tiene
+     * @param completada Si la tarea estaba completada
+     */
+    public Tarea(String id, String titulo, String descripcion, String materia, String creadorId,
+                 int prioridad, LocalDateTime fechaCreacion, LocalDateTime fechaVencimiento, boolean completada) {
+        this(id, titulo, descripcion, materia, creadorId, prioridad, fechaCreacion, fechaVencimiento, completada, null);
+    }
+    
+    /**
+     * Constructor de restauración con la fecha en que se completó
+     * 
+     * @param fechaCompletada Cuándo se completó, o null si no se registró
+     * @see #Tarea(String, String, String, String, String, int, LocalDateTime, LocalDateTime, boolean)
+     */
+    public Tarea(String id, String titulo, String descripcion, String materia, String creadorId,
+                 int prioridad, LocalDateTime fechaCreacion, LocalDateTime fechaVencimiento, boolean completada,
+                 LocalDateTime fechaCompletada) {
+        this(id, titulo, descripcion, materia, creadorId, prioridad);
+        if (fechaCreacion != null) {
+            this.fechaCreacion = fechaCreacion;
+        }
+        this.fechaVencimiento = fechaVencimiento;
+        this.completada = completada;
+        this.fechaCompletada = completada ? fechaCompletada : null;
+    }
+    
     // MÉTODOS GETTER - Permiten leer los valores de los atributos privados
     
     /**
@@ -133,6 +171,14 @@ public class Tarea {
         return prioridad;
     }
     
+    /**
+     * Obtiene cuándo se completó la tarea
+     * @return Fecha de completado, o null si está pendiente (o se completó antes de registrarse la fecha)
+     */
+    public LocalDateTime getFechaCompletada() {
+        return fechaCompletada;
+    }
+    
     // MÉTODOS SETTER - Permiten modificar los valores con validación
     
     /**
@@ -172,6 +218,11 @@ public class Tarea {
      * @param completada Estado de completado
      */
     public void setCompletada(boolean completada) {
+        if (completada && !this.completada) {
+            this.fechaCompletada = LocalDateTime.now();
+        } else if (!completada) {
+            this.fechaCompletada = null;
+        }
         this.completada = completada;
     }
     
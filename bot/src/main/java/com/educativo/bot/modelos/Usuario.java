@@ -51,6 +51,37 @@ public class Usuario {
         this.materiaFavorita = "General";
     }
     
+    /**
+     * Constructor de restauración
+     * Reconstruye un usuario guardado; el nivel y la materia favorita se recalculan
+     * a partir de los puntos para que siempre sean coherentes
+     * 
+     * @param id ID de Discord
+     * @param nombre Nombre del usuario
+     * @param puntos Puntos acumulados
+     * @param fechaRegistro Fecha de registro original
+     * @param ultimaActividad Última actividad registrada
+     * @param puntosPorMateria Puntos por materia
+     * @param esModerador Si tiene permisos de moderador
+     */
+    public Usuario(String id, String nombre, int puntos, LocalDateTime fechaRegistro,
+                   LocalDateTime ultimaActividad, Map<String, Integer> puntosPorMateria, boolean esModerador) {
+        this(id, nombre);
+        this.puntos = Math.max(0, puntos);
+        if (fechaRegistro != null) {
+            this.fechaRegistro = fechaRegistro;
+        }
+        if (ultimaActividad != null) {
+            this.ultimaActividad = ultimaActividad;
+        }
+        if (puntosPorMateria != null) {
+            this.puntosPorMateria.putAll(puntosPorMateria);
+        }
+        this.esModerador = esModerador;
+        actualizarNivel();
+        actualizarMateriaFavorita();
+    }
+    
     // MÉTODOS GETTER - Acceso controlado a los atributos privados
     
     public String getId() {
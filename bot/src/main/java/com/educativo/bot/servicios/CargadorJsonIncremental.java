@@ -0,0 +1,117 @@
+package com.educativo.bot.servicios;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * CONCEPTO: SEPARACIÓN DE RESPONSABILIDADES
+ *
+ * Lee un archivo JSON de datos del bot ({"clave": valor, ...}) entrada por entrada
+ * con el {@link JsonReader} de Gson, sin construir primero un Map temporal con todo
+ * el contenido. Cada entrada se entrega a quien llama apenas se lee, así el pico de
+ * memoria al iniciar es el del cache final y no el doble.
+ *
+ * Permite además saltear claves (para cargarlas más tarde) e informar el avance.
+ */
+public class CargadorJsonIncremental {
+
+    /**
+     * Contrato para recibir el avance de una carga
+     */
+    public interface Progreso {
+        /**
+         * @param entradas Entradas leídas hasta ahora (cargadas + salteadas)
+         * @param bytesLeidos Bytes del archivo consumidos (aproximado por el buffer)
+         * @param bytesTotales Tamaño total del archivo
+         */
+        void actualizar(long entradas, long bytesLeidos, long bytesTotales);
+    }
+
+    // Cada cuántas entradas se informa el avance
+    private static final int ENTRADAS_POR_AVISO = 100_000;
+
+    /**
+     * Progreso por defecto: muestra el avance por consola
+     */
+    public static final Progreso PROGRESO_CONSOLA = (entradas, bytesLeidos, bytesTotales) -> {
+        long porcentaje = bytesTotales > 0 ? Math.min(100, bytesLeidos * 100 / bytesTotales) : 100;
+        System.out.println("📦 Cargando datos: " + entradas + " entradas (" + porcentaje + "%)");
+    };
+
+    /**
+     * Constructor privado: clase utilitaria, no se instancia
+     */
+    private CargadorJsonIncremental() {
+    }
+
+    /**
+     * Recorre el archivo y entrega cada entrada al destino
+     *
+     * @param archivo Archivo JSON con un objeto en la raíz
+     * @param gson Instancia de Gson para convertir cada valor
+     * @param destino Recibe (clave, valor) de cada entrada cargada
+     * @param omitir Claves que se saltean sin convertir su valor (puede ser null)
+     * @param progreso Recibe el avance cada cierta cantidad de entradas (puede ser null)
+     * @return Cantidad de entradas entregadas al destino
+     * @throws IOException si el archivo no se puede leer o no es JSON válido
+     */
+    public static long cargar(File archivo, Gson gson, BiConsumer<String, Object> destino,
+                              Predicate<String> omitir, Progreso progreso) throws IOException {
+        TypeAdapter<Object> adaptador = gson.getAdapter(Object.class);
+        long bytesTotales = archivo.length();
+        long entradas = 0;
+        long cargadas = 0;
+
+        try (FileInputStream entrada = new FileInputStream(archivo);
+             JsonReader lector = new JsonReader(new BufferedReader(
+                     new InputStreamReader(entrada, StandardCharsets.UTF_8), 64 * 1024))) {
+
+            FileChannel canal = entrada.getChannel();
+
+            // Un archivo vacío o con "null" equivale a no tener datos
+            JsonToken primero = lector.peek();
+            if (primero == JsonToken.END_DOCUMENT || primero == JsonToken.NULL) {
+                return 0;
+            }
+
+            lector.beginObject();
+            while (lector.hasNext()) {
+                String clave = lector.nextName();
+
+                if (omitir != null && omitir.test(clave)) {
+                    lector.skipValue();
+                } else {
+                    destino.accept(clave, adaptador.read(lector));
+                    cargadas++;
+                }
+
+                entradas++;
+                if (progreso != null && entradas % ENTRADAS_POR_AVISO == 0) {
+                    progreso.actualizar(entradas, canal.position(), bytesTotales);
+                }
+            }
+            lector.endObject();
+
+            if (progreso != null && entradas >= ENTRADAS_POR_AVISO) {
+                progreso.actualizar(entradas, bytesTotales, bytesTotales);
+            }
+        } catch (IllegalStateException | NumberFormatException e) {
+            // JsonReader informa la estructura inválida con excepciones no verificadas
+            throw new IOException("JSON inválido en " + archivo + ": " + e.getMessage(), e);
+        }
+
+        return cargadas;
+    }
+}
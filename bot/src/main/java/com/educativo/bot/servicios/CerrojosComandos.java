@@ -0,0 +1,107 @@
+package com.educativo.bot.servicios;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * CONCEPTO: BLOQUEOS DE GRANO FINO
+ *
+ * Los comandos trabajan sobre los mismos objetos en memoria (tareas, usuarios,
+ * materias). En lugar de un único cerrojo que ordena todas las escrituras, hay dos niveles:
+ *
+ * - Un cerrojo por grupo de usuarios (el usuario elige el grupo por su ID). Un comando
+ *   que solo usa datos de quien lo ejecuta (sus tareas, sus puntos) toma el de su
+ *   grupo: escribe en paralelo con los comandos de otros usuarios
+ * - Un cerrojo general. Los comandos que usan datos compartidos (materias, otros
+ *   usuarios) lo toman para escribir y se ejecutan solos. Las consultas que recorren
+ *   datos de todos (ranking, estadísticas) toman para leer todos los grupos, así no
+ *   ven a medias el cambio de ningún usuario
+ *
+ * Los cerrojos se toman siempre en el mismo orden (el general y después los grupos
+ * en orden creciente), así que no hay interbloqueos.
+ */
+public class CerrojosComandos {
+
+    private static final int GRUPOS = 64;
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final ReentrantReadWriteLock general;
+    private final ReentrantReadWriteLock[] grupos;
+
+    /**
+     * Constructor de los cerrojos
+     */
+    public CerrojosComandos() {
+        this.general = new ReentrantReadWriteLock();
+        this.grupos = new ReentrantReadWriteLock[GRUPOS];
+        for (int i = 0; i < GRUPOS; i++) {
+            grupos[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Toma los cerrojos que necesita un comando
+     *
+     * @param usuarioId Usuario que ejecuta el comando
+     * @param soloLectura true si el comando no modifica datos
+     * @param soloDelUsuario true si el comando solo usa datos de ese usuario
+     * @return Cerrojos tomados, para pasarlos a {@link #soltar(List)}
+     */
+    public List<Lock> tomar(String usuarioId, boolean soloLectura, boolean soloDelUsuario) {
+        List<Lock> tomados = new ArrayList<>();
+        if (!soloDelUsuario && !soloLectura) {
+            tomar(tomados, general.writeLock()); // Ya excluye a todos los demás
+            return tomados;
+        }
+        tomar(tomados, general.readLock());
+        if (soloDelUsuario) {
+            ReentrantReadWriteLock grupo = grupos[indiceGrupo(usuarioId)];
+            tomar(tomados, soloLectura ? grupo.readLock() : grupo.writeLock());
+        } else {
+            for (ReentrantReadWriteLock grupo : grupos) {
+                tomar(tomados, grupo.readLock());
+            }
+        }
+        return tomados;
+    }
+
+    /**
+     * Toma los cerrojos de una consulta sobre los datos de todos los usuarios, para
+     * quien lee los objetos fuera de un comando (por ejemplo, el guardado periódico):
+     * espera a que terminen los cambios en curso y no deja empezar otros
+     *
+     * @return Cerrojos tomados, para pasarlos a {@link #soltar(List)}
+     */
+    public List<Lock> tomarLecturaDeTodos() {
+        return tomar(null, true, false);
+    }
+
+    /**
+     * Suelta los cerrojos en orden inverso al que se tomaron
+     *
+     * @param tomados Cerrojos devueltos por {@link #tomar(String, boolean, boolean)}
+     */
+    public void soltar(List<Lock> tomados) {
+        for (int i = tomados.size() - 1; i >= 0; i--) {
+            tomados.get(i).unlock();
+        }
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    private static void tomar(List<Lock> tomados, Lock cerrojo) {
+        cerrojo.lock();
+        tomados.add(cerrojo);
+    }
+
+    private static int indiceGrupo(String usuarioId) {
+        return usuarioId == null ? 0 : (usuarioId.hashCode() & 0x7fffffff) % GRUPOS;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CerrojosComandos{grupos=%d, escrituraGeneral=%s}", GRUPOS, general.isWriteLocked());
+    }
+}
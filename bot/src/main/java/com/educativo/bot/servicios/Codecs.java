@@ -0,0 +1,204 @@
+package com.educativo.bot.servicios;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.educativo.bot.interfaces.Codec;
+import com.educativo.bot.modelos.Materia;
+import com.educativo.bot.modelos.Tarea;
+import com.educativo.bot.modelos.Usuario;
+
+/**
+ * CONCEPTO: POLIMORFISMO (una implementación de Codec por tipo)
+ *
+ * Codecs disponibles para los datos del bot. Todos guardan una forma compacta:
+ * - Contadores y marcas de tiempo: un único número entero (long)
+ * - Modelos: una lista posicional cuyo primer elemento es la versión del esquema,
+ *   con las fechas como milisegundos desde la época. No hay nombres de campo
+ *   repetidos en cada registro ni recorrido por reflexión.
+ *
+ * Al decodificar se acepta cualquier Number: después de un reinicio Gson
+ * devuelve los números como Double y el codec los normaliza.
+ */
+public class Codecs {
+
+    // Versión del esquema de los modelos; cambiarla si cambia el orden de los campos
+    private static final int VERSION_ESQUEMA = 1;
+
+    /**
+     * Contador entero (por ejemplo "stats_comando_*")
+     */
+    public static final Codec<Long> CONTADOR = new Codec<Long>() {
+        @Override
+        public Object codificar(Long valor) {
+            return valor;
+        }
+
+        @Override
+        public Long decodificar(Object almacenado) {
+            return comoNumero(almacenado, "contador").longValue();
+        }
+    };
+
+    /**
+     * Marca de tiempo con precisión de milisegundos (por ejemplo "ultima_actividad_*")
+     */
+    public static final Codec<Instant> MARCA_TIEMPO = new Codec<Instant>() {
+        @Override
+        public Object codificar(Instant valor) {
+            return valor.toEpochMilli();
+        }
+
+        @Override
+        public Instant decodificar(Object almacenado) {
+            return Instant.ofEpochMilli(comoNumero(almacenado, "marca de tiempo").longValue());
+        }
+    };
+
+    /**
+     * Texto simple
+     */
+    public static final Codec<String> TEXTO = new Codec<String>() {
+        @Override
+        public Object codificar(String valor) {
+            return valor;
+        }
+
+        @Override
+        public String decodificar(Object almacenado) {
+            if (!(almacenado instanceof String)) {
+                throw new IllegalArgumentException("Se esperaba texto y se encontró " + almacenado.getClass().getSimpleName());
+            }
+            return (String) almacenado;
+        }
+    };
+
+    /**
+     * Tarea: [versión, id, título, descripción, materia, creador, prioridad,
+     *         creación, vencimiento, completada, fecha de completado]
+     * La fecha de completado se agregó al final: los registros anteriores no la tienen
+     */
+    public static final Codec<Tarea> TAREA = new Codec<Tarea>() {
+        @Override
+        public Object codificar(Tarea tarea) {
+            return Arrays.asList(VERSION_ESQUEMA, tarea.getId(), tarea.getTitulo(), tarea.getDescripcion(),
+                    tarea.getMateria(), tarea.getCreadorId(), tarea.getPrioridad(),
+                    aMilisegundos(tarea.getFechaCreacion()), aMilisegundos(tarea.getFechaVencimiento()),
+                    tarea.isCompletada(), aMilisegundos(tarea.getFechaCompletada()));
+        }
+
+        @Override
+        public Tarea decodificar(Object almacenado) {
+            List<?> campos = comoRegistro(almacenado, "tarea", 10);
+            return new Tarea((String) campos.get(1), (String) campos.get(2), (String) campos.get(3),
+                    (String) campos.get(4), (String) campos.get(5), comoNumero(campos.get(6), "prioridad").intValue(),
+                    aFecha(campos.get(7)), aFecha(campos.get(8)), Boolean.TRUE.equals(campos.get(9)),
+                    campos.size() > 10 ? aFecha(campos.get(10)) : null);
+        }
+    };
+
+    /**
+     * Materia: [versión, id, nombre, código, descripción, profesor, creador,
+     *           creación, [tareas], color, activa]
+     */
+    public static final Codec<Materia> MATERIA = new Codec<Materia>() {
+        @Override
+        public Object codificar(Materia materia) {
+            return Arrays.asList(VERSION_ESQUEMA, materia.getId(), materia.getNombre(), materia.getCodigo(),
+                    materia.getDescripcion(), materia.getProfesor(), materia.getCreadorId(),
+                    aMilisegundos(materia.getFechaCreacion()), materia.getTareasIds(),
+                    materia.getColor(), materia.isActiva());
+        }
+
+        @Override
+        public Materia decodificar(Object almacenado) {
+            List<?> campos = comoRegistro(almacenado, "materia", 11);
+            List<String> tareasIds = new ArrayList<>();
+            if (campos.get(8) instanceof List) {
+                for (Object tareaId : (List<?>) campos.get(8)) {
+                    tareasIds.add(String.valueOf(tareaId));
+                }
+            }
+            return new Materia((String) campos.get(1), (String) campos.get(2), (String) campos.get(3),
+                    (String) campos.get(4), (String) campos.get(5), (String) campos.get(6),
+                    aFecha(campos.get(7)), tareasIds, (String) campos.get(9), Boolean.TRUE.equals(campos.get(10)));
+        }
+    };
+
+    /**
+     * Usuario: [versión, id, nombre, puntos, registro, última actividad,
+     *           {materia: puntos}, moderador]
+     */
+    public static final Codec<Usuario> USUARIO = new Codec<Usuario>() {
+        @Override
+        public Object codificar(Usuario usuario) {
+            return Arrays.asList(VERSION_ESQUEMA, usuario.getId(), usuario.getNombre(), usuario.getPuntos(),
+                    aMilisegundos(usuario.getFechaRegistro()), aMilisegundos(usuario.getUltimaActividad()),
+                    usuario.getPuntosPorMateriaMap(), usuario.isEsModerador());
+        }
+
+        @Override
+        public Usuario decodificar(Object almacenado) {
+            List<?> campos = comoRegistro(almacenado, "usuario", 8);
+            Map<String, Integer> puntosPorMateria = new HashMap<>();
+            if (campos.get(6) instanceof Map) {
+                for (Map.Entry<?, ?> entrada : ((Map<?, ?>) campos.get(6)).entrySet()) {
+                    puntosPorMateria.put(String.valueOf(entrada.getKey()),
+                            comoNumero(entrada.getValue(), "puntos por materia").intValue());
+                }
+            }
+            return new Usuario((String) campos.get(1), (String) campos.get(2),
+                    comoNumero(campos.get(3), "puntos").intValue(), aFecha(campos.get(4)), aFecha(campos.get(5)),
+                    puntosPorMateria, Boolean.TRUE.equals(campos.get(7)));
+        }
+    };
+
+    /**
+     * Constructor privado: clase utilitaria, no se instancia
+     */
+    private Codecs() {
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private static Number comoNumero(Object almacenado, String descripcion) {
+        if (!(almacenado instanceof Number)) {
+            throw new IllegalArgumentException("Se esperaba un número para " + descripcion + " y se encontró "
+                    + (almacenado == null ? "null" : almacenado.getClass().getSimpleName()));
+        }
+        return (Number) almacenado;
+    }
+
+    /**
+     * Valida que lo almacenado sea un registro posicional de la versión conocida
+     */
+    private static List<?> comoRegistro(Object almacenado, String descripcion, int campos) {
+        if (!(almacenado instanceof List) || ((List<?>) almacenado).size() < campos) {
+            throw new IllegalArgumentException("Formato de " + descripcion + " inválido: " + almacenado);
+        }
+        List<?> registro = (List<?>) almacenado;
+        int version = comoNumero(registro.get(0), "versión de " + descripcion).intValue();
+        if (version != VERSION_ESQUEMA) {
+            throw new IllegalArgumentException("Versión de esquema de " + descripcion + " no soportada: " + version);
+        }
+        return registro;
+    }
+
+    private static Long aMilisegundos(LocalDateTime fecha) {
+        return fecha != null ? fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null;
+    }
+
+    private static LocalDateTime aFecha(Object milisegundos) {
+        if (milisegundos == null) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(comoNumero(milisegundos, "fecha").longValue()),
+                ZoneId.systemDefault());
+    }
+}
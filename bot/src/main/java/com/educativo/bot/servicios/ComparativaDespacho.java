@@ -0,0 +1,166 @@
+package com.educativo.bot.servicios;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * CONCEPTO: MEDICIÓN DE RENDIMIENTO (comparativa de los modos del despachador)
+ *
+ * Compara el {@link DespachadorComandos} con un grupo de hilos y con un hilo
+ * virtual por comando, bajo una carga sintética de comandos que bloquean:
+ *
+ * - Cada comando escribe y vuelve a leer un archivo pequeño (E/S de disco, como
+ *   GestorDatosArchivo) y después espera una latencia fija, como una consulta a
+ *   una base de datos o a una API REST
+ * - Todos los comandos se despachan de golpe desde un solo hilo, como una ráfaga
+ *   de mensajes que llega por el hilo de eventos de JDA
+ * - Para cada modo se mide el tiempo total, los comandos por segundo, la latencia
+ *   de cada comando (desde que se despacha hasta que termina) y el máximo de
+ *   hilos del sistema que hubo a la vez
+ *
+ * Uso:
+ * java -cp bot.jar com.educativo.bot.servicios.ComparativaDespacho [comandos] [latencia ms] [hilos del grupo]
+ * Los hilos virtuales solo se prueban si la JVM es Java 21 o posterior.
+ */
+public final class ComparativaDespacho {
+
+    /**
+     * Constructor privado: clase utilitaria, no se instancia
+     */
+    private ComparativaDespacho() {
+    }
+
+    /**
+     * Resultado de una corrida
+     */
+    private static final class Resultado {
+        final String modo;
+        final long totalMs;
+        final long[] latenciasMs;                          // Ordenadas
+        final int hilosMaximos;
+        final long rechazados;
+
+        Resultado(String modo, long totalMs, long[] latenciasMs, int hilosMaximos, long rechazados) {
+            this.modo = modo;
+            this.totalMs = totalMs;
+            this.latenciasMs = latenciasMs;
+            this.hilosMaximos = hilosMaximos;
+            this.rechazados = rechazados;
+        }
+
+        long percentil(double p) {
+            if (latenciasMs.length == 0) {
+                return 0;
+            }
+            int posicion = (int) Math.ceil(p / 100.0 * latenciasMs.length) - 1;
+            return latenciasMs[Math.max(0, Math.min(posicion, latenciasMs.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            double porSegundo = totalMs > 0 ? latenciasMs.length * 1000.0 / totalMs : 0;
+            return String.format("%-18s %8d ms %10.1f cmd/s %8d %8d %8d %8d %10d %10d",
+                    modo, totalMs, porSegundo, percentil(50), percentil(95), percentil(99),
+                    latenciasMs.length > 0 ? latenciasMs[latenciasMs.length - 1] : 0, hilosMaximos, rechazados);
+        }
+    }
+
+    /**
+     * Corre la comparativa e imprime una tabla por consola
+     */
+    public static void main(String[] args) throws Exception {
+        int comandos = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long latenciaMs = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        int hilosGrupo = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        Path directorio = Files.createTempDirectory("comparativa-despacho");
+        try {
+            System.out.println("⏱️ Comparativa del despachador: " + comandos + " comandos, cada uno con E/S de archivo y "
+                    + latenciaMs + " ms de espera (Java " + System.getProperty("java.specification.version") + ")");
+
+            // Una vuelta corta para que el JIT y el sistema de archivos no penalicen al primer modo
+            correr("calentamiento", new DespachadorComandos(hilosGrupo, comandos, PoliticaRechazo.AVISAR),
+                    Math.min(comandos, 200), latenciaMs, directorio);
+
+            System.out.println(String.format("%-18s %11s %16s %8s %8s %8s %8s %10s %10s",
+                    "modo", "total", "ritmo", "p50 ms", "p95 ms", "p99 ms", "máx ms", "hilos máx", "rechazos"));
+            System.out.println(correr("hilos x" + hilosGrupo,
+                    new DespachadorComandos(hilosGrupo, comandos, PoliticaRechazo.AVISAR), comandos, latenciaMs, directorio));
+            int hilosGrande = hilosGrupo * 16;
+            System.out.println(correr("hilos x" + hilosGrande,
+                    new DespachadorComandos(hilosGrande, comandos, PoliticaRechazo.AVISAR), comandos, latenciaMs, directorio));
+            if (DespachadorComandos.hilosVirtualesDisponibles()) {
+                System.out.println(correr("virtual",
+                        DespachadorComandos.conHilosVirtuales(comandos, PoliticaRechazo.AVISAR), comandos, latenciaMs, directorio));
+            } else {
+                // La fila queda en la tabla, pero sin números: nadie debe leerla como un resultado
+                System.out.println(String.format("%-18s %11s %16s %8s %8s %8s %8s %10s %10s",
+                        "virtual", "sin medir", "—", "—", "—", "—", "—", "—", "—"));
+                System.out.println("   (esta JVM es Java " + Runtime.version().feature()
+                        + ": los hilos virtuales requieren Java 21 o posterior)");
+            }
+        } finally {
+            try (Stream<Path> archivos = Files.list(directorio)) {
+                archivos.forEach(archivo -> archivo.toFile().delete());
+            }
+            Files.deleteIfExists(directorio);
+        }
+    }
+
+    /**
+     * Despacha todos los comandos de golpe y espera a que terminen
+     */
+    private static Resultado correr(String modo, DespachadorComandos despachador, int comandos, long latenciaMs,
+                                    Path directorio) throws InterruptedException {
+        ThreadMXBean hilosJvm = ManagementFactory.getThreadMXBean();
+        hilosJvm.resetPeakThreadCount();
+        CountDownLatch pendientes = new CountDownLatch(comandos);
+        long[] latenciasMs = new long[comandos];
+        AtomicInteger terminados = new AtomicInteger();
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < comandos; i++) {
+            int numero = i;
+            long despachado = System.nanoTime();
+            despachador.despachar(() -> {
+                comandoBloqueante(directorio.resolve(modo.replace(' ', '-') + "-" + numero + ".txt"), latenciaMs);
+                latenciasMs[terminados.getAndIncrement()] = (System.nanoTime() - despachado) / 1_000_000;
+                pendientes.countDown();
+            }, pendientes::countDown);
+        }
+        pendientes.await();
+        long totalMs = (System.nanoTime() - inicio) / 1_000_000;
+        int hilosMaximos = hilosJvm.getPeakThreadCount();
+        despachador.cerrar();
+
+        long[] medidas = Arrays.copyOf(latenciasMs, terminados.get());
+        Arrays.sort(medidas);
+        return new Resultado(modo, totalMs, medidas, hilosMaximos, despachador.getRechazados());
+    }
+
+    /**
+     * Lo que hace un comando de la carga sintética: E/S de disco y una espera remota
+     */
+    private static void comandoBloqueante(Path archivo, long latenciaMs) {
+        try {
+            Files.write(archivo, ("usuario;" + archivo.getFileName() + ";" + System.nanoTime())
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.readAllBytes(archivo);
+            Files.delete(archivo);
+            Thread.sleep(latenciaMs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
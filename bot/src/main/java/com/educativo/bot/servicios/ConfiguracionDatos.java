@@ -0,0 +1,447 @@
+package com.educativo.bot.servicios;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.educativo.bot.utils.Configuracion;
+
+/**
+ * CONCEPTO: ENCAPSULAMIENTO
+ *
+ * Agrupa las opciones del sistema de persistencia en un solo objeto,
+ * para no tener constructores con una lista interminable de parámetros.
+ * Cada opción tiene un valor por defecto razonable y un setter con validación.
+ */
+public class ConfiguracionDatos {
+
+    // ENCAPSULAMIENTO: Opciones privadas con valores por defecto
+    private String tipo;                     // Implementación de GestorDatos (ver FabricaGestorDatos)
+    private String rutaArchivo;              // Archivo principal de datos
+    private long intervaloEscrituraMs;       // 0 = escritura inmediata, >0 = escritura diferida
+    private int umbralClavesSucias;          // Cambios acumulados que fuerzan una escritura anticipada
+    private long umbralCompactacionBytes;    // Tamaño del log que dispara una compactación
+    private PoliticaSincronizacion politicaSincronizacion; // Cuándo forzar los datos al disco (fsync)
+    private long intervaloSincronizacionMs;  // Intervalo para la política INTERVALO
+    private int hilosEscritura;              // Hilos compartidos de escritura diferida (modo fragmentado)
+    private int hilosAsincronos;             // Hilos de E/S del gestor asíncrono
+    private int capacidadColaAsincrona;      // Operaciones pendientes máximas por hilo de E/S
+    private FormatoSnapshot formatoSnapshot; // Formato de los archivos de datos completos
+    private List<String> prefijosDiferidos;  // Familias de claves que se cargan recién al usarlas
+    private CargadorJsonIncremental.Progreso progresoCarga; // Avance de la carga inicial (null = silencioso)
+    private int entradasCache;               // Entradas máximas de la cache en memoria (0 = sin cache)
+    private int cantidadRespaldos;           // Generaciones anteriores del archivo que se conservan
+    private long intervaloRespaldosMs;       // Tiempo mínimo entre un respaldo y el siguiente
+    private String urlJdbc;                  // URL de la base (modo jdbc); null = H2 junto a rutaArchivo
+    private int conexionesJdbc;              // Conexiones del pool (modo jdbc)
+    private boolean bloqueoExclusivo;        // Una sola instancia escribe; las demás esperan
+    private long intervaloEsperaMs;          // Cada cuánto la instancia en espera relee y reintenta
+    private String modoReplicacion;          // "ninguno", "primario" o "seguidor"
+    private String hostReplicacion;          // Dirección donde escucha el primario
+    private int puertoReplicacion;           // Puerto TCP de la replicación
+    private int historialReplicacion;        // Cambios recientes que el primario guarda para reconexiones
+
+    /**
+     * Constructor con los valores por defecto (escritura inmediata)
+     *
+     * @param rutaArchivo Ruta del archivo de datos
+     */
+    public ConfiguracionDatos(String rutaArchivo) {
+        if (rutaArchivo == null || rutaArchivo.trim().isEmpty()) {
+            throw new IllegalArgumentException("La ruta del archivo no puede estar vacía");
+        }
+        this.tipo = "archivo";
+        this.rutaArchivo = rutaArchivo;
+        this.intervaloEscrituraMs = 0;
+        this.umbralClavesSucias = 1000;
+        this.umbralCompactacionBytes = 8L * 1024 * 1024;
+        this.politicaSincronizacion = PoliticaSincronizacion.INTERVALO;
+        this.intervaloSincronizacionMs = 1000;
+        this.hilosEscritura = 2;
+        this.hilosAsincronos = 2;
+        this.capacidadColaAsincrona = 10_000;
+        this.formatoSnapshot = FormatoSnapshot.JSON;
+        this.prefijosDiferidos = Collections.emptyList();
+        this.progresoCarga = CargadorJsonIncremental.PROGRESO_CONSOLA;
+        this.entradasCache = 0;
+        this.cantidadRespaldos = 3;
+        this.intervaloRespaldosMs = 60L * 60 * 1000;
+        this.urlJdbc = null;
+        this.conexionesJdbc = 4;
+        this.bloqueoExclusivo = false;
+        this.intervaloEsperaMs = 1000;
+        this.modoReplicacion = "ninguno";
+        this.hostReplicacion = "127.0.0.1";
+        this.puertoReplicacion = 7701;
+        this.historialReplicacion = 10_000;
+    }
+
+    /**
+     * FUNCIONES: Construye la configuración a partir de propiedades del sistema
+     * o variables de entorno (ver {@link Configuracion})
+     *
+     * @param rutaPorDefecto Ruta a usar si no se configuró "bot.datos.ruta"
+     * @return Configuración lista para usar
+     */
+    public static ConfiguracionDatos desdeConfiguracion(String rutaPorDefecto) {
+        ConfiguracionDatos config = new ConfiguracionDatos(Configuracion.getTexto("bot.datos.ruta", rutaPorDefecto));
+        config.setTipo(Configuracion.getTexto("bot.datos.tipo", "archivo"));
+        config.setIntervaloEscrituraMs(Configuracion.getLargo("bot.datos.escritura.intervalo", 1000));
+        config.setUmbralClavesSucias(Configuracion.getEntero("bot.datos.escritura.umbral", 1000));
+        config.setUmbralCompactacionBytes(Configuracion.getLargo("bot.datos.log.compactacion", 8L * 1024 * 1024));
+        config.setPoliticaSincronizacion(PoliticaSincronizacion.desdeTexto(
+                Configuracion.getTexto("bot.datos.sincronizacion", "interval")));
+        config.setIntervaloSincronizacionMs(Configuracion.getLargo("bot.datos.sincronizacion.intervalo", 1000));
+        config.setHilosEscritura(Configuracion.getEntero("bot.datos.fragmentos.hilos", 2));
+        config.setHilosAsincronos(Configuracion.getEntero("bot.datos.async.hilos", 2));
+        config.setCapacidadColaAsincrona(Configuracion.getEntero("bot.datos.async.cola", 10_000));
+        config.setFormatoSnapshot(FormatoSnapshot.desdeTexto(Configuracion.getTexto("bot.datos.formato", "json")));
+        config.setEntradasCache(Configuracion.getEntero("bot.datos.cache.entradas", 0));
+        config.setCantidadRespaldos(Configuracion.getEntero("bot.datos.respaldos", 3));
+        config.setIntervaloRespaldosMs(Configuracion.getLargo("bot.datos.respaldos.intervalo", 60L * 60 * 1000));
+        config.setUrlJdbc(Configuracion.getTexto("bot.datos.jdbc.url", ""));
+        config.setConexionesJdbc(Configuracion.getEntero("bot.datos.jdbc.conexiones", 4));
+        config.setBloqueoExclusivo(Configuracion.getBooleano("bot.datos.bloqueo", true));
+        config.setIntervaloEsperaMs(Configuracion.getLargo("bot.datos.espera.intervalo", 1000));
+        config.setModoReplicacion(Configuracion.getTexto("bot.replicacion.modo", "ninguno"));
+        config.setHostReplicacion(Configuracion.getTexto("bot.replicacion.host", "127.0.0.1"));
+        config.setPuertoReplicacion(Configuracion.getEntero("bot.replicacion.puerto", 7701));
+        config.setHistorialReplicacion(Configuracion.getEntero("bot.replicacion.historial", 10_000));
+
+        // Lista separada por comas, por ejemplo "ultima_actividad_,stats_comando_"
+        List<String> prefijos = new ArrayList<>();
+        for (String prefijo : Configuracion.getTexto("bot.datos.carga.diferida", "").split(",")) {
+            if (!prefijo.trim().isEmpty()) {
+                prefijos.add(prefijo.trim());
+            }
+        }
+        config.setPrefijosDiferidos(prefijos);
+        return config;
+    }
+
+    /**
+     * Crea una copia de esta configuración que apunta a otro archivo
+     * (usado para los archivos por servidor del modo fragmentado)
+     *
+     * @param rutaArchivo Ruta del nuevo archivo
+     * @return Copia con las mismas opciones y otra ruta
+     */
+    public ConfiguracionDatos copiarConRuta(String rutaArchivo) {
+        ConfiguracionDatos copia = new ConfiguracionDatos(rutaArchivo);
+        copia.tipo = tipo;
+        copia.intervaloEscrituraMs = intervaloEscrituraMs;
+        copia.umbralClavesSucias = umbralClavesSucias;
+        copia.umbralCompactacionBytes = umbralCompactacionBytes;
+        copia.politicaSincronizacion = politicaSincronizacion;
+        copia.intervaloSincronizacionMs = intervaloSincronizacionMs;
+        copia.hilosEscritura = hilosEscritura;
+        copia.hilosAsincronos = hilosAsincronos;
+        copia.capacidadColaAsincrona = capacidadColaAsincrona;
+        copia.formatoSnapshot = formatoSnapshot;
+        copia.prefijosDiferidos = prefijosDiferidos;
+        copia.progresoCarga = progresoCarga;
+        copia.entradasCache = entradasCache;
+        copia.cantidadRespaldos = cantidadRespaldos;
+        copia.intervaloRespaldosMs = intervaloRespaldosMs;
+        copia.urlJdbc = urlJdbc;
+        copia.conexionesJdbc = conexionesJdbc;
+        copia.bloqueoExclusivo = bloqueoExclusivo;
+        copia.intervaloEsperaMs = intervaloEsperaMs;
+        copia.modoReplicacion = modoReplicacion;
+        copia.hostReplicacion = hostReplicacion;
+        copia.puertoReplicacion = puertoReplicacion;
+        copia.historialReplicacion = historialReplicacion;
+        return copia;
+    }
+
+    // MÉTODOS GETTER
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public String getRutaArchivo() {
+        return rutaArchivo;
+    }
+
+    public long getIntervaloEscrituraMs() {
+        return intervaloEscrituraMs;
+    }
+
+    public int getUmbralClavesSucias() {
+        return umbralClavesSucias;
+    }
+
+    public long getUmbralCompactacionBytes() {
+        return umbralCompactacionBytes;
+    }
+
+    public PoliticaSincronizacion getPoliticaSincronizacion() {
+        return politicaSincronizacion;
+    }
+
+    public long getIntervaloSincronizacionMs() {
+        return intervaloSincronizacionMs;
+    }
+
+    public int getHilosEscritura() {
+        return hilosEscritura;
+    }
+
+    public int getHilosAsincronos() {
+        return hilosAsincronos;
+    }
+
+    public int getCapacidadColaAsincrona() {
+        return capacidadColaAsincrona;
+    }
+
+    public FormatoSnapshot getFormatoSnapshot() {
+        return formatoSnapshot;
+    }
+
+    public List<String> getPrefijosDiferidos() {
+        return prefijosDiferidos;
+    }
+
+    public int getEntradasCache() {
+        return entradasCache;
+    }
+
+    public int getCantidadRespaldos() {
+        return cantidadRespaldos;
+    }
+
+    public long getIntervaloRespaldosMs() {
+        return intervaloRespaldosMs;
+    }
+
+    public String getUrlJdbc() {
+        return urlJdbc;
+    }
+
+    public int getConexionesJdbc() {
+        return conexionesJdbc;
+    }
+
+    public boolean isBloqueoExclusivo() {
+        return bloqueoExclusivo;
+    }
+
+    public long getIntervaloEsperaMs() {
+        return intervaloEsperaMs;
+    }
+
+    public String getModoReplicacion() {
+        return modoReplicacion;
+    }
+
+    public String getHostReplicacion() {
+        return hostReplicacion;
+    }
+
+    public int getPuertoReplicacion() {
+        return puertoReplicacion;
+    }
+
+    public int getHistorialReplicacion() {
+        return historialReplicacion;
+    }
+
+    public CargadorJsonIncremental.Progreso getProgresoCarga() {
+        return progresoCarga;
+    }
+
+    /**
+     * Indica si los cambios se acumulan y se escriben en segundo plano
+     */
+    public boolean isEscrituraDiferida() {
+        return intervaloEscrituraMs > 0;
+    }
+
+    /**
+     * Indica si el almacenamiento separa los datos por servidor (modo fragmentado).
+     * Solo en ese caso las estadísticas se guardan bajo "servidor/<id>/"; en el resto
+     * siguen siendo globales, como antes de existir el modo fragmentado.
+     */
+    public boolean isSeparadoPorServidor() {
+        return "fragmentado".equals(tipo);
+    }
+
+    // MÉTODOS SETTER con validación
+
+    public void setTipo(String tipo) {
+        if (tipo == null || tipo.trim().isEmpty()) {
+            throw new IllegalArgumentException("El tipo de gestor de datos no puede estar vacío");
+        }
+        this.tipo = tipo.trim().toLowerCase();
+    }
+
+    public void setIntervaloEscrituraMs(long intervaloEscrituraMs) {
+        if (intervaloEscrituraMs < 0) {
+            throw new IllegalArgumentException("El intervalo de escritura no puede ser negativo");
+        }
+        this.intervaloEscrituraMs = intervaloEscrituraMs;
+    }
+
+    public void setUmbralClavesSucias(int umbralClavesSucias) {
+        if (umbralClavesSucias < 1) {
+            throw new IllegalArgumentException("El umbral de claves modificadas debe ser al menos 1");
+        }
+        this.umbralClavesSucias = umbralClavesSucias;
+    }
+
+    public void setUmbralCompactacionBytes(long umbralCompactacionBytes) {
+        if (umbralCompactacionBytes < 1024) {
+            throw new IllegalArgumentException("El umbral de compactación debe ser de al menos 1024 bytes");
+        }
+        this.umbralCompactacionBytes = umbralCompactacionBytes;
+    }
+
+    public void setPoliticaSincronizacion(PoliticaSincronizacion politicaSincronizacion) {
+        if (politicaSincronizacion == null) {
+            throw new IllegalArgumentException("La política de sincronización no puede ser nula");
+        }
+        this.politicaSincronizacion = politicaSincronizacion;
+    }
+
+    public void setIntervaloSincronizacionMs(long intervaloSincronizacionMs) {
+        if (intervaloSincronizacionMs < 0) {
+            throw new IllegalArgumentException("El intervalo de sincronización no puede ser negativo");
+        }
+        this.intervaloSincronizacionMs = intervaloSincronizacionMs;
+    }
+
+    public void setHilosEscritura(int hilosEscritura) {
+        if (hilosEscritura < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo de escritura");
+        }
+        this.hilosEscritura = hilosEscritura;
+    }
+
+    public void setHilosAsincronos(int hilosAsincronos) {
+        if (hilosAsincronos < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo de E/S");
+        }
+        this.hilosAsincronos = hilosAsincronos;
+    }
+
+    public void setCapacidadColaAsincrona(int capacidadColaAsincrona) {
+        if (capacidadColaAsincrona < 1) {
+            throw new IllegalArgumentException("La cola de E/S debe tener capacidad para al menos una operación");
+        }
+        this.capacidadColaAsincrona = capacidadColaAsincrona;
+    }
+
+    public void setFormatoSnapshot(FormatoSnapshot formatoSnapshot) {
+        if (formatoSnapshot == null) {
+            throw new IllegalArgumentException("El formato de snapshot no puede ser nulo");
+        }
+        this.formatoSnapshot = formatoSnapshot;
+    }
+
+    public void setPrefijosDiferidos(List<String> prefijosDiferidos) {
+        this.prefijosDiferidos = prefijosDiferidos != null
+                ? Collections.unmodifiableList(new ArrayList<>(prefijosDiferidos))
+                : Collections.emptyList();
+    }
+
+    public void setProgresoCarga(CargadorJsonIncremental.Progreso progresoCarga) {
+        this.progresoCarga = progresoCarga;
+    }
+
+    public void setEntradasCache(int entradasCache) {
+        if (entradasCache < 0) {
+            throw new IllegalArgumentException("Las entradas de la cache no pueden ser negativas");
+        }
+        this.entradasCache = entradasCache;
+    }
+
+    public void setCantidadRespaldos(int cantidadRespaldos) {
+        if (cantidadRespaldos < 0) {
+            throw new IllegalArgumentException("La cantidad de respaldos no puede ser negativa");
+        }
+        this.cantidadRespaldos = cantidadRespaldos;
+    }
+
+    public void setIntervaloRespaldosMs(long intervaloRespaldosMs) {
+        if (intervaloRespaldosMs < 0) {
+            throw new IllegalArgumentException("El intervalo entre respaldos no puede ser negativo");
+        }
+        this.intervaloRespaldosMs = intervaloRespaldosMs;
+    }
+
+    public void setUrlJdbc(String urlJdbc) {
+        this.urlJdbc = urlJdbc != null && !urlJdbc.trim().isEmpty() ? urlJdbc.trim() : null;
+    }
+
+    public void setConexionesJdbc(int conexionesJdbc) {
+        if (conexionesJdbc < 1) {
+            throw new IllegalArgumentException("Se necesita al menos una conexión a la base de datos");
+        }
+        this.conexionesJdbc = conexionesJdbc;
+    }
+
+    public void setBloqueoExclusivo(boolean bloqueoExclusivo) {
+        this.bloqueoExclusivo = bloqueoExclusivo;
+    }
+
+    public void setIntervaloEsperaMs(long intervaloEsperaMs) {
+        if (intervaloEsperaMs < 100) {
+            throw new IllegalArgumentException("El intervalo de espera debe ser de al menos 100 ms");
+        }
+        this.intervaloEsperaMs = intervaloEsperaMs;
+    }
+
+    /**
+     * Acepta los nombres en español y en inglés ("none", "primary", "follower")
+     */
+    public void setModoReplicacion(String modoReplicacion) {
+        String modo = modoReplicacion != null ? modoReplicacion.trim().toLowerCase() : "";
+        switch (modo) {
+            case "":
+            case "ninguno":
+            case "none":
+                this.modoReplicacion = "ninguno";
+                break;
+            case "primario":
+            case "primary":
+                this.modoReplicacion = "primario";
+                break;
+            case "seguidor":
+            case "follower":
+                this.modoReplicacion = "seguidor";
+                break;
+            default:
+                throw new IllegalArgumentException("Modo de replicación desconocido: '" + modoReplicacion
+                        + "'. Modos disponibles: ninguno, primario, seguidor");
+        }
+    }
+
+    public void setHostReplicacion(String hostReplicacion) {
+        if (hostReplicacion == null || hostReplicacion.trim().isEmpty()) {
+            throw new IllegalArgumentException("El host de replicación no puede estar vacío");
+        }
+        this.hostReplicacion = hostReplicacion.trim();
+    }
+
+    public void setPuertoReplicacion(int puertoReplicacion) {
+        if (puertoReplicacion < 1 || puertoReplicacion > 65535) {
+            throw new IllegalArgumentException("El puerto de replicación debe estar entre 1 y 65535");
+        }
+        this.puertoReplicacion = puertoReplicacion;
+    }
+
+    public void setHistorialReplicacion(int historialReplicacion) {
+        if (historialReplicacion < 1) {
+            throw new IllegalArgumentException("El historial de replicación debe guardar al menos un cambio");
+        }
+        this.historialReplicacion = historialReplicacion;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConfiguracionDatos{tipo='%s', archivo='%s', formato=%s, intervaloMs=%d, umbral=%d, fsync=%s}",
+                tipo, rutaArchivo, formatoSnapshot, intervaloEscrituraMs, umbralClavesSucias, politicaSincronizacion);
+    }
+}
@@ -0,0 +1,581 @@
+package com.educativo.bot.servicios;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.educativo.bot.utils.Configuracion;
+
+/**
+ * CONCEPTO: PRODUCTOR-CONSUMIDOR (ejecución fuera del hilo de eventos)
+ *
+ * JDA entrega los eventos de Discord desde un único hilo: si un comando tarda,
+ * todos los eventos que llegan detrás esperan. El despachador recibe los comandos
+ * ya interpretados y los ejecuta en sus propios hilos, de una de dos formas:
+ *
+ * - Con un grupo de hilos (modo "hilos"): una cantidad fija de hilos. Una ráfaga
+ *   de mensajes no crea hilos, pero si todos los hilos esperan E/S, los demás
+ *   comandos esperan su turno
+ * - Con un hilo virtual por comando (modo "virtual", Java 21 o posterior): cada
+ *   comando corre en un hilo virtual, que mientras espera E/S no ocupa un hilo
+ *   del sistema. Así miles de comandos pueden estar en curso sin dimensionar un grupo
+ *
+ * CONCEPTO: ORDEN POR CANAL
+ * Los comandos de un mismo canal se ejecutan de a uno y en el orden en que
+ * llegaron, así las respuestas salen en el orden de los pedidos. Cada canal con
+ * comandos pendientes tiene su propia cola y ocupa a lo sumo un hilo a la vez;
+ * los canales distintos avanzan en paralelo. Después de cada comando el canal
+ * vuelve al final de la fila, para que uno muy activo no acapare un hilo.
+ *
+ * La cantidad de comandos aceptados y sin terminar tiene un límite: al alcanzarlo,
+ * la {@link PoliticaRechazo} decide qué pasa con el comando nuevo. Se mide cuánto
+ * espera cada comando antes de empezar, para ver si faltan hilos.
+ * Al cerrarse deja de aceptar comandos y espera a que terminen los que ya aceptó.
+ *
+ * El proyecto compila para Java 11: los hilos virtuales se crean por reflexión y,
+ * si la JVM no los tiene, se usa el grupo de hilos.
+ */
+public class DespachadorComandos {
+
+    private static final long UMBRAL_AVISO_MS = 1000;           // Espera en cola que merece un aviso
+    private static final long INTERVALO_AVISO_MS = 10000;       // Como mucho un aviso cada tanto
+
+    /**
+     * Un comando aceptado, con lo necesario para medir su espera y avisar si se descarta
+     */
+    private final class Trabajo {
+        private final Runnable accion;
+        private final Runnable alRechazar;
+        private final long encolado = System.nanoTime();
+
+        private Trabajo(Runnable accion, Runnable alRechazar) {
+            this.accion = accion;
+            this.alRechazar = alRechazar;
+        }
+
+        private void ejecutar() {
+            enEspera.decrementAndGet();
+            registrarEspera((System.nanoTime() - encolado) / 1_000_000);
+            enCurso.incrementAndGet();
+            try {
+                accion.run();
+            } catch (RuntimeException e) {
+                System.err.println("❌ Error ejecutando comando: " + e.getMessage());
+            } finally {
+                enCurso.decrementAndGet();
+                completados.increment();
+                permisos.release();
+            }
+        }
+
+        private void rechazar() {
+            rechazados.increment();
+            if (alRechazar != null) {
+                try {
+                    alRechazar.run();
+                } catch (RuntimeException e) {
+                    System.err.println("⚠️ Error avisando un comando rechazado: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Comandos pendientes de un canal, en orden de llegada
+     * Mientras está en el mapa de canales hay exactamente una tarea en el ejecutor
+     * que lo atiende; se saca del mapa cuando se vacía. Se modifica solo dentro de
+     * {@link ConcurrentHashMap#compute}, que bloquea la entrada del canal.
+     */
+    private static final class Canal {
+        private final String id;
+        private final ArrayDeque<Trabajo> pendientes = new ArrayDeque<>();
+
+        private Canal(String id) {
+            this.id = id;
+        }
+    }
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final ExecutorService ejecutor;
+    private final Map<String, Canal> canales;                  // Canales con comandos pendientes
+    private final Semaphore permisos;                           // Lugares para comandos aceptados sin terminar
+    private final int hilos;                                    // Modo hilos: tamaño del grupo (0 = virtual)
+    private final int capacidad;                                // Comandos aceptados sin terminar, como máximo
+    private final PoliticaRechazo politica;
+    private final AtomicInteger enEspera;
+    private final AtomicInteger enCurso;
+    private final LongAdder completados;
+    private final LongAdder rechazados;
+    private final LongAdder iniciados;
+    private final LongAdder esperaTotalMs;                      // Suma de las esperas, para el promedio
+    private final AtomicLong esperaMaximaMs;
+    private volatile long esperaUltimaMs;
+    private volatile long ultimoAviso;
+
+    /**
+     * Constructor de un despachador con un grupo fijo de hilos
+     *
+     * @param hilos Hilos que ejecutan comandos (al menos 1)
+     * @param capacidadCola Comandos que pueden esperar, además de los que ocupan un hilo (al menos 1)
+     * @param politica Qué hacer con un comando cuando no hay lugar
+     */
+    public DespachadorComandos(int hilos, int capacidadCola, PoliticaRechazo politica) {
+        this(crearGrupo(hilos, capacidadCola), hilos, hilos + capacidadCola, politica);
+    }
+
+    private DespachadorComandos(ExecutorService ejecutor, int hilos, int capacidad, PoliticaRechazo politica) {
+        if (politica == null) {
+            throw new IllegalArgumentException("La política de rechazo no puede ser null");
+        }
+        this.ejecutor = ejecutor;
+        this.canales = new ConcurrentHashMap<>();
+        this.permisos = new Semaphore(capacidad);
+        this.hilos = hilos;
+        this.capacidad = capacidad;
+        this.politica = politica;
+        this.enEspera = new AtomicInteger();
+        this.enCurso = new AtomicInteger();
+        this.completados = new LongAdder();
+        this.rechazados = new LongAdder();
+        this.iniciados = new LongAdder();
+        this.esperaTotalMs = new LongAdder();
+        this.esperaMaximaMs = new AtomicLong();
+    }
+
+    /**
+     * Crea un despachador que ejecuta los comandos en hilos virtuales
+     *
+     * @param maximoEnCurso Comandos aceptados sin terminar, como máximo (al menos 1)
+     * @param politica Qué hacer con un comando cuando se alcanza el máximo
+     * @throws UnsupportedOperationException si la JVM no tiene hilos virtuales
+     */
+    public static DespachadorComandos conHilosVirtuales(int maximoEnCurso, PoliticaRechazo politica) {
+        if (maximoEnCurso < 1) {
+            throw new IllegalArgumentException("El despachador debe admitir al menos un comando en curso");
+        }
+        return new DespachadorComandos(crearEjecutorVirtual(), 0, maximoEnCurso, politica);
+    }
+
+    /**
+     * Crea el despachador según la configuración:
+     * - bot.despacho.modo: hilos o virtual (por defecto hilos; virtual requiere Java 21)
+     * - bot.despacho.hilos (por defecto 4) y bot.despacho.cola (por defecto 100), modo hilos
+     * - bot.despacho.virtual.maximo: comandos en curso a la vez (por defecto 10000), modo virtual
+     * - bot.despacho.rechazo: avisar, descartar, descartar-antiguo o llamador (por defecto avisar)
+     */
+    public static DespachadorComandos desdeConfiguracion() {
+        PoliticaRechazo politica = PoliticaRechazo.desdeTexto(Configuracion.getTexto("bot.despacho.rechazo", "avisar"));
+        String modo = Configuracion.getTexto("bot.despacho.modo", "hilos").trim().toLowerCase();
+        if (modo.equals("virtual")) {
+            if (hilosVirtualesDisponibles()) {
+                try {
+                    return conHilosVirtuales(Math.max(1, Configuracion.getEntero("bot.despacho.virtual.maximo", 10000)),
+                            politica);
+                } catch (UnsupportedOperationException e) {
+                    System.err.println("⚠️ No se pudieron crear hilos virtuales: " + e.getMessage());
+                }
+            }
+            System.err.println("⚠️ Esta JVM (Java " + System.getProperty("java.specification.version")
+                    + ") no tiene hilos virtuales: los comandos se ejecutan en un grupo de hilos");
+        } else if (!modo.equals("hilos")) {
+            throw new IllegalArgumentException("Modo de despacho desconocido: '" + modo
+                    + "'. Valores válidos: hilos, virtual");
+        }
+        return new DespachadorComandos(
+                Math.max(1, Configuracion.getEntero("bot.despacho.hilos", 4)),
+                Math.max(1, Configuracion.getEntero("bot.despacho.cola", 100)),
+                politica);
+    }
+
+    /**
+     * Indica si la JVM actual puede crear hilos virtuales (Java 21 o posterior)
+     * En Java 19 y 20 Thread.ofVirtual existe como vista previa y falla sin --enable-preview,
+     * así que no alcanza con buscar el método.
+     */
+    public static boolean hilosVirtualesDisponibles() {
+        if (Runtime.version().feature() < 21) {
+            return false;
+        }
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Acepta un comando sin orden respecto de los demás
+     *
+     * @see #despachar(String, Runnable, Runnable)
+     */
+    public boolean despachar(Runnable accion, Runnable alRechazar) {
+        return despachar(null, accion, alRechazar);
+    }
+
+    /**
+     * Acepta un comando para ejecutarlo después de los pendientes del mismo canal
+     *
+     * @param canalId Canal del comando (null = sin orden respecto de los demás)
+     * @param accion Ejecución del comando (incluida la respuesta al usuario)
+     * @param alRechazar Aviso al usuario si el comando se descarta (puede ser null)
+     * @return true si el comando se aceptó; false si se descartó
+     */
+    public boolean despachar(String canalId, Runnable accion, Runnable alRechazar) {
+        if (ejecutor.isShutdown()) {
+            return false; // Cerrando: los comandos que llegan ya no se atienden
+        }
+        Trabajo trabajo = new Trabajo(accion, alRechazar);
+        if (!permisos.tryAcquire() && !conseguirLugar(trabajo)) {
+            return false;
+        }
+        enEspera.incrementAndGet();
+
+        if (canalId == null) {
+            try {
+                ejecutor.execute(trabajo::ejecutar);
+                return true;
+            } catch (RejectedExecutionException e) {
+                enEspera.decrementAndGet();
+                permisos.release();
+                return false; // Se cerró mientras tanto
+            }
+        }
+
+        boolean[] canalNuevo = new boolean[1];
+        Canal canal = canales.compute(canalId, (id, actual) -> {
+            Canal destino = actual != null ? actual : new Canal(id);
+            canalNuevo[0] = actual == null;
+            destino.pendientes.add(trabajo);
+            return destino;
+        });
+        if (canalNuevo[0]) {
+            programar(canal);
+        }
+        return true;
+    }
+
+    /**
+     * Deja de aceptar comandos y espera a que terminen los que ya estaban aceptados
+     */
+    public void cerrar() {
+        ejecutor.shutdown();
+        try {
+            if (!ejecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("⚠️ Quedaron " + (enEspera.get() + enCurso.get()) + " comandos sin terminar al cerrar");
+                ejecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ejecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    private static ExecutorService crearGrupo(int hilos, int capacidadCola) {
+        if (hilos < 1) {
+            throw new IllegalArgumentException("El despachador necesita al menos un hilo");
+        }
+        if (capacidadCola < 1) {
+            throw new IllegalArgumentException("La cola de comandos debe tener lugar para al menos uno");
+        }
+        // La cola del grupo tiene a lo sumo una tarea por canal: el límite lo ponen los permisos
+        AtomicInteger numero = new AtomicInteger();
+        return new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "despachador-comandos-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    /**
+     * Equivale a Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("comando-virtual-", 1).factory()),
+     * escrito por reflexión para que el proyecto siga compilando con Java 11
+     */
+    private static ExecutorService crearEjecutorVirtual() {
+        try {
+            Class<?> constructorHilos = Class.forName("java.lang.Thread$Builder");
+            Object constructor = Thread.class.getMethod("ofVirtual").invoke(null);
+            constructor = constructorHilos.getMethod("name", String.class, long.class)
+                    .invoke(constructor, "comando-virtual-", 1L);
+            ThreadFactory fabrica = (ThreadFactory) constructorHilos.getMethod("factory").invoke(constructor);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, fabrica);
+        } catch (ReflectiveOperationException e) {
+            // Incluye la InvocationTargetException de una vista previa no habilitada
+            throw new UnsupportedOperationException("Esta JVM no tiene hilos virtuales (requiere Java 21)", e);
+        }
+    }
+
+    /**
+     * Pone en el ejecutor la tarea que atiende un canal
+     * Si el ejecutor ya se cerró, el canal se atiende en este mismo hilo: lo aceptado se ejecuta igual.
+     */
+    private void programar(Canal canal) {
+        try {
+            ejecutor.execute(() -> atender(canal));
+        } catch (RejectedExecutionException e) {
+            atender(canal);
+        }
+    }
+
+    /**
+     * Ejecuta el próximo comando del canal y lo vuelve a poner en la fila si le quedan más
+     * Aunque el comando lance un Error, el canal se libera o se reprograma (si no, sus
+     * comandos siguientes esperarían para siempre); el Error se relanza al final.
+     */
+    private void atender(Canal canal) {
+        Error error = null;
+        boolean seguir = true;
+        while (seguir) {
+            try {
+                Trabajo[] siguiente = new Trabajo[1];
+                canales.computeIfPresent(canal.id, (id, actual) -> {
+                    siguiente[0] = actual.pendientes.poll();
+                    return actual;
+                });
+                if (siguiente[0] != null) {
+                    siguiente[0].ejecutar();
+                }
+            } catch (Error e) {
+                System.err.println("❌ Error grave ejecutando un comando del canal " + canal.id + ": " + e);
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            } finally {
+                seguir = liberarOReprogramar(canal);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Saca el canal del mapa si no le quedan comandos, o lo pone al final de la fila
+     * @return true si hay que seguir atendiéndolo en este hilo (el ejecutor se cerró)
+     */
+    private boolean liberarOReprogramar(Canal canal) {
+        boolean[] quedan = new boolean[1];
+        canales.computeIfPresent(canal.id, (id, actual) -> {
+            quedan[0] = !actual.pendientes.isEmpty();
+            return quedan[0] ? actual : null;
+        });
+        if (!quedan[0]) {
+            return false;
+        }
+        if (!ejecutor.isShutdown()) {
+            try {
+                ejecutor.execute(() -> atender(canal)); // Al final de la fila: turno de otros canales
+                return false;
+            } catch (RejectedExecutionException e) {
+                // Se cerró justo ahora: se terminan los pendientes del canal en este hilo
+            }
+        }
+        return true;
+    }
+
+    /**
+     * No hay lugar: aplica la política de rechazo
+     * @return true si se consiguió un lugar para el trabajo
+     */
+    private boolean conseguirLugar(Trabajo trabajo) {
+        switch (politica) {
+            case LLAMADOR:
+                try {
+                    // El hilo que recibió el comando espera (y deja de leer eventos) hasta que haya lugar
+                    while (!permisos.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                        if (ejecutor.isShutdown()) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    trabajo.rechazar();
+                    return false;
+                }
+            case DESCARTAR_ANTIGUO:
+                if (descartarMasAntiguo() && permisos.tryAcquire()) {
+                    return true;
+                }
+                trabajo.rechazar(); // No había ninguno esperando, u otro hilo ocupó el lugar
+                return false;
+            case DESCARTAR:
+                rechazados.increment();
+                return false;
+            default:
+                trabajo.rechazar();
+                return false;
+        }
+    }
+
+    /**
+     * Descarta (con aviso) el comando que más tiempo lleva esperando, de cualquier canal
+     * El primero de cada canal es el más antiguo de ese canal: alcanza con comparar esos.
+     *
+     * @return true si se descartó alguno
+     */
+    private boolean descartarMasAntiguo() {
+        Canal elegido = null;
+        long encoladoElegido = Long.MAX_VALUE;
+        for (Canal canal : canales.values()) {
+            Trabajo primero = primeroDe(canal);
+            if (primero != null && primero.encolado < encoladoElegido) {
+                elegido = canal;
+                encoladoElegido = primero.encolado;
+            }
+        }
+        if (elegido == null) {
+            return false;
+        }
+
+        Trabajo[] descartado = new Trabajo[1];
+        long encolado = encoladoElegido;
+        canales.computeIfPresent(elegido.id, (id, actual) -> {
+            Trabajo primero = actual.pendientes.peek();
+            if (primero != null && primero.encolado == encolado) {
+                descartado[0] = actual.pendientes.poll();
+            }
+            return actual; // Si quedó vacío, lo saca del mapa la tarea que lo atiende
+        });
+        if (descartado[0] == null) {
+            return false; // Empezó a ejecutarse mientras tanto
+        }
+        enEspera.decrementAndGet();
+        permisos.release();
+        descartado[0].rechazar();
+        return true;
+    }
+
+    private Trabajo primeroDe(Canal canal) {
+        Trabajo[] primero = new Trabajo[1];
+        canales.computeIfPresent(canal.id, (id, actual) -> {
+            primero[0] = actual.pendientes.peek();
+            return actual;
+        });
+        return primero[0];
+    }
+
+    private void registrarEspera(long esperaMs) {
+        esperaUltimaMs = esperaMs;
+        iniciados.increment();
+        esperaTotalMs.add(esperaMs);
+        esperaMaximaMs.accumulateAndGet(esperaMs, Math::max);
+
+        long ahora = System.currentTimeMillis();
+        if (esperaMs >= UMBRAL_AVISO_MS && ahora - ultimoAviso >= INTERVALO_AVISO_MS) {
+            ultimoAviso = ahora;
+            System.err.println("🐢 Un comando esperó " + esperaMs + " ms antes de ejecutarse (" + enEspera.get()
+                    + " en espera, " + enCurso.get() + " en curso, " + canales.size() + " canales)");
+        }
+    }
+
+    // MÉTODOS DE UTILIDAD (métricas)
+
+    /**
+     * @return true si los comandos se ejecutan en hilos virtuales
+     */
+    public boolean isVirtual() {
+        return hilos == 0;
+    }
+
+    /**
+     * @return Comandos aceptados que todavía no empezaron
+     */
+    public int getEnCola() {
+        return enEspera.get();
+    }
+
+    /**
+     * @return Comandos aceptados sin terminar que se admiten como máximo
+     */
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * @return Comandos ejecutándose en este momento
+     */
+    public int getEnCurso() {
+        return enCurso.get();
+    }
+
+    /**
+     * @return Canales con comandos pendientes o en curso
+     */
+    public int getCanales() {
+        return canales.size();
+    }
+
+    /**
+     * @return Tamaño del grupo de hilos (0 con hilos virtuales)
+     */
+    public int getHilos() {
+        return hilos;
+    }
+
+    public long getCompletados() {
+        return completados.sum();
+    }
+
+    public long getRechazados() {
+        return rechazados.sum();
+    }
+
+    /**
+     * @return Espera promedio antes de ejecutarse desde que arrancó el bot, en milisegundos
+     */
+    public double getEsperaPromedioMs() {
+        long cantidad = iniciados.sum();
+        return cantidad > 0 ? (double) esperaTotalMs.sum() / cantidad : 0;
+    }
+
+    public long getEsperaMaximaMs() {
+        return esperaMaximaMs.get();
+    }
+
+    /**
+     * @return Espera del último comando que empezó a ejecutarse
+     */
+    public long getEsperaUltimaMs() {
+        return esperaUltimaMs;
+    }
+
+    public PoliticaRechazo getPolitica() {
+        return politica;
+    }
+
+    /**
+     * Resumen de una línea para las estadísticas
+     */
+    public String getEstado() {
+        String ocupacion = isVirtual()
+                ? String.format("hilos virtuales, %d en curso", getEnCurso())
+                : String.format("%d/%d hilos ocupados", getEnCurso(), hilos);
+        return String.format("%s, %d en espera (%d/%d aceptados) en %d canales, espera %.1f ms promedio "
+                        + "(%d ms última, %d ms máx.), %d completados, %d rechazados",
+                ocupacion, getEnCola(), capacidad - permisos.availablePermits(), capacidad, getCanales(),
+                getEsperaPromedioMs(), getEsperaUltimaMs(), getEsperaMaximaMs(), getCompletados(), getRechazados());
+    }
+
+    @Override
+    public String toString() {
+        return "DespachadorComandos{" + getEstado() + ", politica=" + politica + "}";
+    }
+}
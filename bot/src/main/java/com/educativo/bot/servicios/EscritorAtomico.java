@@ -0,0 +1,120 @@
+package com.educativo.bot.servicios;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CONCEPTO: FUNCIONES (métodos estáticos utilitarios)
+ *
+ * Reemplaza archivos de forma atómica: el contenido nuevo se escribe en un
+ * archivo temporal junto al destino y, recién cuando está completo, se renombra
+ * sobre el original. Si el proceso muere a mitad de la escritura, el archivo
+ * original queda intacto (como mucho sobra un ".tmp").
+ */
+public class EscritorAtomico {
+
+    /**
+     * Contrato para quien genera el contenido del archivo
+     */
+    public interface Contenido {
+        void escribir(OutputStream salida) throws IOException;
+    }
+
+    /**
+     * Paso que debe completarse antes de reemplazar el destino
+     * (por ejemplo, guardar la suma de verificación del contenido nuevo)
+     */
+    public interface PasoPrevio {
+        void ejecutar() throws IOException;
+    }
+
+    /**
+     * Constructor privado: clase utilitaria, no se instancia
+     */
+    private EscritorAtomico() {
+    }
+
+    /**
+     * Escribe el contenido en un temporal y lo renombra sobre el destino
+     *
+     * @param destino Archivo a reemplazar
+     * @param contenido Generador del contenido
+     * @param forzarDisco true para hacer fsync del archivo y del directorio
+     * @throws IOException si falla la escritura; el destino no se modifica
+     */
+    public static void escribir(Path destino, Contenido contenido, boolean forzarDisco) throws IOException {
+        escribir(destino, contenido, forzarDisco, null);
+    }
+
+    /**
+     * Escribe el contenido en un temporal y lo renombra sobre el destino,
+     * ejecutando un paso intermedio cuando el temporal ya está completo
+     *
+     * @param destino Archivo a reemplazar
+     * @param contenido Generador del contenido
+     * @param forzarDisco true para hacer fsync del archivo y del directorio
+     * @param antesDeReemplazar Paso a ejecutar justo antes del renombrado (puede ser null)
+     * @throws IOException si falla la escritura o el paso previo; el destino no se modifica
+     */
+    public static void escribir(Path destino, Contenido contenido, boolean forzarDisco,
+                                PasoPrevio antesDeReemplazar) throws IOException {
+        Path directorio = destino.toAbsolutePath().getParent();
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+
+        try (FileOutputStream archivo = new FileOutputStream(temporal.toFile());
+             OutputStream salida = new BufferedOutputStream(archivo, 64 * 1024)) {
+            contenido.escribir(salida);
+            salida.flush();
+            if (forzarDisco) {
+                archivo.getChannel().force(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+
+        try {
+            if (antesDeReemplazar != null) {
+                antesDeReemplazar.ejecutar();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (forzarDisco && directorio != null) {
+            forzarDirectorio(directorio);
+        }
+    }
+
+    /**
+     * Fuerza a disco la entrada de directorio para que el renombrado sobreviva
+     * a un corte de energía. No todos los sistemas lo permiten (Windows no),
+     * en ese caso se ignora.
+     */
+    private static void forzarDirectorio(Path directorio) {
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // Sistema de archivos sin soporte para sincronizar directorios
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.educativo.bot.servicios;
+
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * CONCEPTO: POLIMORFISMO (patrón fábrica)
+ *
+ * Crea la implementación de GestorDatos indicada en la configuración.
+ * Quien la usa solo conoce la interfaz GestorDatos, así que cambiar el
+ * tipo de almacenamiento no requiere tocar el resto del bot.
+ */
+public class FabricaGestorDatos {
+
+    /**
+     * Constructor privado: clase utilitaria, no se instancia
+     */
+    private FabricaGestorDatos() {
+    }
+
+    /**
+     * Crea el gestor de datos configurado
+     *
+     * Si se configuró una cache, el gestor se devuelve envuelto en un {@link GestorDatosCache};
+     * en modo de replicación "primario" se envuelve además en un {@link GestorDatosReplicado}
+     * y, con el bloqueo exclusivo activado, todo eso queda dentro de un {@link GestorDatosExclusivo}.
+     * En modo "seguidor" no se abre ningún archivo: se devuelve un {@link GestorDatosSeguidor}.
+     *
+     * @param config Configuración de persistencia (el campo "tipo" elige la implementación)
+     * @return Gestor de datos listo para usar
+     * @throws IllegalArgumentException si el tipo no es conocido
+     */
+    public static GestorDatos crear(ConfiguracionDatos config) {
+        if ("seguidor".equals(config.getModoReplicacion())) {
+            return new GestorDatosSeguidor(config);
+        }
+        return config.isBloqueoExclusivo() ? new GestorDatosExclusivo(config) : crearSinBloqueo(config);
+    }
+
+    /**
+     * Crea el gestor configurado (con su cache y su replicación) sin el bloqueo entre instancias
+     */
+    static GestorDatos crearSinBloqueo(ConfiguracionDatos config) {
+        return envolverEnReplicacion(envolverEnCache(crearSinCache(config), config), config);
+    }
+
+    /**
+     * Envuelve el gestor para transmitir sus cambios, si esta instancia es la primaria
+     */
+    static GestorDatos envolverEnReplicacion(GestorDatos gestor, ConfiguracionDatos config) {
+        return "primario".equals(config.getModoReplicacion()) ? new GestorDatosReplicado(gestor, config) : gestor;
+    }
+
+    /**
+     * Envuelve el gestor en la cache configurada, si hay una
+     */
+    static GestorDatos envolverEnCache(GestorDatos gestor, ConfiguracionDatos config) {
+        return config.getEntradasCache() > 0 ? new GestorDatosCache(gestor, config.getEntradasCache()) : gestor;
+    }
+
+    /**
+     * Crea la implementación indicada por el tipo
+     */
+    private static GestorDatos crearSinCache(ConfiguracionDatos config) {
+        switch (config.getTipo()) {
+            case "archivo":
+                return new GestorDatosArchivo(config);
+            case "log":
+                return new GestorDatosLog(config);
+            case "mapeado":
+                return new GestorDatosMapeado(config);
+            case "fragmentado":
+                return new GestorDatosFragmentado(config);
+            case "jdbc":
+                return new GestorDatosJdbc(config);
+            default:
+                throw new IllegalArgumentException("Tipo de gestor de datos desconocido: '" + config.getTipo()
+                        + "'. Tipos disponibles: archivo, log, mapeado, fragmentado, jdbc");
+        }
+    }
+
+    /**
+     * Crea el gestor de datos configurado envuelto en un {@link GestorDatosAsincrono}
+     *
+     * @param config Configuración de persistencia
+     * @return Gestor con API asíncrona (y fachada síncrona)
+     */
+    public static GestorDatosAsincrono crearAsincrono(ConfiguracionDatos config) {
+        return new GestorDatosAsincrono(crear(config), config.getHilosAsincronos(), config.getCapacidadColaAsincrona());
+    }
+}
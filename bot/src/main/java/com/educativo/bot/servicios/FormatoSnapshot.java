@@ -0,0 +1,88 @@
+package com.educativo.bot.servicios;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import com.google.gson.Gson;
+
+/**
+ * CONCEPTO: ENUMERACIONES
+ *
+ * Formato en el que se escriben los archivos de datos completos (snapshots).
+ *
+ * - JSON: legible y editable a mano
+ * - BINARIO: compacto y rápido de escribir y leer (ver {@link SnapshotBinario})
+ *
+ * La lectura detecta el formato por el contenido del archivo, así que cambiar
+ * de formato no requiere convertir nada: el archivo se reescribe en el nuevo
+ * formato en la siguiente escritura.
+ */
+public enum FormatoSnapshot {
+    JSON,
+    BINARIO;
+
+    /**
+     * Escribe todas las entradas en este formato
+     *
+     * @param datos Entradas a guardar
+     * @param salida Destino (no se cierra)
+     * @param gson Instancia de Gson del gestor
+     * @throws IOException si falla la escritura
+     */
+    public void escribir(Map<String, Object> datos, OutputStream salida, Gson gson) throws IOException {
+        if (this == BINARIO) {
+            SnapshotBinario.escribir(datos, salida, gson);
+        } else {
+            Writer writer = new OutputStreamWriter(salida, StandardCharsets.UTF_8);
+            gson.toJson(datos, writer);
+            writer.flush();
+        }
+    }
+
+    /**
+     * Carga un archivo de datos en cualquiera de los formatos (se detecta solo)
+     *
+     * @param archivo Archivo de datos
+     * @param gson Instancia de Gson del gestor
+     * @param destino Recibe (clave, valor) de cada entrada cargada
+     * @param omitir Claves que se saltean (puede ser null)
+     * @param progreso Recibe el avance de la carga (puede ser null)
+     * @return Cantidad de entradas entregadas al destino
+     * @throws IOException si el archivo no se puede leer o está dañado
+     */
+    public static long cargar(File archivo, Gson gson, BiConsumer<String, Object> destino,
+                              Predicate<String> omitir, CargadorJsonIncremental.Progreso progreso) throws IOException {
+        if (SnapshotBinario.esBinario(archivo)) {
+            return SnapshotBinario.cargar(archivo, destino, omitir, progreso);
+        }
+        return CargadorJsonIncremental.cargar(archivo, gson, destino, omitir, progreso);
+    }
+
+    /**
+     * Convierte el texto de configuración en un formato
+     * Acepta los nombres en español y en inglés ("json", "binary")
+     *
+     * @param texto Valor configurado
+     * @return Formato correspondiente
+     * @throws IllegalArgumentException si el texto no corresponde a ningún formato
+     */
+    public static FormatoSnapshot desdeTexto(String texto) {
+        switch (texto.trim().toLowerCase()) {
+            case "json":
+                return JSON;
+            case "binario":
+            case "binary":
+                return BINARIO;
+            default:
+                throw new IllegalArgumentException("Formato de snapshot desconocido: '" + texto
+                        + "'. Valores válidos: json, binary");
+        }
+    }
+}
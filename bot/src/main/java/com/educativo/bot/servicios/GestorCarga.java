@@ -0,0 +1,330 @@
+package com.educativo.bot.servicios;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import com.educativo.bot.interfaces.Comando;
+import com.educativo.bot.utils.Configuracion;
+
+/**
+ * CONCEPTO: CONTROL DE ADMISIÓN (descarte de carga con histéresis)
+ *
+ * En una ráfaga (semana de exámenes, muchos miembros nuevos a la vez) el bot no
+ * puede atender todo igual de rápido. El gestor mide la carga y decide un
+ * {@link NivelCarga}, para degradar el servicio de a poco en vez de caerse:
+ *
+ * - Mide los comandos en espera del despachador y el percentil 99 de lo que
+ *   tardaron los comandos de los últimos segundos
+ * - Si alguna medida supera su umbral de "alta", rechaza las consultas caras;
+ *   si supera el de "crítica", además posterga las escrituras no imprescindibles
+ * - Sube de nivel en cuanto se supera un umbral, pero baja (de a un nivel) solo
+ *   cuando las medidas quedan debajo de la mitad del umbral durante un tiempo:
+ *   así no oscila entre niveles con una carga que ronda el límite
+ *
+ * Un hilo de fondo recalcula el nivel periódicamente, así también se recupera
+ * cuando dejan de llegar comandos.
+ */
+public class GestorCarga {
+
+    private static final int MUESTRAS = 1024;                  // Duraciones recientes que se guardan
+    private static final int MINIMO_MUESTRAS = 20;             // Con menos, el p99 no dice nada
+    private static final long VENTANA_MS = 30000;              // Solo cuentan las duraciones recientes
+    private static final double FACTOR_BAJADA = 0.5;           // Para bajar, las medidas deben quedar debajo de la mitad
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final IntSupplier enEspera;                        // Comandos esperando para ejecutarse
+    private final ScheduledExecutorService evaluador;          // Hilo que recalcula el nivel (null = solo a pedido)
+    private final long[] duracionesMs;                         // Anillo de duraciones recientes
+    private final long[] instantesMs;                          // Cuándo terminó cada una (0 = posición sin usar)
+    private int siguiente;                                     // Próxima posición del anillo
+    private int colaAlta;
+    private int colaCritica;
+    private long latenciaAltaMs;
+    private long latenciaCriticaMs;
+    private long recuperacionMs;
+    private volatile NivelCarga nivel;
+    private long debajoDesde;                                  // Desde cuándo se puede bajar de nivel (-1 = no se puede)
+    private volatile int ultimaEspera;
+    private volatile long ultimoP99Ms;
+    private volatile Consumer<NivelCarga> alCambiar;
+    private final LongAdder rechazados;
+
+    /**
+     * Constructor del gestor, con umbrales por defecto:
+     * cola 25 (alta) y 75 (crítica), p99 2000 ms (alta) y 5000 ms (crítica), 10 s para bajar de nivel
+     *
+     * @param enEspera Comandos esperando para ejecutarse (por ejemplo DespachadorComandos::getEnCola)
+     * @param intervaloEvaluacionMs Cada cuánto se recalcula el nivel (0 = solo al llamar a evaluar())
+     */
+    public GestorCarga(IntSupplier enEspera, long intervaloEvaluacionMs) {
+        if (enEspera == null) {
+            throw new IllegalArgumentException("La medida de la cola no puede ser null");
+        }
+        if (intervaloEvaluacionMs < 0) {
+            throw new IllegalArgumentException("El intervalo de evaluación no puede ser negativo");
+        }
+        this.enEspera = enEspera;
+        this.duracionesMs = new long[MUESTRAS];
+        this.instantesMs = new long[MUESTRAS];
+        this.colaAlta = 25;
+        this.colaCritica = 75;
+        this.latenciaAltaMs = 2000;
+        this.latenciaCriticaMs = 5000;
+        this.recuperacionMs = 10000;
+        this.nivel = NivelCarga.NORMAL;
+        this.debajoDesde = -1;
+        this.rechazados = new LongAdder();
+
+        if (intervaloEvaluacionMs > 0) {
+            this.evaluador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "gestor-carga");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            evaluador.scheduleWithFixedDelay(this::evaluarSinErrores,
+                    intervaloEvaluacionMs, intervaloEvaluacionMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.evaluador = null;
+        }
+    }
+
+    /**
+     * Crea el gestor según la configuración:
+     * - bot.carga.cola.alta / bot.carga.cola.critica: comandos en espera (por defecto 25 y 75)
+     * - bot.carga.p99.alta / bot.carga.p99.critica: p99 de ejecución en ms (por defecto 2000 y 5000)
+     * - bot.carga.recuperacion: ms debajo de la mitad de los umbrales para bajar un nivel (por defecto 10000)
+     *
+     * @param enEspera Comandos esperando para ejecutarse
+     */
+    public static GestorCarga desdeConfiguracion(IntSupplier enEspera) {
+        GestorCarga gestor = new GestorCarga(enEspera, 1000);
+        gestor.setUmbralesCola(Configuracion.getEntero("bot.carga.cola.alta", 25),
+                Configuracion.getEntero("bot.carga.cola.critica", 75));
+        gestor.setUmbralesLatencia(Configuracion.getLargo("bot.carga.p99.alta", 2000),
+                Configuracion.getLargo("bot.carga.p99.critica", 5000));
+        gestor.setRecuperacionMs(Configuracion.getLargo("bot.carga.recuperacion", 10000));
+        return gestor;
+    }
+
+    /**
+     * Registra lo que tardó en ejecutarse un comando
+     *
+     * @param duracionMs Duración en milisegundos
+     */
+    public synchronized void registrarEjecucion(long duracionMs) {
+        duracionesMs[siguiente] = duracionMs;
+        instantesMs[siguiente] = System.currentTimeMillis();
+        siguiente = (siguiente + 1) % MUESTRAS;
+    }
+
+    /**
+     * Decide si un comando se atiende con la carga actual
+     * Con carga alta o crítica, las consultas caras se rechazan.
+     *
+     * @param comando Comando a ejecutar
+     * @param args Argumentos del comando
+     * @return true si se atiende; false si hay que responder que el bot está ocupado
+     */
+    public boolean admitir(Comando comando, String[] args) {
+        if (nivel == NivelCarga.NORMAL || !comando.esCostoso(args)) {
+            return true;
+        }
+        rechazados.increment();
+        return false;
+    }
+
+    /**
+     * @return true si las escrituras no imprescindibles deben postergarse
+     */
+    public boolean isPostergarEscrituras() {
+        return nivel == NivelCarga.CRITICA;
+    }
+
+    /**
+     * Recalcula el nivel con las medidas actuales
+     *
+     * @return Nivel resultante
+     */
+    public NivelCarga evaluar() {
+        return evaluar(System.currentTimeMillis());
+    }
+
+    /**
+     * Igual que {@link #evaluar()}, con la hora dada (para las pruebas)
+     */
+    NivelCarga evaluar(long ahora) {
+        NivelCarga anterior;
+        NivelCarga nuevo;
+        synchronized (this) {
+            int cola = enEspera.getAsInt();
+            long p99 = calcularP99(ahora);
+            ultimaEspera = cola;
+            ultimoP99Ms = p99;
+
+            anterior = nivel;
+            NivelCarga porUmbral = nivelSegun(cola, p99, 1);
+            if (porUmbral.compareTo(anterior) >= 0) {
+                nuevo = porUmbral;
+                debajoDesde = -1;
+            } else if (nivelSegun(cola, p99, FACTOR_BAJADA).compareTo(anterior) < 0) {
+                // Debajo de la mitad de los umbrales: se baja un nivel si se sostiene
+                if (debajoDesde < 0) {
+                    debajoDesde = ahora;
+                }
+                if (ahora - debajoDesde >= recuperacionMs) {
+                    nuevo = NivelCarga.values()[anterior.ordinal() - 1];
+                    debajoDesde = ahora; // El siguiente nivel necesita su propio tiempo de calma
+                } else {
+                    nuevo = anterior;
+                }
+            } else {
+                nuevo = anterior;
+                debajoDesde = -1;
+            }
+            nivel = nuevo;
+        }
+
+        if (nuevo != anterior) {
+            System.out.println(nuevo.getIcono() + " Carga " + nuevo.name().toLowerCase() + " (antes "
+                    + anterior.name().toLowerCase() + "): " + ultimaEspera + " comandos en espera, p99 "
+                    + ultimoP99Ms + " ms" + describirMedidas(nuevo));
+            Consumer<NivelCarga> oyente = alCambiar;
+            if (oyente != null) {
+                oyente.accept(nuevo);
+            }
+        }
+        return nuevo;
+    }
+
+    /**
+     * Registra una acción que se ejecuta cada vez que cambia el nivel (por ejemplo,
+     * guardar lo postergado al salir del nivel crítico)
+     */
+    public void alCambiarNivel(Consumer<NivelCarga> accion) {
+        this.alCambiar = accion;
+    }
+
+    /**
+     * Detiene la evaluación periódica
+     */
+    public void cerrar() {
+        if (evaluador != null) {
+            evaluador.shutdown();
+        }
+    }
+
+    // SETTERS con validación
+
+    public synchronized void setUmbralesCola(int alta, int critica) {
+        if (alta < 1 || critica < alta) {
+            throw new IllegalArgumentException("Los umbrales de cola deben cumplir 1 <= alta <= crítica");
+        }
+        this.colaAlta = alta;
+        this.colaCritica = critica;
+    }
+
+    public synchronized void setUmbralesLatencia(long altaMs, long criticaMs) {
+        if (altaMs < 1 || criticaMs < altaMs) {
+            throw new IllegalArgumentException("Los umbrales de latencia deben cumplir 1 <= alta <= crítica");
+        }
+        this.latenciaAltaMs = altaMs;
+        this.latenciaCriticaMs = criticaMs;
+    }
+
+    public synchronized void setRecuperacionMs(long recuperacionMs) {
+        if (recuperacionMs < 0) {
+            throw new IllegalArgumentException("El tiempo de recuperación no puede ser negativo");
+        }
+        this.recuperacionMs = recuperacionMs;
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    private NivelCarga nivelSegun(int cola, long p99, double factor) {
+        if (cola >= colaCritica * factor || p99 >= latenciaCriticaMs * factor) {
+            return NivelCarga.CRITICA;
+        }
+        if (cola >= colaAlta * factor || p99 >= latenciaAltaMs * factor) {
+            return NivelCarga.ALTA;
+        }
+        return NivelCarga.NORMAL;
+    }
+
+    /**
+     * Percentil 99 de las duraciones de la ventana reciente (0 si hay pocas)
+     */
+    private long calcularP99(long ahora) {
+        long[] recientes = new long[MUESTRAS];
+        int cantidad = 0;
+        for (int i = 0; i < MUESTRAS; i++) {
+            if (ahora - instantesMs[i] <= VENTANA_MS) {
+                recientes[cantidad++] = duracionesMs[i];
+            }
+        }
+        if (cantidad < MINIMO_MUESTRAS) {
+            return 0;
+        }
+        Arrays.sort(recientes, 0, cantidad);
+        return recientes[(int) Math.ceil(0.99 * cantidad) - 1];
+    }
+
+    private static String describirMedidas(NivelCarga nivel) {
+        switch (nivel) {
+            case CRITICA:
+                return ": se rechazan consultas caras y se postergan escrituras no imprescindibles";
+            case ALTA:
+                return ": se rechazan consultas caras";
+            default:
+                return ": se atiende todo";
+        }
+    }
+
+    /**
+     * Evaluación del hilo de fondo: un error no debe cancelar las siguientes
+     */
+    private void evaluarSinErrores() {
+        try {
+            evaluar();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Error evaluando la carga: " + e.getMessage());
+        }
+    }
+
+    // MÉTODOS DE UTILIDAD (métricas)
+
+    public NivelCarga getNivel() {
+        return nivel;
+    }
+
+    /**
+     * @return p99 de ejecución calculado en la última evaluación, en milisegundos
+     */
+    public long getP99Ms() {
+        return ultimoP99Ms;
+    }
+
+    /**
+     * @return Consultas caras rechazadas por carga desde que arrancó el bot
+     */
+    public long getRechazados() {
+        return rechazados.sum();
+    }
+
+    /**
+     * Resumen de una línea para las estadísticas
+     */
+    public String getEstado() {
+        return String.format("%s %s, %d en espera, p99 %d ms, %d consultas caras rechazadas",
+                nivel.getIcono(), nivel.name().toLowerCase(), ultimaEspera, ultimoP99Ms, getRechazados());
+    }
+
+    @Override
+    public String toString() {
+        return "GestorCarga{" + getEstado() + "}";
+    }
+}
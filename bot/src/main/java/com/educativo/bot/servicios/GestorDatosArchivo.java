@@ -1,16 +1,34 @@
 package com.educativo.bot.servicios;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.educativo.bot.interfaces.GestorDatos;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
 /**
  * CONCEPTO: INTERFACES (Implementación)
@@ -22,28 +40,153 @@ import com.google.gson.reflect.TypeToken;
  * 
  * Esta implementación específica guarda datos en archivos JSON.
  * Podrías tener otras implementaciones que guarden en base de datos, memoria, etc.
+ * 
+ * Soporta dos modos de escritura (ver {@link ConfiguracionDatos}):
+ * - INMEDIATO: cada guardar/eliminar reescribe el archivo completo antes de volver
+ * - DIFERIDO (write-behind): los cambios solo marcan el gestor como modificado y un
+ *   hilo en segundo plano los agrupa en una única escritura cada cierto intervalo,
+ *   o antes si se acumulan demasiadas claves modificadas
+ * 
+ * Cada escritura genera un archivo temporal que reemplaza al original con un
+ * renombrado atómico, así un corte a mitad de escritura nunca deja el archivo
+ * a medias. Cuándo se fuerza a disco lo decide la {@link PoliticaSincronizacion}.
+ * 
+ * Junto al archivo se guarda su suma de verificación y algunas generaciones
+ * anteriores ({@link RespaldosArchivo}). Si al iniciar el archivo está dañado, se
+ * aparta (nunca se pisa con datos vacíos) y se carga el respaldo válido más nuevo.
+ * 
+ * La carga inicial lee el archivo entrada por entrada ({@link CargadorJsonIncremental}).
+ * El archivo puede estar en JSON o en el formato binario compacto ({@link FormatoSnapshot}).
+ * Las familias de claves configuradas como diferidas (por ejemplo "ultima_actividad_")
+ * se saltean al iniciar y se cargan la primera vez que se accede a una de ellas.
+ * 
+ * Las claves guardadas con vigencia vencen solas: al accederlas ya vencidas se
+ * descartan, y el hilo de escritura barre las vencidas en cada volcado. Los
+ * vencimientos se guardan en el mismo archivo, bajo una clave reservada.
+ * 
+ * También puede funcionar como réplica en espera de otra instancia que tiene el
+ * archivo ({@link GestorDatosExclusivo}): rechaza las escrituras, nunca toca los
+ * archivos y relee el archivo cuando el otro proceso lo reemplaza. Al promoverse
+ * sigue con los datos que ya tiene en memoria, sin volver a cargar desde cero.
  */
 public class GestorDatosArchivo implements GestorDatos {
     
+    // Clave reservada del archivo donde se guardan los vencimientos (clave → epoch ms)
+    static final String CLAVE_VENCIMIENTOS = "__vencimientos__";
+    
     // ENCAPSULAMIENTO: Atributos privados para controlar el estado interno
     private final String rutaArchivo;                    // Ruta donde se guardan los datos
-    private final Map<String, Object> cacheDatos;       // Cache en memoria para mejorar rendimiento
+    private final ConcurrentNavigableMap<String, Object> cacheDatos; // Cache en memoria, ordenada por clave
     private final Gson gson;                             // Para serialización JSON
-    private boolean datosModificados;                    // Flag para saber si hay cambios pendientes
+    private final AtomicBoolean datosModificados;        // Flag para saber si hay cambios pendientes
+    private final AtomicInteger clavesSucias;            // Cambios acumulados desde la última escritura
+    private final AtomicBoolean escrituraSolicitada;     // Evita encolar varias escrituras anticipadas
+    private final Object bloqueoPersistencia;            // Serializa las escrituras al archivo
+    private final int umbralClavesSucias;                // Cambios que fuerzan una escritura anticipada
+    private final ScheduledExecutorService escritor;     // Hilo de escritura diferida (null = inmediato)
+    private final boolean escritorPropio;                // false si el escritor es compartido con otros gestores
+    private final ScheduledFuture<?> volcadoPeriodico;   // Tarea periódica en el escritor (null = inmediato)
+    private final PoliticaSincronizacion politica;       // Cuándo forzar al disco (fsync)
+    private final FormatoSnapshot formato;               // Formato en que se escribe el archivo
+    private final long intervaloSincronizacionMs;        // Intervalo para la política INTERVALO
+    private long ultimoForzadoMs;                        // Último fsync (protegido por bloqueoPersistencia)
+    private boolean forzadoPendiente;                    // Hay escrituras sin fsync (idem)
+    private final List<String> prefijosDiferidos;        // Familias que se cargan al primer acceso
+    private final Set<String> familiasPendientes;        // Familias diferidas aún no cargadas
+    private final CargadorJsonIncremental.Progreso progresoCarga; // Avance de la carga inicial
+    private final Map<String, Long> vencimientos;        // Claves con vigencia → momento en que vencen
+    private final RespaldosArchivo respaldos;            // Suma de verificación y generaciones anteriores
+    private volatile File archivoCargado;                // Archivo del que se cargó (principal o respaldo)
+    private volatile boolean enEspera;                   // Réplica de solo lectura de otra instancia
+    private long versionReplica;                         // Fecha y tamaño del archivo leído en espera
     
     /**
-     * Constructor que configura el gestor de datos
+     * Constructor que configura el gestor de datos en modo de escritura inmediata
      * 
      * @param rutaArchivo Ruta del archivo donde se guardarán los datos
      */
     public GestorDatosArchivo(String rutaArchivo) {
-        this.rutaArchivo = rutaArchivo;
-        this.cacheDatos = new ConcurrentHashMap<>(); // Thread-safe para uso concurrente
+        this(new ConfiguracionDatos(rutaArchivo));
+    }
+    
+    /**
+     * Constructor que configura el gestor de datos a partir de una configuración completa
+     * 
+     * @param config Opciones de persistencia (ruta, modo de escritura, umbrales)
+     */
+    public GestorDatosArchivo(ConfiguracionDatos config) {
+        this(config, null);
+    }
+    
+    /**
+     * Constructor que permite compartir el hilo de escritura diferida entre varios gestores
+     * (por ejemplo, uno por servidor en {@link GestorDatosFragmentado})
+     * 
+     * @param config Opciones de persistencia (ruta, modo de escritura, umbrales)
+     * @param escritorCompartido Ejecutor para los volcados diferidos, o null para crear uno propio.
+     *                           No se cierra al cerrar este gestor.
+     */
+    public GestorDatosArchivo(ConfiguracionDatos config, ScheduledExecutorService escritorCompartido) {
+        this(config, escritorCompartido, false);
+    }
+    
+    /**
+     * Constructor de una réplica en espera (ver {@link GestorDatosExclusivo})
+     * 
+     * @param config Opciones de persistencia
+     * @param enEspera true para abrir el archivo solo para leerlo
+     */
+    GestorDatosArchivo(ConfiguracionDatos config, boolean enEspera) {
+        this(config, null, enEspera);
+    }
+    
+    private GestorDatosArchivo(ConfiguracionDatos config, ScheduledExecutorService escritorCompartido,
+                               boolean enEspera) {
+        this.rutaArchivo = config.getRutaArchivo();
+        this.cacheDatos = new ConcurrentSkipListMap<>(); // Thread-safe y ordenada (permite recorrer por prefijo)
         this.gson = new Gson();
-        this.datosModificados = false;
+        this.datosModificados = new AtomicBoolean(false);
+        this.clavesSucias = new AtomicInteger(0);
+        this.escrituraSolicitada = new AtomicBoolean(false);
+        this.bloqueoPersistencia = new Object();
+        this.umbralClavesSucias = config.getUmbralClavesSucias();
+        this.politica = config.getPoliticaSincronizacion();
+        this.intervaloSincronizacionMs = config.getIntervaloSincronizacionMs();
+        this.ultimoForzadoMs = System.currentTimeMillis();
+        this.forzadoPendiente = false;
+        this.formato = config.getFormatoSnapshot();
+        this.prefijosDiferidos = config.getPrefijosDiferidos();
+        this.familiasPendientes = ConcurrentHashMap.newKeySet();
+        this.progresoCarga = config.getProgresoCarga();
+        this.vencimientos = new ConcurrentHashMap<>();
+        this.respaldos = new RespaldosArchivo(Paths.get(rutaArchivo),
+                config.getCantidadRespaldos(), config.getIntervaloRespaldosMs());
+        this.archivoCargado = new File(rutaArchivo);
+        
+        // Cargar datos existentes al inicializar (en espera: sin recuperar ni apartar nada)
+        this.enEspera = enEspera;
+        if (enEspera) {
+            recargarReplica();
+        } else {
+            cargarDatos();
+        }
         
-        // Cargar datos existentes al inicializar
-        cargarDatos();
+        // En modo diferido, un único hilo vuelca los cambios periódicamente
+        if (config.isEscrituraDiferida()) {
+            this.escritorPropio = escritorCompartido == null;
+            this.escritor = escritorPropio ? Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "gestor-datos-escritor");
+                hilo.setDaemon(true);
+                return hilo;
+            }) : escritorCompartido;
+            long intervalo = config.getIntervaloEscrituraMs();
+            this.volcadoPeriodico = escritor.scheduleWithFixedDelay(this::escribirPendientes,
+                    intervalo, intervalo, TimeUnit.MILLISECONDS);
+        } else {
+            this.escritorPropio = false;
+            this.escritor = null;
+            this.volcadoPeriodico = null;
+        }
     }
     
     /**
@@ -51,22 +194,49 @@ public class GestorDatosArchivo implements GestorDatos {
      * 
      * Guarda un dato en el sistema de almacenamiento.
      * Esta implementación específica lo guarda en memoria y marca para persistencia.
+     * En modo diferido devuelve true en cuanto el dato está en memoria;
+     * los errores de escritura se reintentan en el siguiente volcado.
      */
     @Override
     public boolean guardar(String clave, Object valor) {
         // Validación de entrada
-        if (clave == null || clave.trim().isEmpty()) {
+        if (clave == null || clave.trim().isEmpty() || rechazarEnEspera(clave)) {
             return false;
         }
         
         try {
-            // Guardar en cache
+            // Guardar en cache (antes de pisar una clave diferida hay que cargar su familia)
+            asegurarFamiliaCargada(clave);
+            vencimientos.remove(clave); // Guardar sin vigencia quita el vencimiento anterior
             cacheDatos.put(clave, valor);
-            datosModificados = true;
+            return registrarCambio();
             
-            // En una implementación real, podrías configurar auto-guardado
-            // Por ahora, guardamos inmediatamente
-            return persistirDatos();
+        } catch (Exception e) {
+            System.err.println("Error al guardar dato con clave '" + clave + "': " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Guarda el dato y anota cuándo vence
+     * El vencimiento se anota antes que el dato, así un barrido que corre a la vez
+     * no puede borrar el valor nuevo con el vencimiento viejo.
+     */
+    @Override
+    public boolean guardar(String clave, Object valor, Duration vigencia) {
+        if (clave == null || clave.trim().isEmpty() || rechazarEnEspera(clave)) {
+            return false;
+        }
+        if (vigencia == null || vigencia.isNegative() || vigencia.isZero()) {
+            System.err.println("Vigencia inválida para la clave '" + clave + "': " + vigencia);
+            return false;
+        }
+        
+        try {
+            asegurarFamiliaCargada(clave);
+            vencimientos.put(clave, System.currentTimeMillis() + vigencia.toMillis());
+            cacheDatos.put(clave, valor);
+            return registrarCambio();
             
         } catch (Exception e) {
             System.err.println("Error al guardar dato con clave '" + clave + "': " + e.getMessage());
@@ -87,7 +257,9 @@ public class GestorDatosArchivo implements GestorDatos {
         }
         
         // Buscar en cache primero (más rápido)
-        return cacheDatos.get(clave);
+        asegurarFamiliaCargada(clave);
+        Object valor = cacheDatos.get(clave);
+        return valor != null && descartarSiVencio(clave, valor) ? null : valor;
     }
     
     /**
@@ -97,22 +269,20 @@ public class GestorDatosArchivo implements GestorDatos {
      */
     @Override
     public boolean eliminar(String clave) {
-        if (clave == null || clave.trim().isEmpty()) {
+        if (clave == null || clave.trim().isEmpty() || rechazarEnEspera(clave)) {
             return false;
         }
         
         try {
-            // Verificar si existe
-            if (!cacheDatos.containsKey(clave)) {
+            // Eliminar del cache (remove devuelve null si no existía)
+            asegurarFamiliaCargada(clave);
+            vencimientos.remove(clave);
+            if (cacheDatos.remove(clave) == null) {
                 return false; // No existía
             }
             
-            // Eliminar del cache
-            cacheDatos.remove(clave);
-            datosModificados = true;
-            
             // Persistir cambios
-            return persistirDatos();
+            return registrarCambio();
             
         } catch (Exception e) {
             System.err.println("Error al eliminar dato con clave '" + clave + "': " + e.getMessage());
@@ -131,72 +301,566 @@ public class GestorDatosArchivo implements GestorDatos {
             return false;
         }
         
-        return cacheDatos.containsKey(clave);
+        asegurarFamiliaCargada(clave);
+        Object valor = cacheDatos.get(clave);
+        return valor != null && !descartarSiVencio(clave, valor);
+    }
+    
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public long obtenerVencimiento(String clave) {
+        Long vence = clave != null ? vencimientos.get(clave) : null;
+        return vence != null ? vence : 0;
+    }
+    
+    /**
+     * Recorre el rango sobre la cache ordenada, sin copiar claves
+     * Antes carga las familias diferidas que puedan tener claves en el rango
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        for (String prefijo : familiasPendientes) {
+            String finFamilia = GestorDatos.finDePrefijo(prefijo);
+            boolean seSolapan = (hasta == null || prefijo.compareTo(hasta) < 0)
+                    && (desde == null || finFamilia == null || desde.compareTo(finFamilia) < 0);
+            if (seSolapan) {
+                cargarFamilia(prefijo);
+            }
+        }
+        Iterator<Map.Entry<String, Object>> cursor = cursorRango(cacheDatos, desde, hasta);
+        return vencimientos.isEmpty() ? cursor : sinVencidas(cursor);
+    }
+    
+    /**
+     * Envuelve un cursor salteando las entradas vencidas (el barrido las borrará después)
+     */
+    private Iterator<Map.Entry<String, Object>> sinVencidas(Iterator<Map.Entry<String, Object>> cursor) {
+        long ahora = System.currentTimeMillis();
+        return new Iterator<Map.Entry<String, Object>>() {
+            private Map.Entry<String, Object> siguiente;
+            
+            @Override
+            public boolean hasNext() {
+                while (siguiente == null && cursor.hasNext()) {
+                    Map.Entry<String, Object> entrada = cursor.next();
+                    Long vence = vencimientos.get(entrada.getKey());
+                    if (vence == null || vence > ahora) {
+                        siguiente = entrada;
+                    }
+                }
+                return siguiente != null;
+            }
+            
+            @Override
+            public Map.Entry<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<String, Object> entrada = siguiente;
+                siguiente = null;
+                return entrada;
+            }
+        };
+    }
+    
+    /**
+     * Cursor perezoso y de solo lectura sobre una parte de un mapa ordenado
+     * (compartido con los demás gestores que guardan todo en memoria)
+     * 
+     * @param datos Mapa ordenado
+     * @param desde Primera clave incluida (null = sin límite)
+     * @param hasta Primera clave excluida (null = sin límite)
+     * @return Cursor sobre las entradas del rango
+     */
+    static Iterator<Map.Entry<String, Object>> cursorRango(ConcurrentNavigableMap<String, Object> datos,
+                                                          String desde, String hasta) {
+        ConcurrentNavigableMap<String, Object> vista = datos;
+        if (desde != null && hasta != null) {
+            vista = desde.compareTo(hasta) < 0 ? datos.subMap(desde, hasta) : datos.subMap(desde, desde);
+        } else if (desde != null) {
+            vista = datos.tailMap(desde);
+        } else if (hasta != null) {
+            vista = datos.headMap(hasta);
+        }
+        // Vista no modificable: los cambios deben pasar por el gestor para persistirse
+        return Collections.unmodifiableMap(vista).entrySet().iterator();
+    }
+    
+    /**
+     * Guarda todo el lote en memoria y lo persiste con una sola escritura
+     */
+    @Override
+    public boolean guardarTodos(Map<String, ?> datos) {
+        for (String clave : datos.keySet()) {
+            if (clave == null || clave.trim().isEmpty()) {
+                return false;
+            }
+        }
+        if (datos.isEmpty()) {
+            return true;
+        }
+        if (rechazarEnEspera(datos.size() + " datos")) {
+            return false;
+        }
+        
+        try {
+            for (Map.Entry<String, ?> entrada : datos.entrySet()) {
+                asegurarFamiliaCargada(entrada.getKey());
+                vencimientos.remove(entrada.getKey());
+                cacheDatos.put(entrada.getKey(), entrada.getValue());
+            }
+            return registrarCambio(datos.size());
+            
+        } catch (Exception e) {
+            System.err.println("Error al guardar lote de " + datos.size() + " datos: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Lectura-modificación-escritura atómica sobre la clave
+     * compute reintenta si otro hilo cambió la clave mientras tanto (sin bloquear el mapa),
+     * así que la función puede llamarse más de una vez: debe ser pura
+     * @throws IllegalStateException si el almacenamiento está en espera, o si en modo
+     *         inmediato el cambio no se pudo escribir (queda en memoria, como en guardar)
+     */
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return null;
+        }
+        if (enEspera) {
+            throw new IllegalStateException("Almacenamiento en espera: no se puede actualizar '" + clave + "'");
+        }
+        
+        asegurarFamiliaCargada(clave);
+        Object previo = cacheDatos.get(clave);
+        if (previo != null) {
+            descartarSiVencio(clave, previo); // Una clave vencida se actualiza como si no existiera
+        }
+        // El vencimiento se conserva: actualizar no renueva la vigencia
+        Object nuevo = cacheDatos.compute(clave, (k, actual) -> funcion.apply(actual));
+        if (nuevo == null) {
+            vencimientos.remove(clave);
+        }
+        if (!registrarCambio()) {
+            throw new IllegalStateException("No se pudo escribir el cambio de '" + clave + "' en " + rutaArchivo);
+        }
+        return nuevo;
     }
     
     /**
      * IMPLEMENTACIÓN del método de la interfaz
      * 
      * Sincroniza todos los datos pendientes con el almacenamiento persistente.
+     * Es una barrera bloqueante: al volver, todo cambio hecho antes de la llamada
+     * está escrito en el archivo (o se informó el error por consola) y, salvo con
+     * la política NUNCA, forzado a disco.
      */
     @Override
     public void sincronizar() {
-        if (datosModificados) {
-            persistirDatos();
+        volcarCambios();
+        forzarPendiente(true);
+    }
+    
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * 
+     * Vuelca los cambios pendientes y detiene el hilo de escritura diferida.
+     */
+    @Override
+    public void cerrar() {
+        if (escritorPropio) {
+            escritor.shutdown();
+            try {
+                escritor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (volcadoPeriodico != null) {
+            // Escritor compartido: solo se quita la tarea de este gestor
+            volcadoPeriodico.cancel(false);
         }
+        volcarCambios();
     }
     
     // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
     
+    /**
+     * Marca el gestor como modificado y decide si escribir ahora o más tarde
+     * 
+     * @return true si el cambio quedó registrado (y escrito, en modo inmediato)
+     */
+    private boolean registrarCambio() {
+        return registrarCambio(1);
+    }
+    
+    /**
+     * Igual que {@link #registrarCambio()} pero para un lote de cambios:
+     * el lote completo se persiste en una única escritura
+     * 
+     * @param cambios Cantidad de claves modificadas
+     * @return true si los cambios quedaron registrados (y escritos, en modo inmediato)
+     */
+    private boolean registrarCambio(int cambios) {
+        datosModificados.set(true);
+        
+        if (escritor == null) {
+            // Modo inmediato: escribir antes de volver
+            return volcarCambios();
+        }
+        
+        // Modo diferido: adelantar el volcado si se acumularon demasiados cambios
+        if (clavesSucias.addAndGet(cambios) >= umbralClavesSucias
+                && escrituraSolicitada.compareAndSet(false, true)) {
+            try {
+                escritor.execute(this::escribirPendientes);
+            } catch (RuntimeException e) {
+                // El escritor ya se cerró: el volcado final lo hará cerrar()
+                escrituraSolicitada.set(false);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Tarea del hilo de escritura diferida
+     * Nunca lanza excepciones para no cancelar la ejecución periódica
+     */
+    private void escribirPendientes() {
+        escrituraSolicitada.set(false);
+        try {
+            if (purgarVencidos() > 0) {
+                datosModificados.set(true); // Sacarlas también del archivo
+            }
+            volcarCambios();
+            forzarPendiente(false);
+        } catch (Exception e) {
+            System.err.println("Error en escritura diferida de " + rutaArchivo + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Escribe el cache al archivo si hay cambios pendientes
+     * Las escrituras se serializan: quien llega mientras otro escribe espera
+     * y luego solo escribe si aparecieron cambios nuevos.
+     * 
+     * @return true si no había cambios o se escribieron correctamente
+     */
+    private boolean volcarCambios() {
+        synchronized (bloqueoPersistencia) {
+            if (enEspera || !datosModificados.getAndSet(false)) {
+                return true;
+            }
+            clavesSucias.set(0);
+            
+            boolean exito = persistirDatos();
+            if (!exito) {
+                datosModificados.set(true); // Reintentar en el próximo volcado
+            }
+            return exito;
+        }
+    }
+    
     /**
      * Carga datos desde el archivo al cache en memoria
      * Método privado que encapsula la lógica de carga
+     * 
+     * El archivo se recorre entrada por entrada, sin Map intermedio. Las claves
+     * de familias diferidas se saltean y se anotan como pendientes.
+     * 
+     * Se prueba primero el archivo principal y después los respaldos, del más nuevo
+     * al más viejo, hasta encontrar uno que pase la suma de verificación y se lea
+     * completo. Si el principal estaba dañado se aparta para no pisarlo.
      */
     private void cargarDatos() {
-        File archivo = new File(rutaArchivo);
+        File principal = new File(rutaArchivo);
         
-        // Si el archivo no existe, empezar con cache vacío
-        if (!archivo.exists()) {
-            return;
+        for (File candidato : respaldos.candidatos()) {
+            if (cargarDesde(candidato)) {
+                archivoCargado = candidato;
+                if (!candidato.equals(principal)) {
+                    apartarPrincipalDanado();
+                    datosModificados.set(true); // Reescribir el principal en el próximo volcado
+                    System.err.println("⚠️ Datos recuperados desde el respaldo " + candidato);
+                }
+                return;
+            }
         }
         
-        try (FileReader reader = new FileReader(archivo)) {
-            // Usar Gson para deserializar el JSON
-            Type tipoMap = new TypeToken<Map<String, Object>>(){}.getType();
-            Map<String, Object> datosArchivo = gson.fromJson(reader, tipoMap);
-            
-            if (datosArchivo != null) {
-                cacheDatos.putAll(datosArchivo);
+        // Ningún archivo sirve (o no había ninguno): empezar vacío sin perder lo dañado
+        if (principal.exists()) {
+            apartarPrincipalDanado();
+            System.err.println("❌ No hay ninguna versión válida de " + rutaArchivo + ": se empieza sin datos");
+        }
+    }
+    
+    /**
+     * Intenta cargar un archivo completo; si falla deja el cache vacío
+     * 
+     * @return true si el archivo pasó la verificación y se leyó entero
+     */
+    private boolean cargarDesde(File archivo) {
+        long inicio = System.currentTimeMillis();
+        try {
+            if (!RespaldosArchivo.verificar(archivo)) {
+                System.err.println("⚠️ La suma de verificación de " + archivo + " no coincide");
+                return false;
             }
             
-            datosModificados = false;
+            long cargadas = FormatoSnapshot.cargar(archivo, gson, this::cargarEntrada, clave -> {
+                String prefijo = buscarPrefijoDiferido(clave);
+                if (prefijo != null) {
+                    familiasPendientes.add(prefijo);
+                    return true;
+                }
+                return false;
+            }, progresoCarga);
+            
+            datosModificados.set(false);
+            int vencidas = purgarVencidos();
+            
+            if (progresoCarga != null) {
+                System.out.println("📦 Datos cargados: " + cargadas + " entradas en "
+                        + (System.currentTimeMillis() - inicio) + " ms"
+                        + (familiasPendientes.isEmpty() ? "" : " (diferidas: " + familiasPendientes + ")")
+                        + (vencidas == 0 ? "" : " (" + vencidas + " vencidas descartadas)"));
+            }
+            return true;
             
         } catch (IOException e) {
-            System.err.println("Error al cargar datos desde " + rutaArchivo + ": " + e.getMessage());
+            System.err.println("Error al cargar datos desde " + archivo + ": " + e.getMessage());
+            cacheDatos.clear();
+            vencimientos.clear();
+            familiasPendientes.clear();
+            return false;
+        }
+    }
+    
+    private void apartarPrincipalDanado() {
+        try {
+            File apartado = respaldos.apartarDanado();
+            if (apartado != null) {
+                System.err.println("⚠️ Archivo de datos dañado guardado como " + apartado);
+            }
+        } catch (IOException e) {
+            System.err.println("Error al apartar el archivo dañado " + rutaArchivo + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Recibe cada entrada leída del archivo: la clave reservada trae los vencimientos
+     */
+    private void cargarEntrada(String clave, Object valor) {
+        if (!CLAVE_VENCIMIENTOS.equals(clave)) {
+            cacheDatos.put(clave, valor);
+            return;
+        }
+        if (valor instanceof Map) {
+            for (Map.Entry<?, ?> vencimiento : ((Map<?, ?>) valor).entrySet()) {
+                if (vencimiento.getValue() instanceof Number) {
+                    vencimientos.put(String.valueOf(vencimiento.getKey()),
+                            ((Number) vencimiento.getValue()).longValue());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Descarta la clave si su vigencia terminó
+     * Solo borra si el vencimiento y el valor son los que se vieron: si otro hilo
+     * la guardó de nuevo mientras tanto, el dato nuevo se respeta.
+     * 
+     * @param clave Clave a revisar
+     * @param valor Valor que se leyó de la cache
+     * @return true si estaba vencida
+     */
+    private boolean descartarSiVencio(String clave, Object valor) {
+        Long vence = vencimientos.get(clave);
+        if (vence == null || vence > System.currentTimeMillis()) {
+            return false;
+        }
+        if (vencimientos.remove(clave, vence) && cacheDatos.remove(clave, valor)) {
+            datosModificados.set(true); // Sale del archivo en la próxima escritura
+        }
+        return true;
+    }
+    
+    /**
+     * Barre las claves vencidas (y los vencimientos de claves que ya no existen)
+     * Las claves de familias diferidas sin cargar se dejan para después: si se
+     * olvidara su vencimiento, al cargarlas quedarían sin vencer.
+     * 
+     * @return Cantidad de claves descartadas
+     */
+    private int purgarVencidos() {
+        if (vencimientos.isEmpty()) {
+            return 0;
+        }
+        long ahora = System.currentTimeMillis();
+        int descartadas = 0;
+        for (Map.Entry<String, Long> vencimiento : vencimientos.entrySet()) {
+            String clave = vencimiento.getKey();
+            String familia = buscarPrefijoDiferido(clave);
+            if (familia != null && familiasPendientes.contains(familia)) {
+                continue;
+            }
+            Object valor = cacheDatos.get(clave);
+            if (valor == null) {
+                vencimientos.remove(clave, vencimiento.getValue());
+            } else if (vencimiento.getValue() <= ahora && descartarSiVencio(clave, valor)) {
+                descartadas++;
+            }
+        }
+        return descartadas;
+    }
+    
+    /**
+     * Contenido a escribir en el archivo: la cache más, si hay, la clave reservada
+     * con los vencimientos
+     */
+    private Map<String, Object> contenidoArchivo() {
+        if (vencimientos.isEmpty()) {
+            return cacheDatos;
+        }
+        return new ContenidoConVencimientos(cacheDatos, new TreeMap<>(vencimientos));
+    }
+    
+    /**
+     * Vista de la cache con la entrada de vencimientos al principio (no copia la cache)
+     * Es una clase con nombre y no anónima porque Gson no serializa clases anónimas.
+     */
+    private static class ContenidoConVencimientos extends AbstractMap<String, Object> {
+        private final Map<String, Object> datos;
+        private final Map.Entry<String, Object> entradaVencimientos;
+        
+        ContenidoConVencimientos(Map<String, Object> datos, Map<String, Long> vencimientos) {
+            this.datos = datos;
+            this.entradaVencimientos = new AbstractMap.SimpleImmutableEntry<>(CLAVE_VENCIMIENTOS, vencimientos);
+        }
+        
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    Iterator<Map.Entry<String, Object>> resto = datos.entrySet().iterator();
+                    return new Iterator<Map.Entry<String, Object>>() {
+                        private boolean primera = true;
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return primera || resto.hasNext();
+                        }
+                        
+                        @Override
+                        public Map.Entry<String, Object> next() {
+                            if (primera) {
+                                primera = false;
+                                return entradaVencimientos;
+                            }
+                            return resto.next();
+                        }
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    return datos.size() + 1;
+                }
+            };
+        }
+    }
+    
+    /**
+     * Devuelve el prefijo diferido que corresponde a la clave, o null si no es diferida
+     */
+    private String buscarPrefijoDiferido(String clave) {
+        for (String prefijo : prefijosDiferidos) {
+            if (clave.startsWith(prefijo)) {
+                return prefijo;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Si la clave pertenece a una familia diferida que aún no se cargó, la carga ahora
+     * Costo casi nulo cuando no quedan familias pendientes
+     */
+    private void asegurarFamiliaCargada(String clave) {
+        if (familiasPendientes.isEmpty()) {
+            return;
+        }
+        String prefijo = buscarPrefijoDiferido(clave);
+        if (prefijo != null && familiasPendientes.contains(prefijo)) {
+            cargarFamilia(prefijo);
+        }
+    }
+    
+    /**
+     * Carga todas las familias diferidas pendientes
+     * Se llama antes de escribir el archivo: si no, se perderían las claves salteadas
+     */
+    private void cargarFamiliasPendientes() {
+        for (String prefijo : familiasPendientes) {
+            cargarFamilia(prefijo);
+        }
+    }
+    
+    /**
+     * Relee el archivo tomando solo las claves de una familia diferida
+     * La familia se marca como cargada recién al terminar, así quien la pida
+     * mientras tanto espera en el bloqueo en lugar de ver datos incompletos.
+     */
+    private void cargarFamilia(String prefijo) {
+        synchronized (familiasPendientes) {
+            if (!familiasPendientes.contains(prefijo)) {
+                return; // Otro hilo la cargó mientras esperábamos
+            }
+            
+            long inicio = System.currentTimeMillis();
+            try {
+                long cargadas = FormatoSnapshot.cargar(archivoCargado, gson,
+                        cacheDatos::putIfAbsent, clave -> !clave.startsWith(prefijo), null);
+                System.out.println("📦 Familia diferida '" + prefijo + "' cargada: " + cargadas
+                        + " entradas en " + (System.currentTimeMillis() - inicio) + " ms");
+            } catch (IOException e) {
+                System.err.println("Error al cargar familia diferida '" + prefijo + "': " + e.getMessage());
+            }
+            familiasPendientes.remove(prefijo);
         }
     }
     
     /**
      * Persiste los datos del cache al archivo
      * Método privado que encapsula la lógica de persistencia
+     * Solo se llama desde volcarCambios(), con el bloqueo de persistencia tomado
      * 
      * @return true si se guardó correctamente, false si hubo error
      */
     private boolean persistirDatos() {
+        // Nunca escribir un archivo al que le falten las familias todavía no cargadas
+        cargarFamiliasPendientes();
+        purgarVencidos();
+        
+        long ahora = System.currentTimeMillis();
+        boolean forzar = politica.debeForzar(ahora - ultimoForzadoMs, intervaloSincronizacionMs);
+        
         try {
-            // Crear directorio padre si no existe
-            File archivo = new File(rutaArchivo);
-            File directorioPadre = archivo.getParentFile();
-            if (directorioPadre != null && !directorioPadre.exists()) {
-                directorioPadre.mkdirs();
-            }
+            // Escribir a un temporal y reemplazar el archivo con un renombrado atómico
+            respaldos.escribir(salida -> formato.escribir(contenidoArchivo(), salida, gson), forzar);
+            archivoCargado = new File(rutaArchivo);
             
-            // Escribir datos al archivo usando Gson
-            try (FileWriter writer = new FileWriter(archivo)) {
-                gson.toJson(cacheDatos, writer);
-                datosModificados = false;
-                return true;
+            if (forzar) {
+                ultimoForzadoMs = ahora;
+                forzadoPendiente = false;
+            } else {
+                forzadoPendiente = politica != PoliticaSincronizacion.NUNCA;
             }
+            return true;
             
         } catch (IOException e) {
             System.err.println("Error al persistir datos en " + rutaArchivo + ": " + e.getMessage());
@@ -204,6 +868,94 @@ public class GestorDatosArchivo implements GestorDatos {
         }
     }
     
+    /**
+     * Fuerza a disco la última versión escrita si quedó sin fsync
+     * (política INTERVALO cuando la escritura cayó dentro del intervalo)
+     * 
+     * @param inmediato true para ignorar el intervalo (barrera de sincronizar)
+     */
+    private void forzarPendiente(boolean inmediato) {
+        synchronized (bloqueoPersistencia) {
+            long ahora = System.currentTimeMillis();
+            if (!forzadoPendiente
+                    || (!inmediato && ahora - ultimoForzadoMs < intervaloSincronizacionMs)) {
+                return;
+            }
+            
+            Path archivo = Paths.get(rutaArchivo);
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+                canal.force(true);
+                respaldos.forzarSuma();
+                ultimoForzadoMs = ahora;
+                forzadoPendiente = false;
+            } catch (IOException e) {
+                System.err.println("Error al forzar a disco " + rutaArchivo + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * En espera: relee el archivo si otro proceso lo reemplazó desde la última lectura
+     * El contenido nuevo se lee aparte y después se aplica sobre el cache, así
+     * quien lee mientras tanto nunca ve el cache vacío.
+     * 
+     * @return true si había una versión nueva y se aplicó
+     */
+    boolean recargarReplica() {
+        synchronized (bloqueoPersistencia) {
+            if (!enEspera) {
+                return false;
+            }
+            File archivo = new File(rutaArchivo);
+            long version = archivo.lastModified() * 31 + archivo.length();
+            if (!archivo.exists() || version == versionReplica) {
+                return false;
+            }
+            
+            Map<String, Object> leidos = new TreeMap<>();
+            try {
+                if (!RespaldosArchivo.verificar(archivo)) {
+                    return false; // Se reintenta en la próxima vuelta
+                }
+                FormatoSnapshot.cargar(archivo, gson, leidos::put, null, null);
+            } catch (IOException e) {
+                System.err.println("⚠️ No se pudo leer " + rutaArchivo + " en espera: " + e.getMessage());
+                return false;
+            }
+            
+            Object guardados = leidos.remove(CLAVE_VENCIMIENTOS);
+            vencimientos.clear();
+            cargarEntrada(CLAVE_VENCIMIENTOS, guardados != null ? guardados : Collections.emptyMap());
+            cacheDatos.keySet().retainAll(leidos.keySet());
+            cacheDatos.putAll(leidos);
+            versionReplica = version;
+            return true;
+        }
+    }
+    
+    /**
+     * Deja de estar en espera: lee la última versión que escribió la otra instancia
+     * y desde ahí escribe normalmente. Quien llama ya debe tener el bloqueo del archivo.
+     */
+    void promover() {
+        synchronized (bloqueoPersistencia) {
+            recargarReplica();
+            enEspera = false;
+            archivoCargado = new File(rutaArchivo);
+        }
+    }
+    
+    public boolean isEnEspera() {
+        return enEspera;
+    }
+    
+    private boolean rechazarEnEspera(String operacion) {
+        if (enEspera) {
+            System.err.println("⏸️ Almacenamiento en espera (otra instancia lo usa): se rechaza '" + operacion + "'");
+        }
+        return enEspera;
+    }
+    
     // MÉTODOS ADICIONALES - Funcionalidad específica de esta implementación
     
     /**
@@ -213,6 +965,8 @@ public class GestorDatosArchivo implements GestorDatos {
      * @return Número de entradas
      */
     public int getTamanio() {
+        cargarFamiliasPendientes();
+        purgarVencidos();
         return cacheDatos.size();
     }
     
@@ -223,6 +977,8 @@ public class GestorDatosArchivo implements GestorDatos {
      * @return Array con todas las claves
      */
     public String[] getClaves() {
+        cargarFamiliasPendientes();
+        purgarVencidos();
         return cacheDatos.keySet().toArray(String[]::new);
     }
     
@@ -233,23 +989,26 @@ public class GestorDatosArchivo implements GestorDatos {
      * @return true si se limpió correctamente
      */
     public boolean limpiarTodo() {
-        try {
-            cacheDatos.clear();
-            datosModificados = true;
-            
-            // Eliminar archivo físico
-            File archivo = new File(rutaArchivo);
-            if (archivo.exists()) {
-                archivo.delete();
-            }
-            
-            datosModificados = false;
-            return true;
-            
-        } catch (Exception e) {
-            System.err.println("Error al limpiar datos: " + e.getMessage());
+        if (rechazarEnEspera("limpiar todo")) {
             return false;
         }
+        synchronized (bloqueoPersistencia) {
+            try {
+                familiasPendientes.clear();
+                cacheDatos.clear();
+                vencimientos.clear();
+                
+                // Escribir el archivo vacío en lugar de borrarlo: si no, al iniciar
+                // se recuperarían los datos desde el último respaldo
+                datosModificados.set(false);
+                clavesSucias.set(0);
+                return persistirDatos();
+                
+            } catch (Exception e) {
+                System.err.println("Error al limpiar datos: " + e.getMessage());
+                return false;
+            }
+        }
     }
     
     /**
@@ -260,8 +1019,9 @@ public class GestorDatosArchivo implements GestorDatos {
      */
     public String getEstado() {
         return String.format(
-            "GestorDatosArchivo{archivo='%s', entradas=%d, modificado=%s}",
-            rutaArchivo, cacheDatos.size(), datosModificados
+            "GestorDatosArchivo{archivo='%s', entradas=%d, con vencimiento=%d, modificado=%s, modo=%s, fsync=%s}",
+            rutaArchivo, cacheDatos.size(), vencimientos.size(), datosModificados.get(),
+            escritor != null ? "diferido" : "inmediato", politica
         );
     }
     
@@ -0,0 +1,449 @@
+package com.educativo.bot.servicios;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import com.educativo.bot.interfaces.Codec;
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * CONCEPTO: PROGRAMACIÓN ASÍNCRONA (patrón decorador)
+ *
+ * Envuelve cualquier GestorDatos y ejecuta sus operaciones en hilos de E/S propios,
+ * devolviendo un CompletableFuture. Así el hilo de eventos de Discord no espera
+ * al disco: el comando encadena lo que necesita (thenAccept, thenCompose...) y sigue.
+ *
+ * Orden garantizado: las operaciones se reparten en "carriles" (un hilo cada uno)
+ * según la clave, así que dos operaciones sobre la misma clave se aplican siempre
+ * en el orden en que se pidieron. Las lecturas de varias claves se dividen por
+ * carril; un lote de escrituras, en cambio, se guarda entero en un solo carril
+ * (todo o nada, en una sola pasada del delegado) mientras los demás carriles con
+ * claves del lote esperan a que termine.
+ *
+ * Cada carril tiene una cola acotada. Si se llena, quien pide la operación espera
+ * a que haya lugar: el bot se frena en lugar de acumular memoria sin límite, y
+ * el orden por clave se mantiene.
+ *
+ * Los métodos síncronos de GestorDatos siguen disponibles: pasan por el mismo
+ * carril (para respetar el orden) y esperan el resultado. Llamados desde un
+ * hilo de E/S (dentro de una operación encadenada) van directo al delegado.
+ */
+public class GestorDatosAsincrono implements GestorDatos {
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final GestorDatos delegado;                  // Gestor que realmente guarda los datos
+    private final ThreadPoolExecutor[] carriles;         // Un hilo por carril, cola acotada
+    private final ThreadLocal<Integer> carrilActual;     // Carril del hilo actual (null = hilo externo)
+    private final Object encolandoLote;                  // Los lotes de varios carriles se encolan de a uno
+
+    /**
+     * Constructor del gestor asíncrono
+     *
+     * @param delegado Gestor que realmente guarda los datos
+     * @param hilos Cantidad de carriles (hilos de E/S)
+     * @param capacidadCola Operaciones pendientes máximas por carril
+     */
+    public GestorDatosAsincrono(GestorDatos delegado, int hilos, int capacidadCola) {
+        if (delegado == null) {
+            throw new IllegalArgumentException("El gestor delegado no puede ser nulo");
+        }
+        if (hilos < 1 || capacidadCola < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo y una cola de capacidad 1");
+        }
+
+        this.delegado = delegado;
+        this.carrilActual = new ThreadLocal<>();
+        this.encolandoLote = new Object();
+        this.carriles = new ThreadPoolExecutor[hilos];
+        for (int i = 0; i < hilos; i++) {
+            final int numero = i;
+            carriles[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacidadCola),
+                    tarea -> {
+                        Thread hilo = new Thread(() -> {
+                            carrilActual.set(numero);
+                            tarea.run();
+                        }, "gestor-datos-io-" + numero);
+                        hilo.setDaemon(true);
+                        return hilo;
+                    },
+                    (tarea, ejecutor) -> esperarLugar(tarea, ejecutor));
+        }
+    }
+
+    // MÉTODOS ASÍNCRONOS
+
+    /**
+     * Guarda un dato sin bloquear al que llama
+     *
+     * @return Futuro con true si se guardó correctamente
+     */
+    public CompletableFuture<Boolean> guardarAsincrono(String clave, Object valor) {
+        return enCarril(clave, () -> delegado.guardar(clave, valor));
+    }
+
+    /**
+     * Guarda un dato tipado sin bloquear al que llama
+     *
+     * @return Futuro con true si se guardó correctamente
+     */
+    public <T> CompletableFuture<Boolean> guardarAsincrono(String clave, T valor, Codec<T> codec) {
+        return enCarril(clave, () -> delegado.guardar(clave, valor, codec));
+    }
+
+    /**
+     * Guarda un dato con vencimiento sin bloquear al que llama
+     *
+     * @return Futuro con true si se guardó correctamente
+     */
+    public CompletableFuture<Boolean> guardarAsincrono(String clave, Object valor, Duration vigencia) {
+        return enCarril(clave, () -> delegado.guardar(clave, valor, vigencia));
+    }
+
+    /**
+     * Guarda un dato tipado con vencimiento sin bloquear al que llama
+     *
+     * @return Futuro con true si se guardó correctamente
+     */
+    public <T> CompletableFuture<Boolean> guardarAsincrono(String clave, T valor, Codec<T> codec, Duration vigencia) {
+        return enCarril(clave, () -> delegado.guardar(clave, valor, codec, vigencia));
+    }
+
+    /**
+     * Obtiene un dato sin bloquear al que llama
+     *
+     * @return Futuro con el dato, o null si no existe
+     */
+    public CompletableFuture<Object> obtenerAsincrono(String clave) {
+        return enCarril(clave, () -> delegado.obtener(clave));
+    }
+
+    /**
+     * Obtiene un dato tipado sin bloquear al que llama
+     *
+     * @return Futuro con el dato, o null si no existe
+     */
+    public <T> CompletableFuture<T> obtenerAsincrono(String clave, Codec<T> codec) {
+        return enCarril(clave, () -> delegado.obtener(clave, codec));
+    }
+
+    /**
+     * Elimina un dato sin bloquear al que llama
+     *
+     * @return Futuro con true si se eliminó
+     */
+    public CompletableFuture<Boolean> eliminarAsincrono(String clave) {
+        return enCarril(clave, () -> delegado.eliminar(clave));
+    }
+
+    /**
+     * Lectura-modificación-escritura atómica sin bloquear al que llama
+     *
+     * @return Futuro con el nuevo valor
+     */
+    public CompletableFuture<Object> actualizarAsincrono(String clave, UnaryOperator<Object> funcion) {
+        return enCarril(clave, () -> delegado.actualizar(clave, funcion));
+    }
+
+    /**
+     * Versión tipada de {@link #actualizarAsincrono(String, UnaryOperator)}
+     *
+     * @return Futuro con el nuevo valor
+     */
+    public <T> CompletableFuture<T> actualizarAsincrono(String clave, Codec<T> codec, UnaryOperator<T> funcion) {
+        return enCarril(clave, () -> delegado.actualizar(clave, codec, funcion));
+    }
+
+    /**
+     * Guarda un lote sin bloquear al que llama
+     * El lote entero va al delegado en una sola llamada, así que se guarda todo o nada.
+     * Se ejecuta en el menor de los carriles de sus claves; en cada uno de los otros
+     * se encola una barrera que avisa que las operaciones anteriores ya se aplicaron
+     * y retiene el carril hasta que el lote termine. Así cada clave conserva su orden.
+     *
+     * @return Futuro con true si se guardó el lote
+     */
+    public CompletableFuture<Boolean> guardarTodosAsincrono(Map<String, ?> datos) {
+        if (enHiloDeCarril()) {
+            // Desde un carril no se esperan los demás: podrían estar esperando a este
+            return ejecutar(carrilActual.get(), () -> delegado.guardarTodos(datos));
+        }
+        SortedSet<Integer> usados = new TreeSet<>();
+        for (String clave : datos.keySet()) {
+            usados.add(carrilDe(clave));
+        }
+        if (usados.size() <= 1) {
+            return ejecutar(usados.isEmpty() ? 0 : usados.first(), () -> delegado.guardarTodos(datos));
+        }
+
+        int principal = usados.first();
+        CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+        List<CompletableFuture<Void>> llegadas = new ArrayList<>();
+        // Las barreras y el lote se encolan sin que se intercale otro lote: dos lotes
+        // encolados en distinto orden en dos carriles se esperarían para siempre
+        synchronized (encolandoLote) {
+            try {
+                for (int carril : usados.tailSet(principal + 1)) {
+                    CompletableFuture<Void> llegada = new CompletableFuture<>();
+                    llegadas.add(llegada);
+                    carriles[carril].execute(() -> {
+                        llegada.complete(null);
+                        resultado.handle((guardado, error) -> null).join();
+                    });
+                }
+                carriles[principal].execute(() -> {
+                    try {
+                        CompletableFuture.allOf(llegadas.toArray(new CompletableFuture<?>[0])).join();
+                        resultado.complete(delegado.guardarTodos(datos));
+                    } catch (RuntimeException | Error e) {
+                        resultado.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                resultado.completeExceptionally(e); // Libera las barreras que ya estaban encoladas
+                throw e;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene varios datos sin bloquear al que llama
+     *
+     * @return Futuro con las claves encontradas y sus valores
+     */
+    public CompletableFuture<Map<String, Object>> obtenerTodosAsincrono(Collection<String> claves) {
+        Map<Integer, List<String>> porCarril = new HashMap<>();
+        for (String clave : claves) {
+            porCarril.computeIfAbsent(carrilDe(clave), c -> new ArrayList<>()).add(clave);
+        }
+
+        List<CompletableFuture<Map<String, Object>>> partes = new ArrayList<>();
+        for (Map.Entry<Integer, List<String>> grupo : porCarril.entrySet()) {
+            partes.add(ejecutar(grupo.getKey(), () -> delegado.obtenerTodos(grupo.getValue())));
+        }
+        return CompletableFuture.allOf(partes.toArray(new CompletableFuture<?>[0]))
+                .thenApply(nada -> {
+                    Map<String, Object> encontrados = new LinkedHashMap<>();
+                    for (CompletableFuture<Map<String, Object>> parte : partes) {
+                        encontrados.putAll(parte.join());
+                    }
+                    return encontrados;
+                });
+    }
+
+    /**
+     * Sincroniza cuando terminaron todas las operaciones pedidas hasta ahora
+     *
+     * @return Futuro que se completa tras la sincronización
+     */
+    public CompletableFuture<Void> sincronizarAsincrono() {
+        // Una marca en cada carril: cuando todas pasan, lo anterior ya se aplicó
+        CompletableFuture<?>[] marcas = new CompletableFuture<?>[carriles.length];
+        for (int i = 0; i < carriles.length; i++) {
+            marcas[i] = ejecutar(i, () -> null);
+        }
+        // ejecutar corre en el acto si ya se está en el carril 0: encolarlo detrás de la
+        // tarea actual bloquearía para siempre a quien espere el resultado desde ese carril
+        return CompletableFuture.allOf(marcas).thenCompose(listo -> ejecutar(0, () -> {
+            delegado.sincronizar();
+            return null;
+        }));
+    }
+
+    // FACHADA SÍNCRONA - IMPLEMENTACIÓN de la interfaz
+
+    @Override
+    public boolean guardar(String clave, Object valor) {
+        return enHiloDeCarril() ? delegado.guardar(clave, valor) : esperar(guardarAsincrono(clave, valor));
+    }
+
+    @Override
+    public boolean guardar(String clave, Object valor, Duration vigencia) {
+        return enHiloDeCarril() ? delegado.guardar(clave, valor, vigencia) : esperar(guardarAsincrono(clave, valor, vigencia));
+    }
+
+    @Override
+    public Object obtener(String clave) {
+        return enHiloDeCarril() ? delegado.obtener(clave) : esperar(obtenerAsincrono(clave));
+    }
+
+    @Override
+    public long obtenerVencimiento(String clave) {
+        return enHiloDeCarril() ? delegado.obtenerVencimiento(clave)
+                : esperar(enCarril(clave, () -> delegado.obtenerVencimiento(clave)));
+    }
+
+    @Override
+    public boolean eliminar(String clave) {
+        return enHiloDeCarril() ? delegado.eliminar(clave) : esperar(eliminarAsincrono(clave));
+    }
+
+    @Override
+    public boolean existe(String clave) {
+        return enHiloDeCarril() ? delegado.existe(clave) : esperar(enCarril(clave, () -> delegado.existe(clave)));
+    }
+
+    @Override
+    public boolean guardarTodos(Map<String, ?> datos) {
+        return enHiloDeCarril() ? delegado.guardarTodos(datos) : esperar(guardarTodosAsincrono(datos));
+    }
+
+    @Override
+    public Map<String, Object> obtenerTodos(Collection<String> claves) {
+        return enHiloDeCarril() ? delegado.obtenerTodos(claves) : esperar(obtenerTodosAsincrono(claves));
+    }
+
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        return enHiloDeCarril() ? delegado.actualizar(clave, funcion) : esperar(actualizarAsincrono(clave, funcion));
+    }
+
+    /**
+     * El recorrido lee directamente del delegado (no pasa por los carriles):
+     * puede no incluir operaciones que todavía esperan en las colas
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        return delegado.escanearRango(desde, hasta);
+    }
+
+    @Override
+    public void sincronizar() {
+        if (enHiloDeCarril()) {
+            delegado.sincronizar();
+        } else {
+            esperar(sincronizarAsincrono());
+        }
+    }
+
+    /**
+     * Espera a que terminen las operaciones pendientes, detiene los hilos
+     * de E/S y cierra el gestor delegado
+     */
+    @Override
+    public void cerrar() {
+        for (ThreadPoolExecutor carril : carriles) {
+            carril.shutdown();
+        }
+        for (ThreadPoolExecutor carril : carriles) {
+            try {
+                carril.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        delegado.cerrar();
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    /**
+     * Indica si el hilo actual es uno de los hilos de E/S.
+     * Desde ahí no se espera a otro carril: dos carriles esperándose entre sí se bloquearían.
+     */
+    private boolean enHiloDeCarril() {
+        return carrilActual.get() != null;
+    }
+
+    /**
+     * Cola llena: el que pide espera a que haya lugar (en vez de ejecutar la
+     * operación en su propio hilo, lo que podría adelantarla a otras de la misma clave)
+     */
+    private static void esperarLugar(Runnable tarea, ThreadPoolExecutor ejecutor) {
+        if (ejecutor.isShutdown()) {
+            throw new RejectedExecutionException("El gestor de datos asíncrono está cerrado");
+        }
+        try {
+            ejecutor.getQueue().put(tarea);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrumpido esperando lugar en la cola de E/S", e);
+        }
+    }
+
+    private int carrilDe(String clave) {
+        return clave == null ? 0 : Math.floorMod(clave.hashCode(), carriles.length);
+    }
+
+    private <R> CompletableFuture<R> enCarril(String clave, Supplier<R> operacion) {
+        return ejecutar(carrilDe(clave), operacion);
+    }
+
+    /**
+     * Ejecuta la operación en el carril indicado
+     * Si ya estamos en ese carril (una operación encadenada), se ejecuta directo:
+     * encolarla y esperarla desde el mismo hilo lo bloquearía para siempre.
+     */
+    private <R> CompletableFuture<R> ejecutar(int carril, Supplier<R> operacion) {
+        Integer actual = carrilActual.get();
+        if (actual != null && actual == carril) {
+            try {
+                return CompletableFuture.completedFuture(operacion.get());
+            } catch (RuntimeException e) {
+                CompletableFuture<R> fallido = new CompletableFuture<>();
+                fallido.completeExceptionally(e);
+                return fallido;
+            }
+        }
+        return CompletableFuture.supplyAsync(operacion, carriles[carril]);
+    }
+
+    /**
+     * Espera el resultado y desenvuelve la excepción original si la hubo
+     */
+    private static <R> R esperar(CompletableFuture<R> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // MÉTODOS DE UTILIDAD
+
+    /**
+     * Obtiene la cantidad de operaciones esperando en las colas
+     * @return Operaciones pendientes
+     */
+    public int getPendientes() {
+        int pendientes = 0;
+        for (ThreadPoolExecutor carril : carriles) {
+            pendientes += carril.getQueue().size();
+        }
+        return pendientes;
+    }
+
+    /**
+     * Obtiene el gestor que realmente guarda los datos
+     * @return Gestor delegado
+     */
+    public GestorDatos getDelegado() {
+        return delegado;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GestorDatosAsincrono{carriles=%d, pendientes=%d, delegado=%s}",
+                carriles.length, getPendientes(), delegado.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,371 @@
+package com.educativo.bot.servicios;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * CONCEPTO: COMPOSICIÓN (patrón decorador)
+ *
+ * Cache acotada en memoria delante de otro GestorDatos. Pensada para
+ * {@link GestorDatosMapeado}, que guarda todo en disco: las claves usadas
+ * seguido se sirven desde el heap y el resto se lee del archivo al pedirlas.
+ *
+ * - Como máximo guarda la cantidad de entradas configurada; al pasarse descarta
+ *   la usada hace más tiempo (LRU)
+ * - Es de escritura directa: todo cambio llega al gestor de abajo antes de volver,
+ *   así que descartar una entrada nunca pierde datos
+ * - También recuerda las claves que no existen, para no ir al disco a buscarlas de nuevo
+ * - Los datos con vigencia se guardan con su momento de vencimiento (el de abajo,
+ *   o el calculado al guardarlos) y dejan de servirse al llegar a él
+ * - Cuenta aciertos, fallos y descartes para poder ajustar el tamaño
+ *
+ * Cada clave se protege con uno de varios bloqueos (según su hash): la escritura
+ * en el gestor de abajo y la actualización de la cache ocurren juntas, así una
+ * lectura nunca deja en la cache un valor más viejo que el guardado.
+ */
+public class GestorDatosCache implements GestorDatos {
+
+    // Marca de "la clave no existe" (la cache no admite null como valor)
+    private static final Object AUSENTE = new Object();
+    private static final int BLOQUEOS = 64;
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final GestorDatos delegado;                  // Gestor que guarda los datos
+    private final int maxEntradas;                       // Entradas máximas en memoria
+    private final LinkedHashMap<String, Entrada> entradas; // Orden de acceso: la primera es la menos usada
+    private final Object[] bloqueos;                     // Bloqueos por grupo de claves
+    private final LongAdder aciertos;
+    private final LongAdder fallos;
+    private final LongAdder desalojos;
+
+    /**
+     * Constructor de la cache
+     *
+     * @param delegado Gestor que guarda los datos
+     * @param maxEntradas Entradas máximas que se mantienen en memoria
+     */
+    public GestorDatosCache(GestorDatos delegado, int maxEntradas) {
+        if (maxEntradas < 1) {
+            throw new IllegalArgumentException("La cache debe admitir al menos una entrada");
+        }
+        this.delegado = delegado;
+        this.maxEntradas = maxEntradas;
+        this.aciertos = new LongAdder();
+        this.fallos = new LongAdder();
+        this.desalojos = new LongAdder();
+        this.entradas = new LinkedHashMap<String, Entrada>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> masVieja) {
+                if (size() > GestorDatosCache.this.maxEntradas) {
+                    desalojos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.bloqueos = new Object[BLOQUEOS];
+        for (int i = 0; i < BLOQUEOS; i++) {
+            bloqueos[i] = new Object();
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean guardar(String clave, Object valor) {
+        if (clave == null) {
+            return false;
+        }
+        synchronized (bloqueoDe(clave)) {
+            boolean guardado = delegado.guardar(clave, valor);
+            if (guardado) {
+                recordar(clave, valor, 0);
+            } else {
+                olvidar(clave);
+            }
+            return guardado;
+        }
+    }
+
+    /**
+     * El vencimiento se calcula antes de guardar abajo: la copia de la cache
+     * nunca dura más que el dato guardado
+     */
+    @Override
+    public boolean guardar(String clave, Object valor, Duration vigencia) {
+        if (clave == null) {
+            return false;
+        }
+        long venceMs = vigencia != null ? System.currentTimeMillis() + vigencia.toMillis() : 0;
+        synchronized (bloqueoDe(clave)) {
+            boolean guardado = delegado.guardar(clave, valor, vigencia);
+            if (guardado) {
+                recordar(clave, valor, venceMs);
+            } else {
+                olvidar(clave);
+            }
+            return guardado;
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * Busca en memoria y, si no está, en el gestor de abajo
+     */
+    @Override
+    public Object obtener(String clave) {
+        if (clave == null) {
+            return null;
+        }
+        Object valor = buscar(clave);
+        if (valor != null) {
+            aciertos.increment();
+            return valor == AUSENTE ? null : valor;
+        }
+
+        fallos.increment();
+        synchronized (bloqueoDe(clave)) {
+            // Otro hilo pudo cargarla mientras esperábamos el bloqueo
+            valor = buscar(clave);
+            if (valor == null) {
+                valor = delegado.obtener(clave);
+                recordar(clave, valor, valor != null ? delegado.obtenerVencimiento(clave) : 0);
+            }
+        }
+        return valor == AUSENTE ? null : valor;
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean eliminar(String clave) {
+        if (clave == null) {
+            return false;
+        }
+        synchronized (bloqueoDe(clave)) {
+            boolean eliminado = delegado.eliminar(clave);
+            recordar(clave, null, 0);
+            return eliminado;
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean existe(String clave) {
+        if (clave == null) {
+            return false;
+        }
+        Object valor = buscar(clave);
+        if (valor != null) {
+            aciertos.increment();
+            return valor != AUSENTE;
+        }
+        return obtener(clave) != null;
+    }
+
+    /**
+     * Guarda el lote en una sola operación del gestor de abajo y luego
+     * quita esas claves de la cache (se recargan al pedirlas)
+     */
+    @Override
+    public boolean guardarTodos(Map<String, ?> datos) {
+        boolean guardados = delegado.guardarTodos(datos);
+        for (String clave : datos.keySet()) {
+            if (clave != null) {
+                synchronized (bloqueoDe(clave)) {
+                    olvidar(clave);
+                }
+            }
+        }
+        return guardados;
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public long obtenerVencimiento(String clave) {
+        return delegado.obtenerVencimiento(clave);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * El gestor de abajo la aplica de forma atómica (conservando el vencimiento);
+     * la cache se queda con el resultado
+     */
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        if (clave == null) {
+            return null;
+        }
+        synchronized (bloqueoDe(clave)) {
+            try {
+                Object nuevo = delegado.actualizar(clave, funcion);
+                recordar(clave, nuevo, nuevo != null ? delegado.obtenerVencimiento(clave) : 0);
+                return nuevo;
+            } catch (RuntimeException e) {
+                olvidar(clave);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Los recorridos van directo al gestor de abajo (la cache no tiene todas las claves)
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        return delegado.escanearRango(desde, hasta);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public void sincronizar() {
+        delegado.sincronizar();
+    }
+
+    /**
+     * Vacía la cache y cierra el gestor de abajo
+     */
+    @Override
+    public void cerrar() {
+        synchronized (entradas) {
+            entradas.clear();
+        }
+        delegado.cerrar();
+    }
+
+    /**
+     * Descarta todo lo guardado en memoria (sin tocar el gestor de abajo)
+     * Necesario cuando los datos de abajo cambian por otro camino, por ejemplo
+     * una réplica en espera que relee el archivo de otra instancia.
+     */
+    public void vaciar() {
+        synchronized (entradas) {
+            entradas.clear();
+        }
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    /**
+     * Valor guardado en la cache junto con su vencimiento (0 = no vence)
+     */
+    private static final class Entrada {
+        private final Object valor;
+        private final long venceMs;
+
+        private Entrada(Object valor, long venceMs) {
+            this.valor = valor;
+            this.venceMs = venceMs;
+        }
+    }
+
+    private Object bloqueoDe(String clave) {
+        return bloqueos[(clave.hashCode() & 0x7fffffff) % BLOQUEOS];
+    }
+
+    /**
+     * Busca en la cache (y la marca como recién usada); una entrada vencida se descarta
+     * @return El valor, AUSENTE si se sabe que no existe, o null si no está en la cache
+     */
+    private Object buscar(String clave) {
+        synchronized (entradas) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada == null) {
+                return null;
+            }
+            if (entrada.venceMs != 0 && entrada.venceMs <= System.currentTimeMillis()) {
+                entradas.remove(clave);
+                return null;
+            }
+            return entrada.valor;
+        }
+    }
+
+    /**
+     * Guarda en la cache el valor actual de la clave (null = no existe)
+     *
+     * @param venceMs Momento de vencimiento en ms desde epoch (0 = no vence)
+     */
+    private void recordar(String clave, Object valor, long venceMs) {
+        synchronized (entradas) {
+            entradas.put(clave, new Entrada(valor != null ? valor : AUSENTE, venceMs));
+        }
+    }
+
+    private void olvidar(String clave) {
+        synchronized (entradas) {
+            entradas.remove(clave);
+        }
+    }
+
+    // MÉTODOS DE UTILIDAD
+
+    /**
+     * Obtiene el gestor que guarda los datos
+     * @return Gestor de abajo
+     */
+    public GestorDatos getDelegado() {
+        return delegado;
+    }
+
+    /**
+     * Obtiene la cantidad de entradas en memoria
+     * @return Número de entradas en la cache
+     */
+    public int getTamanio() {
+        synchronized (entradas) {
+            return entradas.size();
+        }
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public long getDesalojos() {
+        return desalojos.sum();
+    }
+
+    /**
+     * Obtiene el porcentaje de lecturas servidas desde memoria
+     * @return Porcentaje de aciertos (0 si todavía no hubo lecturas)
+     */
+    public double getPorcentajeAciertos() {
+        long totalAciertos = aciertos.sum();
+        long total = totalAciertos + fallos.sum();
+        return total == 0 ? 0 : totalAciertos * 100.0 / total;
+    }
+
+    /**
+     * Obtiene información de estado de la cache
+     * @return String con información de estado
+     */
+    public String getEstado() {
+        return String.format("GestorDatosCache{entradas=%d/%d, aciertos=%d, fallos=%d, desalojos=%d, acierto=%.1f%%, delegado=%s}",
+                getTamanio(), maxEntradas, getAciertos(), getFallos(), getDesalojos(), getPorcentajeAciertos(),
+                delegado.getClass().getSimpleName());
+    }
+
+    @Override
+    public String toString() {
+        return getEstado();
+    }
+}
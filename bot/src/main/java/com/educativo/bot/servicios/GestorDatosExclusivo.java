@@ -0,0 +1,371 @@
+package com.educativo.bot.servicios;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * CONCEPTO: EXCLUSIÓN MUTUA ENTRE PROCESOS (un solo escritor)
+ *
+ * Asegura que una sola instancia del bot escriba los datos. Al iniciar toma un
+ * bloqueo exclusivo sobre "<ruta>.lock" que mantiene hasta cerrarse; el sistema
+ * operativo lo libera solo si el proceso muere, así que no quedan bloqueos huérfanos.
+ *
+ * Si otra instancia ya tiene el bloqueo, esta queda EN ESPERA:
+ * - En modo "archivo" es una réplica caliente: relee el archivo cada vez que la otra
+ *   lo reemplaza, responde lecturas con esos datos y rechaza las escrituras
+ * - En los demás modos no abre nada (sus archivos no se pueden leer mientras otro
+ *   proceso escribe): las lecturas no encuentran datos y las escrituras fallan
+ * - Cada cierto intervalo reintenta el bloqueo; cuando la otra instancia termina
+ *   (o se cae), lo toma y pasa a escribir. En modo "archivo" ya tiene los datos
+ *   en memoria, así que el cambio tarda lo que tarda una última relectura.
+ *
+ * Quien necesita saber cuándo empieza a escribir se registra con {@link #alPromover(Runnable)}.
+ * Tomar el bloqueo no alcanza para dejar de estar en espera: recién se está activo
+ * cuando el gestor real ya está abierto y se avisó a quienes se registraron.
+ */
+public class GestorDatosExclusivo implements GestorDatos {
+
+    static final String EXTENSION_BLOQUEO = ".lock";
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final ConfiguracionDatos config;
+    private final File archivoBloqueo;
+    private final FileChannel canalBloqueo;              // Abierto mientras viva el gestor
+    private final List<Runnable> alPromover;             // Avisos al dejar de estar en espera
+    private final GestorDatosArchivo replica;            // Réplica en espera (solo modo archivo)
+    private volatile FileLock bloqueo;                   // null = lo tiene otra instancia
+    private volatile boolean activo;                     // Bloqueo tomado, gestor real abierto y promoción avisada
+    private volatile GestorDatos delegado;               // null = en espera sin réplica
+    private volatile ScheduledExecutorService vigilancia; // Relee y reintenta mientras está en espera
+
+    /**
+     * Constructor que toma el bloqueo o, si otra instancia lo tiene, queda en espera
+     *
+     * @param config Configuración de persistencia
+     * @throws IllegalStateException si no se puede crear el archivo de bloqueo
+     */
+    public GestorDatosExclusivo(ConfiguracionDatos config) {
+        this.config = config;
+        this.archivoBloqueo = new File(config.getRutaArchivo() + EXTENSION_BLOQUEO);
+        this.alPromover = new CopyOnWriteArrayList<>();
+
+        File directorioPadre = archivoBloqueo.getAbsoluteFile().getParentFile();
+        if (directorioPadre != null && !directorioPadre.exists()) {
+            directorioPadre.mkdirs();
+        }
+        try {
+            this.canalBloqueo = FileChannel.open(archivoBloqueo.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo abrir el archivo de bloqueo " + archivoBloqueo, e);
+        }
+
+        if (intentarBloquear()) {
+            this.replica = null;
+            this.delegado = FabricaGestorDatos.crearSinBloqueo(config);
+            this.activo = true;
+            return;
+        }
+
+        System.out.println("⏸️ Otra instancia usa " + config.getRutaArchivo()
+                + ": este bot queda en espera (reintenta cada " + config.getIntervaloEsperaMs() + " ms)");
+        if ("archivo".equals(config.getTipo())) {
+            this.replica = new GestorDatosArchivo(config, true);
+            this.delegado = FabricaGestorDatos.envolverEnCache(replica, config);
+        } else {
+            this.replica = null;
+            this.delegado = null;
+        }
+
+        this.vigilancia = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "gestor-datos-espera");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        vigilancia.scheduleWithFixedDelay(this::vigilar,
+                config.getIntervaloEsperaMs(), config.getIntervaloEsperaMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean guardar(String clave, Object valor) {
+        GestorDatos actual = delegado;
+        return actual != null && actual.guardar(clave, valor);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean guardar(String clave, Object valor, Duration vigencia) {
+        GestorDatos actual = delegado;
+        return actual != null && actual.guardar(clave, valor, vigencia);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public Object obtener(String clave) {
+        GestorDatos actual = delegado;
+        return actual != null ? actual.obtener(clave) : null;
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public long obtenerVencimiento(String clave) {
+        GestorDatos actual = delegado;
+        return actual != null ? actual.obtenerVencimiento(clave) : 0;
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean eliminar(String clave) {
+        GestorDatos actual = delegado;
+        return actual != null && actual.eliminar(clave);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean existe(String clave) {
+        GestorDatos actual = delegado;
+        return actual != null && actual.existe(clave);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean guardarTodos(Map<String, ?> datos) {
+        GestorDatos actual = delegado;
+        return actual != null && actual.guardarTodos(datos);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public Map<String, Object> obtenerTodos(Collection<String> claves) {
+        GestorDatos actual = delegado;
+        return actual != null ? actual.obtenerTodos(claves) : Collections.emptyMap();
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * @throws IllegalStateException si está en espera
+     */
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        return activo("actualizar '" + clave + "'").actualizar(clave, funcion);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        GestorDatos actual = delegado;
+        return actual != null ? actual.escanearRango(desde, hasta)
+                : Collections.<Map.Entry<String, Object>>emptyIterator();
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public void sincronizar() {
+        GestorDatos actual = delegado;
+        if (actual != null) {
+            actual.sincronizar();
+        }
+    }
+
+    /**
+     * Cierra el gestor y recién después suelta el bloqueo, para que la instancia
+     * en espera encuentre los datos completos al promoverse
+     */
+    @Override
+    public void cerrar() {
+        ScheduledExecutorService enEjecucion = vigilancia;
+        if (enEjecucion != null) {
+            enEjecucion.shutdownNow();
+            try {
+                enEjecucion.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            GestorDatos actual = delegado;
+            if (actual != null) {
+                actual.cerrar();
+            }
+            try {
+                if (bloqueo != null) {
+                    bloqueo.release();
+                }
+                canalBloqueo.close();
+            } catch (IOException e) {
+                System.err.println("⚠️ Error al soltar el bloqueo " + archivoBloqueo + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    /**
+     * Intenta tomar el bloqueo sin esperar
+     * @return true si ahora lo tiene esta instancia
+     */
+    private boolean intentarBloquear() {
+        try {
+            FileLock tomado = canalBloqueo.tryLock();
+            if (tomado == null) {
+                return false; // Lo tiene otro proceso
+            }
+            bloqueo = tomado;
+            escribirDuenio();
+            return true;
+        } catch (OverlappingFileLockException e) {
+            return false; // Lo tiene otro gestor de este mismo proceso
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo intentar el bloqueo " + archivoBloqueo + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Deja en el archivo de bloqueo qué proceso lo tiene (solo informativo)
+     */
+    private void escribirDuenio() throws IOException {
+        byte[] duenio = (ManagementFactory.getRuntimeMXBean().getName() + "\n").getBytes(StandardCharsets.UTF_8);
+        canalBloqueo.truncate(0);
+        canalBloqueo.write(ByteBuffer.wrap(duenio), 0);
+    }
+
+    /**
+     * Tarea periódica mientras está en espera: relee la réplica y reintenta el bloqueo
+     */
+    private void vigilar() {
+        try {
+            if (replica != null && replica.recargarReplica() && delegado instanceof GestorDatosCache) {
+                ((GestorDatosCache) delegado).vaciar();
+            }
+            synchronized (this) {
+                // Si una promoción anterior falló, el bloqueo ya es nuestro (pero sigue en
+                // espera): solo se reintenta abrir
+                if (!canalBloqueo.isOpen() || (bloqueo == null && !intentarBloquear())) {
+                    return;
+                }
+                promover();
+            }
+        } catch (RuntimeException e) {
+            // Una vuelta fallida no detiene la vigilancia
+            System.err.println("⚠️ Error en la instancia en espera: " + e.getMessage());
+            return;
+        }
+
+        vigilancia.shutdown();
+        for (Runnable aviso : alPromover) {
+            try {
+                aviso.run();
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Error al avisar la promoción: " + e.getMessage());
+            }
+        }
+        // Recién ahora se aceptan cambios: antes irían a la réplica, o los descartaría
+        // quien recarga sus datos al enterarse de la promoción
+        activo = true;
+    }
+
+    /**
+     * Pasa a escribir: la réplica deja de estar en espera, o se abre el gestor real
+     */
+    private void promover() {
+        long inicio = System.currentTimeMillis();
+        if (replica != null) {
+            replica.promover();
+            if (delegado instanceof GestorDatosCache) {
+                ((GestorDatosCache) delegado).vaciar();
+            }
+            delegado = FabricaGestorDatos.envolverEnReplicacion(delegado, config);
+        } else {
+            delegado = FabricaGestorDatos.crearSinBloqueo(config);
+        }
+        System.out.println("▶️ Bloqueo de " + config.getRutaArchivo() + " obtenido: esta instancia pasa a escribir ("
+                + (System.currentTimeMillis() - inicio) + " ms)");
+    }
+
+    private GestorDatos activo(String operacion) {
+        GestorDatos actual = delegado;
+        if (actual == null || isEnEspera()) {
+            throw new IllegalStateException("Almacenamiento en espera: no se puede " + operacion);
+        }
+        return actual;
+    }
+
+    // MÉTODOS DE UTILIDAD
+
+    /**
+     * Registra una acción a ejecutar cuando esta instancia deja de estar en espera
+     * (en el hilo de vigilancia). Si ya escribe, no se llama nunca.
+     *
+     * @param aviso Acción a ejecutar
+     */
+    public void alPromover(Runnable aviso) {
+        alPromover.add(aviso);
+    }
+
+    /**
+     * Indica si esta instancia todavía no escribe: otra tiene el bloqueo, o esta ya
+     * lo tomó pero no terminó de pasar a escribir
+     * @return true si está en espera
+     */
+    public boolean isEnEspera() {
+        return !activo;
+    }
+
+    /**
+     * Obtiene el gestor que guarda los datos
+     * @return Gestor de abajo, o null si está en espera sin réplica
+     */
+    public GestorDatos getDelegado() {
+        return delegado;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GestorDatosExclusivo{bloqueo='%s', estado=%s, delegado=%s}",
+                archivoBloqueo, isEnEspera() ? "en espera" : "escribiendo",
+                delegado != null ? delegado.getClass().getSimpleName() : "ninguno");
+    }
+}
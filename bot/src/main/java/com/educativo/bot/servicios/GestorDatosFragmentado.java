@@ -0,0 +1,470 @@
+package com.educativo.bot.servicios;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * CONCEPTO: COMPOSICIÓN
+ *
+ * Gestor de datos que separa la información por servidor (guild) de Discord.
+ * Cada servidor tiene su propio {@link GestorDatosArchivo} con su archivo
+ * (datos/servidores/<id>.json), su propia marca de cambios pendientes y su
+ * propio volcado periódico. Las claves sin servidor van al archivo global.
+ *
+ * Ventajas frente a un único archivo:
+ * - Un cambio en un servidor reescribe solo los datos de ese servidor
+ * - Un servidor muy activo no demora la persistencia de los demás: los volcados
+ *   se reparten en un grupo pequeño de hilos compartido por todos los archivos
+ *
+ * Las claves de servidor se arman con {@link GestorDatos#claveServidor(String, String)};
+ * dentro del archivo del servidor se guardan sin el prefijo. Las lecturas de un
+ * servidor sin archivo no lo crean: solo las escrituras abren archivos nuevos.
+ */
+public class GestorDatosFragmentado implements GestorDatos {
+
+    // Solo IDs que sean nombres de archivo seguros (los de Discord son numéricos)
+    private static final Pattern ID_VALIDO = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final ConfiguracionDatos config;             // Plantilla para la configuración de cada archivo
+    private final File directorioServidores;             // Carpeta con un archivo por servidor
+    private final String extension;                      // Extensión de los archivos por servidor
+    private final ScheduledExecutorService escritor;     // Hilos de volcado compartidos (null = inmediato)
+    private final GestorDatosArchivo global;             // Datos que no pertenecen a ningún servidor
+    private final Map<String, GestorDatosArchivo> servidores; // Un gestor por servidor, creado al primer uso
+
+    /**
+     * Constructor del gestor fragmentado
+     *
+     * @param config Opciones de persistencia; la ruta es la del archivo global y
+     *               los archivos por servidor se crean en la carpeta "servidores" junto a él
+     */
+    public GestorDatosFragmentado(ConfiguracionDatos config) {
+        this.config = config;
+
+        File archivoGlobal = new File(config.getRutaArchivo());
+        File carpeta = archivoGlobal.getAbsoluteFile().getParentFile();
+        this.directorioServidores = new File(carpeta, "servidores");
+        String nombre = archivoGlobal.getName();
+        this.extension = nombre.contains(".") ? nombre.substring(nombre.lastIndexOf('.')) : ".json";
+
+        if (config.isEscrituraDiferida()) {
+            AtomicInteger contador = new AtomicInteger();
+            this.escritor = Executors.newScheduledThreadPool(config.getHilosEscritura(), tarea -> {
+                Thread hilo = new Thread(tarea, "gestor-datos-escritor-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        } else {
+            this.escritor = null;
+        }
+
+        this.global = new GestorDatosArchivo(config, escritor);
+        this.servidores = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * Guarda el dato en el archivo del servidor al que pertenece la clave
+     */
+    @Override
+    public boolean guardar(String clave, Object valor) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return false;
+        }
+        String servidorId = extraerServidor(clave);
+        if (servidorId == null) {
+            return global.guardar(clave, valor);
+        }
+        return obtenerFragmento(servidorId).guardar(claveLocal(clave, servidorId), valor);
+    }
+
+    /**
+     * Guarda el dato con vencimiento en el archivo del servidor al que pertenece la clave
+     */
+    @Override
+    public boolean guardar(String clave, Object valor, Duration vigencia) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return false;
+        }
+        String servidorId = extraerServidor(clave);
+        if (servidorId == null) {
+            return global.guardar(clave, valor, vigencia);
+        }
+        return obtenerFragmento(servidorId).guardar(claveLocal(clave, servidorId), valor, vigencia);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public Object obtener(String clave) {
+        if (clave == null) {
+            return null;
+        }
+        String servidorId = extraerServidor(clave);
+        if (servidorId == null) {
+            return global.obtener(clave);
+        }
+        GestorDatosArchivo fragmento = buscarFragmento(servidorId);
+        return fragmento != null ? fragmento.obtener(claveLocal(clave, servidorId)) : null;
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean eliminar(String clave) {
+        if (clave == null) {
+            return false;
+        }
+        String servidorId = extraerServidor(clave);
+        if (servidorId == null) {
+            return global.eliminar(clave);
+        }
+        GestorDatosArchivo fragmento = buscarFragmento(servidorId);
+        return fragmento != null && fragmento.eliminar(claveLocal(clave, servidorId));
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean existe(String clave) {
+        if (clave == null) {
+            return false;
+        }
+        String servidorId = extraerServidor(clave);
+        if (servidorId == null) {
+            return global.existe(clave);
+        }
+        GestorDatosArchivo fragmento = buscarFragmento(servidorId);
+        return fragmento != null && fragmento.existe(claveLocal(clave, servidorId));
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public long obtenerVencimiento(String clave) {
+        if (clave == null) {
+            return 0;
+        }
+        String servidorId = extraerServidor(clave);
+        if (servidorId == null) {
+            return global.obtenerVencimiento(clave);
+        }
+        GestorDatosArchivo fragmento = buscarFragmento(servidorId);
+        return fragmento != null ? fragmento.obtenerVencimiento(claveLocal(clave, servidorId)) : 0;
+    }
+
+    /**
+     * Reparte el lote por servidor: cada archivo recibe su parte en una sola escritura
+     */
+    @Override
+    public boolean guardarTodos(Map<String, ?> datos) {
+        Map<GestorDatosArchivo, Map<String, Object>> porArchivo = new HashMap<>();
+        for (Map.Entry<String, ?> entrada : datos.entrySet()) {
+            String clave = entrada.getKey();
+            if (clave == null || clave.trim().isEmpty()) {
+                return false;
+            }
+            String servidorId = extraerServidor(clave);
+            GestorDatosArchivo destino = servidorId == null ? global : obtenerFragmento(servidorId);
+            String claveDestino = servidorId == null ? clave : claveLocal(clave, servidorId);
+            porArchivo.computeIfAbsent(destino, d -> new HashMap<>()).put(claveDestino, entrada.getValue());
+        }
+
+        boolean todosGuardados = true;
+        for (Map.Entry<GestorDatosArchivo, Map<String, Object>> lote : porArchivo.entrySet()) {
+            todosGuardados &= lote.getKey().guardarTodos(lote.getValue());
+        }
+        return todosGuardados;
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * Delegada al archivo del servidor, que la aplica de forma atómica
+     */
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        if (clave == null) {
+            return null;
+        }
+        String servidorId = extraerServidor(clave);
+        if (servidorId == null) {
+            return global.actualizar(clave, funcion);
+        }
+        return obtenerFragmento(servidorId).actualizar(claveLocal(clave, servidorId), funcion);
+    }
+
+    /**
+     * Recorre un rango de claves en orden
+     * Si el rango cae dentro de un solo servidor se recorre solo su archivo; si no,
+     * se mezclan en orden el archivo global y los de cada servidor que se cruza
+     * (incluidos los que todavía no se abrieron).
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        String servidorId = desde != null ? extraerServidor(desde) : null;
+        if (servidorId != null) {
+            String prefijoServidor = GestorDatos.claveServidor(servidorId, "");
+            String finServidor = GestorDatos.finDePrefijo(prefijoServidor);
+            boolean dentroDelServidor = hasta != null && (hasta.startsWith(prefijoServidor)
+                    || (finServidor != null && hasta.compareTo(finServidor) <= 0));
+            if (dentroDelServidor) {
+                Iterator<Map.Entry<String, Object>> local = escanearFragmento(servidorId, desde, hasta);
+                return local != null ? local : Collections.emptyIterator();
+            }
+        }
+
+        List<Iterator<Map.Entry<String, Object>>> partes = new ArrayList<>();
+        partes.add(global.escanearRango(desde, hasta));
+        for (String id : servidoresConDatos()) {
+            Iterator<Map.Entry<String, Object>> local = escanearFragmento(id, desde, hasta);
+            if (local != null) {
+                partes.add(local);
+            }
+        }
+        return mezclarEnOrden(partes);
+    }
+
+    /**
+     * Recorre la parte de [desde, hasta) que cae en el archivo de un servidor,
+     * devolviendo las claves completas
+     *
+     * @return Cursor, o null si el rango no cruza ese servidor o no tiene archivo
+     */
+    private Iterator<Map.Entry<String, Object>> escanearFragmento(String servidorId, String desde, String hasta) {
+        String prefijoServidor = GestorDatos.claveServidor(servidorId, "");
+        String finServidor = GestorDatos.finDePrefijo(prefijoServidor);
+
+        String desdeLocal = null;
+        if (desde != null && desde.startsWith(prefijoServidor)) {
+            desdeLocal = claveLocal(desde, servidorId);
+        } else if (desde != null && desde.compareTo(prefijoServidor) > 0) {
+            return null; // El rango empieza después de este servidor
+        }
+
+        String hastaLocal = null;
+        if (hasta != null && hasta.startsWith(prefijoServidor)) {
+            hastaLocal = claveLocal(hasta, servidorId);
+        } else if (hasta != null && (finServidor == null || hasta.compareTo(finServidor) < 0)) {
+            return null; // El rango termina antes de este servidor
+        }
+
+        GestorDatosArchivo fragmento = buscarFragmento(servidorId);
+        if (fragmento == null) {
+            return null;
+        }
+        Iterator<Map.Entry<String, Object>> local = fragmento.escanearRango(desdeLocal, hastaLocal);
+        return new Iterator<Map.Entry<String, Object>>() {
+            @Override
+            public boolean hasNext() {
+                return local.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                Map.Entry<String, Object> entrada = local.next();
+                return new AbstractMap.SimpleImmutableEntry<>(prefijoServidor + entrada.getKey(), entrada.getValue());
+            }
+        };
+    }
+
+    /**
+     * Une cursores ordenados en uno solo, también ordenado (sin copiar las entradas)
+     */
+    private static Iterator<Map.Entry<String, Object>> mezclarEnOrden(List<Iterator<Map.Entry<String, Object>>> partes) {
+        if (partes.size() == 1) {
+            return partes.get(0);
+        }
+
+        // Cada elemento de la cola es la próxima entrada de un cursor junto con el cursor
+        PriorityQueue<Map.Entry<Map.Entry<String, Object>, Iterator<Map.Entry<String, Object>>>> cabezas =
+                new PriorityQueue<>(Comparator.comparing(cabeza -> cabeza.getKey().getKey()));
+        for (Iterator<Map.Entry<String, Object>> parte : partes) {
+            if (parte.hasNext()) {
+                cabezas.add(new AbstractMap.SimpleImmutableEntry<>(parte.next(), parte));
+            }
+        }
+
+        return new Iterator<Map.Entry<String, Object>>() {
+            @Override
+            public boolean hasNext() {
+                return !cabezas.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                if (cabezas.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<Map.Entry<String, Object>, Iterator<Map.Entry<String, Object>>> cabeza = cabezas.poll();
+                Iterator<Map.Entry<String, Object>> parte = cabeza.getValue();
+                if (parte.hasNext()) {
+                    cabezas.add(new AbstractMap.SimpleImmutableEntry<>(parte.next(), parte));
+                }
+                return cabeza.getKey();
+            }
+        };
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * Sincroniza el archivo global y el de cada servidor abierto
+     */
+    @Override
+    public void sincronizar() {
+        global.sincronizar();
+        for (GestorDatosArchivo fragmento : servidores.values()) {
+            fragmento.sincronizar();
+        }
+    }
+
+    /**
+     * Vuelca todos los archivos y detiene los hilos de escritura compartidos
+     */
+    @Override
+    public void cerrar() {
+        global.cerrar();
+        for (GestorDatosArchivo fragmento : servidores.values()) {
+            fragmento.cerrar();
+        }
+        if (escritor != null) {
+            escritor.shutdown();
+            try {
+                escritor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    /**
+     * Devuelve el ID de servidor de la clave, o null si es una clave global
+     */
+    private String extraerServidor(String clave) {
+        if (!clave.startsWith(PREFIJO_SERVIDOR)) {
+            return null;
+        }
+        int separador = clave.indexOf('/', PREFIJO_SERVIDOR.length());
+        if (separador < 0) {
+            return null;
+        }
+        String servidorId = clave.substring(PREFIJO_SERVIDOR.length(), separador);
+        return ID_VALIDO.matcher(servidorId).matches() ? servidorId : null;
+    }
+
+    private String claveLocal(String clave, String servidorId) {
+        return clave.substring(PREFIJO_SERVIDOR.length() + servidorId.length() + 1);
+    }
+
+    /**
+     * Obtiene el gestor del servidor solo si ya existe (abierto o con archivo en disco),
+     * para que una lectura de un servidor desconocido no cree archivos
+     *
+     * @return Gestor del servidor, o null si no tiene datos
+     */
+    private GestorDatosArchivo buscarFragmento(String servidorId) {
+        GestorDatosArchivo fragmento = servidores.get(servidorId);
+        if (fragmento != null) {
+            return fragmento;
+        }
+        if (!new File(directorioServidores, servidorId + extension).exists()) {
+            return null;
+        }
+        return obtenerFragmento(servidorId);
+    }
+
+    /**
+     * IDs de los servidores abiertos o con archivo en disco
+     */
+    private List<String> servidoresConDatos() {
+        Set<String> ids = new HashSet<>(servidores.keySet());
+        String[] nombres = directorioServidores.list();
+        if (nombres != null) {
+            for (String nombre : nombres) {
+                if (nombre.endsWith(extension)) {
+                    String id = nombre.substring(0, nombre.length() - extension.length());
+                    if (ID_VALIDO.matcher(id).matches()) {
+                        ids.add(id);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Obtiene (o abre la primera vez) el gestor del servidor
+     */
+    private GestorDatosArchivo obtenerFragmento(String servidorId) {
+        return servidores.computeIfAbsent(servidorId, id -> {
+            directorioServidores.mkdirs();
+            String ruta = new File(directorioServidores, id + extension).getPath();
+            return new GestorDatosArchivo(config.copiarConRuta(ruta), escritor);
+        });
+    }
+
+    // MÉTODOS DE UTILIDAD
+
+    /**
+     * Obtiene la cantidad de entradas cargadas (archivo global + servidores abiertos)
+     * @return Número de entradas
+     */
+    public int getTamanio() {
+        int total = global.getTamanio();
+        for (GestorDatosArchivo fragmento : servidores.values()) {
+            total += fragmento.getTamanio();
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene la cantidad de servidores con archivo abierto
+     * @return Número de servidores
+     */
+    public int getCantidadServidores() {
+        return servidores.size();
+    }
+
+    /**
+     * Obtiene información de estado del gestor
+     * @return String con información de estado
+     */
+    public String getEstado() {
+        return String.format(
+            "GestorDatosFragmentado{carpeta='%s', servidores=%d, global=%s}",
+            directorioServidores, servidores.size(), global.getEstado()
+        );
+    }
+
+    @Override
+    public String toString() {
+        return getEstado();
+    }
+}
@@ -0,0 +1,808 @@
+package com.educativo.bot.servicios;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import com.educativo.bot.interfaces.Codec;
+import com.educativo.bot.interfaces.GestorDatos;
+import com.educativo.bot.modelos.Materia;
+import com.educativo.bot.modelos.Tarea;
+import com.educativo.bot.modelos.Usuario;
+import com.google.gson.Gson;
+
+/**
+ * CONCEPTO: INTERFACES (implementación sobre una base de datos SQL)
+ *
+ * Gestor de datos sobre H2, una base de datos SQL que corre dentro del mismo
+ * proceso y guarda todo en un archivo ("ruta.mv.db"): no hace falta instalar
+ * ni levantar ningún servidor.
+ *
+ * - Los datos generales van a la tabla "datos" (clave, valor en JSON)
+ * - Las materias, tareas y usuarios de {@link RepositorioAcademico} van a sus propias
+ *   tablas, con columnas indexadas (usuario, estado, vencimiento, código, puntos).
+ *   Así se pueden hacer consultas como "tareas vencidas de un usuario" sin cargar
+ *   todo en memoria (ver {@link #buscarTareasVencidas(String)})
+ * - Los lotes de {@link #guardarTodos(Map)} se envían con sentencias preparadas en
+ *   lotes JDBC, dentro de una sola transacción
+ * - Las conexiones se reutilizan con un {@link PoolConexiones}
+ *
+ * Todas las tablas tienen la columna "caduca" para los datos con vigencia. Los
+ * recorridos por rango leen de a páginas ordenadas por clave, sin cursores abiertos.
+ */
+public class GestorDatosJdbc implements GestorDatos {
+
+    private static final int BLOQUEOS = 64;
+    private static final int TAMANIO_LOTE = 500;         // Sentencias por envío de lote JDBC
+    private static final int TAMANIO_PAGINA = 256;       // Filas por página al recorrer
+    private static final int CLAVES_POR_CONSULTA = 500;  // Claves por consulta en obtenerTodos
+
+    // Esquema: cada tabla tiene clave, valor (JSON) y caduca (epoch ms, null = no caduca)
+    private static final String[] ESQUEMA = {
+        "CREATE TABLE IF NOT EXISTS datos (clave VARCHAR(1024) PRIMARY KEY, valor CLOB NOT NULL, caduca BIGINT)",
+        "CREATE INDEX IF NOT EXISTS datos_caduca ON datos(caduca)",
+        "CREATE TABLE IF NOT EXISTS materias (clave VARCHAR(1024) PRIMARY KEY, valor CLOB NOT NULL, caduca BIGINT,"
+                + " id VARCHAR(255), codigo VARCHAR(255), nombre VARCHAR(1024), activa BOOLEAN)",
+        "CREATE INDEX IF NOT EXISTS materias_codigo ON materias(codigo)",
+        "CREATE TABLE IF NOT EXISTS tareas (clave VARCHAR(1024) PRIMARY KEY, valor CLOB NOT NULL, caduca BIGINT,"
+                + " id VARCHAR(255), materia VARCHAR(255), creador_id VARCHAR(255), prioridad INT,"
+                + " completada BOOLEAN, fecha_vencimiento BIGINT)",
+        "CREATE INDEX IF NOT EXISTS tareas_usuario_estado ON tareas(creador_id, completada, fecha_vencimiento)",
+        "CREATE INDEX IF NOT EXISTS tareas_materia ON tareas(materia)",
+        "CREATE TABLE IF NOT EXISTS usuarios (clave VARCHAR(1024) PRIMARY KEY, valor CLOB NOT NULL, caduca BIGINT,"
+                + " id VARCHAR(255), nombre VARCHAR(1024), puntos INT)",
+        "CREATE INDEX IF NOT EXISTS usuarios_puntos ON usuarios(puntos)"
+    };
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final String url;                            // URL JDBC de la base
+    private final PoolConexiones pool;                   // Conexiones reutilizables
+    private final Gson gson;                             // Valores como JSON
+    private final Tabla general;                         // Tabla "datos"
+    private final List<Tabla> tablasAcademicas;          // Materias, tareas y usuarios
+    private final ReentrantLock[] bloqueos;              // Escrituras por grupo de claves
+
+    /**
+     * Tabla de la base y cómo llenar sus columnas indexadas a partir del dato
+     */
+    private static final class Tabla {
+        private final String nombre;
+        private final String prefijo;                    // Claves que van a esta tabla (null = el resto)
+        private final String finPrefijo;
+        private final Function<Object, Object[]> columnasDe;
+        private final int cantidadColumnas;
+        private final String sqlGuardar;
+        private final String sqlObtener;
+        private final String sqlEliminar;
+
+        private Tabla(String nombre, String prefijo, String[] columnas, Function<Object, Object[]> columnasDe) {
+            this.nombre = nombre;
+            this.prefijo = prefijo;
+            this.finPrefijo = prefijo != null ? GestorDatos.finDePrefijo(prefijo) : null;
+            this.columnasDe = columnasDe;
+            this.cantidadColumnas = columnas.length;
+
+            StringBuilder nombres = new StringBuilder("clave, valor, caduca");
+            StringBuilder parametros = new StringBuilder("?, ?, ?");
+            for (String columna : columnas) {
+                nombres.append(", ").append(columna);
+                parametros.append(", ?");
+            }
+            this.sqlGuardar = "MERGE INTO " + nombre + " (" + nombres + ") KEY (clave) VALUES (" + parametros + ")";
+            this.sqlObtener = "SELECT valor, caduca FROM " + nombre + " WHERE clave = ?";
+            this.sqlEliminar = "DELETE FROM " + nombre + " WHERE clave = ?";
+        }
+
+        private boolean seSolapa(String desde, String hasta) {
+            if (prefijo == null) {
+                return true;
+            }
+            return (hasta == null || prefijo.compareTo(hasta) < 0)
+                    && (desde == null || finPrefijo == null || desde.compareTo(finPrefijo) < 0);
+        }
+    }
+
+    /**
+     * Constructor que abre (o crea) la base de datos
+     *
+     * @param config Configuración (ruta del archivo o URL JDBC y cantidad de conexiones)
+     * @throws IllegalStateException si no se puede abrir la base
+     */
+    public GestorDatosJdbc(ConfiguracionDatos config) {
+        this.url = config.getUrlJdbc() != null ? config.getUrlJdbc()
+                : "jdbc:h2:file:" + new File(config.getRutaArchivo()).getAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE";
+        this.gson = new Gson();
+        this.general = new Tabla("datos", null, new String[0], valor -> new Object[0]);
+        this.tablasAcademicas = Arrays.asList(
+                new Tabla("materias", RepositorioAcademico.PREFIJO_MATERIA,
+                        new String[] {"id", "codigo", "nombre", "activa"}, GestorDatosJdbc::columnasMateria),
+                new Tabla("tareas", RepositorioAcademico.PREFIJO_TAREA,
+                        new String[] {"id", "materia", "creador_id", "prioridad", "completada", "fecha_vencimiento"},
+                        GestorDatosJdbc::columnasTarea),
+                new Tabla("usuarios", RepositorioAcademico.PREFIJO_USUARIO,
+                        new String[] {"id", "nombre", "puntos"}, GestorDatosJdbc::columnasUsuario));
+        this.bloqueos = new ReentrantLock[BLOQUEOS];
+        for (int i = 0; i < BLOQUEOS; i++) {
+            bloqueos[i] = new ReentrantLock();
+        }
+
+        try {
+            this.pool = new PoolConexiones(url, config.getConexionesJdbc());
+            pool.usar(conexion -> {
+                try (Statement sentencia = conexion.createStatement()) {
+                    for (String ddl : ESQUEMA) {
+                        sentencia.execute(ddl);
+                    }
+                }
+                return null;
+            });
+            int caducados = purgarCaducados();
+            if (config.getProgresoCarga() != null) {
+                System.out.println("🗄️ Base de datos abierta: " + url + " (" + config.getConexionesJdbc()
+                        + " conexiones" + (caducados == 0 ? "" : ", " + caducados + " caducados descartados") + ")");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo abrir la base de datos " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean guardar(String clave, Object valor) {
+        return guardarConCaducidad(clave, valor, null);
+    }
+
+    /**
+     * La vigencia se guarda en la columna "caduca" de la fila
+     */
+    @Override
+    public boolean guardar(String clave, Object valor, Duration vigencia) {
+        if (vigencia == null || vigencia.isNegative() || vigencia.isZero()) {
+            System.err.println("Vigencia inválida para la clave '" + clave + "': " + vigencia);
+            return false;
+        }
+        return guardarConCaducidad(clave, valor, System.currentTimeMillis() + vigencia.toMillis());
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public Object obtener(String clave) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return null;
+        }
+        Tabla tabla = tablaDe(clave);
+        try {
+            return pool.usar(conexion -> leerFila(conexion, tabla, clave));
+        } catch (SQLException e) {
+            System.err.println("Error al obtener dato con clave '" + clave + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean eliminar(String clave) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return false;
+        }
+        Tabla tabla = tablaDe(clave);
+        ReentrantLock bloqueo = bloqueoDe(clave);
+        bloqueo.lock();
+        try {
+            return pool.usar(conexion -> {
+                try (PreparedStatement sentencia = conexion.prepareStatement(tabla.sqlEliminar)) {
+                    sentencia.setString(1, clave);
+                    return sentencia.executeUpdate() > 0;
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al eliminar dato con clave '" + clave + "': " + e.getMessage());
+            return false;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean existe(String clave) {
+        return obtener(clave) != null;
+    }
+
+    /**
+     * Guarda el lote en una sola transacción, con una sentencia preparada por tabla
+     * enviada en lotes JDBC
+     */
+    @Override
+    public boolean guardarTodos(Map<String, ?> datos) {
+        for (Map.Entry<String, ?> entrada : datos.entrySet()) {
+            if (entrada.getKey() == null || entrada.getKey().trim().isEmpty() || entrada.getValue() == null) {
+                return false;
+            }
+        }
+        if (datos.isEmpty()) {
+            return true;
+        }
+
+        // Tomar los bloqueos de todas las claves en orden creciente (sin riesgo de interbloqueo)
+        TreeSet<Integer> indices = new TreeSet<>();
+        for (String clave : datos.keySet()) {
+            indices.add(indiceBloqueo(clave));
+        }
+        for (int indice : indices) {
+            bloqueos[indice].lock();
+        }
+        try {
+            return pool.enTransaccion(conexion -> {
+                Map<Tabla, PreparedStatement> sentencias = new HashMap<>();
+                Map<Tabla, Integer> pendientes = new HashMap<>();
+                try {
+                    for (Map.Entry<String, ?> entrada : datos.entrySet()) {
+                        Tabla tabla = tablaDe(entrada.getKey());
+                        PreparedStatement sentencia = sentencias.get(tabla);
+                        if (sentencia == null) {
+                            sentencia = conexion.prepareStatement(tabla.sqlGuardar);
+                            sentencias.put(tabla, sentencia);
+                        }
+                        prepararFila(sentencia, tabla, entrada.getKey(), entrada.getValue(), null);
+                        sentencia.addBatch();
+                        if (pendientes.merge(tabla, 1, Integer::sum) % TAMANIO_LOTE == 0) {
+                            sentencia.executeBatch();
+                        }
+                    }
+                    for (PreparedStatement sentencia : sentencias.values()) {
+                        sentencia.executeBatch();
+                    }
+                } finally {
+                    for (PreparedStatement sentencia : sentencias.values()) {
+                        sentencia.close();
+                    }
+                }
+                return true;
+            });
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error al guardar lote de " + datos.size() + " datos: " + e.getMessage());
+            return false;
+        } finally {
+            for (int indice : indices.descendingSet()) {
+                bloqueos[indice].unlock();
+            }
+        }
+    }
+
+    /**
+     * Lee las claves con una consulta "IN" por tabla (de a varias claves por vez)
+     */
+    @Override
+    public Map<String, Object> obtenerTodos(Collection<String> claves) {
+        Map<Tabla, List<String>> porTabla = new LinkedHashMap<>();
+        for (String clave : claves) {
+            if (clave != null && !clave.trim().isEmpty()) {
+                porTabla.computeIfAbsent(tablaDe(clave), tabla -> new ArrayList<>()).add(clave);
+            }
+        }
+
+        Map<String, Object> leidos = new HashMap<>();
+        try {
+            pool.usar(conexion -> {
+                for (Map.Entry<Tabla, List<String>> grupo : porTabla.entrySet()) {
+                    List<String> clavesTabla = grupo.getValue();
+                    for (int desde = 0; desde < clavesTabla.size(); desde += CLAVES_POR_CONSULTA) {
+                        leerGrupo(conexion, grupo.getKey(),
+                                clavesTabla.subList(desde, Math.min(desde + CLAVES_POR_CONSULTA, clavesTabla.size())),
+                                leidos);
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al obtener " + claves.size() + " datos: " + e.getMessage());
+        }
+
+        // Mismo orden en que se pidieron
+        Map<String, Object> encontrados = new LinkedHashMap<>();
+        for (String clave : claves) {
+            Object valor = leidos.get(clave);
+            if (valor != null) {
+                encontrados.put(clave, valor);
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Lee, aplica y guarda en una transacción, con la clave bloqueada
+     * Si la clave tenía vigencia, la conserva.
+     * @throws IllegalStateException si la transacción falla
+     */
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return null;
+        }
+        Tabla tabla = tablaDe(clave);
+        ReentrantLock bloqueo = bloqueoDe(clave);
+        bloqueo.lock();
+        try {
+            return pool.enTransaccion(conexion -> {
+                Object actual = null;
+                Long caduca = null;
+                try (PreparedStatement sentencia = conexion.prepareStatement(tabla.sqlObtener)) {
+                    sentencia.setString(1, clave);
+                    try (ResultSet fila = sentencia.executeQuery()) {
+                        if (fila.next()) {
+                            caduca = leerCaduca(fila, 2);
+                            if (caduca == null || caduca > System.currentTimeMillis()) {
+                                actual = gson.fromJson(fila.getString(1), Object.class);
+                            } else {
+                                caduca = null; // Ya caducó: se actualiza como si no existiera
+                            }
+                        }
+                    }
+                }
+
+                Object nuevo = funcion.apply(actual);
+                if (nuevo == null) {
+                    try (PreparedStatement sentencia = conexion.prepareStatement(tabla.sqlEliminar)) {
+                        sentencia.setString(1, clave);
+                        sentencia.executeUpdate();
+                    }
+                } else {
+                    try (PreparedStatement sentencia = conexion.prepareStatement(tabla.sqlGuardar)) {
+                        prepararFila(sentencia, tabla, clave, nuevo, caduca);
+                        sentencia.executeUpdate();
+                    }
+                }
+                return nuevo;
+            });
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error al actualizar dato con clave '" + clave + "': " + e.getMessage(), e);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Recorre las tablas que pueden tener claves en el rango, de a páginas, y mezcla
+     * sus resultados en orden de clave
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        List<CursorTabla> cursores = new ArrayList<>();
+        if (desde == null || hasta == null || desde.compareTo(hasta) < 0) {
+            cursores.add(new CursorTabla(general, desde, hasta));
+            for (Tabla tabla : tablasAcademicas) {
+                if (tabla.seSolapa(desde, hasta)) {
+                    cursores.add(new CursorTabla(tabla, desde, hasta));
+                }
+            }
+        }
+
+        return new Iterator<Map.Entry<String, Object>>() {
+            @Override
+            public boolean hasNext() {
+                for (CursorTabla cursor : cursores) {
+                    if (cursor.actual() != null) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                CursorTabla menor = null;
+                for (CursorTabla cursor : cursores) {
+                    Map.Entry<String, Object> actual = cursor.actual();
+                    if (actual != null && (menor == null || actual.getKey().compareTo(menor.actual().getKey()) < 0)) {
+                        menor = cursor;
+                    }
+                }
+                if (menor == null) {
+                    throw new NoSuchElementException();
+                }
+                return menor.avanzar();
+            }
+        };
+    }
+
+    /**
+     * Borra los datos caducados y fuerza a disco lo confirmado
+     */
+    @Override
+    public void sincronizar() {
+        try {
+            purgarCaducados();
+            pool.usar(conexion -> {
+                try (Statement sentencia = conexion.createStatement()) {
+                    sentencia.execute("CHECKPOINT SYNC");
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error al sincronizar la base de datos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cierra las conexiones (la base se cierra al cerrarse la última)
+     */
+    @Override
+    public void cerrar() {
+        sincronizar();
+        pool.cerrar();
+    }
+
+    // CONSULTAS INDEXADAS - Específicas de esta implementación
+
+    /**
+     * Tareas sin completar de un usuario cuya fecha de vencimiento ya pasó,
+     * de la más atrasada a la más reciente (usa el índice usuario/estado/vencimiento)
+     *
+     * @param usuarioId ID del usuario creador de las tareas
+     * @return Tareas vencidas (vacía si no hay)
+     * @throws IllegalStateException si falla la consulta
+     */
+    public List<Tarea> buscarTareasVencidas(String usuarioId) {
+        long ahora = System.currentTimeMillis();
+        return consultar("SELECT valor FROM tareas WHERE creador_id = ? AND completada = FALSE"
+                + " AND fecha_vencimiento < ? AND (caduca IS NULL OR caduca > ?) ORDER BY fecha_vencimiento",
+                Codecs.TAREA, usuarioId, ahora, ahora);
+    }
+
+    /**
+     * Busca una materia por su código sin distinguir mayúsculas (usa el índice de código)
+     *
+     * @param codigo Código de la materia
+     * @return La materia o null si no existe
+     * @throws IllegalStateException si falla la consulta
+     */
+    public Materia buscarMateriaPorCodigo(String codigo) {
+        List<Materia> materias = consultar("SELECT valor FROM materias WHERE codigo = ?"
+                + " AND (caduca IS NULL OR caduca > ?) LIMIT 1",
+                Codecs.MATERIA, codigo.toUpperCase(), System.currentTimeMillis());
+        return materias.isEmpty() ? null : materias.get(0);
+    }
+
+    /**
+     * Usuarios con más puntos (usa el índice de puntos)
+     *
+     * @param cantidad Cantidad máxima de usuarios
+     * @return Usuarios de mayor a menor puntaje
+     * @throws IllegalStateException si falla la consulta
+     */
+    public List<Usuario> buscarMejoresUsuarios(int cantidad) {
+        return consultar("SELECT valor FROM usuarios WHERE caduca IS NULL OR caduca > ?"
+                + " ORDER BY puntos DESC LIMIT ?",
+                Codecs.USUARIO, System.currentTimeMillis(), cantidad);
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    private boolean guardarConCaducidad(String clave, Object valor, Long caduca) {
+        if (clave == null || clave.trim().isEmpty() || valor == null) {
+            return false;
+        }
+        Tabla tabla = tablaDe(clave);
+        ReentrantLock bloqueo = bloqueoDe(clave);
+        bloqueo.lock();
+        try {
+            return pool.usar(conexion -> {
+                try (PreparedStatement sentencia = conexion.prepareStatement(tabla.sqlGuardar)) {
+                    prepararFila(sentencia, tabla, clave, valor, caduca);
+                    return sentencia.executeUpdate() > 0;
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error al guardar dato con clave '" + clave + "': " + e.getMessage());
+            return false;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    private Tabla tablaDe(String clave) {
+        for (Tabla tabla : tablasAcademicas) {
+            if (clave.startsWith(tabla.prefijo)) {
+                return tabla;
+            }
+        }
+        return general;
+    }
+
+    private int indiceBloqueo(String clave) {
+        return (clave.hashCode() & 0x7fffffff) % BLOQUEOS;
+    }
+
+    private ReentrantLock bloqueoDe(String clave) {
+        return bloqueos[indiceBloqueo(clave)];
+    }
+
+    /**
+     * Completa los parámetros del MERGE: clave, valor, caduca y columnas indexadas
+     */
+    private void prepararFila(PreparedStatement sentencia, Tabla tabla, String clave, Object valor, Long caduca)
+            throws SQLException {
+        sentencia.setString(1, clave);
+        sentencia.setString(2, gson.toJson(valor));
+        sentencia.setObject(3, caduca);
+
+        Object[] columnas;
+        try {
+            columnas = tabla.columnasDe.apply(valor);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            // Dato con otro formato: se guarda igual, sin las columnas indexadas
+            columnas = new Object[tabla.cantidadColumnas];
+        }
+        for (int i = 0; i < tabla.cantidadColumnas; i++) {
+            sentencia.setObject(4 + i, columnas[i]);
+        }
+    }
+
+    /**
+     * Lee la columna "caduca" de la fila
+     */
+    @Override
+    public long obtenerVencimiento(String clave) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return 0;
+        }
+        Tabla tabla = tablaDe(clave);
+        try {
+            Long caduca = pool.usar(conexion -> {
+                try (PreparedStatement sentencia = conexion.prepareStatement(tabla.sqlObtener)) {
+                    sentencia.setString(1, clave);
+                    try (ResultSet fila = sentencia.executeQuery()) {
+                        return fila.next() ? leerCaduca(fila, 2) : null;
+                    }
+                }
+            });
+            return caduca != null ? caduca : 0;
+        } catch (SQLException e) {
+            System.err.println("Error al obtener vencimiento de '" + clave + "': " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private Object leerFila(Connection conexion, Tabla tabla, String clave) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(tabla.sqlObtener)) {
+            sentencia.setString(1, clave);
+            try (ResultSet fila = sentencia.executeQuery()) {
+                if (!fila.next() || caducada(leerCaduca(fila, 2))) {
+                    return null;
+                }
+                return gson.fromJson(fila.getString(1), Object.class);
+            }
+        }
+    }
+
+    private void leerGrupo(Connection conexion, Tabla tabla, List<String> claves, Map<String, Object> destino)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT clave, valor, caduca FROM ").append(tabla.nombre)
+                .append(" WHERE clave IN (");
+        for (int i = 0; i < claves.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement sentencia = conexion.prepareStatement(sql.toString())) {
+            for (int i = 0; i < claves.size(); i++) {
+                sentencia.setString(i + 1, claves.get(i));
+            }
+            try (ResultSet fila = sentencia.executeQuery()) {
+                while (fila.next()) {
+                    if (!caducada(leerCaduca(fila, 3))) {
+                        destino.put(fila.getString(1), gson.fromJson(fila.getString(2), Object.class));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una consulta que devuelve la columna "valor" y decodifica cada fila
+     */
+    private <T> List<T> consultar(String sql, Codec<T> codec, Object... parametros) {
+        try {
+            return pool.usar(conexion -> {
+                List<T> resultado = new ArrayList<>();
+                try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+                    for (int i = 0; i < parametros.length; i++) {
+                        sentencia.setObject(i + 1, parametros[i]);
+                    }
+                    try (ResultSet fila = sentencia.executeQuery()) {
+                        while (fila.next()) {
+                            try {
+                                resultado.add(codec.decodificar(gson.fromJson(fila.getString(1), Object.class)));
+                            } catch (IllegalArgumentException e) {
+                                System.err.println("⚠️ Fila ilegible: " + e.getMessage());
+                            }
+                        }
+                    }
+                }
+                return resultado;
+            });
+        } catch (SQLException e) {
+            // Una lista vacía se confundiría con "no hay resultados"
+            throw new IllegalStateException("Error en consulta a la base de datos: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Borra de todas las tablas las filas cuya vigencia terminó
+     *
+     * @return Cantidad de filas borradas
+     */
+    private int purgarCaducados() throws SQLException {
+        long ahora = System.currentTimeMillis();
+        return pool.usar(conexion -> {
+            int borradas = 0;
+            List<Tabla> tablas = new ArrayList<>(tablasAcademicas);
+            tablas.add(general);
+            for (Tabla tabla : tablas) {
+                try (PreparedStatement sentencia = conexion.prepareStatement(
+                        "DELETE FROM " + tabla.nombre + " WHERE caduca <= ?")) {
+                    sentencia.setLong(1, ahora);
+                    borradas += sentencia.executeUpdate();
+                }
+            }
+            return borradas;
+        });
+    }
+
+    private static Long leerCaduca(ResultSet fila, int columna) throws SQLException {
+        long caduca = fila.getLong(columna);
+        return fila.wasNull() ? null : caduca;
+    }
+
+    private static boolean caducada(Long caduca) {
+        return caduca != null && caduca <= System.currentTimeMillis();
+    }
+
+    private static Object[] columnasMateria(Object valor) {
+        Materia materia = Codecs.MATERIA.decodificar(valor);
+        return new Object[] {materia.getId(), materia.getCodigo().toUpperCase(), materia.getNombre(),
+                materia.isActiva()};
+    }
+
+    private static Object[] columnasTarea(Object valor) {
+        Tarea tarea = Codecs.TAREA.decodificar(valor);
+        return new Object[] {tarea.getId(), tarea.getMateria(), tarea.getCreadorId(), tarea.getPrioridad(),
+                tarea.isCompletada(), aMilisegundos(tarea.getFechaVencimiento())};
+    }
+
+    private static Object[] columnasUsuario(Object valor) {
+        Usuario usuario = Codecs.USUARIO.decodificar(valor);
+        return new Object[] {usuario.getId(), usuario.getNombre(), usuario.getPuntos()};
+    }
+
+    private static Long aMilisegundos(LocalDateTime fecha) {
+        return fecha != null ? fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null;
+    }
+
+    /**
+     * Cursor sobre una tabla que lee de a una página por vez (cada página con una
+     * conexión prestada, así abandonar el recorrido no deja nada abierto)
+     */
+    private final class CursorTabla {
+        private final Tabla tabla;
+        private final String desde;
+        private final String hasta;
+        private final ArrayDeque<Map.Entry<String, Object>> pagina;
+        private String ultimaClave;                      // Última clave leída (null = ninguna todavía)
+        private boolean agotado;
+
+        private CursorTabla(Tabla tabla, String desde, String hasta) {
+            this.tabla = tabla;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.pagina = new ArrayDeque<>();
+        }
+
+        /**
+         * @return Entrada actual sin avanzar, o null si no quedan
+         */
+        private Map.Entry<String, Object> actual() {
+            while (pagina.isEmpty() && !agotado) {
+                leerPagina();
+            }
+            return pagina.peekFirst();
+        }
+
+        private Map.Entry<String, Object> avanzar() {
+            actual();
+            Map.Entry<String, Object> entrada = pagina.pollFirst();
+            if (entrada == null) {
+                throw new NoSuchElementException();
+            }
+            return entrada;
+        }
+
+        private void leerPagina() {
+            List<Object> parametros = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT clave, valor, caduca FROM ").append(tabla.nombre)
+                    .append(" WHERE TRUE");
+            if (ultimaClave != null) {
+                sql.append(" AND clave > ?");
+                parametros.add(ultimaClave);
+            } else if (desde != null) {
+                sql.append(" AND clave >= ?");
+                parametros.add(desde);
+            }
+            if (hasta != null) {
+                sql.append(" AND clave < ?");
+                parametros.add(hasta);
+            }
+            sql.append(" ORDER BY clave LIMIT ").append(TAMANIO_PAGINA);
+
+            try {
+                int filas = pool.usar(conexion -> {
+                    int leidas = 0;
+                    try (PreparedStatement sentencia = conexion.prepareStatement(sql.toString())) {
+                        for (int i = 0; i < parametros.size(); i++) {
+                            sentencia.setObject(i + 1, parametros.get(i));
+                        }
+                        try (ResultSet fila = sentencia.executeQuery()) {
+                            while (fila.next()) {
+                                leidas++;
+                                ultimaClave = fila.getString(1);
+                                if (!caducada(leerCaduca(fila, 3))) {
+                                    pagina.addLast(new AbstractMap.SimpleImmutableEntry<>(ultimaClave,
+                                            gson.fromJson(fila.getString(2), Object.class)));
+                                }
+                            }
+                        }
+                    }
+                    return leidas;
+                });
+                agotado = filas < TAMANIO_PAGINA;
+            } catch (SQLException e) {
+                throw new IllegalStateException("Error al recorrer la tabla " + tabla.nombre + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // MÉTODOS DE UTILIDAD
+
+    /**
+     * Obtiene información de estado del gestor
+     * @return String con información de estado
+     */
+    public String getEstado() {
+        return String.format("GestorDatosJdbc{url='%s', pool=%s}", url, pool);
+    }
+
+    @Override
+    public String toString() {
+        return getEstado();
+    }
+}
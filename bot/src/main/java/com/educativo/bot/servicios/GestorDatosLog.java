@@ -0,0 +1,641 @@
+package com.educativo.bot.servicios;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+import com.educativo.bot.interfaces.GestorDatos;
+import com.google.gson.Gson;
+
+/**
+ * CONCEPTO: INTERFACES (otra implementación del mismo contrato)
+ *
+ * Gestor de datos basado en un registro de escritura anticipada (write-ahead log).
+ * En lugar de reescribir todo el archivo en cada cambio, cada guardar/eliminar
+ * AÑADE un registro pequeño al final de un archivo de log. El costo de escribir
+ * pasa a depender del tamaño del registro, no del total de datos.
+ *
+ * Archivos utilizados (a partir de la ruta configurada):
+ * - ruta              : snapshot completo en JSON (mismo formato que GestorDatosArchivo)
+ * - ruta.log          : registros añadidos desde el último snapshot
+ * - ruta.log.compactando : log congelado mientras se escribe un snapshot nuevo
+ *
+ * Formato de cada registro: [longitud int][crc32 int][operación byte][clave UTF][valor JSON]
+ *
+ * Al iniciar se carga el snapshot y se reproducen los logs. Si el último registro
+ * quedó cortado (el proceso murió a mitad de escritura), se descarta y el log se
+ * trunca en el último registro válido. Si el snapshot existe pero no se puede leer,
+ * el gestor no abre: empezar solo con el log y compactar pisaría el snapshot bueno.
+ *
+ * Cada cambio se aplica en memoria recién cuando su registro quedó escrito en el
+ * log; si la escritura falla, el log se vuelve a cortar donde estaba y la memoria
+ * no cambia.
+ *
+ * Cuando el log supera un tamaño máximo se compacta en segundo plano: se escribe
+ * un snapshot nuevo y se descarta el log viejo.
+ *
+ * La {@link PoliticaSincronizacion} decide tras qué registros se hace fsync del log.
+ */
+public class GestorDatosLog implements GestorDatos {
+
+    // Tipos de operación registrados en el log
+    private static final byte OPERACION_GUARDAR = 1;
+    private static final byte OPERACION_ELIMINAR = 2;
+
+    // Límite de seguridad para detectar longitudes corruptas
+    private static final int LONGITUD_MAXIMA_REGISTRO = 64 * 1024 * 1024;
+
+    // ENCAPSULAMIENTO: Estado interno privado
+    private final File archivoSnapshot;                  // Snapshot JSON completo
+    private final File archivoLog;                       // Log activo
+    private final File archivoLogCompactando;            // Log congelado durante la compactación
+    private final ConcurrentNavigableMap<String, Object> cacheDatos; // Estado actual en memoria, ordenado por clave
+    private final Gson gson;                             // Para serializar valores y snapshots
+    private final long umbralCompactacionBytes;          // Tamaño de log que dispara la compactación
+    private final Object bloqueoLog;                     // Ordena cache + log de forma consistente
+    private final AtomicBoolean compactando;             // Evita compactaciones simultáneas
+    private final ExecutorService compactador;           // Hilo de compactación en segundo plano
+    private final PoliticaSincronizacion politica;       // Cuándo forzar el log al disco
+    private final long intervaloSincronizacionMs;        // Intervalo para la política INTERVALO
+    private final CargadorJsonIncremental.Progreso progresoCarga; // Avance de la carga del snapshot
+    private final FormatoSnapshot formato;               // Formato en que se escribe el snapshot
+
+    private FileOutputStream salidaArchivo;              // Stream crudo del log (para forzar a disco)
+    private DataOutputStream salidaLog;                  // Stream con buffer para añadir registros
+    private volatile long tamanioLog;                    // Bytes escritos en el log activo
+    private long registrosReproducidos;                  // Registros aplicados al iniciar
+    private long ultimoForzadoMs;                        // Último fsync del log (protegido por bloqueoLog)
+
+    /**
+     * Constructor que configura el gestor con opciones por defecto
+     *
+     * @param rutaArchivo Ruta del snapshot; el log se guarda junto a él
+     */
+    public GestorDatosLog(String rutaArchivo) {
+        this(new ConfiguracionDatos(rutaArchivo));
+    }
+
+    /**
+     * Constructor que configura el gestor a partir de una configuración completa
+     *
+     * @param config Opciones de persistencia
+     */
+    public GestorDatosLog(ConfiguracionDatos config) {
+        this.archivoSnapshot = new File(config.getRutaArchivo());
+        this.archivoLog = new File(config.getRutaArchivo() + ".log");
+        this.archivoLogCompactando = new File(config.getRutaArchivo() + ".log.compactando");
+        this.cacheDatos = new ConcurrentSkipListMap<>();
+        this.gson = new Gson();
+        this.umbralCompactacionBytes = config.getUmbralCompactacionBytes();
+        this.bloqueoLog = new Object();
+        this.compactando = new AtomicBoolean(false);
+        this.politica = config.getPoliticaSincronizacion();
+        this.intervaloSincronizacionMs = config.getIntervaloSincronizacionMs();
+        this.progresoCarga = config.getProgresoCarga();
+        this.formato = config.getFormatoSnapshot();
+        this.ultimoForzadoMs = System.currentTimeMillis();
+        this.compactador = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "gestor-datos-compactador");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        File directorioPadre = archivoSnapshot.getAbsoluteFile().getParentFile();
+        if (directorioPadre != null && !directorioPadre.exists()) {
+            directorioPadre.mkdirs();
+        }
+
+        try {
+            recuperar();
+        } catch (RuntimeException e) {
+            compactador.shutdownNow();
+            throw e;
+        }
+    }
+
+    // IMPLEMENTACIÓN de los métodos de la interfaz GestorDatos
+
+    /**
+     * Guarda el dato en memoria y añade un registro al log
+     */
+    @Override
+    public boolean guardar(String clave, Object valor) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return false;
+        }
+        if (valor == null) {
+            System.err.println("Error al guardar dato con clave '" + clave + "': el valor no puede ser null");
+            return false;
+        }
+
+        try {
+            byte[] registro = crearRegistro(OPERACION_GUARDAR, clave, gson.toJson(valor));
+            synchronized (bloqueoLog) {
+                anexarRegistros(List.of(registro));
+                cacheDatos.put(clave, valor);
+            }
+            verificarCompactacion();
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al guardar dato con clave '" + clave + "': " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Obtiene el dato desde memoria
+     */
+    @Override
+    public Object obtener(String clave) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return null;
+        }
+        return cacheDatos.get(clave);
+    }
+
+    /**
+     * Elimina el dato de memoria y añade un registro de borrado al log
+     */
+    @Override
+    public boolean eliminar(String clave) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return false;
+        }
+
+        try {
+            byte[] registro = crearRegistro(OPERACION_ELIMINAR, clave, null);
+            synchronized (bloqueoLog) {
+                if (!cacheDatos.containsKey(clave)) {
+                    return false; // No existía
+                }
+                anexarRegistros(List.of(registro));
+                cacheDatos.remove(clave);
+            }
+            verificarCompactacion();
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al eliminar dato con clave '" + clave + "': " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean existe(String clave) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return false;
+        }
+        return cacheDatos.containsKey(clave);
+    }
+
+    /**
+     * Recorre el rango sobre el estado ordenado en memoria, sin copiar claves
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        return GestorDatosArchivo.cursorRango(cacheDatos, desde, hasta);
+    }
+
+    /**
+     * Anexa todo el lote al log y lo entrega al disco una sola vez
+     */
+    @Override
+    public boolean guardarTodos(Map<String, ?> datos) {
+        for (Map.Entry<String, ?> entrada : datos.entrySet()) {
+            if (entrada.getKey() == null || entrada.getKey().trim().isEmpty() || entrada.getValue() == null) {
+                System.err.println("Error al guardar lote de " + datos.size()
+                        + " datos: hay una clave vacía o un valor null");
+                return false;
+            }
+        }
+        if (datos.isEmpty()) {
+            return true;
+        }
+
+        try {
+            // Serializar fuera del bloqueo
+            List<byte[]> registros = new ArrayList<>(datos.size());
+            for (Map.Entry<String, ?> entrada : datos.entrySet()) {
+                registros.add(crearRegistro(OPERACION_GUARDAR, entrada.getKey(), gson.toJson(entrada.getValue())));
+            }
+
+            synchronized (bloqueoLog) {
+                anexarRegistros(registros);
+                cacheDatos.putAll(datos);
+            }
+            verificarCompactacion();
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al guardar lote de " + datos.size() + " datos: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Lectura-modificación-escritura atómica: la función se aplica con el log bloqueado
+     * @throws IllegalStateException si no se pudo escribir el registro
+     */
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return null;
+        }
+
+        try {
+            synchronized (bloqueoLog) {
+                Object actual = cacheDatos.get(clave);
+                Object nuevo = funcion.apply(actual);
+                if (nuevo != null) {
+                    anexarRegistros(List.of(crearRegistro(OPERACION_GUARDAR, clave, gson.toJson(nuevo))));
+                    cacheDatos.put(clave, nuevo);
+                } else if (actual != null) {
+                    anexarRegistros(List.of(crearRegistro(OPERACION_ELIMINAR, clave, null)));
+                    cacheDatos.remove(clave);
+                }
+                verificarCompactacion();
+                return nuevo;
+            }
+
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al actualizar dato con clave '" + clave + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fuerza a disco todos los registros añadidos hasta ahora
+     * (con la política NUNCA solo los entrega al sistema operativo)
+     */
+    @Override
+    public void sincronizar() {
+        synchronized (bloqueoLog) {
+            try {
+                salidaLog.flush();
+                if (politica != PoliticaSincronizacion.NUNCA) {
+                    salidaArchivo.getChannel().force(false);
+                    ultimoForzadoMs = System.currentTimeMillis();
+                }
+            } catch (IOException e) {
+                System.err.println("Error al sincronizar log " + archivoLog + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Espera a que termine una compactación en curso y cierra el log
+     */
+    @Override
+    public void cerrar() {
+        compactador.shutdown();
+        try {
+            compactador.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (bloqueoLog) {
+            sincronizar();
+            try {
+                salidaLog.close();
+            } catch (IOException e) {
+                System.err.println("Error al cerrar log " + archivoLog + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // MÉTODOS PRIVADOS - Recuperación al iniciar
+
+    /**
+     * Reconstruye el estado: snapshot + log congelado (si quedó) + log activo
+     */
+    private void recuperar() {
+        cargarSnapshot();
+
+        boolean compactacionInterrumpida = archivoLogCompactando.exists();
+        if (compactacionInterrumpida) {
+            reproducirLog(archivoLogCompactando);
+        }
+        reproducirLog(archivoLog);
+
+        try {
+            abrirLog();
+            // Si una compactación se cortó a medias, completarla ahora
+            if (compactacionInterrumpida) {
+                compactarAhora();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo abrir el log " + archivoLog + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Carga el snapshot si existe, entrada por entrada
+     *
+     * @throws IllegalStateException si existe pero no se puede leer: seguir sin él
+     *         dejaría solo lo que está en el log, y la próxima compactación lo pisaría
+     */
+    private void cargarSnapshot() {
+        if (!archivoSnapshot.exists()) {
+            return;
+        }
+
+        try {
+            FormatoSnapshot.cargar(archivoSnapshot, gson, cacheDatos::put, null, progresoCarga);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer el snapshot " + archivoSnapshot + " (" + e.getMessage()
+                    + "). No se abre el almacenamiento para no pisarlo: restaurarlo o moverlo a mano", e);
+        }
+    }
+
+    /**
+     * Aplica todos los registros válidos de un log al cache
+     * Se detiene en el primer registro cortado o corrupto y trunca el archivo ahí
+     */
+    private void reproducirLog(File log) {
+        if (!log.exists()) {
+            return;
+        }
+
+        long posicionValida = 0;
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(log)))) {
+
+            while (true) {
+                int longitud;
+                try {
+                    longitud = entrada.readInt();
+                } catch (EOFException e) {
+                    break; // Fin limpio del log
+                }
+
+                if (longitud <= 0 || longitud > LONGITUD_MAXIMA_REGISTRO) {
+                    break; // Longitud corrupta
+                }
+
+                int crcEsperado = entrada.readInt();
+                byte[] contenido = new byte[longitud];
+                entrada.readFully(contenido);
+
+                CRC32 crc = new CRC32();
+                crc.update(contenido);
+                if ((int) crc.getValue() != crcEsperado) {
+                    break; // Registro cortado o dañado
+                }
+
+                aplicarRegistro(contenido);
+                posicionValida += 8 + longitud;
+                registrosReproducidos++;
+            }
+        } catch (EOFException e) {
+            // Último registro incompleto: se descarta
+        } catch (IOException e) {
+            System.err.println("Error al leer log " + log + ": " + e.getMessage());
+        }
+
+        // Descartar la cola dañada para que los nuevos registros queden bien alineados
+        if (posicionValida < log.length()) {
+            System.err.println("⚠️ Log " + log + " con registro final incompleto, se descartan "
+                    + (log.length() - posicionValida) + " bytes");
+            try (RandomAccessFile archivo = new RandomAccessFile(log, "rw")) {
+                archivo.setLength(posicionValida);
+            } catch (IOException e) {
+                System.err.println("Error al truncar log " + log + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Decodifica un registro y lo aplica al cache
+     */
+    private void aplicarRegistro(byte[] contenido) throws IOException {
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(contenido));
+        byte operacion = entrada.readByte();
+        String clave = entrada.readUTF();
+
+        if (operacion == OPERACION_GUARDAR) {
+            byte[] json = new byte[entrada.readInt()];
+            entrada.readFully(json);
+            Object valor = gson.fromJson(new String(json, StandardCharsets.UTF_8), Object.class);
+            cacheDatos.put(clave, valor);
+        } else if (operacion == OPERACION_ELIMINAR) {
+            cacheDatos.remove(clave);
+        }
+    }
+
+    // MÉTODOS PRIVADOS - Escritura del log
+
+    /**
+     * Abre el log activo en modo "añadir"
+     */
+    private void abrirLog() throws IOException {
+        salidaArchivo = new FileOutputStream(archivoLog, true);
+        salidaLog = new DataOutputStream(new BufferedOutputStream(salidaArchivo));
+        tamanioLog = archivoLog.length();
+    }
+
+    /**
+     * Serializa una operación como registro del log (fuera del bloqueo)
+     */
+    private byte[] crearRegistro(byte operacion, String clave, String valorJson) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream contenido = new DataOutputStream(bytes);
+        contenido.writeByte(operacion);
+        contenido.writeUTF(clave);
+        if (valorJson != null) {
+            byte[] json = valorJson.getBytes(StandardCharsets.UTF_8);
+            contenido.writeInt(json.length);
+            contenido.write(json);
+        }
+        contenido.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Añade registros al log activo y los entrega al sistema operativo (llamar con bloqueoLog tomado)
+     * Si algo falla, el log se corta donde estaba antes: un registro a medias en el
+     * medio del log haría que al iniciar se descarten todos los que le siguen.
+     */
+    private void anexarRegistros(List<byte[]> registros) throws IOException {
+        long posicionInicial = tamanioLog;
+        try {
+            for (byte[] registro : registros) {
+                escribirRegistro(registro);
+            }
+            terminarEscritura();
+        } catch (IOException e) {
+            deshacerEscritura(posicionInicial);
+            throw e;
+        }
+    }
+
+    /**
+     * Descarta lo escrito desde la posición indicada y vuelve a abrir el log
+     */
+    private void deshacerEscritura(long posicion) {
+        try {
+            salidaLog.close();
+        } catch (IOException e) {
+            // El buffer puede no haberse vaciado: se corta el archivo igual
+        }
+        try (RandomAccessFile archivo = new RandomAccessFile(archivoLog, "rw")) {
+            archivo.setLength(posicion);
+        } catch (IOException e) {
+            System.err.println("❌ No se pudo cortar el log " + archivoLog + " tras un error: " + e.getMessage());
+        }
+        try {
+            abrirLog();
+        } catch (IOException e) {
+            System.err.println("❌ No se pudo reabrir el log " + archivoLog + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe un registro en el buffer del log, sin vaciarlo todavía
+     * Debe llamarse con bloqueoLog tomado
+     */
+    private void escribirRegistro(byte[] contenido) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+
+        salidaLog.writeInt(contenido.length);
+        salidaLog.writeInt((int) crc.getValue());
+        salidaLog.write(contenido);
+        tamanioLog += 8 + contenido.length;
+    }
+
+    /**
+     * Entrega lo escrito al sistema operativo y fuerza a disco según la política
+     * Debe llamarse con bloqueoLog tomado
+     */
+    private void terminarEscritura() throws IOException {
+        salidaLog.flush(); // Llega al sistema operativo
+        
+        long ahora = System.currentTimeMillis();
+        if (politica.debeForzar(ahora - ultimoForzadoMs, intervaloSincronizacionMs)) {
+            salidaArchivo.getChannel().force(false);
+            ultimoForzadoMs = ahora;
+        }
+    }
+
+    // MÉTODOS PRIVADOS - Compactación
+
+    /**
+     * Lanza una compactación en segundo plano si el log creció demasiado
+     */
+    private void verificarCompactacion() {
+        if (tamanioLog >= umbralCompactacionBytes && compactando.compareAndSet(false, true)) {
+            try {
+                compactador.execute(this::compactarEnSegundoPlano);
+            } catch (RuntimeException e) {
+                compactando.set(false); // El gestor se está cerrando
+            }
+        }
+    }
+
+    private void compactarEnSegundoPlano() {
+        try {
+            compactarAhora();
+        } catch (Exception e) {
+            System.err.println("Error al compactar " + archivoLog + ": " + e.getMessage());
+        } finally {
+            compactando.set(false);
+        }
+    }
+
+    /**
+     * Congela el log activo, escribe un snapshot nuevo y descarta el log congelado
+     *
+     * Solo la rotación del log y la copia del cache se hacen con el bloqueo tomado;
+     * la escritura del snapshot (lo costoso) ocurre sin bloquear a los escritores.
+     */
+    private void compactarAhora() throws IOException {
+        Map<String, Object> copia;
+
+        synchronized (bloqueoLog) {
+            salidaLog.flush();
+            if (politica != PoliticaSincronizacion.NUNCA) {
+                salidaArchivo.getChannel().force(false);
+            }
+            salidaLog.close();
+
+            if (archivoLogCompactando.exists()) {
+                // Quedó de una compactación interrumpida: ya está reflejado en el cache
+                Files.delete(archivoLogCompactando.toPath());
+            }
+            Files.move(archivoLog.toPath(), archivoLogCompactando.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            abrirLog();
+
+            copia = new HashMap<>(cacheDatos);
+        }
+
+        escribirSnapshot(copia);
+        Files.deleteIfExists(archivoLogCompactando.toPath());
+    }
+
+    /**
+     * Escribe el snapshot en un archivo temporal y lo reemplaza de forma atómica
+     * Antes de descartar el log congelado el snapshot debe estar en disco,
+     * salvo que la política sea NUNCA
+     */
+    private void escribirSnapshot(Map<String, Object> datos) throws IOException {
+        EscritorAtomico.escribir(archivoSnapshot.toPath(), salida -> formato.escribir(datos, salida, gson),
+                politica != PoliticaSincronizacion.NUNCA);
+    }
+
+    // MÉTODOS ADICIONALES - Funcionalidad específica de esta implementación
+
+    /**
+     * Obtiene el número total de entradas almacenadas
+     */
+    public int getTamanio() {
+        return cacheDatos.size();
+    }
+
+    /**
+     * Obtiene el tamaño actual del log activo en bytes
+     */
+    public long getTamanioLog() {
+        return tamanioLog;
+    }
+
+    /**
+     * Obtiene información de estado del gestor
+     */
+    public String getEstado() {
+        return String.format(
+            "GestorDatosLog{snapshot='%s', entradas=%d, logBytes=%d, reproducidos=%d, compactando=%s}",
+            archivoSnapshot.getPath(), cacheDatos.size(), tamanioLog, registrosReproducidos, compactando.get()
+        );
+    }
+
+    @Override
+    public String toString() {
+        return getEstado();
+    }
+}
@@ -0,0 +1,1087 @@
+package com.educativo.bot.servicios;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+import com.educativo.bot.interfaces.GestorDatos;
+import com.google.gson.Gson;
+
+/**
+ * CONCEPTO: INTERFACES (implementación sin cache en memoria)
+ *
+ * Gestor de datos que guarda todo en archivos mapeados en memoria
+ * ({@link FileChannel#map}). A diferencia de GestorDatosArchivo, las claves y
+ * valores NO se cargan en el heap de Java: viven en el archivo y el sistema
+ * operativo decide qué páginas mantener en RAM (page cache). Así el heap del bot
+ * se mantiene estable aunque existan millones de claves.
+ *
+ * Se usan dos archivos a partir de la ruta configurada:
+ *
+ * - ruta.N.idx: índice hash en disco con direccionamiento abierto (sondeo lineal).
+ *   Cabecera [magia][versión][capacidad][ocupados][borrados][basura][generación] y luego una tabla de
+ *   ranuras de 12 bytes [hash int][posición long]. Posición 0 = ranura libre,
+ *   -1 = ranura borrada (tumba).
+ *
+ * - ruta.N.dat: cabecera [magia][versión][fin de datos][generación] y registros añadidos al final
+ *   [long clave int][long valor int][clave UTF-8][valor JSON].
+ *   Actualizar una clave añade un registro nuevo y apunta la ranura hacia él; el espacio
+ *   viejo se recupera con {@link #compactar()}, que se ejecuta solo cuando la basura
+ *   supera la mitad del archivo.
+ *
+ * Nunca se renombra ni se pisa un archivo que está mapeado (en Windows falla, y el
+ * mapeo viejo seguiría apuntando al archivo reemplazado). Al compactar o redimensionar
+ * el índice se escribe un archivo con el número siguiente; su número mágico se escribe
+ * al final, cuando está completo y forzado a disco. Recién entonces se pasa a usar,
+ * se libera el mapeo del anterior y se lo borra. Al abrir se elige el archivo
+ * confirmado de número más alto y se borran los demás. Los archivos de versiones
+ * anteriores (ruta.idx y ruta.dat, sin número) se leen como número 0.
+ *
+ * Ambos archivos llevan un número de generación. Si no coinciden al abrir (el proceso
+ * murió entre la confirmación de los datos y la del índice durante una compactación),
+ * el índice se reconstruye recorriendo los datos compactados.
+ *
+ * Las páginas modificadas se fuerzan a disco según la {@link PoliticaSincronizacion}.
+ *
+ * Límite: cada archivo mapeado puede crecer hasta 2 GB.
+ */
+public class GestorDatosMapeado implements GestorDatos {
+
+    // Constantes del formato en disco
+    private static final int MAGIA_INDICE = 0x42454958;          // "BEIX"
+    private static final int MAGIA_DATOS = 0x42454454;           // "BEDT"
+    private static final int VERSION = 1;
+    private static final int CABECERA_INDICE = 32;
+    private static final int CABECERA_DATOS = 24;
+    private static final int TAMANIO_RANURA = 12;
+    private static final long RANURA_LIBRE = 0L;
+    private static final long RANURA_BORRADA = -1L;
+    private static final int CAPACIDAD_INICIAL = 1024;           // Ranuras (potencia de 2)
+    private static final long DATOS_INICIALES = 1024 * 1024;      // 1 MB
+    private static final double CARGA_MAXIMA = 0.7;
+    private static final long BASURA_MINIMA_COMPACTAR = 4L * 1024 * 1024;
+    private static final String EXTENSION_INDICE = ".idx";
+    private static final String EXTENSION_DATOS = ".dat";
+
+    // ENCAPSULAMIENTO: Estado interno privado
+    private final String rutaBase;                               // Ruta configurada, sin número ni extensión
+    private final Gson gson;
+    private final ReentrantReadWriteLock bloqueo;                // Lecturas concurrentes, escrituras exclusivas
+    private final PoliticaSincronizacion politica;               // Cuándo forzar las páginas al disco
+    private final long intervaloSincronizacionMs;                // Intervalo para la política INTERVALO
+
+    private File archivoIndice;                                  // Índice en uso (cambia al redimensionar)
+    private File archivoDatos;                                   // Datos en uso (cambia al compactar)
+    private long numeroIndice;                                   // Número del archivo de índice en uso
+    private RandomAccessFile accesoIndice;
+    private RandomAccessFile accesoDatos;
+    private MappedByteBuffer indice;                             // Tabla hash mapeada
+    private MappedByteBuffer datos;                              // Registros mapeados
+    private int capacidad;                                       // Número de ranuras del índice
+    private int ocupados;                                        // Ranuras con datos vivos
+    private int borrados;                                        // Ranuras marcadas como borradas
+    private long finDatos;                                       // Posición donde se añade el próximo registro
+    private long bytesBasura;                                    // Bytes de registros reemplazados o borrados
+    private int generacion;                                      // Se incrementa en cada compactación
+    private long ultimoForzadoMs;                                // Último fsync (protegido por el bloqueo)
+
+    /**
+     * Constructor que configura el gestor con opciones por defecto
+     *
+     * @param rutaArchivo Ruta base; se crean ruta.N.idx y ruta.N.dat
+     */
+    public GestorDatosMapeado(String rutaArchivo) {
+        this(new ConfiguracionDatos(rutaArchivo));
+    }
+
+    /**
+     * Constructor que configura el gestor a partir de una configuración completa
+     *
+     * @param config Opciones de persistencia
+     */
+    public GestorDatosMapeado(ConfiguracionDatos config) {
+        this.rutaBase = config.getRutaArchivo();
+        this.gson = new Gson();
+        this.bloqueo = new ReentrantReadWriteLock();
+        this.politica = config.getPoliticaSincronizacion();
+        this.intervaloSincronizacionMs = config.getIntervaloSincronizacionMs();
+        this.ultimoForzadoMs = System.currentTimeMillis();
+
+        File directorioPadre = new File(rutaBase).getAbsoluteFile().getParentFile();
+        if (directorioPadre != null && !directorioPadre.exists()) {
+            directorioPadre.mkdirs();
+        }
+
+        try {
+            abrirArchivos();
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudieron abrir los archivos de datos: " + e.getMessage(), e);
+        }
+    }
+
+    // IMPLEMENTACIÓN de los métodos de la interfaz GestorDatos
+
+    @Override
+    public boolean guardar(String clave, Object valor) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return false;
+        }
+
+        byte[] bytesClave = clave.getBytes(StandardCharsets.UTF_8);
+        byte[] bytesValor = gson.toJson(valor).getBytes(StandardCharsets.UTF_8);
+        int hash = calcularHash(clave);
+
+        bloqueo.writeLock().lock();
+        try {
+            guardarRegistro(bytesClave, hash, bytesValor);
+            compactarSiConviene();
+            forzarSegunPolitica();
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al guardar dato con clave '" + clave + "': " + e.getMessage());
+            return false;
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Guarda el lote completo con un único bloqueo, una sola revisión de
+     * compactación y un solo fsync
+     */
+    @Override
+    public boolean guardarTodos(Map<String, ?> datos) {
+        for (String clave : datos.keySet()) {
+            if (clave == null || clave.trim().isEmpty()) {
+                return false;
+            }
+        }
+
+        // Serializar fuera del bloqueo
+        List<byte[]> claves = new ArrayList<>(datos.size());
+        List<byte[]> valores = new ArrayList<>(datos.size());
+        int[] hashes = new int[datos.size()];
+        for (Map.Entry<String, ?> entrada : datos.entrySet()) {
+            hashes[claves.size()] = calcularHash(entrada.getKey());
+            claves.add(entrada.getKey().getBytes(StandardCharsets.UTF_8));
+            valores.add(gson.toJson(entrada.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        bloqueo.writeLock().lock();
+        try {
+            for (int i = 0; i < claves.size(); i++) {
+                guardarRegistro(claves.get(i), hashes[i], valores.get(i));
+            }
+            compactarSiConviene();
+            forzarSegunPolitica();
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al guardar lote de " + datos.size() + " datos: " + e.getMessage());
+            return false;
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lectura-modificación-escritura atómica bajo el bloqueo de escritura
+     * @throws IllegalStateException si no se pudo escribir el registro
+     */
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return null;
+        }
+
+        byte[] bytesClave = clave.getBytes(StandardCharsets.UTF_8);
+        int hash = calcularHash(clave);
+
+        bloqueo.writeLock().lock();
+        try {
+            int ranura = buscarRanura(bytesClave, hash);
+            Object actual = ranura >= 0 ? gson.fromJson(leerValor(leerPosicion(ranura)), Object.class) : null;
+            Object nuevo = funcion.apply(actual);
+
+            if (nuevo != null) {
+                guardarRegistro(bytesClave, hash, gson.toJson(nuevo).getBytes(StandardCharsets.UTF_8));
+            } else if (ranura >= 0) {
+                borrarRanura(ranura);
+            } else {
+                return null; // No existía y sigue sin existir
+            }
+
+            compactarSiConviene();
+            forzarSegunPolitica();
+            return nuevo;
+
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al actualizar dato con clave '" + clave + "': " + e.getMessage(), e);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Object obtener(String clave) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return null;
+        }
+
+        byte[] bytesClave = clave.getBytes(StandardCharsets.UTF_8);
+        String json;
+
+        bloqueo.readLock().lock();
+        try {
+            int ranura = buscarRanura(bytesClave, calcularHash(clave));
+            if (ranura < 0) {
+                return null;
+            }
+            json = leerValor(leerPosicion(ranura));
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+
+        // La deserialización se hace fuera del bloqueo
+        return gson.fromJson(json, Object.class);
+    }
+
+    @Override
+    public boolean eliminar(String clave) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return false;
+        }
+
+        byte[] bytesClave = clave.getBytes(StandardCharsets.UTF_8);
+
+        bloqueo.writeLock().lock();
+        try {
+            int ranura = buscarRanura(bytesClave, calcularHash(clave));
+            if (ranura < 0) {
+                return false; // No existía
+            }
+
+            borrarRanura(ranura);
+            compactarSiConviene();
+            forzarSegunPolitica();
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al eliminar dato con clave '" + clave + "': " + e.getMessage());
+            return false;
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existe(String clave) {
+        if (clave == null || clave.trim().isEmpty()) {
+            return false;
+        }
+
+        byte[] bytesClave = clave.getBytes(StandardCharsets.UTF_8);
+
+        bloqueo.readLock().lock();
+        try {
+            return buscarRanura(bytesClave, calcularHash(clave)) >= 0;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * El índice hash no guarda las claves en orden: se recorren todas las ranuras,
+     * se copian las claves del rango y se ordenan. Los valores se leen a medida que
+     * se avanza, así que una clave borrada mientras se recorre se saltea.
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        List<String> claves = new ArrayList<>();
+
+        bloqueo.readLock().lock();
+        try {
+            for (int i = 0; i < capacidad; i++) {
+                long posicion = leerPosicion(i);
+                if (posicion == RANURA_LIBRE || posicion == RANURA_BORRADA) {
+                    continue;
+                }
+                String clave = leerClave(posicion);
+                if ((desde == null || clave.compareTo(desde) >= 0) && (hasta == null || clave.compareTo(hasta) < 0)) {
+                    claves.add(clave);
+                }
+            }
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+
+        Collections.sort(claves);
+        Iterator<String> cursor = claves.iterator();
+        return new Iterator<Map.Entry<String, Object>>() {
+            private Map.Entry<String, Object> siguiente;
+
+            @Override
+            public boolean hasNext() {
+                while (siguiente == null && cursor.hasNext()) {
+                    String clave = cursor.next();
+                    Object valor = obtener(clave);
+                    if (valor != null) {
+                        siguiente = new AbstractMap.SimpleImmutableEntry<>(clave, valor);
+                    }
+                }
+                return siguiente != null;
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<String, Object> entrada = siguiente;
+                siguiente = null;
+                return entrada;
+            }
+        };
+    }
+
+    /**
+     * Fuerza a disco las páginas modificadas de ambos archivos
+     * (con la política NUNCA se deja en manos del sistema operativo)
+     */
+    @Override
+    public void sincronizar() {
+        if (politica == PoliticaSincronizacion.NUNCA) {
+            return;
+        }
+        bloqueo.writeLock().lock();
+        try {
+            datos.force();
+            indice.force();
+            ultimoForzadoMs = System.currentTimeMillis();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cerrar() {
+        bloqueo.writeLock().lock();
+        try {
+            datos.force();
+            indice.force();
+            accesoDatos.close();
+            accesoIndice.close();
+        } catch (IOException e) {
+            System.err.println("Error al cerrar archivos mapeados: " + e.getMessage());
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fuerza las páginas modificadas si la política lo pide (con el bloqueo de escritura tomado)
+     */
+    private void forzarSegunPolitica() {
+        long ahora = System.currentTimeMillis();
+        if (politica.debeForzar(ahora - ultimoForzadoMs, intervaloSincronizacionMs)) {
+            datos.force();
+            indice.force();
+            ultimoForzadoMs = ahora;
+        }
+    }
+
+    // MÉTODOS PRIVADOS - Apertura y mapeo de archivos
+
+    /**
+     * Abre (o crea) el índice y los datos y valida sus cabeceras
+     */
+    private void abrirArchivos() throws IOException {
+        borrarTemporalesAnteriores();
+        List<Long> numerosDatos = numerosExistentes(EXTENSION_DATOS);
+        List<Long> numerosIndice = numerosExistentes(EXTENSION_INDICE);
+
+        Long numeroDatos = primeroConfirmado(numerosDatos, EXTENSION_DATOS, MAGIA_DATOS);
+        if (numeroDatos == null) {
+            if (!numerosDatos.isEmpty()) {
+                throw new IOException("Formato de archivo desconocido en "
+                        + archivoNumerado(numerosDatos.get(0), EXTENSION_DATOS));
+            }
+            numeroDatos = 0L;
+            crearDatosVacios(archivoNumerado(0, EXTENSION_DATOS), DATOS_INICIALES, 0, true);
+        }
+
+        RandomAccessFile acceso = new RandomAccessFile(archivoNumerado(numeroDatos, EXTENSION_DATOS), "rw");
+        usarDatos(numeroDatos, acceso, acceso.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, acceso.length()));
+        if (datos.getInt(4) != VERSION) {
+            throw new IOException("Versión de formato no soportada en " + archivoDatos);
+        }
+
+        // El número nuevo de índice debe superar a todos los existentes, aunque estén sin confirmar
+        numeroIndice = numerosIndice.isEmpty() ? -1 : numerosIndice.get(0);
+        Long numeroIndiceConfirmado = primeroConfirmado(numerosIndice, EXTENSION_INDICE, MAGIA_INDICE);
+
+        if (numeroIndiceConfirmado == null) {
+            if (!numerosIndice.isEmpty()) {
+                System.err.println("⚠️ Sin índice válido para " + archivoDatos + ", reconstruyendo...");
+            }
+            reconstruirIndice();
+        } else {
+            long ultimoNumero = numeroIndice;
+            acceso = new RandomAccessFile(archivoNumerado(numeroIndiceConfirmado, EXTENSION_INDICE), "rw");
+            usarIndice(numeroIndiceConfirmado, acceso,
+                    acceso.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, acceso.length()));
+            numeroIndice = Math.max(numeroIndice, ultimoNumero);
+            if (indice.getInt(4) != VERSION) {
+                throw new IOException("Versión de formato no soportada en " + archivoIndice);
+            }
+
+            ocupados = indice.getInt(12);
+            borrados = indice.getInt(16);
+            bytesBasura = indice.getLong(20);
+
+            if (indice.getInt(28) != generacion) {
+                System.err.println("⚠️ Índice desactualizado respecto de " + archivoDatos + ", reconstruyendo...");
+                reconstruirIndice();
+            }
+        }
+
+        borrarSobrantes();
+    }
+
+    /**
+     * Archivo de datos o de índice con el número dado (el 0 no lleva número,
+     * como en las versiones anteriores)
+     */
+    private File archivoNumerado(long numero, String extension) {
+        return new File(numero == 0 ? rutaBase + extension : rutaBase + "." + numero + extension);
+    }
+
+    /**
+     * Números de los archivos existentes con la extensión dada, de mayor a menor
+     */
+    private List<Long> numerosExistentes(String extension) {
+        File base = new File(rutaBase).getAbsoluteFile();
+        String nombre = base.getName();
+        String[] nombres = base.getParentFile().list();
+        List<Long> numeros = new ArrayList<>();
+        if (nombres == null) {
+            return numeros;
+        }
+
+        for (String candidato : nombres) {
+            if (candidato.equals(nombre + extension)) {
+                numeros.add(0L);
+            } else if (candidato.startsWith(nombre + ".") && candidato.endsWith(extension)) {
+                String medio = candidato.substring(nombre.length() + 1, candidato.length() - extension.length());
+                if (!medio.isEmpty() && medio.length() < 19 && medio.chars().allMatch(Character::isDigit)) {
+                    numeros.add(Long.parseLong(medio));
+                }
+            }
+        }
+        numeros.sort(Collections.reverseOrder());
+        return numeros;
+    }
+
+    /**
+     * Primer número (el más alto) cuyo archivo tiene el número mágico escrito,
+     * o null si ninguno quedó confirmado
+     */
+    private Long primeroConfirmado(List<Long> numeros, String extension, int magia) throws IOException {
+        for (long numero : numeros) {
+            try (RandomAccessFile acceso = new RandomAccessFile(archivoNumerado(numero, extension), "r")) {
+                if (acceso.length() >= 8 && acceso.readInt() == magia) {
+                    return numero;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Borra los archivos que no están en uso: versiones reemplazadas que no se
+     * pudieron borrar antes y archivos a medio escribir de una compactación cortada
+     */
+    private void borrarSobrantes() {
+        for (long numero : numerosExistentes(EXTENSION_DATOS)) {
+            File archivo = archivoNumerado(numero, EXTENSION_DATOS);
+            if (!archivo.equals(archivoDatos) && !archivo.delete()) {
+                System.err.println("⚠️ No se pudo borrar el archivo sobrante " + archivo);
+            }
+        }
+        for (long numero : numerosExistentes(EXTENSION_INDICE)) {
+            File archivo = archivoNumerado(numero, EXTENSION_INDICE);
+            if (!archivo.equals(archivoIndice) && !archivo.delete()) {
+                System.err.println("⚠️ No se pudo borrar el archivo sobrante " + archivo);
+            }
+        }
+    }
+
+    /**
+     * Las versiones anteriores escribían ruta.idx.tmp y ruta.dat.tmp y luego los renombraban
+     */
+    private void borrarTemporalesAnteriores() {
+        new File(rutaBase + EXTENSION_INDICE + ".tmp").delete();
+        new File(rutaBase + EXTENSION_DATOS + ".tmp").delete();
+    }
+
+    /**
+     * Crea un índice vacío. Sin confirmar, el número mágico queda en 0 hasta
+     * que {@link #confirmar} lo escribe.
+     */
+    private static void crearIndiceVacio(File archivo, int capacidadRanuras, int generacion,
+                                         boolean confirmado) throws IOException {
+        try (RandomAccessFile acceso = new RandomAccessFile(archivo, "rw")) {
+            acceso.setLength(0);
+            acceso.setLength(CABECERA_INDICE + (long) capacidadRanuras * TAMANIO_RANURA);
+            acceso.writeInt(confirmado ? MAGIA_INDICE : 0);
+            acceso.writeInt(VERSION);
+            acceso.writeInt(capacidadRanuras);
+            acceso.writeInt(0);  // ocupados
+            acceso.writeInt(0);  // borrados
+            acceso.writeLong(0); // bytes basura
+            acceso.writeInt(generacion);
+        }
+    }
+
+    /**
+     * Crea un archivo de datos vacío (ver {@link #crearIndiceVacio} sobre la confirmación)
+     */
+    private static void crearDatosVacios(File archivo, long tamanio, int generacion,
+                                         boolean confirmado) throws IOException {
+        try (RandomAccessFile acceso = new RandomAccessFile(archivo, "rw")) {
+            acceso.setLength(0);
+            acceso.setLength(tamanio);
+            acceso.writeInt(confirmado ? MAGIA_DATOS : 0);
+            acceso.writeInt(VERSION);
+            acceso.writeLong(CABECERA_DATOS); // fin de datos
+            acceso.writeInt(generacion);
+        }
+    }
+
+    /**
+     * Marca un archivo como completo: primero llega todo el contenido al disco
+     * y recién después el número mágico
+     */
+    private static void confirmar(MappedByteBuffer mapeo, int magia) {
+        mapeo.force();
+        mapeo.putInt(0, magia);
+        mapeo.force();
+    }
+
+    /**
+     * Pasa a usar otro archivo de índice y libera y borra el anterior
+     * (los contadores los actualiza quien llama)
+     */
+    private void usarIndice(long numero, RandomAccessFile acceso, MappedByteBuffer mapeo) {
+        File archivoAnterior = archivoIndice;
+        RandomAccessFile accesoAnterior = accesoIndice;
+        MappedByteBuffer mapeoAnterior = indice;
+
+        archivoIndice = archivoNumerado(numero, EXTENSION_INDICE);
+        accesoIndice = acceso;
+        indice = mapeo;
+        numeroIndice = numero;
+        capacidad = indice.getInt(8);
+
+        descartar(archivoAnterior, accesoAnterior, mapeoAnterior);
+    }
+
+    /**
+     * Pasa a usar otro archivo de datos y libera y borra el anterior
+     */
+    private void usarDatos(long numero, RandomAccessFile acceso, MappedByteBuffer mapeo) {
+        File archivoAnterior = archivoDatos;
+        RandomAccessFile accesoAnterior = accesoDatos;
+        MappedByteBuffer mapeoAnterior = datos;
+
+        archivoDatos = archivoNumerado(numero, EXTENSION_DATOS);
+        accesoDatos = acceso;
+        datos = mapeo;
+        finDatos = datos.getLong(8);
+        generacion = datos.getInt(16);
+
+        descartar(archivoAnterior, accesoAnterior, mapeoAnterior);
+    }
+
+    /**
+     * Cierra, libera el mapeo y borra un archivo que ya no se usa
+     * Si no se puede borrar, se vuelve a intentar al abrir
+     */
+    private static void descartar(File archivo, RandomAccessFile acceso, MappedByteBuffer mapeo) {
+        if (acceso == null) {
+            return;
+        }
+        cerrarSinErrores(acceso);
+        liberarMapeo(mapeo);
+        if (!archivo.delete() && archivo.exists()) {
+            System.err.println("⚠️ No se pudo borrar " + archivo + ", se borrará al volver a abrir");
+        }
+    }
+
+    private static void cerrarSinErrores(RandomAccessFile acceso) {
+        if (acceso == null) {
+            return;
+        }
+        try {
+            acceso.close();
+        } catch (IOException e) {
+            // Solo se descarta: no quedan cambios sin forzar
+        }
+    }
+
+    /**
+     * Libera un mapeo sin esperar al recolector de basura (mientras siga mapeado,
+     * Windows no deja borrar el archivo). Solo debe llamarse con el bloqueo de
+     * escritura tomado y sin referencias al mapeo: usarlo después rompe la JVM.
+     */
+    private static void liberarMapeo(MappedByteBuffer mapeo) {
+        if (mapeo == null) {
+            return;
+        }
+        try {
+            Class<?> claseUnsafe = Class.forName("sun.misc.Unsafe");
+            Field instancia = claseUnsafe.getDeclaredField("theUnsafe");
+            instancia.setAccessible(true);
+            claseUnsafe.getMethod("invokeCleaner", ByteBuffer.class).invoke(instancia.get(null), mapeo);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Sin acceso: el recolector de basura lo libera al no quedar referencias
+        }
+    }
+
+    /**
+     * Reconstruye el índice recorriendo todos los registros del archivo de datos
+     * Un registro posterior de la misma clave reemplaza al anterior. La capacidad se
+     * calcula antes para no redimensionar a mitad de camino: el índice nuevo solo se
+     * confirma cuando está completo.
+     */
+    private void reconstruirIndice() throws IOException {
+        long registros = 0;
+        for (long posicion = CABECERA_DATOS; posicion < finDatos; posicion += tamanioRegistro(posicion)) {
+            registros++;
+        }
+        int capacidadNecesaria = CAPACIDAD_INICIAL;
+        while (registros > capacidadNecesaria * CARGA_MAXIMA) {
+            capacidadNecesaria *= 2;
+        }
+
+        long numero = numeroIndice + 1;
+        File archivo = archivoNumerado(numero, EXTENSION_INDICE);
+        crearIndiceVacio(archivo, capacidadNecesaria, generacion, false);
+        RandomAccessFile acceso = new RandomAccessFile(archivo, "rw");
+        usarIndice(numero, acceso, acceso.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, acceso.length()));
+        ocupados = 0;
+        borrados = 0;
+        bytesBasura = 0;
+
+        long posicion = CABECERA_DATOS;
+        while (posicion < finDatos) {
+            byte[] bytesClave = leerBytesClave(posicion);
+            int hash = calcularHash(new String(bytesClave, StandardCharsets.UTF_8));
+
+            int ranura = buscarRanura(bytesClave, hash);
+            if (ranura >= 0) {
+                bytesBasura += tamanioRegistro(leerPosicion(ranura));
+                escribirRanura(ranura, hash, posicion);
+            } else {
+                escribirRanura(-ranura - 1, hash, posicion);
+                ocupados++;
+            }
+            posicion += tamanioRegistro(posicion);
+        }
+
+        escribirContadores();
+        confirmar(indice, MAGIA_INDICE);
+    }
+
+    // MÉTODOS PRIVADOS - Índice hash
+
+    /**
+     * Hash estable entre ejecuciones (String.hashCode está especificado) con mezcla de bits
+     */
+    private static int calcularHash(String clave) {
+        int h = clave.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Busca la ranura de una clave con sondeo lineal
+     *
+     * @return índice de la ranura si la clave existe, o -(ranuraLibre + 1) si no existe
+     */
+    private int buscarRanura(byte[] bytesClave, int hash) {
+        int mascara = capacidad - 1;
+        int ranura = hash & mascara;
+        int primeraBorrada = -1;
+
+        for (int intentos = 0; intentos < capacidad; intentos++) {
+            long posicion = leerPosicion(ranura);
+
+            if (posicion == RANURA_LIBRE) {
+                return -((primeraBorrada >= 0 ? primeraBorrada : ranura) + 1);
+            }
+            if (posicion == RANURA_BORRADA) {
+                if (primeraBorrada < 0) {
+                    primeraBorrada = ranura;
+                }
+            } else if (leerHash(ranura) == hash && claveIgual(posicion, bytesClave)) {
+                return ranura;
+            }
+
+            ranura = (ranura + 1) & mascara;
+        }
+
+        return -((primeraBorrada >= 0 ? primeraBorrada : 0) + 1);
+    }
+
+    /**
+     * Anexa el registro y actualiza el índice (inserción o reemplazo)
+     * Debe llamarse con el bloqueo de escritura tomado
+     */
+    private void guardarRegistro(byte[] bytesClave, int hash, byte[] bytesValor) throws IOException {
+        long posicion = anexarRegistro(bytesClave, bytesValor);
+
+        int ranura = buscarRanura(bytesClave, hash);
+        if (ranura >= 0) {
+            // Reemplazo: el registro anterior pasa a ser basura
+            bytesBasura += tamanioRegistro(leerPosicion(ranura));
+            escribirRanura(ranura, hash, posicion);
+            escribirContadores();
+        } else {
+            int libre = -ranura - 1;
+            if (leerPosicion(libre) == RANURA_BORRADA) {
+                borrados--;
+            }
+            escribirRanura(libre, hash, posicion);
+            ocupados++;
+            escribirContadores();
+
+            if (ocupados + borrados > capacidad * CARGA_MAXIMA) {
+                redimensionarIndice(ocupados * 2 > capacidad * CARGA_MAXIMA ? capacidad * 2 : capacidad);
+            }
+        }
+    }
+
+    /**
+     * Marca la ranura como borrada; su registro pasa a ser basura
+     * Debe llamarse con el bloqueo de escritura tomado
+     */
+    private void borrarRanura(int ranura) {
+        bytesBasura += tamanioRegistro(leerPosicion(ranura));
+        escribirRanura(ranura, 0, RANURA_BORRADA);
+        ocupados--;
+        borrados++;
+        escribirContadores();
+    }
+
+    private int leerHash(int ranura) {
+        return indice.getInt(CABECERA_INDICE + ranura * TAMANIO_RANURA);
+    }
+
+    private long leerPosicion(int ranura) {
+        return indice.getLong(CABECERA_INDICE + ranura * TAMANIO_RANURA + 4);
+    }
+
+    private void escribirRanura(int ranura, int hash, long posicion) {
+        int base = CABECERA_INDICE + ranura * TAMANIO_RANURA;
+        indice.putInt(base, hash);
+        indice.putLong(base + 4, posicion);
+    }
+
+    private void escribirContadores() {
+        indice.putInt(12, ocupados);
+        indice.putInt(16, borrados);
+        indice.putLong(20, bytesBasura);
+    }
+
+    /**
+     * Reconstruye el índice con otra capacidad (también limpia las tumbas)
+     * Solo necesita hash y posición de cada ranura: no lee los datos
+     */
+    private void redimensionarIndice(int nuevaCapacidad) throws IOException {
+        long numero = numeroIndice + 1;
+        File archivo = archivoNumerado(numero, EXTENSION_INDICE);
+        crearIndiceVacio(archivo, nuevaCapacidad, generacion, false);
+
+        RandomAccessFile acceso = new RandomAccessFile(archivo, "rw");
+        MappedByteBuffer nuevo;
+        try {
+            nuevo = acceso.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, acceso.length());
+            int mascara = nuevaCapacidad - 1;
+
+            for (int i = 0; i < capacidad; i++) {
+                long posicion = leerPosicion(i);
+                if (posicion == RANURA_LIBRE || posicion == RANURA_BORRADA) {
+                    continue;
+                }
+                int hash = leerHash(i);
+                int destino = hash & mascara;
+                while (nuevo.getLong(CABECERA_INDICE + destino * TAMANIO_RANURA + 4) != RANURA_LIBRE) {
+                    destino = (destino + 1) & mascara;
+                }
+                nuevo.putInt(CABECERA_INDICE + destino * TAMANIO_RANURA, hash);
+                nuevo.putLong(CABECERA_INDICE + destino * TAMANIO_RANURA + 4, posicion);
+            }
+
+            nuevo.putInt(12, ocupados);
+            nuevo.putInt(16, 0);
+            nuevo.putLong(20, bytesBasura);
+            confirmar(nuevo, MAGIA_INDICE);
+
+        } catch (IOException | RuntimeException e) {
+            cerrarSinErrores(acceso);
+            archivo.delete();
+            throw e;
+        }
+
+        usarIndice(numero, acceso, nuevo);
+        borrados = 0;
+    }
+
+    // MÉTODOS PRIVADOS - Registros de datos
+
+    /**
+     * Añade un registro al final del archivo de datos, ampliando el mapeo si hace falta
+     *
+     * @return posición del registro añadido
+     */
+    private long anexarRegistro(byte[] bytesClave, byte[] bytesValor) throws IOException {
+        long tamanio = 8L + bytesClave.length + bytesValor.length;
+        asegurarEspacioDatos(finDatos + tamanio);
+
+        long posicion = finDatos;
+        int base = (int) posicion;
+        datos.putInt(base, bytesClave.length);
+        datos.putInt(base + 4, bytesValor.length);
+        ByteBuffer vista = datos.duplicate();
+        vista.position(base + 8);
+        vista.put(bytesClave);
+        vista.put(bytesValor);
+
+        finDatos += tamanio;
+        datos.putLong(8, finDatos);
+        return posicion;
+    }
+
+    /**
+     * Duplica el tamaño del archivo de datos hasta que entre la posición pedida
+     */
+    private void asegurarEspacioDatos(long necesario) throws IOException {
+        long actual = datos.capacity();
+        if (necesario <= actual) {
+            return;
+        }
+
+        long nuevo = actual;
+        while (nuevo < necesario) {
+            nuevo *= 2;
+        }
+        if (nuevo > Integer.MAX_VALUE) {
+            if (necesario > Integer.MAX_VALUE) {
+                throw new IOException("El archivo de datos superó el límite de 2 GB");
+            }
+            nuevo = Integer.MAX_VALUE;
+        }
+
+        datos.force();
+        accesoDatos.setLength(nuevo);
+        MappedByteBuffer anterior = datos;
+        datos = accesoDatos.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, nuevo);
+        liberarMapeo(anterior);
+    }
+
+    private long tamanioRegistro(long posicion) {
+        int base = (int) posicion;
+        return 8L + datos.getInt(base) + datos.getInt(base + 4);
+    }
+
+    /**
+     * Compara la clave guardada en una posición con la buscada, byte a byte
+     * (sin crear objetos String en el heap)
+     */
+    private boolean claveIgual(long posicion, byte[] bytesClave) {
+        int base = (int) posicion;
+        if (datos.getInt(base) != bytesClave.length) {
+            return false;
+        }
+        int inicio = base + 8;
+        for (int i = 0; i < bytesClave.length; i++) {
+            if (datos.get(inicio + i) != bytesClave[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] leerBytesClave(long posicion) {
+        int base = (int) posicion;
+        byte[] bytesClave = new byte[datos.getInt(base)];
+        ByteBuffer vista = datos.duplicate();
+        vista.position(base + 8);
+        vista.get(bytesClave);
+        return bytesClave;
+    }
+
+    private String leerClave(long posicion) {
+        return new String(leerBytesClave(posicion), StandardCharsets.UTF_8);
+    }
+
+    private String leerValor(long posicion) {
+        int base = (int) posicion;
+        int longitudClave = datos.getInt(base);
+        int longitudValor = datos.getInt(base + 4);
+        byte[] bytes = new byte[longitudValor];
+        ByteBuffer vista = datos.duplicate();
+        vista.position(base + 8 + longitudClave);
+        vista.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // MÉTODOS PRIVADOS - Compactación
+
+    private void compactarSiConviene() throws IOException {
+        long usados = finDatos - CABECERA_DATOS;
+        if (bytesBasura > BASURA_MINIMA_COMPACTAR && bytesBasura * 2 > usados) {
+            compactarInterno();
+        }
+    }
+
+    /**
+     * Copia solo los registros vivos a archivos nuevos (datos e índice de la
+     * generación siguiente) y pasa a usarlos cuando ambos están confirmados
+     * (llamar con el bloqueo de escritura tomado)
+     */
+    private void compactarInterno() throws IOException {
+        int nuevaGeneracion = generacion + 1;
+        long numeroNuevoIndice = numeroIndice + 1;
+        File nuevoArchivoDatos = archivoNumerado(nuevaGeneracion, EXTENSION_DATOS);
+        File nuevoArchivoIndice = archivoNumerado(numeroNuevoIndice, EXTENSION_INDICE);
+        long tamanioVivo = Math.max(DATOS_INICIALES, (finDatos - bytesBasura) * 2);
+        crearDatosVacios(nuevoArchivoDatos, Math.min(tamanioVivo, Integer.MAX_VALUE), nuevaGeneracion, false);
+        crearIndiceVacio(nuevoArchivoIndice, capacidad, nuevaGeneracion, false);
+
+        RandomAccessFile accesoNuevoDatos = null;
+        RandomAccessFile accesoNuevoIndice = null;
+        MappedByteBuffer nuevosDatos;
+        MappedByteBuffer nuevoIndice;
+        try {
+            accesoNuevoDatos = new RandomAccessFile(nuevoArchivoDatos, "rw");
+            accesoNuevoIndice = new RandomAccessFile(nuevoArchivoIndice, "rw");
+            nuevosDatos = accesoNuevoDatos.getChannel()
+                    .map(FileChannel.MapMode.READ_WRITE, 0, accesoNuevoDatos.length());
+            nuevoIndice = accesoNuevoIndice.getChannel()
+                    .map(FileChannel.MapMode.READ_WRITE, 0, accesoNuevoIndice.length());
+
+            int mascara = capacidad - 1;
+            int posicionNueva = CABECERA_DATOS;
+            ByteBuffer origen = datos.duplicate();
+            ByteBuffer destino = nuevosDatos.duplicate();
+
+            for (int i = 0; i < capacidad; i++) {
+                long posicion = leerPosicion(i);
+                if (posicion == RANURA_LIBRE || posicion == RANURA_BORRADA) {
+                    continue;
+                }
+
+                int tamanio = (int) tamanioRegistro(posicion);
+                origen.limit((int) posicion + tamanio).position((int) posicion);
+                destino.position(posicionNueva);
+                destino.put(origen);
+                origen.limit(origen.capacity());
+
+                int hash = leerHash(i);
+                int ranura = hash & mascara;
+                while (nuevoIndice.getLong(CABECERA_INDICE + ranura * TAMANIO_RANURA + 4) != RANURA_LIBRE) {
+                    ranura = (ranura + 1) & mascara;
+                }
+                nuevoIndice.putInt(CABECERA_INDICE + ranura * TAMANIO_RANURA, hash);
+                nuevoIndice.putLong(CABECERA_INDICE + ranura * TAMANIO_RANURA + 4, posicionNueva);
+
+                posicionNueva += tamanio;
+            }
+
+            nuevosDatos.putLong(8, posicionNueva);
+            nuevoIndice.putInt(12, ocupados);
+            nuevoIndice.putInt(16, 0);
+            nuevoIndice.putLong(20, 0L);
+
+            // Primero los datos y luego el índice que apunta a ellos
+            confirmar(nuevosDatos, MAGIA_DATOS);
+            confirmar(nuevoIndice, MAGIA_INDICE);
+
+        } catch (IOException | RuntimeException e) {
+            cerrarSinErrores(accesoNuevoDatos);
+            cerrarSinErrores(accesoNuevoIndice);
+            nuevoArchivoDatos.delete();
+            nuevoArchivoIndice.delete();
+            throw e;
+        }
+
+        usarDatos(nuevaGeneracion, accesoNuevoDatos, nuevosDatos);
+        usarIndice(numeroNuevoIndice, accesoNuevoIndice, nuevoIndice);
+        borrados = 0;
+        bytesBasura = 0;
+    }
+
+    // MÉTODOS ADICIONALES - Funcionalidad específica de esta implementación
+
+    /**
+     * Recupera el espacio ocupado por registros reemplazados o borrados
+     */
+    public void compactar() {
+        bloqueo.writeLock().lock();
+        try {
+            compactarInterno();
+        } catch (IOException e) {
+            System.err.println("Error al compactar " + archivoDatos + ": " + e.getMessage());
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene el número de claves almacenadas
+     */
+    public int getTamanio() {
+        bloqueo.readLock().lock();
+        try {
+            return ocupados;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene información de estado del gestor
+     */
+    public String getEstado() {
+        bloqueo.readLock().lock();
+        try {
+            return String.format(
+                "GestorDatosMapeado{datos='%s', entradas=%d, ranuras=%d, bytesDatos=%d, basura=%d}",
+                archivoDatos.getPath(), ocupados, capacidad, finDatos, bytesBasura
+            );
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getEstado();
+    }
+}
@@ -0,0 +1,571 @@
+package com.educativo.bot.servicios;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+import com.educativo.bot.interfaces.GestorDatos;
+import com.google.gson.Gson;
+
+/**
+ * CONCEPTO: COMPOSICIÓN (patrón decorador) + REPLICACIÓN
+ *
+ * Lado primario de la replicación: guarda en el gestor de abajo y además anota
+ * cada cambio en un historial en memoria que se transmite por TCP a los
+ * seguidores ({@link GestorDatosSeguidor}), otros procesos que mantienen una
+ * copia de solo lectura.
+ *
+ * - Cada cambio recibe un número de secuencia. El historial es un anillo con los
+ *   últimos N cambios: un seguidor que se reconecta sigue desde donde quedó si
+ *   todavía están en el anillo; si no (o si el primario se reinició), recibe
+ *   primero una copia completa de los datos y después los cambios
+ * - Quien escribe nunca espera a la red: solo deja el cambio en el anillo. Cada
+ *   seguidor tiene un hilo que lo lee a su ritmo; si se atrasa más que el anillo,
+ *   se lo desconecta y al volver recibe una copia completa
+ * - La escritura en el gestor de abajo y su anotación ocurren con la clave
+ *   bloqueada, así los seguidores ven los cambios de cada clave en el mismo orden
+ * - Sin cambios, el primario manda un latido por segundo con su secuencia actual:
+ *   con eso el seguidor calcula cuánto está atrasado
+ * - Cada seguidor dice al conectarse si atiende consultas; el bot primario consulta
+ *   {@link #getSeguidoresQueAtienden()} para dejarles los comandos de solo lectura
+ *
+ * La copia completa lleva el vencimiento de los datos guardados con vigencia desde
+ * que arrancó el primario; los que ya lo tenían al arrancar llegan sin vencimiento.
+ */
+public class GestorDatosReplicado implements GestorDatos {
+
+    private static final int BLOQUEOS = 64;
+    private static final long LATIDO_MS = 1000;
+    private static final int MAXIMO_POR_ENVIO = 512;
+    private static final int LIMPIEZA_CADA = 10_000;     // Cambios entre limpiezas de vencimientos
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final GestorDatos delegado;                  // Gestor que guarda los datos
+    private final Gson gson;
+    private final long epoca;                            // Identifica esta ejecución del primario
+    private final byte[][] anillo;                       // Últimos cambios; la secuencia s está en s % largo
+    private final Object bloqueoAnillo;                  // Protege anillo y secuencia
+    private long secuencia;                              // Último cambio anotado
+    private final ReentrantLock[] bloqueos;              // Escrituras por grupo de claves
+    private final Map<String, Long> vencimientos;        // Vencimiento de lo guardado con vigencia (para la copia)
+    private final ServerSocket servidor;                 // null si no se pudo abrir el puerto
+    private final List<ConexionSeguidor> seguidores;
+    private final LongAdder registrosEnviados;
+    private final LongAdder bytesEnviados;
+    private volatile boolean cerrado;
+
+    /**
+     * Constructor que abre el puerto de replicación
+     * Si el puerto no se puede abrir el gestor sigue funcionando, sin seguidores.
+     *
+     * @param delegado Gestor que guarda los datos
+     * @param config Configuración (dirección, puerto y tamaño del historial)
+     */
+    public GestorDatosReplicado(GestorDatos delegado, ConfiguracionDatos config) {
+        this.delegado = delegado;
+        this.gson = new Gson();
+        this.epoca = ThreadLocalRandom.current().nextLong();
+        this.anillo = new byte[config.getHistorialReplicacion()][];
+        this.bloqueoAnillo = new Object();
+        this.secuencia = 0;
+        this.bloqueos = new ReentrantLock[BLOQUEOS];
+        for (int i = 0; i < BLOQUEOS; i++) {
+            bloqueos[i] = new ReentrantLock();
+        }
+        this.vencimientos = new ConcurrentHashMap<>();
+        this.seguidores = new CopyOnWriteArrayList<>();
+        this.registrosEnviados = new LongAdder();
+        this.bytesEnviados = new LongAdder();
+
+        ServerSocket abierto = null;
+        try {
+            abierto = new ServerSocket();
+            abierto.setReuseAddress(true);
+            abierto.bind(new InetSocketAddress(InetAddress.getByName(config.getHostReplicacion()),
+                    config.getPuertoReplicacion()));
+            System.out.println("📡 Replicación: esperando seguidores en " + config.getHostReplicacion()
+                    + ":" + config.getPuertoReplicacion());
+        } catch (IOException e) {
+            System.err.println("❌ No se pudo abrir el puerto de replicación " + config.getPuertoReplicacion()
+                    + ": " + e.getMessage() + " (se sigue sin seguidores)");
+            cerrarSinErrores(abierto);
+            abierto = null;
+        }
+        this.servidor = abierto;
+
+        if (servidor != null) {
+            Thread aceptador = new Thread(this::aceptarSeguidores, "replicacion-aceptador");
+            aceptador.setDaemon(true);
+            aceptador.start();
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean guardar(String clave, Object valor) {
+        if (clave == null) {
+            return false;
+        }
+        ReentrantLock bloqueo = bloqueoDe(clave);
+        bloqueo.lock();
+        try {
+            boolean guardado = delegado.guardar(clave, valor);
+            if (guardado) {
+                anotarGuardar(clave, valor, 0);
+            }
+            return guardado;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * El seguidor recibe el momento de vencimiento y lo aplica por su cuenta
+     */
+    @Override
+    public boolean guardar(String clave, Object valor, Duration vigencia) {
+        if (clave == null) {
+            return false;
+        }
+        ReentrantLock bloqueo = bloqueoDe(clave);
+        bloqueo.lock();
+        try {
+            boolean guardado = delegado.guardar(clave, valor, vigencia);
+            if (guardado) {
+                anotarGuardar(clave, valor, System.currentTimeMillis() + vigencia.toMillis());
+            }
+            return guardado;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public Object obtener(String clave) {
+        return delegado.obtener(clave);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public long obtenerVencimiento(String clave) {
+        return delegado.obtenerVencimiento(clave);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean eliminar(String clave) {
+        if (clave == null) {
+            return false;
+        }
+        ReentrantLock bloqueo = bloqueoDe(clave);
+        bloqueo.lock();
+        try {
+            boolean eliminado = delegado.eliminar(clave);
+            if (eliminado) {
+                anotar(ProtocoloReplicacion.ELIMINAR, clave, 0, null);
+            }
+            return eliminado;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean existe(String clave) {
+        return delegado.existe(clave);
+    }
+
+    /**
+     * Guarda el lote en una sola operación del gestor de abajo
+     * Si el lote falla a medias, se anota lo que quedó realmente guardado.
+     */
+    @Override
+    public boolean guardarTodos(Map<String, ?> datos) {
+        for (String clave : datos.keySet()) {
+            if (clave == null) {
+                return false;
+            }
+        }
+
+        // Tomar los bloqueos de todas las claves en orden creciente (sin riesgo de interbloqueo)
+        TreeSet<Integer> indices = new TreeSet<>();
+        for (String clave : datos.keySet()) {
+            indices.add(indiceBloqueo(clave));
+        }
+        for (int indice : indices) {
+            bloqueos[indice].lock();
+        }
+        try {
+            boolean guardados = delegado.guardarTodos(datos);
+            for (Map.Entry<String, ?> entrada : datos.entrySet()) {
+                Object valor = guardados ? entrada.getValue() : delegado.obtener(entrada.getKey());
+                if (valor != null) {
+                    anotarGuardar(entrada.getKey(), valor, 0);
+                } else {
+                    anotar(ProtocoloReplicacion.ELIMINAR, entrada.getKey(), 0, null);
+                }
+            }
+            return guardados;
+        } finally {
+            for (int indice : indices.descendingSet()) {
+                bloqueos[indice].unlock();
+            }
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public Map<String, Object> obtenerTodos(Collection<String> claves) {
+        return delegado.obtenerTodos(claves);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * El gestor de abajo la aplica de forma atómica; se anota el resultado
+     */
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        if (clave == null) {
+            return null;
+        }
+        ReentrantLock bloqueo = bloqueoDe(clave);
+        bloqueo.lock();
+        try {
+            Object nuevo = delegado.actualizar(clave, funcion);
+            if (nuevo != null) {
+                anotarGuardar(clave, nuevo, 0);
+            } else {
+                anotar(ProtocoloReplicacion.ELIMINAR, clave, 0, null);
+            }
+            return nuevo;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        return delegado.escanearRango(desde, hasta);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public void sincronizar() {
+        delegado.sincronizar();
+    }
+
+    /**
+     * Desconecta a los seguidores, cierra el puerto y luego el gestor de abajo
+     */
+    @Override
+    public void cerrar() {
+        cerrado = true;
+        cerrarSinErrores(servidor);
+        synchronized (bloqueoAnillo) {
+            bloqueoAnillo.notifyAll();
+        }
+        for (ConexionSeguidor seguidor : seguidores) {
+            seguidor.cerrar();
+        }
+        delegado.cerrar();
+    }
+
+    // MÉTODOS PRIVADOS - Historial de cambios
+
+    private void anotarGuardar(String clave, Object valor, long vence) {
+        if (vence > 0) {
+            vencimientos.put(clave, vence);
+        } else {
+            vencimientos.remove(clave);
+        }
+        anotar(ProtocoloReplicacion.GUARDAR, clave, vence, ProtocoloReplicacion.aJson(gson, valor));
+    }
+
+    /**
+     * Numera el cambio y lo deja en el anillo para los seguidores
+     * Se llama con la clave bloqueada
+     */
+    private void anotar(byte tipo, String clave, long vence, byte[] valorJson) {
+        if (tipo == ProtocoloReplicacion.ELIMINAR) {
+            vencimientos.remove(clave);
+        }
+        synchronized (bloqueoAnillo) {
+            long numero = ++secuencia;
+            if (numero % LIMPIEZA_CADA == 0) {
+                long ahora = System.currentTimeMillis();
+                vencimientos.values().removeIf(momento -> momento <= ahora);
+            }
+            anillo[(int) (numero % anillo.length)] = ProtocoloReplicacion.crearMarco(
+                    tipo, numero, System.currentTimeMillis(), clave, vence, valorJson);
+            bloqueoAnillo.notifyAll();
+        }
+    }
+
+    private int indiceBloqueo(String clave) {
+        return (clave.hashCode() & 0x7fffffff) % BLOQUEOS;
+    }
+
+    private ReentrantLock bloqueoDe(String clave) {
+        return bloqueos[indiceBloqueo(clave)];
+    }
+
+    // MÉTODOS PRIVADOS - Conexiones
+
+    private void aceptarSeguidores() {
+        while (!cerrado) {
+            try {
+                Socket socket = servidor.accept();
+                ConexionSeguidor seguidor = new ConexionSeguidor(socket);
+                seguidores.add(seguidor);
+                Thread hilo = new Thread(seguidor, "replicacion-seguidor-" + socket.getPort());
+                hilo.setDaemon(true);
+                hilo.start();
+            } catch (IOException e) {
+                if (!cerrado) {
+                    System.err.println("⚠️ Error aceptando un seguidor de replicación: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void cerrarSinErrores(Closeable recurso) {
+        if (recurso == null) {
+            return;
+        }
+        try {
+            recurso.close();
+        } catch (IOException e) {
+            // Ya no se puede hacer nada con él
+        }
+    }
+
+    /**
+     * Un seguidor conectado: su hilo le envía los cambios desde donde quedó
+     */
+    private final class ConexionSeguidor implements Runnable {
+        private final Socket socket;
+        private long cursor;                     // Último cambio enviado
+        private volatile boolean atiende;        // Atiende consultas y ya tiene los datos
+
+        private ConexionSeguidor(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            String nombre = socket.getRemoteSocketAddress().toString();
+            try {
+                socket.setTcpNoDelay(true);
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                if (entrada.readInt() != ProtocoloReplicacion.MAGIA) {
+                    throw new IOException("saludo desconocido");
+                }
+                long epocaSeguidor = entrada.readLong();
+                long confirmada = entrada.readLong();
+                boolean atiendeConsultas = entrada.readByte() == 1;
+
+                boolean continua;
+                synchronized (bloqueoAnillo) {
+                    continua = epocaSeguidor == epoca && confirmada <= secuencia
+                            && confirmada >= secuencia - anillo.length;
+                    cursor = continua ? confirmada : secuencia;
+                }
+                salida.writeInt(ProtocoloReplicacion.MAGIA);
+                salida.writeLong(epoca);
+                salida.writeByte(continua ? ProtocoloReplicacion.CONTINUAR : ProtocoloReplicacion.COPIA_COMPLETA);
+                if (!continua) {
+                    enviarCopiaCompleta(salida);
+                }
+                salida.flush();
+                atiende = atiendeConsultas;
+                System.out.println("📡 Seguidor conectado desde " + nombre
+                        + (continua ? " (continúa desde el cambio " + cursor + ")" : " (copia completa)")
+                        + (atiendeConsultas ? ", atiende consultas" : ""));
+
+                transmitir(salida);
+            } catch (IOException e) {
+                if (!cerrado) {
+                    System.err.println("⚠️ Seguidor " + nombre + " desconectado: " + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                seguidores.remove(this);
+                cerrar();
+            }
+        }
+
+        /**
+         * Envía todos los datos actuales; los cambios posteriores a "cursor" que
+         * ya estén incluidos se vuelven a aplicar después sin efecto
+         */
+        private void enviarCopiaCompleta(DataOutputStream salida) throws IOException {
+            long inicio = System.currentTimeMillis();
+            long enviadas = 0;
+            Iterator<Map.Entry<String, Object>> entradas = delegado.escanearRango(null, null);
+            while (entradas.hasNext()) {
+                Map.Entry<String, Object> entrada = entradas.next();
+                enviar(salida, ProtocoloReplicacion.crearMarco(ProtocoloReplicacion.GUARDAR, 0, inicio,
+                        entrada.getKey(), vencimientos.getOrDefault(entrada.getKey(), 0L),
+                        ProtocoloReplicacion.aJson(gson, entrada.getValue())));
+                enviadas++;
+            }
+            enviar(salida, ProtocoloReplicacion.crearMarco(ProtocoloReplicacion.FIN_COPIA, cursor,
+                    System.currentTimeMillis(), null, 0, null));
+            System.out.println("📡 Copia completa enviada: " + enviadas + " entradas en "
+                    + (System.currentTimeMillis() - inicio) + " ms");
+        }
+
+        /**
+         * Envía los cambios a medida que se anotan, o un latido si no hay ninguno
+         */
+        private void transmitir(DataOutputStream salida) throws IOException, InterruptedException {
+            byte[][] pendientes = new byte[MAXIMO_POR_ENVIO][];
+            while (!cerrado) {
+                int cantidad = 0;
+                long actual;
+                synchronized (bloqueoAnillo) {
+                    if (secuencia == cursor) {
+                        bloqueoAnillo.wait(LATIDO_MS);
+                    }
+                    actual = secuencia;
+                    if (actual - cursor > anillo.length) {
+                        throw new IOException("se atrasó más de " + anillo.length + " cambios");
+                    }
+                    while (cursor + cantidad < actual && cantidad < pendientes.length) {
+                        pendientes[cantidad] = anillo[(int) ((cursor + cantidad + 1) % anillo.length)];
+                        cantidad++;
+                    }
+                }
+
+                if (cantidad == 0) {
+                    enviar(salida, ProtocoloReplicacion.crearMarco(ProtocoloReplicacion.LATIDO, actual,
+                            System.currentTimeMillis(), null, 0, null));
+                } else {
+                    for (int i = 0; i < cantidad; i++) {
+                        enviar(salida, pendientes[i]);
+                        pendientes[i] = null;
+                    }
+                    cursor += cantidad;
+                    registrosEnviados.add(cantidad);
+                }
+                salida.flush();
+            }
+        }
+
+        private void enviar(DataOutputStream salida, byte[] marco) throws IOException {
+            salida.write(marco);
+            bytesEnviados.add(marco.length);
+        }
+
+        private void cerrar() {
+            atiende = false;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ya no se puede hacer nada con él
+            }
+        }
+    }
+
+    // MÉTODOS DE UTILIDAD
+
+    /**
+     * Obtiene el gestor que guarda los datos
+     * @return Gestor de abajo
+     */
+    public GestorDatos getDelegado() {
+        return delegado;
+    }
+
+    /**
+     * Obtiene el número del último cambio anotado
+     * @return Secuencia actual
+     */
+    public long getSecuencia() {
+        synchronized (bloqueoAnillo) {
+            return secuencia;
+        }
+    }
+
+    public int getSeguidores() {
+        return seguidores.size();
+    }
+
+    /**
+     * Obtiene cuántos seguidores conectados atienden consultas (ya recibieron los datos)
+     * @return Seguidores que responden los comandos de solo lectura
+     */
+    public int getSeguidoresQueAtienden() {
+        int cantidad = 0;
+        for (ConexionSeguidor seguidor : seguidores) {
+            if (seguidor.atiende) {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    public long getRegistrosEnviados() {
+        return registrosEnviados.sum();
+    }
+
+    public long getBytesEnviados() {
+        return bytesEnviados.sum();
+    }
+
+    /**
+     * Obtiene información de estado de la replicación
+     * @return String con información de estado
+     */
+    public String getEstado() {
+        return String.format("GestorDatosReplicado{puerto=%s, seguidores=%d, secuencia=%d, enviados=%d, bytes=%d, delegado=%s}",
+                servidor != null ? String.valueOf(servidor.getLocalPort()) : "cerrado", getSeguidores(),
+                getSecuencia(), getRegistrosEnviados(), getBytesEnviados(), delegado.getClass().getSimpleName());
+    }
+
+    @Override
+    public String toString() {
+        return getEstado();
+    }
+}
@@ -0,0 +1,516 @@
+package com.educativo.bot.servicios;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+import com.educativo.bot.interfaces.GestorDatos;
+import com.google.gson.Gson;
+
+/**
+ * CONCEPTO: REPLICACIÓN (lado seguidor)
+ *
+ * Copia de solo lectura de los datos de otro proceso ({@link GestorDatosReplicado}).
+ * Un hilo se conecta al primario por TCP y aplica en memoria cada cambio que recibe,
+ * en el mismo orden en que ocurrió. No escribe ningún archivo.
+ *
+ * - Las lecturas y los recorridos funcionan como en cualquier gestor
+ * - Las escrituras se rechazan: solo el primario modifica los datos
+ * - Si la conexión se corta, reintenta y sigue desde el último cambio aplicado
+ *   (o recibe una copia completa si el primario ya no lo tiene). Mientras tanto
+ *   sigue respondiendo con los datos que tiene
+ * - Mide el atraso (en cambios y en milisegundos) y cuántos cambios aplica por segundo
+ * - Le avisa al primario si es un bot que atiende consultas: mientras esté conectado,
+ *   el primario le deja a la réplica los comandos de solo lectura
+ *
+ * Para probar la replicación sin Discord se puede ejecutar sola; muestra su estado
+ * cada segundo:
+ *   java -cp bot.jar com.educativo.bot.servicios.GestorDatosSeguidor [host] [puerto]
+ */
+public class GestorDatosSeguidor implements GestorDatos {
+
+    private static final long ESPERA_INICIAL_MS = 500;
+    private static final long ESPERA_MAXIMA_MS = 10_000;
+    private static final int TIEMPO_SIN_NOTICIAS_MS = 5_000; // Varios latidos perdidos: conexión muerta
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final String host;
+    private final int puerto;
+    private final boolean atiendeConsultas;               // Si el primario le deja las consultas
+    private final Gson gson;
+    private final Map<String, Long> vencimientos;         // Momento de vencimiento de algunas claves
+    private final LongAdder registrosAplicados;
+    private final LongAdder bytesRecibidos;
+    private final LongAdder copiasCompletas;
+    private final Thread receptor;
+    private volatile ConcurrentNavigableMap<String, Object> datos; // Se reemplaza entero tras una copia completa
+    private volatile Socket socket;
+    private volatile boolean cerrado;
+    private volatile boolean conectado;
+    private volatile long secuenciaAplicada;              // Último cambio del primario aplicado aquí
+    private volatile long versionAcademica;               // Aumenta con cada cambio académico o copia aplicados
+    private volatile long secuenciaPrimario;              // Último cambio que anunció el primario
+    private volatile long retrasoMs;                      // Del último cambio: de anotado a aplicado
+    private volatile long conectadoDesdeMs;
+    private volatile long aplicadosAlConectar;
+    private long epoca;                                   // Solo lo usa el hilo receptor
+
+    /**
+     * Constructor de la réplica de un bot, que atiende las consultas por el primario
+     *
+     * @param config Configuración (host y puerto del primario)
+     */
+    public GestorDatosSeguidor(ConfiguracionDatos config) {
+        this(config.getHostReplicacion(), config.getPuertoReplicacion(), true);
+    }
+
+    /**
+     * Constructor de una réplica que solo sigue al primario (no atiende consultas)
+     *
+     * @param host Host del primario
+     * @param puerto Puerto de replicación del primario
+     */
+    public GestorDatosSeguidor(String host, int puerto) {
+        this(host, puerto, false);
+    }
+
+    /**
+     * Constructor con la dirección del primario
+     *
+     * @param host Host del primario
+     * @param puerto Puerto de replicación del primario
+     * @param atiendeConsultas true si esta réplica responde las consultas y el primario debe dejárselas
+     */
+    public GestorDatosSeguidor(String host, int puerto, boolean atiendeConsultas) {
+        this.host = host;
+        this.puerto = puerto;
+        this.atiendeConsultas = atiendeConsultas;
+        this.gson = new Gson();
+        this.datos = new ConcurrentSkipListMap<>();
+        this.vencimientos = new ConcurrentHashMap<>();
+        this.registrosAplicados = new LongAdder();
+        this.bytesRecibidos = new LongAdder();
+        this.copiasCompletas = new LongAdder();
+        this.receptor = new Thread(this::seguir, "replicacion-receptor");
+        receptor.setDaemon(true);
+        receptor.start();
+    }
+
+    /**
+     * Las escrituras no están permitidas en una réplica
+     */
+    @Override
+    public boolean guardar(String clave, Object valor) {
+        return rechazar(clave);
+    }
+
+    /**
+     * Las escrituras no están permitidas en una réplica
+     */
+    @Override
+    public boolean guardar(String clave, Object valor, Duration vigencia) {
+        return rechazar(clave);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public Object obtener(String clave) {
+        if (clave == null || estaVencida(clave)) {
+            return null;
+        }
+        return datos.get(clave);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public long obtenerVencimiento(String clave) {
+        Long vence = clave != null ? vencimientos.get(clave) : null;
+        return vence != null ? vence : 0;
+    }
+
+    /**
+     * Las escrituras no están permitidas en una réplica
+     */
+    @Override
+    public boolean eliminar(String clave) {
+        return rechazar(clave);
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     */
+    @Override
+    public boolean existe(String clave) {
+        return obtener(clave) != null;
+    }
+
+    /**
+     * Las escrituras no están permitidas en una réplica
+     */
+    @Override
+    public boolean guardarTodos(Map<String, ?> datosNuevos) {
+        return datosNuevos.isEmpty() || rechazar(datosNuevos.size() + " datos");
+    }
+
+    /**
+     * Las escrituras no están permitidas en una réplica
+     * @throws IllegalStateException siempre
+     */
+    @Override
+    public Object actualizar(String clave, UnaryOperator<Object> funcion) {
+        throw new IllegalStateException("Réplica de solo lectura: no se puede actualizar '" + clave + "'");
+    }
+
+    /**
+     * IMPLEMENTACIÓN del método de la interfaz
+     * Recorre la copia en memoria, salteando las entradas vencidas
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> escanearRango(String desde, String hasta) {
+        ConcurrentNavigableMap<String, Object> actuales = datos;
+        ConcurrentNavigableMap<String, Object> rango;
+        if (desde != null && hasta != null) {
+            rango = actuales.subMap(desde, true, hasta, false);
+        } else if (desde != null) {
+            rango = actuales.tailMap(desde, true);
+        } else if (hasta != null) {
+            rango = actuales.headMap(hasta, false);
+        } else {
+            rango = actuales;
+        }
+        return new CursorVigente(rango.entrySet().iterator());
+    }
+
+    /**
+     * Nada que sincronizar: la réplica no escribe en disco
+     */
+    @Override
+    public void sincronizar() {
+    }
+
+    /**
+     * Corta la conexión con el primario y detiene el hilo receptor
+     */
+    @Override
+    public void cerrar() {
+        cerrado = true;
+        cerrarSocket();
+        receptor.interrupt();
+        try {
+            receptor.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // MÉTODOS PRIVADOS - Recepción
+
+    /**
+     * Bucle del hilo receptor: conectar, aplicar cambios y, si se corta, reintentar
+     * esperando cada vez un poco más
+     */
+    private void seguir() {
+        long espera = ESPERA_INICIAL_MS;
+        boolean avisado = false;
+        while (!cerrado) {
+            try (Socket conexion = new Socket()) {
+                socket = conexion;
+                conexion.connect(new InetSocketAddress(host, puerto), TIEMPO_SIN_NOTICIAS_MS);
+                conexion.setSoTimeout(TIEMPO_SIN_NOTICIAS_MS);
+                recibir(conexion);
+            } catch (IOException e) {
+                if (!cerrado && (conectado || !avisado)) {
+                    System.err.println("⚠️ Sin conexión con el primario " + host + ":" + puerto + ": "
+                            + (e instanceof EOFException ? "el primario cerró la conexión" : e.getMessage())
+                            + " (reintentando)");
+                    avisado = true;
+                }
+                if (conectado) {
+                    espera = ESPERA_INICIAL_MS; // Recién se cortó: reintentar rápido
+                }
+            } finally {
+                conectado = false;
+                socket = null;
+            }
+
+            try {
+                Thread.sleep(espera);
+            } catch (InterruptedException e) {
+                return;
+            }
+            espera = Math.min(espera * 2, ESPERA_MAXIMA_MS);
+        }
+    }
+
+    private void recibir(Socket conexion) throws IOException {
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(conexion.getInputStream()));
+        DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(conexion.getOutputStream()));
+        salida.writeInt(ProtocoloReplicacion.MAGIA);
+        salida.writeLong(epoca);
+        salida.writeLong(secuenciaAplicada);
+        salida.writeByte(atiendeConsultas ? 1 : 0);
+        salida.flush();
+
+        if (entrada.readInt() != ProtocoloReplicacion.MAGIA) {
+            throw new IOException("el otro extremo no es un primario de replicación");
+        }
+        long epocaPrimario = entrada.readLong();
+        boolean copiaCompleta = entrada.readByte() == ProtocoloReplicacion.COPIA_COMPLETA;
+        epoca = epocaPrimario;
+
+        conectado = true;
+        conectadoDesdeMs = System.currentTimeMillis();
+        aplicadosAlConectar = registrosAplicados.sum();
+        System.out.println("📡 Conectado al primario " + host + ":" + puerto
+                + (copiaCompleta ? " (recibiendo copia completa)" : " (continúa desde el cambio " + secuenciaAplicada + ")"));
+
+        if (copiaCompleta) {
+            recibirCopiaCompleta(entrada);
+        }
+        while (!cerrado) {
+            ProtocoloReplicacion.Mensaje mensaje = ProtocoloReplicacion.leer(entrada, gson);
+            bytesRecibidos.add(mensaje.bytes);
+            if (mensaje.tipo == ProtocoloReplicacion.LATIDO) {
+                secuenciaPrimario = mensaje.secuencia;
+                continue;
+            }
+            aplicar(datos, mensaje);
+            if (mensaje.clave != null && mensaje.clave.startsWith(RepositorioAcademico.PREFIJO)) {
+                versionAcademica++; // Las estadísticas y la actividad no obligan a recargar el repositorio
+            }
+            secuenciaAplicada = mensaje.secuencia;
+            secuenciaPrimario = Math.max(secuenciaPrimario, mensaje.secuencia);
+            retrasoMs = Math.max(0, System.currentTimeMillis() - mensaje.marcaTiempo);
+            registrosAplicados.increment();
+        }
+    }
+
+    /**
+     * Arma la copia nueva aparte y la publica entera al terminar: mientras llega,
+     * las lecturas siguen viendo la copia anterior
+     */
+    private void recibirCopiaCompleta(DataInputStream entrada) throws IOException {
+        long inicio = System.currentTimeMillis();
+        ConcurrentNavigableMap<String, Object> nuevos = new ConcurrentSkipListMap<>();
+        vencimientos.clear();
+        while (true) {
+            ProtocoloReplicacion.Mensaje mensaje = ProtocoloReplicacion.leer(entrada, gson);
+            bytesRecibidos.add(mensaje.bytes);
+            if (mensaje.tipo == ProtocoloReplicacion.FIN_COPIA) {
+                datos = nuevos;
+                versionAcademica++;
+                copiasCompletas.increment();
+                secuenciaAplicada = mensaje.secuencia;
+                secuenciaPrimario = Math.max(secuenciaPrimario, mensaje.secuencia);
+                System.out.println("📡 Copia completa recibida: " + nuevos.size() + " entradas en "
+                        + (System.currentTimeMillis() - inicio) + " ms");
+                return;
+            }
+            aplicar(nuevos, mensaje);
+        }
+    }
+
+    private void aplicar(Map<String, Object> destino, ProtocoloReplicacion.Mensaje mensaje) {
+        if (mensaje.tipo == ProtocoloReplicacion.GUARDAR) {
+            destino.put(mensaje.clave, mensaje.valor);
+            if (mensaje.vence > 0) {
+                vencimientos.put(mensaje.clave, mensaje.vence);
+            } else {
+                vencimientos.remove(mensaje.clave);
+            }
+        } else if (mensaje.tipo == ProtocoloReplicacion.ELIMINAR) {
+            destino.remove(mensaje.clave);
+            vencimientos.remove(mensaje.clave);
+        }
+    }
+
+    /**
+     * Corta la conexión actual como si se hubiera caído la red; el receptor se
+     * reconecta solo (para probar la reanudación)
+     */
+    void cortarConexion() {
+        cerrarSocket();
+    }
+
+    private void cerrarSocket() {
+        Socket actual = socket;
+        if (actual != null) {
+            try {
+                actual.close();
+            } catch (IOException e) {
+                // Ya no se puede hacer nada con él
+            }
+        }
+    }
+
+    // MÉTODOS PRIVADOS - Lecturas
+
+    private boolean estaVencida(String clave) {
+        Long vence = vencimientos.get(clave);
+        return vence != null && vence <= System.currentTimeMillis();
+    }
+
+    private boolean rechazar(String operacion) {
+        System.err.println("📖 Réplica de solo lectura: se rechaza '" + operacion + "'");
+        return false;
+    }
+
+    /**
+     * Cursor que saltea las entradas vencidas
+     */
+    private final class CursorVigente implements Iterator<Map.Entry<String, Object>> {
+        private final Iterator<Map.Entry<String, Object>> entradas;
+        private Map.Entry<String, Object> siguiente;
+
+        private CursorVigente(Iterator<Map.Entry<String, Object>> entradas) {
+            this.entradas = entradas;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (siguiente == null && entradas.hasNext()) {
+                Map.Entry<String, Object> candidata = entradas.next();
+                if (!estaVencida(candidata.getKey())) {
+                    siguiente = candidata;
+                }
+            }
+            return siguiente != null;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, Object> actual = siguiente;
+            siguiente = null;
+            return actual;
+        }
+    }
+
+    // MÉTODOS DE UTILIDAD - Métricas
+
+    public boolean isConectado() {
+        return conectado;
+    }
+
+    /**
+     * Obtiene el número del último cambio del primario aplicado
+     * @return Secuencia aplicada
+     */
+    public long getSecuenciaAplicada() {
+        return secuenciaAplicada;
+    }
+
+    /**
+     * Obtiene un número que cambia cada vez que cambian los datos académicos de la
+     * réplica (claves "academico/"), incluso tras una copia completa de un primario
+     * reiniciado. Los demás cambios (estadísticas, actividad) no lo mueven.
+     * @return Versión actual de los datos académicos
+     */
+    public long getVersionAcademica() {
+        return versionAcademica;
+    }
+
+    /**
+     * Obtiene cuántas copias completas se recibieron (una al conectarse por primera vez;
+     * las demás, por reconexiones que no pudieron seguir desde el último cambio)
+     * @return Copias completas recibidas
+     */
+    public long getCopiasCompletas() {
+        return copiasCompletas.sum();
+    }
+
+    /**
+     * Obtiene cuántos cambios del primario faltan aplicar
+     * @return Atraso en cambios (0 = al día)
+     */
+    public long getRetrasoRegistros() {
+        return Math.max(0, secuenciaPrimario - secuenciaAplicada);
+    }
+
+    /**
+     * Obtiene cuánto tardó el último cambio desde que el primario lo anotó hasta
+     * que se aplicó aquí (0 si ya está al día)
+     * @return Atraso en milisegundos
+     */
+    public long getRetrasoMs() {
+        return getRetrasoRegistros() == 0 ? 0 : retrasoMs;
+    }
+
+    public long getRegistrosAplicados() {
+        return registrosAplicados.sum();
+    }
+
+    public long getBytesRecibidos() {
+        return bytesRecibidos.sum();
+    }
+
+    /**
+     * Obtiene el promedio de cambios aplicados por segundo desde la última conexión
+     * @return Cambios por segundo
+     */
+    public double getRegistrosPorSegundo() {
+        long transcurridoMs = System.currentTimeMillis() - conectadoDesdeMs;
+        if (!conectado || transcurridoMs <= 0) {
+            return 0;
+        }
+        return (registrosAplicados.sum() - aplicadosAlConectar) * 1000.0 / transcurridoMs;
+    }
+
+    public int getTamanio() {
+        return datos.size();
+    }
+
+    /**
+     * Obtiene información de estado de la réplica
+     * @return String con información de estado
+     */
+    public String getEstado() {
+        return String.format("GestorDatosSeguidor{primario=%s:%d, %s, entradas=%d, aplicados=%d, atraso=%d cambios/%d ms, %.1f cambios/s, bytes=%d}",
+                host, puerto, conectado ? "conectado" : "desconectado", getTamanio(), getRegistrosAplicados(),
+                getRetrasoRegistros(), getRetrasoMs(), getRegistrosPorSegundo(), getBytesRecibidos());
+    }
+
+    @Override
+    public String toString() {
+        return getEstado();
+    }
+
+    /**
+     * Sigue a un primario y muestra el estado de la réplica cada segundo
+     * (para probar la replicación con dos procesos, sin conectarse a Discord)
+     *
+     * @param args [host] [puerto] (por defecto, los de la configuración)
+     */
+    public static void main(String[] args) throws InterruptedException {
+        ConfiguracionDatos config = ConfiguracionDatos.desdeConfiguracion("datos/bot_educativo.json");
+        String host = args.length > 0 ? args[0] : config.getHostReplicacion();
+        int puerto = args.length > 1 ? Integer.parseInt(args[1]) : config.getPuertoReplicacion();
+
+        GestorDatosSeguidor seguidor = new GestorDatosSeguidor(host, puerto);
+        Runtime.getRuntime().addShutdownHook(new Thread(seguidor::cerrar));
+        while (true) {
+            Thread.sleep(1000);
+            System.out.println(seguidor.getEstado());
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.educativo.bot.servicios;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.educativo.bot.utils.Configuracion;
+
+/**
+ * CONCEPTO: LIMITACIÓN DE RITMO (cubetas de fichas)
+ *
+ * Evita que un usuario, un canal o un servidor inunden al bot de comandos: cada
+ * comando recorre listas completas y puede reescribir el archivo de datos.
+ *
+ * Cada clave (ámbito + id) tiene una cubeta con fichas:
+ * - Ejecutar un comando gasta una ficha; sin fichas, el comando se rechaza
+ * - Las fichas se reponen de a poco, hasta la capacidad de la cubeta, así que se
+ *   permiten ráfagas cortas pero no un ritmo sostenido mayor al configurado
+ * - La cubeta guarda solo dos números (fichas y último uso): memoria constante por clave
+ * - Una cubeta que se volvió a llenar es igual a una nueva, así que las inactivas
+ *   se descartan en barridas periódicas
+ *
+ * Un comando pasa solo si hay ficha en las cubetas de su usuario, su canal y su
+ * servidor; si alguna no tiene, se devuelven las fichas que ya se habían tomado.
+ * Todos los comandos gastan de la misma cubeta del ámbito: cambiar de comando no
+ * da más margen.
+ *
+ * Los rechazos son baratos y se agrupan: solo se le avisa al usuario el primer
+ * rechazo de una racha; los siguientes se descartan en silencio hasta que un
+ * comando suyo vuelva a pasar (o hasta la próxima barrida, si la racha sigue).
+ *
+ * Los límites se configuran como "capacidad/segundos" (la cubeta se llena por
+ * completo en esa cantidad de segundos), por ámbito y opcionalmente por comando:
+ * bot.limite.usuario, bot.limite.canal, bot.limite.servidor y
+ * bot.limite.&lt;comando&gt;.&lt;ámbito&gt; (por ejemplo bot.limite.tarea.usuario).
+ * El límite de un comando es una cubeta más (ámbito + id + comando), que se suma a
+ * la general: sirve para frenar un comando caro, nunca para dar más margen.
+ * Un límite general "0" lo desactiva; el "0" de un comando lo excluye de ese ámbito.
+ */
+public class LimitadorComandos {
+
+    private static final long INTERVALO_BARRIDA_MS = 60000;     // Cada cuánto se descartan las cubetas llenas
+
+    /**
+     * Ámbitos que se limitan, en el orden en que se revisan
+     */
+    public enum Ambito {
+        USUARIO("usuario"),
+        CANAL("canal"),
+        SERVIDOR("servidor");
+
+        private final String clave;
+
+        Ambito(String clave) {
+            this.clave = clave;
+        }
+
+        public String getClave() {
+            return clave;
+        }
+    }
+
+    /**
+     * Capacidad y ritmo de reposición de una cubeta
+     */
+    public static final class Limite {
+        private final int capacidad;
+        private final double fichasPorMs;
+
+        /**
+         * @param capacidad Comandos seguidos que se permiten con la cubeta llena (al menos 1)
+         * @param segundos Segundos en que una cubeta vacía se vuelve a llenar (al menos 1)
+         */
+        public Limite(int capacidad, long segundos) {
+            if (capacidad < 1 || segundos < 1) {
+                throw new IllegalArgumentException("Un límite necesita capacidad y segundos mayores que cero");
+            }
+            this.capacidad = capacidad;
+            this.fichasPorMs = capacidad / (segundos * 1000.0);
+        }
+
+        /**
+         * Interpreta un límite "capacidad/segundos"
+         *
+         * @return Límite correspondiente, o null si es "0" (sin límite)
+         * @throws IllegalArgumentException si el texto no tiene ese formato
+         */
+        public static Limite desdeTexto(String texto) {
+            String limpio = texto.trim();
+            if (limpio.equals("0")) {
+                return null;
+            }
+            String[] partes = limpio.split("/");
+            try {
+                if (partes.length == 2) {
+                    return new Limite(Integer.parseInt(partes[0].trim()), Long.parseLong(partes[1].trim()));
+                }
+            } catch (NumberFormatException e) {
+                // Se informa abajo con el formato esperado
+            }
+            throw new IllegalArgumentException("Límite inválido: '" + texto
+                    + "'. Formato: capacidad/segundos (por ejemplo 5/10), o 0 para no limitar");
+        }
+
+        public int getCapacidad() {
+            return capacidad;
+        }
+
+        @Override
+        public String toString() {
+            return capacidad + "/" + Math.round(capacidad / fichasPorMs / 1000);
+        }
+    }
+
+    /**
+     * Un comando rechazado
+     */
+    public static final class Rechazo {
+        private final Ambito ambito;
+        private final long esperaMs;
+        private final boolean avisar;
+
+        private Rechazo(Ambito ambito, long esperaMs, boolean avisar) {
+            this.ambito = ambito;
+            this.esperaMs = esperaMs;
+            this.avisar = avisar;
+        }
+
+        /**
+         * @return Ámbito cuyo límite se superó
+         */
+        public Ambito getAmbito() {
+            return ambito;
+        }
+
+        /**
+         * @return Cuánto falta para que haya una ficha, en milisegundos
+         */
+        public long getEsperaMs() {
+            return esperaMs;
+        }
+
+        /**
+         * @return true si es el primer rechazo de la racha y hay que avisarle al usuario
+         */
+        public boolean isAvisar() {
+            return avisar;
+        }
+    }
+
+    /**
+     * Fichas de una clave
+     * Se modifica con el monitor de la cubeta; una descartada ya no está en el mapa.
+     */
+    private static final class Cubeta {
+        private final Limite limite;
+        private double fichas;
+        private long ultimoMs;
+        private boolean descartada;
+
+        private Cubeta(Limite limite, long ahora) {
+            this.limite = limite;
+            this.fichas = limite.capacidad;
+            this.ultimoMs = ahora;
+        }
+
+        private void reponer(long ahora) {
+            if (ahora > ultimoMs) {
+                fichas = Math.min(limite.capacidad, fichas + (ahora - ultimoMs) * limite.fichasPorMs);
+                ultimoMs = ahora;
+            }
+        }
+
+        private long esperaMs() {
+            return (long) Math.ceil((1 - fichas) / limite.fichasPorMs);
+        }
+    }
+
+    // Marca "sin límite" en un comando; nunca se usa para crear cubetas
+    private static final Limite SIN_LIMITE = new Limite(Integer.MAX_VALUE, 1);
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final Map<String, Limite> limites;                  // "ámbito" o "comando.ámbito" -> límite (sin null)
+    private final Map<String, Cubeta> cubetas;
+    private final Map<String, Long> avisados;                   // Usuario -> cuándo se le avisó la racha actual
+    private final LongAdder permitidos;
+    private final LongAdder rechazados;
+    private final LongAdder silenciados;
+    private volatile long ultimaBarrida;
+
+    /**
+     * Constructor con los límites por ámbito, iguales para todos los comandos
+     *
+     * @param porUsuario Límite de cada usuario (null = sin límite)
+     * @param porCanal Límite de cada canal (null = sin límite)
+     * @param porServidor Límite de cada servidor (null = sin límite)
+     */
+    public LimitadorComandos(Limite porUsuario, Limite porCanal, Limite porServidor) {
+        this.limites = new ConcurrentHashMap<>();
+        this.cubetas = new ConcurrentHashMap<>();
+        this.avisados = new ConcurrentHashMap<>();
+        this.permitidos = new LongAdder();
+        this.rechazados = new LongAdder();
+        this.silenciados = new LongAdder();
+        this.ultimaBarrida = System.currentTimeMillis();
+        setLimite(null, Ambito.USUARIO, porUsuario);
+        setLimite(null, Ambito.CANAL, porCanal);
+        setLimite(null, Ambito.SERVIDOR, porServidor);
+    }
+
+    /**
+     * Crea el limitador con los límites generales de la configuración:
+     * bot.limite.usuario (por defecto 5/10), bot.limite.canal (20/10) y bot.limite.servidor (60/10)
+     * Los límites propios de cada comando se leen con {@link #configurarComando(String)}.
+     */
+    public static LimitadorComandos desdeConfiguracion() {
+        return new LimitadorComandos(
+                Limite.desdeTexto(Configuracion.getTexto("bot.limite.usuario", "5/10")),
+                Limite.desdeTexto(Configuracion.getTexto("bot.limite.canal", "20/10")),
+                Limite.desdeTexto(Configuracion.getTexto("bot.limite.servidor", "60/10")));
+    }
+
+    /**
+     * Lee los límites propios de un comando (bot.limite.&lt;comando&gt;.&lt;ámbito&gt;), si están configurados
+     *
+     * @param comando Nombre del comando
+     */
+    public void configurarComando(String comando) {
+        for (Ambito ambito : Ambito.values()) {
+            String texto = Configuracion.getTexto("bot.limite." + comando + "." + ambito.clave, null);
+            if (texto != null) {
+                setLimite(comando, ambito, Limite.desdeTexto(texto));
+            }
+        }
+    }
+
+    /**
+     * Cambia el límite general de un ámbito o agrega el límite propio de un comando
+     * El límite de un comando se aplica además del general; null en un comando lo
+     * excluye del ámbito (no gasta fichas de ninguna cubeta del ámbito).
+     * Las cubetas existentes conservan el límite anterior hasta que se descarten.
+     *
+     * @param comando Comando al que se aplica (null = límite general del ámbito)
+     * @param ambito Ámbito limitado
+     * @param limite Límite nuevo (null = sin límite)
+     */
+    public void setLimite(String comando, Ambito ambito, Limite limite) {
+        if (ambito == null) {
+            throw new IllegalArgumentException("El ámbito no puede ser null");
+        }
+        String clave = comando != null ? comando + "." + ambito.clave : ambito.clave;
+        if (limite != null) {
+            limites.put(clave, limite);
+        } else if (comando != null) {
+            limites.put(clave, SIN_LIMITE); // El comando no gasta fichas de este ámbito
+        } else {
+            limites.remove(clave);
+        }
+    }
+
+    /**
+     * Intenta tomar una ficha de cada ámbito para ejecutar un comando
+     *
+     * @param comando Nombre del comando (null si no existe)
+     * @param usuarioId Usuario que lo envió
+     * @param canalId Canal donde se envió
+     * @param servidorId Servidor donde se envió (null en mensajes directos)
+     * @return null si el comando puede ejecutarse; si no, el motivo del rechazo
+     */
+    public Rechazo intentar(String comando, String usuarioId, String canalId, String servidorId) {
+        return intentar(comando, usuarioId, canalId, servidorId, System.currentTimeMillis());
+    }
+
+    /**
+     * Igual que {@link #intentar(String, String, String, String)}, con la hora dada
+     * (para las pruebas)
+     */
+    Rechazo intentar(String comando, String usuarioId, String canalId, String servidorId, long ahora) {
+        if (ahora - ultimaBarrida >= INTERVALO_BARRIDA_MS) {
+            barrer(ahora);
+        }
+
+        String[] ids = {usuarioId, canalId, servidorId};
+        Cubeta[] tomadas = new Cubeta[ids.length * 2]; // General y propia del comando, por ámbito
+        for (Ambito ambito : Ambito.values()) {
+            int i = ambito.ordinal();
+            Limite propio = comando != null ? limites.get(comando + "." + ambito.clave) : null;
+            if (ids[i] == null || propio == SIN_LIMITE) {
+                continue;
+            }
+            String clave = ambito.clave + ":" + ids[i];
+            Limite general = limites.get(ambito.clave);
+            long esperaMs = general != null ? tomar(clave, general, ahora, tomadas, i * 2) : 0;
+            if (esperaMs == 0 && propio != null) {
+                esperaMs = tomar(clave + ":" + comando, propio, ahora, tomadas, i * 2 + 1);
+            }
+            if (esperaMs > 0) {
+                devolver(tomadas);
+                return rechazar(usuarioId, ambito, esperaMs);
+            }
+        }
+        permitidos.increment();
+        avisados.remove(usuarioId);
+        return null;
+    }
+
+    /**
+     * Descarta las cubetas que ya se volvieron a llenar: una nueva tendría las mismas fichas
+     */
+    public void barrer() {
+        barrer(System.currentTimeMillis());
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    /**
+     * Toma una ficha de la cubeta de la clave, creándola si no existe
+     * @return 0 si se tomó (y queda anotada en tomadas); si no, la espera hasta la próxima ficha
+     */
+    private long tomar(String clave, Limite limite, long ahora, Cubeta[] tomadas, int posicion) {
+        while (true) {
+            Cubeta cubeta = cubetas.computeIfAbsent(clave, k -> new Cubeta(limite, ahora));
+            synchronized (cubeta) {
+                if (cubeta.descartada) {
+                    continue; // La barrida la sacó justo ahora: se usa una nueva
+                }
+                cubeta.reponer(ahora);
+                if (cubeta.fichas < 1) {
+                    return Math.max(1, cubeta.esperaMs());
+                }
+                cubeta.fichas -= 1;
+                tomadas[posicion] = cubeta;
+                return 0;
+            }
+        }
+    }
+
+    private void devolver(Cubeta[] tomadas) {
+        for (Cubeta cubeta : tomadas) {
+            if (cubeta != null) {
+                synchronized (cubeta) {
+                    cubeta.fichas = Math.min(cubeta.limite.capacidad, cubeta.fichas + 1);
+                }
+            }
+        }
+    }
+
+    private Rechazo rechazar(String usuarioId, Ambito ambito, long esperaMs) {
+        rechazados.increment();
+        boolean avisar = usuarioId == null || avisados.putIfAbsent(usuarioId, System.currentTimeMillis()) == null;
+        if (!avisar) {
+            silenciados.increment();
+        }
+        return new Rechazo(ambito, esperaMs, avisar);
+    }
+
+    private void barrer(long ahora) {
+        ultimaBarrida = ahora;
+        int antes = cubetas.size();
+        Iterator<Cubeta> iterador = cubetas.values().iterator();
+        while (iterador.hasNext()) {
+            Cubeta cubeta = iterador.next();
+            synchronized (cubeta) {
+                cubeta.reponer(ahora);
+                if (cubeta.fichas >= cubeta.limite.capacidad) {
+                    cubeta.descartada = true;
+                    iterador.remove();
+                }
+            }
+        }
+        // Se olvidan los avisos viejos: un usuario que se fue no ocupa memoria, y uno que
+        // sigue insistiendo recibe otro aviso
+        avisados.values().removeIf(avisado -> ahora - avisado >= INTERVALO_BARRIDA_MS);
+        int descartadas = antes - cubetas.size();
+        if (descartadas > 0) {
+            System.out.println("🧹 Límites de comandos: " + descartadas + " cubetas inactivas descartadas, "
+                    + cubetas.size() + " activas");
+        }
+    }
+
+    // MÉTODOS DE UTILIDAD (métricas)
+
+    /**
+     * @return Cubetas en memoria (claves con actividad reciente)
+     */
+    public int getCubetas() {
+        return cubetas.size();
+    }
+
+    public long getPermitidos() {
+        return permitidos.sum();
+    }
+
+    public long getRechazados() {
+        return rechazados.sum();
+    }
+
+    /**
+     * @return Rechazos que no se avisaron porque ya se había avisado la racha
+     */
+    public long getSilenciados() {
+        return silenciados.sum();
+    }
+
+    /**
+     * Resumen de una línea para las estadísticas
+     */
+    public String getEstado() {
+        return String.format("usuario %s, canal %s, servidor %s; %d permitidos, %d rechazados (%d sin aviso), %d cubetas",
+                describir(Ambito.USUARIO), describir(Ambito.CANAL), describir(Ambito.SERVIDOR),
+                getPermitidos(), getRechazados(), getSilenciados(), getCubetas());
+    }
+
+    private String describir(Ambito ambito) {
+        Limite limite = limites.get(ambito.clave);
+        return limite != null ? limite.toString() : "sin límite";
+    }
+
+    @Override
+    public String toString() {
+        return "LimitadorComandos{" + getEstado() + "}";
+    }
+}
@@ -0,0 +1,29 @@
+package com.educativo.bot.servicios;
+
+/**
+ * CONCEPTO: ENUMERACIONES
+ *
+ * Nivel de carga que calcula el {@link GestorCarga}, de menor a mayor. Cada nivel
+ * incluye las medidas del anterior.
+ *
+ * - NORMAL: se atiende todo
+ * - ALTA: las consultas caras (estadísticas, ranking, reportes) se rechazan con
+ *   un aviso de que el bot está ocupado
+ * - CRITICA: además se postergan las escrituras que no son imprescindibles
+ *   (contadores de uso, última actividad) hasta que baje la carga
+ */
+public enum NivelCarga {
+    NORMAL("🟢"),
+    ALTA("🟡"),
+    CRITICA("🔴");
+
+    private final String icono;
+
+    NivelCarga(String icono) {
+        this.icono = icono;
+    }
+
+    public String getIcono() {
+        return icono;
+    }
+}
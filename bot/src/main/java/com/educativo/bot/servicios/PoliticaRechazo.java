@@ -0,0 +1,49 @@
+package com.educativo.bot.servicios;
+
+/**
+ * CONCEPTO: ENUMERACIONES
+ *
+ * Define qué hace el {@link DespachadorComandos} con un comando que llega cuando
+ * ya tiene aceptados todos los comandos que admite (en curso y en espera).
+ *
+ * - AVISAR: no se ejecuta y se le avisa al usuario que el bot está ocupado
+ * - DESCARTAR: no se ejecuta y no se avisa nada
+ * - DESCARTAR_ANTIGUO: se descarta el comando que más esperó en la cola (con
+ *   aviso a su usuario) y el nuevo ocupa su lugar
+ * - LLAMADOR: el hilo que lo recibió espera a que haya lugar; frena la lectura de
+ *   eventos, así que nada se pierde ni se desordena pero todo se demora
+ */
+public enum PoliticaRechazo {
+    AVISAR,
+    DESCARTAR,
+    DESCARTAR_ANTIGUO,
+    LLAMADOR;
+
+    /**
+     * Convierte el texto de configuración en una política
+     * Acepta los nombres en español y en inglés ("abort", "discard", "discard-oldest", "caller-runs")
+     *
+     * @param texto Valor configurado
+     * @return Política correspondiente
+     * @throws IllegalArgumentException si el texto no corresponde a ninguna política
+     */
+    public static PoliticaRechazo desdeTexto(String texto) {
+        switch (texto.trim().toLowerCase()) {
+            case "avisar":
+            case "abort":
+                return AVISAR;
+            case "descartar":
+            case "discard":
+                return DESCARTAR;
+            case "descartar-antiguo":
+            case "discard-oldest":
+                return DESCARTAR_ANTIGUO;
+            case "llamador":
+            case "caller-runs":
+                return LLAMADOR;
+            default:
+                throw new IllegalArgumentException("Política de rechazo desconocida: '" + texto
+                        + "'. Valores válidos: abort, discard, discard-oldest, caller-runs");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.educativo.bot.servicios;
+
+/**
+ * CONCEPTO: ENUMERACIONES
+ *
+ * Define cuándo se fuerzan los datos al disco físico (fsync).
+ * Escribir en un archivo solo deja los datos en la memoria del sistema operativo;
+ * si se corta la luz antes de que el sistema los baje al disco, se pierden.
+ * Forzar en cada escritura es lo más seguro pero también lo más lento.
+ *
+ * - SIEMPRE: se fuerza en cada escritura (máxima durabilidad)
+ * - INTERVALO: se fuerza como mucho una vez por intervalo (equilibrio)
+ * - NUNCA: el sistema operativo decide (máximo rendimiento)
+ */
+public enum PoliticaSincronizacion {
+    SIEMPRE,
+    INTERVALO,
+    NUNCA;
+
+    /**
+     * Indica si corresponde forzar a disco en esta escritura
+     *
+     * @param msDesdeUltimoForzado Milisegundos desde el último fsync
+     * @param intervaloMs Intervalo configurado para la política INTERVALO
+     * @return true si hay que forzar a disco ahora
+     */
+    public boolean debeForzar(long msDesdeUltimoForzado, long intervaloMs) {
+        switch (this) {
+            case SIEMPRE:
+                return true;
+            case INTERVALO:
+                return msDesdeUltimoForzado >= intervaloMs;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Convierte el texto de configuración en una política
+     * Acepta los nombres en español y en inglés ("always", "interval", "never")
+     *
+     * @param texto Valor configurado
+     * @return Política correspondiente
+     * @throws IllegalArgumentException si el texto no corresponde a ninguna política
+     */
+    public static PoliticaSincronizacion desdeTexto(String texto) {
+        switch (texto.trim().toLowerCase()) {
+            case "siempre":
+            case "always":
+                return SIEMPRE;
+            case "intervalo":
+            case "interval":
+                return INTERVALO;
+            case "nunca":
+            case "never":
+                return NUNCA;
+            default:
+                throw new IllegalArgumentException("Política de sincronización desconocida: '" + texto
+                        + "'. Valores válidos: always, interval, never");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.educativo.bot.servicios;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CONCEPTO: REUTILIZACIÓN DE RECURSOS (pool de objetos)
+ *
+ * Pool pequeño de conexiones JDBC. Abrir una conexión es caro, así que se abren
+ * todas al crear el pool y cada operación toma una libre y la devuelve al terminar.
+ *
+ * - Si todas están ocupadas, quien pide espera (como mucho unos segundos)
+ * - Una conexión que falló y ya no responde se reemplaza por una nueva al devolverla
+ * - Las operaciones reciben la conexión prestada y no deben cerrarla
+ */
+public class PoolConexiones {
+
+    // Tiempo máximo esperando una conexión libre
+    private static final long ESPERA_MAXIMA_MS = 10_000;
+
+    /**
+     * Contrato para una operación que usa una conexión prestada
+     */
+    public interface Operacion<T> {
+        T ejecutar(Connection conexion) throws SQLException;
+    }
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final String url;                            // URL JDBC de la base
+    private final int tamanio;                           // Cantidad de conexiones
+    private final BlockingQueue<Connection> libres;      // Conexiones disponibles
+    private volatile boolean cerrado;
+
+    /**
+     * Constructor que abre todas las conexiones
+     *
+     * @param url URL JDBC de la base de datos
+     * @param tamanio Cantidad de conexiones
+     * @throws SQLException si no se puede abrir alguna conexión
+     */
+    public PoolConexiones(String url, int tamanio) throws SQLException {
+        if (tamanio < 1) {
+            throw new IllegalArgumentException("El pool necesita al menos una conexión");
+        }
+        this.url = url;
+        this.tamanio = tamanio;
+        this.libres = new ArrayBlockingQueue<>(tamanio);
+
+        List<Connection> abiertas = new ArrayList<>();
+        try {
+            for (int i = 0; i < tamanio; i++) {
+                abiertas.add(DriverManager.getConnection(url));
+            }
+        } catch (SQLException e) {
+            for (Connection conexion : abiertas) {
+                cerrarSinErrores(conexion);
+            }
+            throw e;
+        }
+        libres.addAll(abiertas);
+    }
+
+    /**
+     * Ejecuta una operación con una conexión prestada (en modo autocommit)
+     *
+     * @param operacion Operación a ejecutar
+     * @return Resultado de la operación
+     * @throws SQLException si la operación falla o no hay conexiones libres
+     */
+    public <T> T usar(Operacion<T> operacion) throws SQLException {
+        Connection conexion = tomar();
+        boolean sana = true;
+        try {
+            return operacion.ejecutar(conexion);
+        } catch (SQLException e) {
+            sana = estaSana(conexion);
+            throw e;
+        } finally {
+            devolver(conexion, sana);
+        }
+    }
+
+    /**
+     * Ejecuta una operación dentro de una transacción: se confirma si termina bien
+     * y se deshace entera si lanza una excepción
+     *
+     * @param operacion Operación a ejecutar
+     * @return Resultado de la operación
+     * @throws SQLException si la operación o la confirmación fallan
+     */
+    public <T> T enTransaccion(Operacion<T> operacion) throws SQLException {
+        return usar(conexion -> {
+            conexion.setAutoCommit(false);
+            try {
+                T resultado = operacion.ejecutar(conexion);
+                conexion.commit();
+                return resultado;
+            } catch (SQLException | RuntimeException e) {
+                conexion.rollback();
+                throw e;
+            } finally {
+                conexion.setAutoCommit(true);
+            }
+        });
+    }
+
+    /**
+     * Cierra las conexiones libres; las prestadas se cierran al devolverse
+     */
+    public void cerrar() {
+        cerrado = true;
+        Connection conexion;
+        while ((conexion = libres.poll()) != null) {
+            cerrarSinErrores(conexion);
+        }
+    }
+
+    // MÉTODOS PRIVADOS
+
+    private Connection tomar() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+        try {
+            Connection conexion = libres.poll(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS);
+            if (conexion == null) {
+                throw new SQLException("No hay conexiones libres después de " + ESPERA_MAXIMA_MS + " ms");
+            }
+            return conexion;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión", e);
+        }
+    }
+
+    private void devolver(Connection conexion, boolean sana) {
+        if (cerrado) {
+            cerrarSinErrores(conexion);
+            return;
+        }
+        if (!sana) {
+            cerrarSinErrores(conexion);
+            try {
+                conexion = DriverManager.getConnection(url);
+            } catch (SQLException e) {
+                // Sin reemplazo el pool queda con una conexión menos
+                System.err.println("❌ No se pudo reemplazar una conexión a la base: " + e.getMessage());
+                return;
+            }
+        }
+        libres.offer(conexion);
+    }
+
+    private static boolean estaSana(Connection conexion) {
+        try {
+            return conexion.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void cerrarSinErrores(Connection conexion) {
+        try {
+            conexion.close();
+        } catch (SQLException e) {
+            // Ya no se puede hacer nada con ella
+        }
+    }
+
+    /**
+     * Obtiene información de estado del pool
+     * @return String con información de estado
+     */
+    @Override
+    public String toString() {
+        return String.format("PoolConexiones{conexiones=%d, libres=%d%s}",
+                tamanio, libres.size(), cerrado ? ", cerrado" : "");
+    }
+}
@@ -0,0 +1,169 @@
+package com.educativo.bot.servicios;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import com.google.gson.Gson;
+
+/**
+ * CONCEPTO: PROTOCOLO DE RED (formato de los mensajes de replicación)
+ *
+ * Mensajes que el primario ({@link GestorDatosReplicado}) envía a sus seguidores
+ * ({@link GestorDatosSeguidor}) por una conexión TCP.
+ *
+ * Saludo del seguidor: [magia int][época long][última secuencia aplicada long]
+ * [atiende consultas byte] (1 si es un bot que responde las consultas por el primario)
+ * Respuesta del primario: [magia int][época long][modo byte] (CONTINUAR o COPIA_COMPLETA)
+ *
+ * Después, cada mensaje usa el mismo marco que el log de {@link GestorDatosLog}:
+ * [longitud int][crc32 int][contenido], con contenido
+ * [tipo byte][secuencia long][marca de tiempo long] y, según el tipo,
+ * [clave UTF][vence long][valor JSON] (GUARDAR) o [clave UTF] (ELIMINAR).
+ *
+ * La secuencia numera los cambios del primario desde que arrancó (su "época").
+ * Las entradas de la copia completa llevan secuencia 0; la marca FIN_COPIA trae
+ * la secuencia desde la que sigue la transmisión.
+ */
+final class ProtocoloReplicacion {
+
+    static final int MAGIA = 0x42455232; // "BER2" (con "BER1" el saludo no decía si atiende consultas)
+
+    // Respuesta al saludo
+    static final byte CONTINUAR = 1;
+    static final byte COPIA_COMPLETA = 2;
+
+    // Tipos de mensaje
+    static final byte GUARDAR = 1;
+    static final byte ELIMINAR = 2;
+    static final byte FIN_COPIA = 3;
+    static final byte LATIDO = 4;
+
+    // Límite de seguridad para detectar longitudes corruptas
+    private static final int LONGITUD_MAXIMA = 64 * 1024 * 1024;
+
+    /**
+     * Un cambio recibido del primario
+     */
+    static final class Mensaje {
+        final byte tipo;
+        final long secuencia;
+        final long marcaTiempo;                  // Cuándo lo registró el primario
+        final String clave;
+        final long vence;                        // Momento en que vence (0 = nunca)
+        final Object valor;
+        final int bytes;                         // Tamaño del marco completo
+
+        private Mensaje(byte tipo, long secuencia, long marcaTiempo, String clave, long vence,
+                        Object valor, int bytes) {
+            this.tipo = tipo;
+            this.secuencia = secuencia;
+            this.marcaTiempo = marcaTiempo;
+            this.clave = clave;
+            this.vence = vence;
+            this.valor = valor;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Constructor privado: clase utilitaria, no se instancia
+     */
+    private ProtocoloReplicacion() {
+    }
+
+    /**
+     * Arma el marco completo de un mensaje, listo para escribir en el socket
+     *
+     * @param valorJson Valor ya serializado (solo para GUARDAR)
+     */
+    static byte[] crearMarco(byte tipo, long secuencia, long marcaTiempo, String clave, long vence,
+                             byte[] valorJson) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + (valorJson != null ? valorJson.length : 0));
+            DataOutputStream contenido = new DataOutputStream(bytes);
+            contenido.writeInt(0); // Lugar de la longitud y el CRC, se completan al final
+            contenido.writeInt(0);
+            contenido.writeByte(tipo);
+            contenido.writeLong(secuencia);
+            contenido.writeLong(marcaTiempo);
+            if (tipo == GUARDAR || tipo == ELIMINAR) {
+                contenido.writeUTF(clave);
+            }
+            if (tipo == GUARDAR) {
+                contenido.writeLong(vence);
+                contenido.writeInt(valorJson.length);
+                contenido.write(valorJson);
+            }
+            contenido.flush();
+
+            byte[] marco = bytes.toByteArray();
+            int longitud = marco.length - 8;
+            CRC32 crc = new CRC32();
+            crc.update(marco, 8, longitud);
+            escribirEntero(marco, 0, longitud);
+            escribirEntero(marco, 4, (int) crc.getValue());
+            return marco;
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo armar el mensaje de replicación", e); // En memoria: no ocurre
+        }
+    }
+
+    /**
+     * Serializa un valor para un mensaje GUARDAR
+     */
+    static byte[] aJson(Gson gson, Object valor) {
+        return gson.toJson(valor).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lee y valida el siguiente mensaje
+     *
+     * @return Mensaje leído
+     * @throws IOException si la conexión se corta o el mensaje está dañado
+     */
+    static Mensaje leer(DataInputStream entrada, Gson gson) throws IOException {
+        int longitud = entrada.readInt();
+        if (longitud <= 0 || longitud > LONGITUD_MAXIMA) {
+            throw new IOException("Longitud de mensaje inválida: " + longitud);
+        }
+        int crcEsperado = entrada.readInt();
+        byte[] contenido = new byte[longitud];
+        entrada.readFully(contenido);
+
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+        if ((int) crc.getValue() != crcEsperado) {
+            throw new IOException("Mensaje de replicación dañado (CRC distinto)");
+        }
+
+        DataInputStream datos = new DataInputStream(new ByteArrayInputStream(contenido));
+        byte tipo = datos.readByte();
+        long secuencia = datos.readLong();
+        long marcaTiempo = datos.readLong();
+        String clave = null;
+        long vence = 0;
+        Object valor = null;
+        if (tipo == GUARDAR || tipo == ELIMINAR) {
+            clave = datos.readUTF();
+        }
+        if (tipo == GUARDAR) {
+            vence = datos.readLong();
+            byte[] json = new byte[datos.readInt()];
+            datos.readFully(json);
+            valor = gson.fromJson(new String(json, StandardCharsets.UTF_8), Object.class);
+        }
+        return new Mensaje(tipo, secuencia, marcaTiempo, clave, vence, valor, longitud + 8);
+    }
+
+    private static void escribirEntero(byte[] destino, int posicion, int valor) {
+        destino[posicion] = (byte) (valor >>> 24);
+        destino[posicion + 1] = (byte) (valor >>> 16);
+        destino[posicion + 2] = (byte) (valor >>> 8);
+        destino[posicion + 3] = (byte) valor;
+    }
+}
@@ -0,0 +1,170 @@
+package com.educativo.bot.servicios;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * CONCEPTO: CONCURRENCIA SIN BLOQUEOS
+ *
+ * Registro de contadores en memoria (usos de comandos y subcomandos).
+ * Cada contador es un {@link LongAdder}: muchos hilos de JDA pueden sumar a la vez
+ * sin esperarse entre sí y sin perder ningún incremento.
+ *
+ * Los contadores no tocan el disco al contar. Un hilo de fondo hace un "checkpoint"
+ * cada cierto intervalo y suma al {@link GestorDatos} lo contado desde el anterior;
+ * al cerrar se hace un último checkpoint para no perder nada.
+ * Con el bot saturado el checkpoint periódico puede postergarse: lo contado
+ * queda en memoria hasta que se reanude.
+ */
+public class RegistroContadores {
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final GestorDatos gestorDatos;                 // Donde se persisten los totales
+    private final Map<String, Contador> contadores;        // Clave de datos → contador en memoria
+    private final ScheduledExecutorService checkpoint;     // Hilo del checkpoint periódico (null = solo al cerrar)
+    private volatile boolean postergado;                   // Si el checkpoint periódico está en pausa
+
+    /**
+     * Contador de una clave: lo sumado en memoria y cuánto de eso ya se guardó
+     */
+    private static class Contador {
+        private final LongAdder total = new LongAdder();
+        private long persistido;                           // Solo se usa dentro de persistir()
+    }
+
+    /**
+     * Constructor del registro
+     *
+     * @param gestorDatos Gestor donde se guardan los contadores
+     * @param intervaloCheckpointMs Cada cuánto se guardan (0 = solo al cerrar)
+     */
+    public RegistroContadores(GestorDatos gestorDatos, long intervaloCheckpointMs) {
+        if (intervaloCheckpointMs < 0) {
+            throw new IllegalArgumentException("El intervalo de checkpoint no puede ser negativo");
+        }
+        this.gestorDatos = gestorDatos;
+        this.contadores = new ConcurrentHashMap<>();
+
+        if (intervaloCheckpointMs > 0) {
+            this.checkpoint = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "registro-contadores");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            checkpoint.scheduleWithFixedDelay(this::persistirPeriodico,
+                    intervaloCheckpointMs, intervaloCheckpointMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.checkpoint = null;
+        }
+    }
+
+    /**
+     * Suma uno al contador de la clave (no hace E/S)
+     *
+     * @param clave Clave con la que se guarda el contador (ej: "stats_comando_tarea")
+     */
+    public void incrementar(String clave) {
+        contadores.computeIfAbsent(clave, c -> new Contador()).total.increment();
+    }
+
+    /**
+     * Obtiene lo contado en memoria que todavía no se guardó
+     *
+     * @param clave Clave del contador
+     * @return Incrementos pendientes de checkpoint
+     */
+    public long getPendiente(String clave) {
+        Contador contador = contadores.get(clave);
+        if (contador == null) {
+            return 0;
+        }
+        synchronized (this) {
+            return contador.total.sum() - contador.persistido;
+        }
+    }
+
+    /**
+     * Checkpoint: suma a cada clave guardada lo contado desde el anterior
+     * Los incrementos que llegan mientras tanto quedan para el siguiente.
+     *
+     * @return Cantidad de claves actualizadas
+     */
+    public synchronized int persistir() {
+        int actualizadas = 0;
+        for (Map.Entry<String, Contador> entrada : contadores.entrySet()) {
+            Contador contador = entrada.getValue();
+            long delta = contador.total.sum() - contador.persistido;
+            if (delta == 0) {
+                continue;
+            }
+            gestorDatos.actualizar(entrada.getKey(), Codecs.CONTADOR, usos -> usos == null ? delta : usos + delta);
+            contador.persistido += delta;   // Solo si se guardó: si falla se reintenta en el próximo
+            actualizadas++;
+        }
+        return actualizadas;
+    }
+
+    /**
+     * Pone en pausa o reanuda el checkpoint periódico
+     * Se sigue contando en memoria; cerrar() guarda lo pendiente aunque esté en pausa.
+     *
+     * @param postergado true para no escribir hasta nuevo aviso
+     */
+    public void setPostergado(boolean postergado) {
+        this.postergado = postergado;
+    }
+
+    public boolean isPostergado() {
+        return postergado;
+    }
+
+    /**
+     * Detiene el checkpoint periódico y guarda lo pendiente
+     */
+    public void cerrar() {
+        if (checkpoint != null) {
+            checkpoint.shutdown();
+            try {
+                checkpoint.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        persistirSinErrores();
+    }
+
+    // MÉTODOS PRIVADOS
+
+    private void persistirPeriodico() {
+        if (!postergado) {
+            persistirSinErrores();
+        }
+    }
+
+    /**
+     * Checkpoint del hilo de fondo: un error no debe cancelar los siguientes
+     */
+    private void persistirSinErrores() {
+        try {
+            persistir();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Error guardando contadores: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene información de estado del registro
+     * @return String con información de estado
+     */
+    @Override
+    public String toString() {
+        return String.format("RegistroContadores{contadores=%d, checkpoint=%s}",
+                contadores.size(), checkpoint == null ? "al cerrar" : postergado ? "postergado" : "periódico");
+    }
+}
@@ -0,0 +1,123 @@
+package com.educativo.bot.servicios;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * CONCEPTO: SEPARACIÓN DE RESPONSABILIDADES
+ *
+ * Arma reportes de actividad a partir de las estadísticas que guarda el bot
+ * ("stats_comando_<nombre>" y "ultima_actividad_<usuario>"). Con el almacenamiento
+ * fragmentado se guardan por servidor; con el resto son globales.
+ * Recorre solo la familia de claves que necesita con {@link GestorDatos#escanearPrefijo(String)},
+ * sin copiar ni revisar el resto de los datos.
+ */
+public class ReporteActividad {
+
+    private static final String PREFIJO_USO = "stats_comando_";
+    private static final String PREFIJO_ACTIVIDAD = "ultima_actividad_";
+
+    private final GestorDatos gestorDatos;
+    private final boolean porServidor;              // Estadísticas bajo "servidor/<id>/"
+
+    /**
+     * Constructor del reporte con estadísticas globales
+     *
+     * @param gestorDatos Gestor con las estadísticas
+     */
+    public ReporteActividad(GestorDatos gestorDatos) {
+        this(gestorDatos, false);
+    }
+
+    /**
+     * Constructor del reporte
+     *
+     * @param gestorDatos Gestor con las estadísticas
+     * @param porServidor true si las estadísticas se guardan por servidor (modo fragmentado)
+     */
+    public ReporteActividad(GestorDatos gestorDatos, boolean porServidor) {
+        this.gestorDatos = gestorDatos;
+        this.porServidor = porServidor;
+    }
+
+    /**
+     * Obtiene cuántas veces se usó cada comando, de mayor a menor
+     *
+     * @param servidorId Servidor consultado (null = mensajes directos; se ignora si
+     *                   las estadísticas son globales)
+     * @return Nombre del comando → cantidad de usos
+     */
+    public Map<String, Long> usoPorComando(String servidorId) {
+        String prefijo = clave(servidorId, PREFIJO_USO);
+        List<Map.Entry<String, Long>> usos = new ArrayList<>();
+
+        Iterator<Map.Entry<String, Object>> cursor = gestorDatos.escanearPrefijo(prefijo);
+        while (cursor.hasNext()) {
+            Map.Entry<String, Object> entrada = cursor.next();
+            usos.add(Map.entry(entrada.getKey().substring(prefijo.length()),
+                    Codecs.CONTADOR.decodificar(entrada.getValue())));
+        }
+
+        usos.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> ordenado = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> uso : usos) {
+            ordenado.put(uso.getKey(), uso.getValue());
+        }
+        return ordenado;
+    }
+
+    /**
+     * Cuenta los usuarios que usaron el bot desde un momento dado
+     *
+     * @param servidorId Servidor consultado (null = mensajes directos; se ignora si
+     *                   las estadísticas son globales)
+     * @param desde Momento desde el que se cuenta la actividad
+     * @return Cantidad de usuarios activos
+     */
+    public int usuariosActivosDesde(String servidorId, Instant desde) {
+        int activos = 0;
+        Iterator<Map.Entry<String, Object>> cursor = gestorDatos.escanearPrefijo(clave(servidorId, PREFIJO_ACTIVIDAD));
+        while (cursor.hasNext()) {
+            if (!Codecs.MARCA_TIEMPO.decodificar(cursor.next().getValue()).isBefore(desde)) {
+                activos++;
+            }
+        }
+        return activos;
+    }
+
+    /**
+     * Genera el reporte completo listo para enviar a Discord
+     *
+     * @param servidorId Servidor consultado (null = mensajes directos)
+     * @param periodo Ventana para contar usuarios activos
+     * @return Texto del reporte
+     */
+    public String generarReporte(String servidorId, Duration periodo) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(porServidor ? "📈 **USO DEL BOT**\n\n" : "📈 **USO DEL BOT** (todos los servidores)\n\n");
+
+        Map<String, Long> usos = usoPorComando(servidorId);
+        sb.append("⚡ **Usos por comando:**\n");
+        if (usos.isEmpty()) {
+            sb.append("• Todavía no hay comandos registrados\n");
+        }
+        for (Map.Entry<String, Long> uso : usos.entrySet()) {
+            sb.append("• `!").append(uso.getKey()).append("`: ").append(uso.getValue()).append("\n");
+        }
+
+        sb.append("\n👥 **Usuarios activos en las últimas ").append(periodo.toHours()).append(" horas:** ")
+          .append(usuariosActivosDesde(servidorId, Instant.now().minus(periodo)));
+        return sb.toString();
+    }
+
+    private String clave(String servidorId, String prefijo) {
+        return porServidor ? GestorDatos.claveServidor(servidorId, prefijo) : prefijo;
+    }
+}
@@ -0,0 +1,831 @@
+package com.educativo.bot.servicios;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.educativo.bot.interfaces.Codec;
+import com.educativo.bot.interfaces.GestorDatos;
+import com.educativo.bot.modelos.Materia;
+import com.educativo.bot.modelos.Tarea;
+import com.educativo.bot.modelos.Usuario;
+
+/**
+ * CONCEPTO: REPOSITORIO (separación entre modelo y persistencia)
+ *
+ * Única fuente de materias, tareas y usuarios para todos los comandos.
+ * Los datos se trabajan en memoria y se guardan en un {@link GestorDatos}:
+ *
+ * - Cada objeto se guarda en su propia clave ("academico/tarea/<id>", etc.)
+ * - Solo se escriben los objetos modificados: los comandos avisan con
+ *   {@link #tareaModificada(Tarea)}, {@link #materiaModificada(Materia)} o
+ *   {@link #usuarioModificado(Usuario)} después de cambiar un objeto
+ * - Los cambios se juntan y se escriben en lote cada cierto intervalo (y al cerrar)
+ * - Al iniciar se leen todos los objetos de una vez a partir de un índice de IDs
+ *
+ * CONCEPTO: NIVELES CALIENTE Y FRÍO
+ * Las tareas completadas hace más de cierta cantidad de días y las materias
+ * archivadas pasan periódicamente a un {@link SegmentoFrio} comprimido. Las listas
+ * de siempre ({@link #getTareas()}, {@link #getMaterias()}, etc.) tienen solo lo
+ * caliente; lo frío se cuenta sin descomprimir ({@link #getCantidadTareasFrias()})
+ * y se consulta a demanda ({@link #getTareasFriasPorUsuario(String)}, ...).
+ * Un objeto frío que se modifica (por ejemplo, al desarchivar una materia) vuelve
+ * a las listas calientes.
+ *
+ * CONCEPTO: CONSULTAS INDEXADAS
+ * Con almacenamiento "jdbc", las tareas vencidas de un usuario, el ranking y la
+ * búsqueda de materias por código se resuelven con los índices de la base de datos
+ * en lugar de recorrer las listas en memoria. Solo se usan si no hay cambios de ese
+ * tipo sin escribir; si no (o si la consulta falla) se responde desde memoria.
+ * Los objetos devueltos son siempre los de memoria, así modificarlos sigue igual.
+ *
+ * Los comandos cambian los objetos con los {@link CerrojosComandos} tomados, no con
+ * el monitor del repositorio. Por eso el guardado y el enfriado leen los objetos con
+ * los cerrojos de una consulta de todos los usuarios (ver {@link #setCerrojos}):
+ * así no guardan un objeto a mitad de un cambio.
+ *
+ * Sin gestor de datos (null) funciona solo en memoria.
+ */
+public class RepositorioAcademico {
+
+    // Visibles en el paquete: GestorDatosJdbc guarda cada tipo en su propia tabla
+    // y la réplica solo avisa que hay que recargar cuando cambia algo de aquí
+    static final String PREFIJO = "academico/";
+    static final String PREFIJO_MATERIA = PREFIJO + "materia/";
+    static final String PREFIJO_TAREA = PREFIJO + "tarea/";
+    static final String PREFIJO_USUARIO = PREFIJO + "usuario/";
+    private static final String INDICE_MATERIAS = PREFIJO + "indice/materias";
+    private static final String INDICE_TAREAS = PREFIJO + "indice/tareas";
+    private static final String INDICE_USUARIOS = PREFIJO + "indice/usuarios";
+    private static final String PREFIJO_FRIO = PREFIJO + "frio/";
+    private static final long RETARDO_ENFRIADO_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long PERIODO_ENFRIADO_MS = TimeUnit.HOURS.toMillis(1);
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final GestorDatos gestorDatos;               // Donde se guardan los datos (null = solo memoria)
+    private final Map<String, Materia> materias;         // Por ID, en orden de creación
+    private final Map<String, Tarea> tareas;             // Por ID, en orden de creación
+    private final Map<String, Usuario> usuarios;         // Por ID de Discord, en orden de registro
+    private final Set<String> clavesModificadas;         // Claves a escribir en el próximo guardado
+    private final Set<String> clavesEliminadas;          // Claves a borrar en el próximo guardado
+    private final SegmentoFrio<Materia> materiasFrias;   // Materias archivadas, comprimidas
+    private final SegmentoFrio<Tarea> tareasFrias;       // Tareas completadas hace tiempo, comprimidas
+    private final int diasFrio;                          // Días desde que se completó una tarea para enfriarla (0 = nunca)
+    private volatile boolean enfriadoActivo;             // Si el paso periódico a frío puede escribir
+    private int lotesEnCurso;                            // Guardados tomados pero todavía no escritos
+    private volatile CerrojosComandos cerrojos;          // Los de los comandos (null = sin comandos en paralelo)
+    private final ScheduledExecutorService guardado;     // Guardado y enfriado periódicos (null = solo al cerrar)
+
+    /**
+     * Constructor de un repositorio solo en memoria
+     */
+    public RepositorioAcademico() {
+        this(null, 0);
+    }
+
+    /**
+     * Constructor que carga los datos guardados
+     *
+     * @param gestorDatos Gestor donde se guardan los datos (null = solo memoria)
+     * @param intervaloGuardadoMs Cada cuánto se escriben los cambios (0 = solo al cerrar)
+     */
+    public RepositorioAcademico(GestorDatos gestorDatos, long intervaloGuardadoMs) {
+        this(gestorDatos, intervaloGuardadoMs, 0);
+    }
+
+    /**
+     * Constructor que carga los datos guardados y enfría periódicamente lo que ya no se usa
+     *
+     * @param gestorDatos Gestor donde se guardan los datos (null = solo memoria)
+     * @param intervaloGuardadoMs Cada cuánto se escriben los cambios (0 = solo al cerrar)
+     * @param diasFrio Días desde que se completó una tarea para pasarla a frío; las
+     *                 materias archivadas pasan en el siguiente enfriado (0 = no enfriar)
+     */
+    public RepositorioAcademico(GestorDatos gestorDatos, long intervaloGuardadoMs, int diasFrio) {
+        if (intervaloGuardadoMs < 0) {
+            throw new IllegalArgumentException("El intervalo de guardado no puede ser negativo");
+        }
+        if (diasFrio < 0) {
+            throw new IllegalArgumentException("Los días para enfriar no pueden ser negativos");
+        }
+        this.gestorDatos = gestorDatos;
+        this.materias = new LinkedHashMap<>();
+        this.tareas = new LinkedHashMap<>();
+        this.usuarios = new LinkedHashMap<>();
+        this.clavesModificadas = new HashSet<>();
+        this.clavesEliminadas = new HashSet<>();
+        this.materiasFrias = new SegmentoFrio<>(PREFIJO_FRIO + "materias/", Codecs.MATERIA,
+                Materia::getId, Materia::getCreadorId, Materia::getCodigo);
+        this.tareasFrias = new SegmentoFrio<>(PREFIJO_FRIO + "tareas/", Codecs.TAREA,
+                Tarea::getId, Tarea::getCreadorId, Tarea::getMateria);
+        this.diasFrio = diasFrio;
+        this.enfriadoActivo = diasFrio > 0;
+
+        if (gestorDatos != null) {
+            cargar();
+        }
+
+        if (gestorDatos != null && (intervaloGuardadoMs > 0 || diasFrio > 0)) {
+            this.guardado = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "repositorio-academico");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            if (intervaloGuardadoMs > 0) {
+                guardado.scheduleWithFixedDelay(this::guardarCambiosSinErrores,
+                        intervaloGuardadoMs, intervaloGuardadoMs, TimeUnit.MILLISECONDS);
+            }
+            if (diasFrio > 0) {
+                // El primer enfriado no demora el arranque; después, una vez por hora alcanza
+                guardado.scheduleWithFixedDelay(this::enfriarSinErrores,
+                        RETARDO_ENFRIADO_MS, PERIODO_ENFRIADO_MS, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            this.guardado = null;
+        }
+    }
+
+    // ========================
+    // MATERIAS
+    // ========================
+
+    /**
+     * Materias calientes: las activas y las archivadas que todavía no pasaron a frío
+     */
+    public synchronized List<Materia> getMaterias() {
+        return new ArrayList<>(materias.values());
+    }
+
+    /**
+     * Materias archivadas que ya pasaron a frío (se descomprimen en cada llamada)
+     */
+    public synchronized List<Materia> getMateriasFrias() {
+        return materiasFrias.buscar(gestorDatos, materia -> true);
+    }
+
+    /**
+     * Cantidad de materias en frío, sin descomprimirlas
+     */
+    public synchronized int getCantidadMateriasFrias() {
+        return materiasFrias.getCantidad();
+    }
+
+    public synchronized int getCantidadMateriasFriasPorUsuario(String usuarioId) {
+        return materiasFrias.getCantidadPorCreador(usuarioId);
+    }
+
+    /**
+     * Busca una materia por su código (sin distinguir mayúsculas), también entre las frías
+     * Una materia fría vuelve a las calientes recién si se avisa que se modificó.
+     * @return La materia o null si no existe
+     */
+    public synchronized Materia buscarMateria(String codigo) {
+        GestorDatosJdbc jdbc = consultasIndexadas(PREFIJO_MATERIA);
+        if (jdbc != null) {
+            try {
+                Materia encontrada = jdbc.buscarMateriaPorCodigo(codigo);
+                if (encontrada != null && materias.containsKey(encontrada.getId())) {
+                    return materias.get(encontrada.getId());
+                }
+            } catch (IllegalStateException e) {
+                System.err.println("⚠️ " + e.getMessage() + ", se busca en memoria");
+            }
+        }
+        for (Materia materia : materias.values()) {
+            if (materia.getCodigo().equalsIgnoreCase(codigo)) {
+                return materia;
+            }
+        }
+        if (materiasFrias.getCantidadPorMateria(codigo) == 0) {
+            return null;
+        }
+        List<Materia> frias = materiasFrias.buscarPorMateria(gestorDatos, codigo, materia -> true);
+        return frias.isEmpty() ? null : frias.get(0);
+    }
+
+    public synchronized void agregarMateria(Materia materia) {
+        materias.put(materia.getId(), materia);
+        marcar(PREFIJO_MATERIA + materia.getId());
+        clavesModificadas.add(INDICE_MATERIAS);
+    }
+
+    public synchronized boolean eliminarMateria(Materia materia) {
+        if (materias.remove(materia.getId()) == null) {
+            return quitarDeFrio(materiasFrias, materia);
+        }
+        desmarcar(PREFIJO_MATERIA + materia.getId());
+        clavesModificadas.add(INDICE_MATERIAS);
+        return true;
+    }
+
+    /**
+     * Avisa que la materia cambió; si estaba en frío, vuelve a las calientes
+     */
+    public synchronized void materiaModificada(Materia materia) {
+        if (materias.containsKey(materia.getId())) {
+            marcar(PREFIJO_MATERIA + materia.getId());
+        } else if (quitarDeFrio(materiasFrias, materia)) {
+            agregarMateria(materia);
+        }
+    }
+
+    // ========================
+    // TAREAS
+    // ========================
+
+    /**
+     * Tareas calientes: las pendientes y las completadas hace poco
+     */
+    public synchronized List<Tarea> getTareas() {
+        return new ArrayList<>(tareas.values());
+    }
+
+    /**
+     * Tareas creadas por un usuario, en orden de creación
+     */
+    public synchronized List<Tarea> getTareasPorUsuario(String usuarioId) {
+        return tareas.values().stream()
+            .filter(t -> t.getCreadorId().equals(usuarioId))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Tareas asociadas a una materia, en orden de creación
+     */
+    public synchronized List<Tarea> getTareasPorMateria(String codigoMateria) {
+        return tareas.values().stream()
+            .filter(t -> t.getMateria().equalsIgnoreCase(codigoMateria))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Tareas sin completar de un usuario cuya fecha de vencimiento ya pasó,
+     * de la más atrasada a la más reciente
+     */
+    public synchronized List<Tarea> getTareasVencidasPorUsuario(String usuarioId) {
+        GestorDatosJdbc jdbc = consultasIndexadas(PREFIJO_TAREA);
+        if (jdbc != null) {
+            try {
+                return enMemoria(jdbc.buscarTareasVencidas(usuarioId), Tarea::getId, tareas);
+            } catch (IllegalStateException e) {
+                System.err.println("⚠️ " + e.getMessage() + ", se buscan en memoria");
+            }
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        return tareas.values().stream()
+            .filter(t -> t.getCreadorId().equals(usuarioId) && !t.isCompletada()
+                    && t.getFechaVencimiento() != null && t.getFechaVencimiento().isBefore(ahora))
+            .sorted((t1, t2) -> t1.getFechaVencimiento().compareTo(t2.getFechaVencimiento()))
+            .collect(Collectors.toList());
+    }
+
+    public synchronized void agregarTarea(Tarea tarea) {
+        tareas.put(tarea.getId(), tarea);
+        marcar(PREFIJO_TAREA + tarea.getId());
+        clavesModificadas.add(INDICE_TAREAS);
+    }
+
+    public synchronized boolean eliminarTarea(Tarea tarea) {
+        if (tareas.remove(tarea.getId()) == null) {
+            return quitarDeFrio(tareasFrias, tarea);
+        }
+        desmarcar(PREFIJO_TAREA + tarea.getId());
+        clavesModificadas.add(INDICE_TAREAS);
+        return true;
+    }
+
+    /**
+     * Avisa que la tarea cambió; si estaba en frío, vuelve a las calientes
+     */
+    public synchronized void tareaModificada(Tarea tarea) {
+        if (tareas.containsKey(tarea.getId())) {
+            marcar(PREFIJO_TAREA + tarea.getId());
+        } else if (quitarDeFrio(tareasFrias, tarea)) {
+            agregarTarea(tarea);
+        }
+    }
+
+    /**
+     * Cantidad de tareas en frío (todas completadas), sin descomprimirlas
+     */
+    public synchronized int getCantidadTareasFrias() {
+        return tareasFrias.getCantidad();
+    }
+
+    public synchronized int getCantidadTareasFriasPorUsuario(String usuarioId) {
+        return tareasFrias.getCantidadPorCreador(usuarioId);
+    }
+
+    public synchronized int getCantidadTareasFriasPorMateria(String codigoMateria) {
+        return tareasFrias.getCantidadPorMateria(codigoMateria);
+    }
+
+    /**
+     * Tareas frías de un usuario, en el orden en que se enfriaron
+     * Solo se descomprimen los bloques que tienen tareas suyas.
+     */
+    public synchronized List<Tarea> getTareasFriasPorUsuario(String usuarioId) {
+        return tareasFrias.buscarPorCreador(gestorDatos, usuarioId, tarea -> true);
+    }
+
+    /**
+     * Tareas frías de una materia, en el orden en que se enfriaron
+     * Solo se descomprimen los bloques que tienen tareas de esa materia.
+     */
+    public synchronized List<Tarea> getTareasFriasPorMateria(String codigoMateria) {
+        return tareasFrias.buscarPorMateria(gestorDatos, codigoMateria, tarea -> true);
+    }
+
+    // ========================
+    // USUARIOS
+    // ========================
+
+    public synchronized List<Usuario> getUsuarios() {
+        return new ArrayList<>(usuarios.values());
+    }
+
+    /**
+     * Usuarios con más puntos, de mayor a menor
+     *
+     * @param cantidad Cantidad máxima de usuarios
+     */
+    public synchronized List<Usuario> getMejoresUsuarios(int cantidad) {
+        GestorDatosJdbc jdbc = consultasIndexadas(PREFIJO_USUARIO);
+        if (jdbc != null) {
+            try {
+                return enMemoria(jdbc.buscarMejoresUsuarios(cantidad), Usuario::getId, usuarios);
+            } catch (IllegalStateException e) {
+                System.err.println("⚠️ " + e.getMessage() + ", se calcula en memoria");
+            }
+        }
+        return usuarios.values().stream()
+            .sorted((u1, u2) -> Integer.compare(u2.getPuntos(), u1.getPuntos()))
+            .limit(cantidad)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Busca un usuario por ID
+     * @return El usuario o null si no está registrado
+     */
+    public synchronized Usuario buscarUsuario(String usuarioId) {
+        return usuarios.get(usuarioId);
+    }
+
+    /**
+     * Obtiene el usuario o lo registra si es la primera vez que se lo ve
+     */
+    public synchronized Usuario obtenerOCrearUsuario(String usuarioId) {
+        Usuario usuario = usuarios.get(usuarioId);
+        if (usuario == null) {
+            usuario = new Usuario(usuarioId, "Usuario" + usuarios.size());
+            usuarios.put(usuarioId, usuario);
+            marcar(PREFIJO_USUARIO + usuarioId);
+            clavesModificadas.add(INDICE_USUARIOS);
+        }
+        return usuario;
+    }
+
+    public synchronized void usuarioModificado(Usuario usuario) {
+        if (usuarios.containsKey(usuario.getId())) {
+            marcar(PREFIJO_USUARIO + usuario.getId());
+        }
+    }
+
+    // ========================
+    // PERSISTENCIA
+    // ========================
+
+    /**
+     * Escribe en un solo lote los objetos modificados desde el último guardado
+     * Los objetos se codifican sin cambios de comandos en curso (ver {@link #setCerrojos}).
+     *
+     * @return Cantidad de claves escritas o borradas
+     */
+    public int guardarCambios() {
+        if (gestorDatos == null) {
+            return 0; // Los bloques fríos quedan comprimidos en memoria
+        }
+
+        // Tomar los cambios pendientes y codificarlos con el repositorio bloqueado.
+        // Los cerrojos de los comandos van antes que el monitor, en el mismo orden que
+        // los toma un comando
+        Map<String, Object> lote = new LinkedHashMap<>();
+        List<String> eliminadas;
+        CerrojosComandos actuales = cerrojos;
+        List<Lock> lectura = actuales != null ? actuales.tomarLecturaDeTodos() : Collections.emptyList();
+        try {
+            synchronized (this) {
+                for (String clave : clavesModificadas) {
+                    lote.put(clave, codificar(clave));
+                }
+                eliminadas = new ArrayList<>(clavesEliminadas);
+                clavesModificadas.clear();
+                clavesEliminadas.clear();
+                if (lote.isEmpty() && eliminadas.isEmpty()) {
+                    return 0;
+                }
+                lotesEnCurso++; // Hasta que se escriba, la base de datos no está al día
+            }
+        } finally {
+            if (actuales != null) {
+                actuales.soltar(lectura);
+            }
+        }
+        try {
+            return escribirLote(lote, eliminadas);
+        } finally {
+            synchronized (this) {
+                lotesEnCurso--;
+            }
+        }
+    }
+
+    /**
+     * Escribe fuera del bloqueo un lote ya tomado: los comandos no esperan al disco
+     */
+    private int escribirLote(Map<String, Object> lote, List<String> eliminadas) {
+        boolean guardado;
+        try {
+            guardado = lote.isEmpty() || gestorDatos.guardarTodos(lote);
+        } catch (RuntimeException e) {
+            guardado = false;
+        }
+        if (!guardado) {
+            synchronized (this) {
+                // Reintentar en el próximo guardado (si no cambió mientras tanto)
+                for (String clave : lote.keySet()) {
+                    if (!clavesEliminadas.contains(clave)) {
+                        clavesModificadas.add(clave);
+                    }
+                }
+                // Los borrados esperan al lote: una tarea caliente no se borra
+                // mientras su bloque frío y el índice no estén escritos
+                reencolarEliminadas(eliminadas);
+            }
+            System.err.println("❌ Error guardando " + lote.size() + " datos académicos, se reintentará");
+            return 0;
+        }
+
+        synchronized (this) {
+            // Los bloques fríos escritos ya no hace falta tenerlos en memoria
+            for (Map.Entry<String, Object> escrito : lote.entrySet()) {
+                SegmentoFrio<?> segmento = segmentoDe(escrito.getKey());
+                if (segmento != null) {
+                    segmento.confirmar(escrito.getKey(), escrito.getValue());
+                }
+            }
+        }
+        // Los gestores avisan un borrado fallido devolviendo false; una clave que ya no
+        // está cuenta como borrada, así el reintento no se repite para siempre
+        List<String> pendientes = new ArrayList<>();
+        for (String clave : eliminadas) {
+            try {
+                if (!gestorDatos.eliminar(clave) && gestorDatos.existe(clave)) {
+                    pendientes.add(clave);
+                }
+            } catch (RuntimeException e) {
+                pendientes.add(clave);
+            }
+        }
+        if (!pendientes.isEmpty()) {
+            synchronized (this) {
+                reencolarEliminadas(pendientes);
+            }
+            System.err.println("❌ Error borrando " + pendientes.size() + " datos académicos, se reintentará");
+        }
+        return lote.size() + eliminadas.size() - pendientes.size();
+    }
+
+    /**
+     * Vuelve a marcar para borrar las claves que no se pudieron borrar, salvo
+     * las que se volvieron a escribir mientras tanto
+     */
+    private void reencolarEliminadas(List<String> claves) {
+        for (String clave : claves) {
+            if (!clavesModificadas.contains(clave)) {
+                clavesEliminadas.add(clave);
+            }
+        }
+    }
+
+    /**
+     * Pasa a frío las tareas completadas hace más de los días configurados y las
+     * materias archivadas. Se escriben en el próximo guardado, en el mismo lote
+     * que los índices calientes que dejan de nombrarlas.
+     * Como el guardado, comprime los objetos sin cambios de comandos en curso.
+     *
+     * @return Cantidad de objetos que pasaron a frío
+     */
+    public int enfriar() {
+        CerrojosComandos actuales = cerrojos;
+        List<Lock> lectura = actuales != null ? actuales.tomarLecturaDeTodos() : Collections.emptyList();
+        try {
+            return enfriarBloqueado();
+        } finally {
+            if (actuales != null) {
+                actuales.soltar(lectura);
+            }
+        }
+    }
+
+    private synchronized int enfriarBloqueado() {
+        if (diasFrio == 0) {
+            return 0;
+        }
+        LocalDateTime limite = LocalDateTime.now().minusDays(diasFrio);
+        List<Tarea> tareasViejas = tareas.values().stream()
+            .filter(t -> t.isCompletada() && completadaAntesDe(t, limite))
+            .collect(Collectors.toList());
+        List<Materia> archivadas = materias.values().stream()
+            .filter(m -> !m.isActiva())
+            .collect(Collectors.toList());
+        if (tareasViejas.isEmpty() && archivadas.isEmpty()) {
+            return 0;
+        }
+
+        long inicio = System.currentTimeMillis();
+        for (Tarea tarea : tareasViejas) {
+            tareas.remove(tarea.getId());
+            desmarcar(PREFIJO_TAREA + tarea.getId());
+        }
+        for (Materia materia : archivadas) {
+            materias.remove(materia.getId());
+            desmarcar(PREFIJO_MATERIA + materia.getId());
+        }
+        if (!tareasViejas.isEmpty()) {
+            clavesModificadas.add(INDICE_TAREAS);
+        }
+        if (!archivadas.isEmpty()) {
+            clavesModificadas.add(INDICE_MATERIAS);
+        }
+        tareasFrias.agregar(gestorDatos, tareasViejas).forEach(this::marcar);
+        materiasFrias.agregar(gestorDatos, archivadas).forEach(this::marcar);
+
+        System.out.println("🧊 Pasaron a frío " + tareasViejas.size() + " tareas y " + archivadas.size()
+                + " materias en " + (System.currentTimeMillis() - inicio) + " ms (quedan "
+                + tareas.size() + " tareas y " + materias.size() + " materias calientes)");
+        return tareasViejas.size() + archivadas.size();
+    }
+
+    /**
+     * Permite o suspende el enfriado periódico (por ejemplo, mientras otra instancia
+     * escribe los datos y esta solo los lee)
+     */
+    public void setEnfriadoActivo(boolean activo) {
+        this.enfriadoActivo = activo && diasFrio > 0;
+    }
+
+    /**
+     * Indica los cerrojos con que los comandos cambian los objetos, para que el
+     * guardado y el enfriado no lean un objeto a mitad de un cambio
+     *
+     * @param cerrojos Cerrojos de los comandos (null = los objetos se cambian con el repositorio bloqueado)
+     */
+    public void setCerrojos(CerrojosComandos cerrojos) {
+        this.cerrojos = cerrojos;
+    }
+
+    /**
+     * Descarta lo que hay en memoria y vuelve a leer todo del gestor de datos
+     * (por ejemplo, cuando una instancia en espera pasa a escribir y sus datos
+     * en memoria quedaron de antes). Los cambios sin guardar se pierden.
+     */
+    public synchronized void recargar() {
+        if (gestorDatos == null) {
+            return;
+        }
+        materias.clear();
+        tareas.clear();
+        usuarios.clear();
+        clavesModificadas.clear();
+        clavesEliminadas.clear();
+        cargar();
+    }
+
+    /**
+     * Detiene el guardado periódico y escribe los cambios pendientes
+     */
+    public void cerrar() {
+        if (guardado != null) {
+            guardado.shutdown();
+            try {
+                guardado.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        guardarCambiosSinErrores();
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    /**
+     * Base de datos para consultar por índice, si el almacenamiento es "jdbc"
+     * y no hay cambios del prefijo sin escribir
+     *
+     * @return Gestor JDBC, o null si hay que responder desde memoria
+     */
+    private GestorDatosJdbc consultasIndexadas(String prefijo) {
+        if (lotesEnCurso > 0 || tienePrefijo(clavesModificadas, prefijo) || tienePrefijo(clavesEliminadas, prefijo)) {
+            return null;
+        }
+        GestorDatos actual = gestorDatos;
+        while (actual != null && !(actual instanceof GestorDatosJdbc)) {
+            if (actual instanceof GestorDatosAsincrono) {
+                actual = ((GestorDatosAsincrono) actual).getDelegado();
+            } else if (actual instanceof GestorDatosExclusivo) {
+                actual = ((GestorDatosExclusivo) actual).getDelegado();
+            } else if (actual instanceof GestorDatosReplicado) {
+                actual = ((GestorDatosReplicado) actual).getDelegado();
+            } else if (actual instanceof GestorDatosCache) {
+                actual = ((GestorDatosCache) actual).getDelegado();
+            } else {
+                return null;
+            }
+        }
+        return (GestorDatosJdbc) actual;
+    }
+
+    private static boolean tienePrefijo(Set<String> claves, String prefijo) {
+        for (String clave : claves) {
+            if (clave.startsWith(prefijo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reemplaza los objetos leídos de la base de datos por los de memoria, en el mismo orden
+     */
+    private static <T> List<T> enMemoria(List<T> leidos, Function<T, String> id, Map<String, T> enMemoria) {
+        List<T> resultado = new ArrayList<>(leidos.size());
+        for (T leido : leidos) {
+            T objeto = enMemoria.get(id.apply(leido));
+            if (objeto != null) {
+                resultado.add(objeto);
+            }
+        }
+        return resultado;
+    }
+
+    private void marcar(String clave) {
+        clavesEliminadas.remove(clave);
+        clavesModificadas.add(clave);
+    }
+
+    private void desmarcar(String clave) {
+        clavesModificadas.remove(clave);
+        clavesEliminadas.add(clave);
+    }
+
+    /**
+     * Saca un objeto de su segmento frío y marca los bloques que cambiaron
+     * @return true si el objeto estaba en frío
+     */
+    private <T> boolean quitarDeFrio(SegmentoFrio<T> segmento, T objeto) {
+        List<String> modificadas = new ArrayList<>();
+        List<String> eliminadas = new ArrayList<>();
+        if (!segmento.quitar(gestorDatos, objeto, modificadas, eliminadas)) {
+            return false;
+        }
+        modificadas.forEach(this::marcar);
+        eliminadas.forEach(this::desmarcar);
+        return true;
+    }
+
+    /**
+     * @return Segmento frío al que pertenece la clave, o null si es una clave caliente
+     */
+    private SegmentoFrio<?> segmentoDe(String clave) {
+        if (tareasFrias.esClave(clave)) {
+            return tareasFrias;
+        }
+        return materiasFrias.esClave(clave) ? materiasFrias : null;
+    }
+
+    /**
+     * Sin fecha de completado (tareas completadas antes de que se registrara) se usa la de creación
+     */
+    private static boolean completadaAntesDe(Tarea tarea, LocalDateTime limite) {
+        LocalDateTime completada = tarea.getFechaCompletada() != null
+                ? tarea.getFechaCompletada() : tarea.getFechaCreacion();
+        return completada.isBefore(limite);
+    }
+
+    /**
+     * Forma almacenable del objeto o índice que corresponde a la clave
+     * Se llama con el repositorio bloqueado
+     */
+    private Object codificar(String clave) {
+        switch (clave) {
+            case INDICE_MATERIAS:
+                return new ArrayList<>(materias.keySet());
+            case INDICE_TAREAS:
+                return new ArrayList<>(tareas.keySet());
+            case INDICE_USUARIOS:
+                return new ArrayList<>(usuarios.keySet());
+            default:
+                break;
+        }
+        SegmentoFrio<?> segmento = segmentoDe(clave);
+        if (segmento != null) {
+            return segmento.codificar(clave);
+        }
+        if (clave.startsWith(PREFIJO_MATERIA)) {
+            return Codecs.MATERIA.codificar(materias.get(clave.substring(PREFIJO_MATERIA.length())));
+        }
+        if (clave.startsWith(PREFIJO_TAREA)) {
+            return Codecs.TAREA.codificar(tareas.get(clave.substring(PREFIJO_TAREA.length())));
+        }
+        return Codecs.USUARIO.codificar(usuarios.get(clave.substring(PREFIJO_USUARIO.length())));
+    }
+
+    /**
+     * Carga inicial: lee los índices y luego todos los objetos de cada tipo en una sola lectura
+     * Los índices guardan los IDs en orden de creación, así los números de tarea
+     * que ven los usuarios no cambian después de un reinicio.
+     */
+    private void cargar() {
+        long inicio = System.currentTimeMillis();
+        cargarTipo(INDICE_MATERIAS, PREFIJO_MATERIA, Codecs.MATERIA, materias, Materia::getId);
+        cargarTipo(INDICE_TAREAS, PREFIJO_TAREA, Codecs.TAREA, tareas, Tarea::getId);
+        cargarTipo(INDICE_USUARIOS, PREFIJO_USUARIO, Codecs.USUARIO, usuarios, Usuario::getId);
+        materiasFrias.cargar(gestorDatos);
+        tareasFrias.cargar(gestorDatos);
+
+        if (!materias.isEmpty() || !tareas.isEmpty() || !usuarios.isEmpty()) {
+            int frias = materiasFrias.getCantidad() + tareasFrias.getCantidad();
+            System.out.println("📚 Datos académicos cargados: " + materias.size() + " materias, "
+                    + tareas.size() + " tareas, " + usuarios.size() + " usuarios en "
+                    + (System.currentTimeMillis() - inicio) + " ms"
+                    + (frias > 0 ? " (" + frias + " más en frío, sin leer)" : ""));
+        }
+    }
+
+    private <T> void cargarTipo(String claveIndice, String prefijo, Codec<T> codec, Map<String, T> destino,
+                                Function<T, String> id) {
+        Object indice = gestorDatos.obtener(claveIndice);
+        if (!(indice instanceof Collection)) {
+            return;
+        }
+        List<String> claves = new ArrayList<>();
+        for (Object idGuardado : (Collection<?>) indice) {
+            claves.add(prefijo + idGuardado);
+        }
+
+        for (Map.Entry<String, Object> entrada : gestorDatos.obtenerTodos(claves).entrySet()) {
+            try {
+                T objeto = codec.decodificar(entrada.getValue());
+                destino.put(id.apply(objeto), objeto);
+            } catch (IllegalArgumentException e) {
+                System.err.println("⚠️ Dato académico ilegible en '" + entrada.getKey() + "': " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Guardado del hilo de fondo: un error no debe cancelar los siguientes
+     */
+    private void guardarCambiosSinErrores() {
+        try {
+            guardarCambios();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Error guardando datos académicos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Enfriado del hilo de fondo: un error no debe cancelar los siguientes
+     */
+    private void enfriarSinErrores() {
+        if (!enfriadoActivo) {
+            return;
+        }
+        try {
+            enfriar();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Error pasando datos académicos a frío: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RepositorioAcademico{materias=%d (+%d frías), tareas=%d (+%d frías), usuarios=%d, pendientes=%d}",
+                materias.size(), materiasFrias.getCantidad(), tareas.size(), tareasFrias.getCantidad(),
+                usuarios.size(), clavesModificadas.size() + clavesEliminadas.size());
+    }
+}
@@ -0,0 +1,311 @@
+package com.educativo.bot.servicios;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * CONCEPTO: TOLERANCIA A FALLOS
+ *
+ * Suma de verificación y generaciones anteriores de un archivo de datos.
+ *
+ * - Cada escritura calcula el CRC32 del contenido mientras se escribe y lo guarda
+ *   en "<archivo>.crc" antes del renombrado. Ese archivo lista la suma nueva y la
+ *   anterior, así un corte entre los dos renombrados no hace parecer dañado al archivo
+ * - Antes de reemplazar el archivo se conserva la versión actual como "<archivo>.1",
+ *   corriendo las anteriores (".1" pasa a ".2", etc.) hasta la cantidad configurada.
+ *   Como mucho se hace un respaldo por intervalo, para que un error que escribe datos
+ *   equivocados no alcance a pisar todas las generaciones en pocos segundos
+ * - La verificación recorre el archivo por bloques calculando el CRC, sin interpretar
+ *   su contenido: es barata incluso con archivos grandes
+ *
+ * Los archivos sin ".crc" (anteriores a esta versión, o editados a mano después de
+ * borrar su ".crc") se aceptan sin verificar; al leerlos se valida igual su estructura.
+ */
+public class RespaldosArchivo {
+
+    static final String EXTENSION_SUMA = ".crc";
+
+    private static final int TAMANIO_BUFER = 64 * 1024;
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final Path archivo;              // Archivo de datos principal
+    private final int cantidad;              // Generaciones anteriores que se conservan
+    private final long intervaloMs;          // Tiempo mínimo entre respaldos
+    private long ultimoRespaldoMs;           // Último respaldo (protegido por quien escribe)
+
+    /**
+     * Constructor de los respaldos de un archivo
+     *
+     * @param archivo Archivo de datos principal
+     * @param cantidad Generaciones anteriores a conservar (0 = ninguna, solo suma de verificación)
+     * @param intervaloMs Tiempo mínimo entre un respaldo y el siguiente (0 = en cada escritura)
+     */
+    public RespaldosArchivo(Path archivo, int cantidad, long intervaloMs) {
+        if (cantidad < 0 || intervaloMs < 0) {
+            throw new IllegalArgumentException("La cantidad y el intervalo de respaldos no pueden ser negativos");
+        }
+        this.archivo = archivo;
+        this.cantidad = cantidad;
+        this.intervaloMs = intervaloMs;
+        this.ultimoRespaldoMs = 0; // El primer reemplazo siempre respalda lo que se cargó al iniciar
+    }
+
+    /**
+     * Reemplaza el archivo de forma atómica guardando su suma de verificación
+     * Quien llama debe serializar las escrituras (un solo escritor por archivo).
+     *
+     * @param contenido Generador del contenido
+     * @param forzarDisco true para hacer fsync de los archivos escritos
+     * @throws IOException si falla la escritura; el archivo anterior queda intacto
+     */
+    public void escribir(EscritorAtomico.Contenido contenido, boolean forzarDisco) throws IOException {
+        long ahora = System.currentTimeMillis();
+        if (cantidad > 0 && Files.exists(archivo) && ahora - ultimoRespaldoMs >= intervaloMs) {
+            rotar();
+            ultimoRespaldoMs = ahora;
+        }
+
+        SalidaConSuma[] salidaConSuma = new SalidaConSuma[1];
+        EscritorAtomico.escribir(archivo, salida -> {
+            salidaConSuma[0] = new SalidaConSuma(salida);
+            contenido.escribir(salidaConSuma[0]);
+            salidaConSuma[0].flush();
+        }, forzarDisco, () -> escribirSuma(salidaConSuma[0].getSuma(), forzarDisco));
+    }
+
+    /**
+     * Archivos desde los que se puede cargar, del más nuevo al más viejo:
+     * el principal y luego los respaldos que existan
+     *
+     * @return Lista de archivos existentes
+     */
+    public List<File> candidatos() {
+        List<File> candidatos = new ArrayList<>();
+        if (Files.exists(archivo)) {
+            candidatos.add(archivo.toFile());
+        }
+        for (int generacion = 1; generacion <= cantidad; generacion++) {
+            Path respaldo = respaldo(generacion);
+            if (Files.exists(respaldo)) {
+                candidatos.add(respaldo.toFile());
+            }
+        }
+        return candidatos;
+    }
+
+    /**
+     * Comprueba el archivo contra su suma de verificación, leyéndolo por bloques
+     *
+     * @param candidato Archivo principal o respaldo
+     * @return true si coincide con alguna de sus sumas, o si no tiene ".crc"
+     * @throws IOException si el archivo no se puede leer
+     */
+    public static boolean verificar(File candidato) throws IOException {
+        Path rutaSuma = sumaDe(candidato.toPath());
+        if (!Files.exists(rutaSuma)) {
+            return true;
+        }
+
+        List<String> sumas = leerSumas(rutaSuma);
+        long tamanio = candidato.length();
+        boolean tamanioConocido = false;
+        for (String suma : sumas) {
+            tamanioConocido |= suma.endsWith(" " + tamanio);
+        }
+        if (!tamanioConocido) {
+            return false; // Ni hace falta leerlo: truncado o distinto
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] bufer = new byte[TAMANIO_BUFER];
+        try (InputStream entrada = new FileInputStream(candidato)) {
+            int leidos;
+            while ((leidos = entrada.read(bufer)) != -1) {
+                crc.update(bufer, 0, leidos);
+            }
+        }
+        return sumas.contains(formatearSuma(crc.getValue(), tamanio));
+    }
+
+    /**
+     * Aparta el archivo principal dañado (y su suma) para que ninguna escritura lo pise
+     *
+     * @return Archivo con el que quedó guardado, o null si no había archivo principal
+     * @throws IOException si no se pudo mover
+     */
+    public File apartarDanado() throws IOException {
+        if (!Files.exists(archivo)) {
+            return null;
+        }
+        String nombre = archivo.getFileName() + ".danado-" + LocalDateTime.now().format(FORMATO_FECHA);
+        Path apartado = archivo.resolveSibling(nombre);
+        for (int intento = 2; Files.exists(apartado); intento++) {
+            apartado = archivo.resolveSibling(nombre + "-" + intento); // Nunca pisar uno apartado antes
+        }
+        Files.move(archivo, apartado);
+        Path suma = sumaDe(archivo);
+        if (Files.exists(suma)) {
+            Files.move(suma, sumaDe(apartado), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return apartado.toFile();
+    }
+
+    /**
+     * Fuerza a disco la suma de verificación del archivo principal
+     * (complementa el fsync diferido del archivo de datos)
+     *
+     * @throws IOException si falla el fsync
+     */
+    public void forzarSuma() throws IOException {
+        Path suma = sumaDe(archivo);
+        if (Files.exists(suma)) {
+            try (FileChannel canal = FileChannel.open(suma, StandardOpenOption.WRITE)) {
+                canal.force(true);
+            }
+        }
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    /**
+     * Corre las generaciones una posición y conserva el archivo actual como ".1"
+     * Un corte a mitad de la rotación deja, como mucho, un respaldo con una suma
+     * que no le corresponde: se descarta al verificarlo, nunca se acepta por error.
+     */
+    private void rotar() throws IOException {
+        Path masVieja = respaldo(cantidad);
+        Files.deleteIfExists(masVieja);
+        Files.deleteIfExists(sumaDe(masVieja));
+
+        for (int generacion = cantidad - 1; generacion >= 1; generacion--) {
+            Path origen = respaldo(generacion);
+            if (Files.exists(origen)) {
+                Path destino = respaldo(generacion + 1);
+                Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+                moverSuma(origen, destino);
+            }
+        }
+
+        // Un enlace duro no copia datos: el principal se reemplaza después con un
+        // renombrado, así que el enlace sigue apuntando a la versión actual
+        Path primera = respaldo(1);
+        try {
+            Files.createLink(primera, archivo);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(archivo, primera, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path suma = sumaDe(archivo);
+        if (Files.exists(suma)) {
+            Files.copy(suma, sumaDe(primera), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(sumaDe(primera));
+        }
+    }
+
+    private void moverSuma(Path origen, Path destino) throws IOException {
+        if (Files.exists(sumaDe(origen))) {
+            Files.move(sumaDe(origen), sumaDe(destino), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(sumaDe(destino));
+        }
+    }
+
+    /**
+     * Guarda la suma nueva junto con la del archivo actual (que todavía no se reemplazó)
+     */
+    private void escribirSuma(String sumaNueva, boolean forzarDisco) throws IOException {
+        Path rutaSuma = sumaDe(archivo);
+        List<String> anteriores = Files.exists(rutaSuma) ? leerSumas(rutaSuma) : new ArrayList<>();
+
+        EscritorAtomico.escribir(rutaSuma, salida -> {
+            Writer writer = new OutputStreamWriter(salida, StandardCharsets.UTF_8);
+            writer.write("# CRC32 y bytes de " + archivo.getFileName() + " (la primera es la actual)\n");
+            writer.write(sumaNueva + "\n");
+            if (!anteriores.isEmpty() && !anteriores.get(0).equals(sumaNueva)) {
+                writer.write(anteriores.get(0) + "\n");
+            }
+            writer.flush();
+        }, forzarDisco);
+    }
+
+    private static List<String> leerSumas(Path rutaSuma) throws IOException {
+        List<String> sumas = new ArrayList<>();
+        try (BufferedReader lector = Files.newBufferedReader(rutaSuma, StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                linea = linea.trim();
+                if (!linea.isEmpty() && !linea.startsWith("#")) {
+                    sumas.add(linea);
+                }
+            }
+        }
+        return sumas;
+    }
+
+    private static String formatearSuma(long crc, long bytes) {
+        return String.format("%08x %d", crc, bytes);
+    }
+
+    private Path respaldo(int generacion) {
+        return archivo.resolveSibling(archivo.getFileName() + "." + generacion);
+    }
+
+    private static Path sumaDe(Path ruta) {
+        return ruta.resolveSibling(ruta.getFileName() + EXTENSION_SUMA);
+    }
+
+    /**
+     * Salida que calcula el CRC32 y cuenta los bytes a medida que pasan
+     */
+    private static final class SalidaConSuma extends FilterOutputStream {
+        private final CRC32 crc = new CRC32();
+        private long bytes;
+
+        private SalidaConSuma(OutputStream salida) {
+            super(salida);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            crc.update(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] datos, int desde, int longitud) throws IOException {
+            out.write(datos, desde, longitud);
+            crc.update(datos, desde, longitud);
+            bytes += longitud;
+        }
+
+        private String getSuma() {
+            return formatearSuma(crc.getValue(), bytes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RespaldosArchivo{archivo='%s', generaciones=%d, intervaloMs=%d}",
+                archivo, cantidad, intervaloMs);
+    }
+}
@@ -0,0 +1,400 @@
+package com.educativo.bot.servicios;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.educativo.bot.interfaces.Codec;
+import com.educativo.bot.interfaces.GestorDatos;
+import com.google.gson.Gson;
+
+/**
+ * CONCEPTO: ALMACENAMIENTO POR NIVELES (datos fríos comprimidos)
+ *
+ * Guarda los objetos de un tipo que ya casi no se consultan (tareas completadas
+ * hace tiempo, materias archivadas) en bloques comprimidos, fuera de las listas
+ * que recorren los comandos a diario:
+ *
+ * - Cada bloque junta hasta {@link #TAMANIO_BLOQUE} objetos en un solo valor:
+ *   los registros del codec en JSON, comprimidos con GZIP y pasados a Base64
+ *   ("academico/frio/<tipo>/<número>")
+ * - Los objetos nuevos se agregan al último bloque mientras tenga lugar
+ * - En memoria solo queda un índice con cuántos objetos tiene cada bloque por
+ *   creador y por materia: los conteos se responden sin descomprimir nada y las
+ *   consultas descomprimen solo los bloques que pueden tener resultados
+ *
+ * No escribe por su cuenta: el {@link RepositorioAcademico} marca las claves que
+ * devuelve y pide su valor con {@link #codificar(String)} en el próximo guardado,
+ * junto con el resto de los cambios. Hasta que se confirma la escritura, los
+ * bloques modificados se leen de memoria. No es seguro para hilos: se usa con el
+ * repositorio bloqueado.
+ *
+ * @param <T> Tipo de objeto guardado
+ */
+final class SegmentoFrio<T> {
+
+    static final int TAMANIO_BLOQUE = 500;
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Lo que se sabe de un bloque sin descomprimirlo
+     */
+    private static final class Bloque {
+        final int numero;
+        int cantidad;
+        final Map<String, Integer> porCreador = new HashMap<>();
+        final Map<String, Integer> porMateria = new HashMap<>();  // Código de materia en mayúsculas
+
+        Bloque(int numero) {
+            this.numero = numero;
+        }
+    }
+
+    // ENCAPSULAMIENTO: Atributos privados
+    private final String prefijo;                        // "academico/frio/<tipo>/"
+    private final String claveIndice;
+    private final Codec<T> codec;
+    private final Function<T, String> id;
+    private final Function<T, String> creador;
+    private final Function<T, String> materia;
+    private final Map<Integer, Bloque> bloques;          // Por número, en orden de creación
+    private final Map<Integer, String> bloquesPendientes; // Contenido aún no confirmado en el gestor
+    private int siguienteNumero;
+
+    /**
+     * @param prefijo Prefijo de las claves de este segmento
+     * @param codec Codec de los objetos
+     * @param id Identificador de un objeto
+     * @param creador ID del usuario que creó el objeto
+     * @param materia Código de la materia del objeto
+     */
+    SegmentoFrio(String prefijo, Codec<T> codec, Function<T, String> id, Function<T, String> creador,
+                 Function<T, String> materia) {
+        this.prefijo = prefijo;
+        this.claveIndice = prefijo + "indice";
+        this.codec = codec;
+        this.id = id;
+        this.creador = creador;
+        this.materia = materia;
+        this.bloques = new LinkedHashMap<>();
+        this.bloquesPendientes = new HashMap<>();
+    }
+
+    // ========================
+    // CONTEOS (sin descomprimir)
+    // ========================
+
+    int getCantidad() {
+        int total = 0;
+        for (Bloque bloque : bloques.values()) {
+            total += bloque.cantidad;
+        }
+        return total;
+    }
+
+    int getCantidadPorCreador(String usuarioId) {
+        int total = 0;
+        for (Bloque bloque : bloques.values()) {
+            total += bloque.porCreador.getOrDefault(usuarioId, 0);
+        }
+        return total;
+    }
+
+    int getCantidadPorMateria(String codigoMateria) {
+        String codigo = codigoMateria.toUpperCase();
+        int total = 0;
+        for (Bloque bloque : bloques.values()) {
+            total += bloque.porMateria.getOrDefault(codigo, 0);
+        }
+        return total;
+    }
+
+    // ========================
+    // CONSULTAS (descomprimen a demanda)
+    // ========================
+
+    /**
+     * Todos los objetos, en el orden en que se enfriaron
+     */
+    List<T> buscar(GestorDatos gestorDatos, Predicate<T> filtro) {
+        return buscarEnBloques(gestorDatos, bloque -> true, filtro);
+    }
+
+    /**
+     * Objetos de un creador: solo se abren los bloques que tienen alguno
+     */
+    List<T> buscarPorCreador(GestorDatos gestorDatos, String usuarioId, Predicate<T> filtro) {
+        return buscarEnBloques(gestorDatos, bloque -> bloque.porCreador.containsKey(usuarioId),
+                objeto -> usuarioId.equals(creador.apply(objeto)) && filtro.test(objeto));
+    }
+
+    /**
+     * Objetos de una materia: solo se abren los bloques que tienen alguno
+     */
+    List<T> buscarPorMateria(GestorDatos gestorDatos, String codigoMateria, Predicate<T> filtro) {
+        String codigo = codigoMateria.toUpperCase();
+        return buscarEnBloques(gestorDatos, bloque -> bloque.porMateria.containsKey(codigo),
+                objeto -> codigo.equalsIgnoreCase(materia.apply(objeto)) && filtro.test(objeto));
+    }
+
+    // ========================
+    // CAMBIOS (devuelven las claves a escribir)
+    // ========================
+
+    /**
+     * Agrega objetos al segmento, completando primero el último bloque
+     *
+     * @return Claves de los bloques modificados (el índice incluido)
+     */
+    List<String> agregar(GestorDatos gestorDatos, Collection<T> objetos) {
+        List<String> modificadas = new ArrayList<>();
+        Iterator<T> pendientes = objetos.iterator();
+        Bloque ultimo = null;
+        for (Bloque bloque : bloques.values()) {
+            ultimo = bloque;
+        }
+
+        while (pendientes.hasNext()) {
+            List<Object> registros;
+            Bloque bloque;
+            if (ultimo != null && ultimo.cantidad < TAMANIO_BLOQUE) {
+                bloque = ultimo;
+                registros = leerRegistros(gestorDatos, bloque);
+            } else {
+                bloque = new Bloque(siguienteNumero++);
+                bloques.put(bloque.numero, bloque);
+                registros = new ArrayList<>();
+            }
+            while (pendientes.hasNext() && registros.size() < TAMANIO_BLOQUE) {
+                T objeto = pendientes.next();
+                registros.add(codec.codificar(objeto));
+                contar(bloque, objeto, 1);
+            }
+            bloquesPendientes.put(bloque.numero, comprimir(registros));
+            modificadas.add(clave(bloque.numero));
+            ultimo = null; // El siguiente lote, si lo hay, va a un bloque nuevo
+        }
+
+        if (!modificadas.isEmpty()) {
+            modificadas.add(claveIndice);
+        }
+        return modificadas;
+    }
+
+    /**
+     * Saca un objeto del segmento (por ejemplo, porque vuelve a usarse)
+     *
+     * @param modificadas Recibe las claves de bloques reescritos (y el índice)
+     * @param eliminadas Recibe las claves de bloques que quedaron vacíos
+     * @return true si el objeto estaba en el segmento
+     */
+    boolean quitar(GestorDatos gestorDatos, T objeto, List<String> modificadas, List<String> eliminadas) {
+        String idObjeto = id.apply(objeto);
+        String creadorObjeto = creador.apply(objeto);
+        for (Bloque bloque : bloques.values()) {
+            if (!bloque.porCreador.containsKey(creadorObjeto)) {
+                continue;
+            }
+            List<Object> registros = leerRegistros(gestorDatos, bloque);
+            for (Iterator<Object> it = registros.iterator(); it.hasNext(); ) {
+                T guardado = decodificar(it.next());
+                if (guardado == null || !idObjeto.equals(id.apply(guardado))) {
+                    continue;
+                }
+                it.remove();
+                contar(bloque, guardado, -1);
+                if (bloque.cantidad == 0) {
+                    bloques.remove(bloque.numero);
+                    bloquesPendientes.remove(bloque.numero);
+                    eliminadas.add(clave(bloque.numero));
+                } else {
+                    bloquesPendientes.put(bloque.numero, comprimir(registros));
+                    modificadas.add(clave(bloque.numero));
+                }
+                modificadas.add(claveIndice);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========================
+    // PERSISTENCIA
+    // ========================
+
+    boolean esClave(String clave) {
+        return clave.startsWith(prefijo);
+    }
+
+    /**
+     * Forma almacenable del índice o de un bloque modificado
+     */
+    Object codificar(String clave) {
+        if (clave.equals(claveIndice)) {
+            List<Object> indice = new ArrayList<>();
+            for (Bloque bloque : bloques.values()) {
+                List<Object> descriptor = new ArrayList<>();
+                descriptor.add(bloque.numero);
+                descriptor.add(bloque.cantidad);
+                descriptor.add(bloque.porCreador);
+                descriptor.add(bloque.porMateria);
+                indice.add(descriptor);
+            }
+            return indice;
+        }
+        return bloquesPendientes.get(numero(clave));
+    }
+
+    /**
+     * El valor de la clave ya quedó escrito: deja de guardarse en memoria
+     * (salvo que el bloque haya vuelto a cambiar mientras tanto)
+     */
+    void confirmar(String clave, Object escrito) {
+        if (!clave.equals(claveIndice) && escrito != null) {
+            bloquesPendientes.remove(numero(clave), escrito);
+        }
+    }
+
+    /**
+     * Lee el índice guardado; los bloques se leen recién cuando se consultan
+     */
+    void cargar(GestorDatos gestorDatos) {
+        bloques.clear();
+        bloquesPendientes.clear();
+        siguienteNumero = 0;
+        Object indice = gestorDatos.obtener(claveIndice);
+        if (!(indice instanceof List)) {
+            return;
+        }
+        for (Object elemento : (List<?>) indice) {
+            try {
+                List<?> descriptor = (List<?>) elemento;
+                Bloque bloque = new Bloque(((Number) descriptor.get(0)).intValue());
+                bloque.cantidad = ((Number) descriptor.get(1)).intValue();
+                copiarConteos((Map<?, ?>) descriptor.get(2), bloque.porCreador);
+                copiarConteos((Map<?, ?>) descriptor.get(3), bloque.porMateria);
+                bloques.put(bloque.numero, bloque);
+                siguienteNumero = Math.max(siguienteNumero, bloque.numero + 1);
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Bloque frío ilegible en el índice '" + claveIndice + "': " + elemento);
+            }
+        }
+    }
+
+    // MÉTODOS PRIVADOS - ENCAPSULAMIENTO de la lógica interna
+
+    private List<T> buscarEnBloques(GestorDatos gestorDatos, Predicate<Bloque> bloqueUtil, Predicate<T> filtro) {
+        List<T> encontrados = new ArrayList<>();
+        for (Bloque bloque : bloques.values()) {
+            if (!bloqueUtil.test(bloque)) {
+                continue;
+            }
+            for (Object registro : leerRegistros(gestorDatos, bloque)) {
+                T objeto = decodificar(registro);
+                if (objeto != null && filtro.test(objeto)) {
+                    encontrados.add(objeto);
+                }
+            }
+        }
+        return encontrados;
+    }
+
+    private List<Object> leerRegistros(GestorDatos gestorDatos, Bloque bloque) {
+        String comprimido = bloquesPendientes.get(bloque.numero);
+        if (comprimido == null && gestorDatos != null) {
+            Object guardado = gestorDatos.obtener(clave(bloque.numero));
+            comprimido = guardado instanceof String ? (String) guardado : null;
+        }
+        if (comprimido == null) {
+            System.err.println("⚠️ No se encontró el bloque frío '" + clave(bloque.numero) + "'");
+            return new ArrayList<>();
+        }
+        try {
+            return descomprimir(comprimido);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Bloque frío ilegible '" + clave(bloque.numero) + "': " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private T decodificar(Object registro) {
+        try {
+            return codec.decodificar(registro);
+        } catch (IllegalArgumentException e) {
+            System.err.println("⚠️ Dato frío ilegible en '" + prefijo + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void contar(Bloque bloque, T objeto, int delta) {
+        bloque.cantidad += delta;
+        sumar(bloque.porCreador, creador.apply(objeto), delta);
+        sumar(bloque.porMateria, materia.apply(objeto).toUpperCase(), delta);
+    }
+
+    private static void sumar(Map<String, Integer> conteos, String clave, int delta) {
+        int nuevo = conteos.getOrDefault(clave, 0) + delta;
+        if (nuevo > 0) {
+            conteos.put(clave, nuevo);
+        } else {
+            conteos.remove(clave);
+        }
+    }
+
+    private static void copiarConteos(Map<?, ?> origen, Map<String, Integer> destino) {
+        for (Map.Entry<?, ?> entrada : origen.entrySet()) {
+            destino.put(String.valueOf(entrada.getKey()), ((Number) entrada.getValue()).intValue());
+        }
+    }
+
+    private String clave(int numero) {
+        return prefijo + numero;
+    }
+
+    private int numero(String clave) {
+        return Integer.parseInt(clave.substring(prefijo.length()));
+    }
+
+    private static String comprimir(List<Object> registros) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer escritor = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            GSON.toJson(registros, escritor);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo comprimir el bloque", e); // En memoria: no ocurre
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    private static List<Object> descomprimir(String comprimido) throws IOException {
+        byte[] bytes = Base64.getDecoder().decode(comprimido);
+        try (Reader lector = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(bytes)),
+                StandardCharsets.UTF_8)) {
+            List<?> registros = GSON.fromJson(lector, List.class);
+            return registros != null ? new ArrayList<>(registros) : new ArrayList<>();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SegmentoFrio{prefijo='%s', bloques=%d, objetos=%d, pendientes=%d}",
+                prefijo, bloques.size(), getCantidad(), bloquesPendientes.size());
+    }
+}
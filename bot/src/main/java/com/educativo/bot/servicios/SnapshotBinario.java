@@ -0,0 +1,502 @@
+package com.educativo.bot.servicios;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+import com.google.gson.Gson;
+
+/**
+ * CONCEPTO: SERIALIZACIÓN BINARIA
+ *
+ * Formato compacto para los snapshots de datos del bot. Estructura del archivo:
+ *
+ *   [int MAGIA "BESB"][int versión del esquema]
+ *   bloques: [int registros][int bytes][contenido][int CRC32 del contenido]
+ *   fin:     [int -1][long total de registros]
+ *
+ * Cada registro del contenido es [varint longitud][clave][valor]. La clave se guarda
+ * como [varint caracteres compartidos con la clave anterior][resto en UTF-8]: las
+ * claves de una misma familia ("ultima_actividad_...") solo guardan lo que cambia.
+ * El valor lleva una marca de tipo: nulo, booleano, entero (varint zigzag),
+ * decimal, texto, lista o mapa.
+ *
+ * Los bloques rondan los 64 KB: un bit dañado invalida solo la lectura de su
+ * bloque (se detecta por el CRC) y el marcador de fin delata un archivo truncado.
+ */
+public class SnapshotBinario {
+
+    // "BESB" = Bot Educativo Snapshot Binario
+    static final int MAGIA = 0x42455342;
+    static final int VERSION_ESQUEMA = 1;
+
+    private static final int TAMANIO_BLOQUE = 64 * 1024;
+    private static final int FIN_BLOQUES = -1;
+    private static final int ENTRADAS_POR_AVISO = 100_000;
+
+    // Marcas de tipo de los valores
+    private static final byte TIPO_NULO = 0;
+    private static final byte TIPO_FALSO = 1;
+    private static final byte TIPO_VERDADERO = 2;
+    private static final byte TIPO_ENTERO = 3;
+    private static final byte TIPO_DECIMAL = 4;
+    private static final byte TIPO_TEXTO = 5;
+    private static final byte TIPO_LISTA = 6;
+    private static final byte TIPO_MAPA = 7;
+
+    /**
+     * Constructor privado: clase utilitaria, no se instancia
+     */
+    private SnapshotBinario() {
+    }
+
+    /**
+     * Indica si el archivo empieza con la marca del formato binario
+     *
+     * @param archivo Archivo a inspeccionar
+     * @return true si es un snapshot binario
+     */
+    public static boolean esBinario(File archivo) {
+        try (DataInputStream entrada = new DataInputStream(new FileInputStream(archivo))) {
+            return entrada.readInt() == MAGIA;
+        } catch (IOException e) {
+            return false; // Vacío, muy corto o ilegible: no es binario
+        }
+    }
+
+    /**
+     * Escribe todas las entradas en formato binario
+     *
+     * @param datos Entradas a guardar
+     * @param salida Destino (no se cierra)
+     * @param gson Para convertir valores que no son tipos simples (modelos guardados sin codec)
+     * @throws IOException si falla la escritura
+     */
+    public static void escribir(Map<String, Object> datos, OutputStream salida, Gson gson) throws IOException {
+        DataOutputStream destino = new DataOutputStream(new BufferedOutputStream(salida, TAMANIO_BLOQUE));
+        destino.writeInt(MAGIA);
+        destino.writeInt(VERSION_ESQUEMA);
+
+        Bufer bloque = new Bufer(TAMANIO_BLOQUE + 1024);
+        Bufer registro = new Bufer(256);
+        CRC32 crc = new CRC32();
+        int registrosEnBloque = 0;
+        long total = 0;
+        String claveAnterior = "";
+
+        for (Map.Entry<String, Object> entrada : datos.entrySet()) {
+            String clave = entrada.getKey();
+            int compartidos = prefijoComun(claveAnterior, clave);
+            registro.reiniciar();
+            registro.escribirVarint(compartidos);
+            registro.escribirTexto(clave.substring(compartidos));
+            claveAnterior = clave;
+            escribirValor(registro, entrada.getValue(), gson);
+
+            bloque.escribirVarint(registro.tamanio);
+            bloque.escribir(registro.datos, 0, registro.tamanio);
+            registrosEnBloque++;
+            total++;
+
+            if (bloque.tamanio >= TAMANIO_BLOQUE) {
+                escribirBloque(destino, bloque, registrosEnBloque, crc);
+                registrosEnBloque = 0;
+                claveAnterior = ""; // Cada bloque se decodifica por separado
+            }
+        }
+        if (registrosEnBloque > 0) {
+            escribirBloque(destino, bloque, registrosEnBloque, crc);
+        }
+
+        destino.writeInt(FIN_BLOQUES);
+        destino.writeLong(total);
+        destino.flush();
+    }
+
+    /**
+     * Lee un snapshot binario y entrega cada entrada al destino
+     *
+     * @param archivo Snapshot binario
+     * @param destino Recibe (clave, valor) de cada entrada cargada
+     * @param omitir Claves que se saltean sin decodificar su valor (puede ser null)
+     * @param progreso Recibe el avance cada cierta cantidad de entradas (puede ser null)
+     * @return Cantidad de entradas entregadas al destino
+     * @throws IOException si el archivo no es un snapshot válido, está truncado o un bloque no pasa el CRC
+     */
+    public static long cargar(File archivo, BiConsumer<String, Object> destino, Predicate<String> omitir,
+                              CargadorJsonIncremental.Progreso progreso) throws IOException {
+        long bytesTotales = archivo.length();
+        long bytesLeidos = 8;
+        long entradas = 0;
+        long cargadas = 0;
+
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(archivo), TAMANIO_BLOQUE))) {
+
+            if (entrada.readInt() != MAGIA) {
+                throw new IOException("No es un snapshot binario: " + archivo);
+            }
+            int version = entrada.readInt();
+            if (version != VERSION_ESQUEMA) {
+                throw new IOException("Versión de snapshot binario no soportada: " + version);
+            }
+
+            CRC32 crc = new CRC32();
+            byte[] contenido = new byte[TAMANIO_BLOQUE + 1024];
+
+            while (true) {
+                int registros = entrada.readInt();
+                if (registros == FIN_BLOQUES) {
+                    long total = entrada.readLong();
+                    if (total != entradas) {
+                        throw new IOException("Snapshot incompleto: se esperaban " + total + " entradas y hay " + entradas);
+                    }
+                    break;
+                }
+
+                int longitud = entrada.readInt();
+                if (registros < 0 || longitud < 0 || longitud > bytesTotales) {
+                    throw new IOException("Encabezado de bloque inválido en " + archivo);
+                }
+                if (contenido.length < longitud) {
+                    contenido = new byte[longitud];
+                }
+                entrada.readFully(contenido, 0, longitud);
+
+                crc.reset();
+                crc.update(contenido, 0, longitud);
+                if ((int) crc.getValue() != entrada.readInt()) {
+                    throw new IOException("CRC inválido en un bloque de " + archivo);
+                }
+                bytesLeidos += 12 + longitud;
+
+                Lector lector = new Lector(contenido, longitud);
+                String claveAnterior = "";
+                for (int i = 0; i < registros; i++) {
+                    int tamanioRegistro = lector.leerVarint();
+                    int finRegistro = lector.posicion + tamanioRegistro;
+                    String clave = claveAnterior.substring(0, lector.leerVarint()) + lector.leerTexto();
+                    claveAnterior = clave;
+
+                    if (omitir != null && omitir.test(clave)) {
+                        lector.posicion = finRegistro;
+                    } else {
+                        destino.accept(clave, leerValor(lector));
+                        cargadas++;
+                    }
+
+                    entradas++;
+                    if (progreso != null && entradas % ENTRADAS_POR_AVISO == 0) {
+                        progreso.actualizar(entradas, bytesLeidos, bytesTotales);
+                    }
+                }
+            }
+
+            if (progreso != null && entradas >= ENTRADAS_POR_AVISO) {
+                progreso.actualizar(entradas, bytesTotales, bytesTotales);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Snapshot binario truncado: " + archivo, e);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            // Incluye StringIndexOutOfBoundsException de un prefijo compartido inválido
+            throw new IOException("Registro inválido en " + archivo + ": " + e.getMessage(), e);
+        }
+
+        return cargadas;
+    }
+
+    /**
+     * Convierte un archivo de datos JSON al formato binario
+     *
+     * @param origenJson Archivo JSON existente
+     * @param destinoBinario Archivo binario a crear (se escribe de forma atómica)
+     * @return Cantidad de entradas convertidas
+     * @throws IOException si no se puede leer el origen o escribir el destino
+     */
+    public static long convertirDesdeJson(File origenJson, File destinoBinario) throws IOException {
+        Gson gson = new Gson();
+        Map<String, Object> datos = new LinkedHashMap<>();
+        CargadorJsonIncremental.cargar(origenJson, gson, datos::put, null, CargadorJsonIncremental.PROGRESO_CONSOLA);
+        // Como lo haría el bot: actualiza el ".crc" (si no, al arrancar se lo tomaría
+        // por dañado) y conserva lo que había como ".1"
+        RespaldosArchivo respaldos = new RespaldosArchivo(destinoBinario.toPath(), 1, 0);
+        respaldos.escribir(salida -> escribir(datos, salida, gson), true);
+        return datos.size();
+    }
+
+    /**
+     * Conversor por línea de comandos:
+     * java -cp bot.jar com.educativo.bot.servicios.SnapshotBinario datos.json [datos.bin]
+     * Sin destino, reemplaza el archivo original por su versión binaria y deja el
+     * JSON como respaldo ".1". Con el bot detenido: si no, el próximo guardado lo pisa.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: SnapshotBinario <origen.json> [destino]");
+            System.exit(1);
+        }
+        File origen = new File(args[0]);
+        File destino = new File(args.length > 1 ? args[1] : args[0]);
+
+        long inicio = System.currentTimeMillis();
+        long entradas = convertirDesdeJson(origen, destino);
+        System.out.println("✅ Convertidas " + entradas + " entradas a " + destino
+                + " (" + destino.length() + " bytes) en " + (System.currentTimeMillis() - inicio) + " ms");
+    }
+
+    // ESCRITURA
+
+    /**
+     * Cantidad de caracteres iniciales que comparten dos claves
+     * (sin partir un par sustituto UTF-16 para que el resto siga siendo texto válido)
+     */
+    private static int prefijoComun(String anterior, String actual) {
+        int limite = Math.min(anterior.length(), actual.length());
+        int comunes = 0;
+        while (comunes < limite && anterior.charAt(comunes) == actual.charAt(comunes)) {
+            comunes++;
+        }
+        if (comunes > 0 && Character.isHighSurrogate(actual.charAt(comunes - 1))) {
+            comunes--;
+        }
+        return comunes;
+    }
+
+    private static void escribirBloque(DataOutputStream destino, Bufer bloque, int registros, CRC32 crc)
+            throws IOException {
+        crc.reset();
+        crc.update(bloque.datos, 0, bloque.tamanio);
+        destino.writeInt(registros);
+        destino.writeInt(bloque.tamanio);
+        destino.write(bloque.datos, 0, bloque.tamanio);
+        destino.writeInt((int) crc.getValue());
+        bloque.reiniciar();
+    }
+
+    private static void escribirValor(Bufer bufer, Object valor, Gson gson) {
+        if (valor == null) {
+            bufer.escribirByte(TIPO_NULO);
+        } else if (valor instanceof Boolean) {
+            bufer.escribirByte((Boolean) valor ? TIPO_VERDADERO : TIPO_FALSO);
+        } else if (valor instanceof Long || valor instanceof Integer || valor instanceof Short || valor instanceof Byte) {
+            bufer.escribirByte(TIPO_ENTERO);
+            bufer.escribirVarlong(((Number) valor).longValue());
+        } else if (valor instanceof Number) {
+            double decimal = ((Number) valor).doubleValue();
+            // Los números que vienen de JSON son Double aunque sean enteros: se guardan como enteros
+            if (decimal == Math.rint(decimal) && Math.abs(decimal) < 0x1p53
+                    && !(decimal == 0 && Double.doubleToRawLongBits(decimal) != 0)) {
+                bufer.escribirByte(TIPO_ENTERO);
+                bufer.escribirVarlong((long) decimal);
+            } else {
+                bufer.escribirByte(TIPO_DECIMAL);
+                bufer.escribirLong(Double.doubleToLongBits(decimal));
+            }
+        } else if (valor instanceof CharSequence || valor instanceof Character) {
+            bufer.escribirByte(TIPO_TEXTO);
+            bufer.escribirTexto(valor.toString());
+        } else if (valor instanceof List) {
+            List<?> lista = (List<?>) valor;
+            bufer.escribirByte(TIPO_LISTA);
+            bufer.escribirVarint(lista.size());
+            for (Object elemento : lista) {
+                escribirValor(bufer, elemento, gson);
+            }
+        } else if (valor instanceof Map) {
+            Map<?, ?> mapa = (Map<?, ?>) valor;
+            bufer.escribirByte(TIPO_MAPA);
+            bufer.escribirVarint(mapa.size());
+            for (Map.Entry<?, ?> entrada : mapa.entrySet()) {
+                bufer.escribirTexto(String.valueOf(entrada.getKey()));
+                escribirValor(bufer, entrada.getValue(), gson);
+            }
+        } else {
+            // Objeto sin codec: se reduce a su árbol JSON (como lo haría el formato JSON)
+            escribirValor(bufer, gson.fromJson(gson.toJsonTree(valor), Object.class), gson);
+        }
+    }
+
+    // LECTURA
+
+    private static Object leerValor(Lector lector) {
+        byte tipo = lector.leerByte();
+        switch (tipo) {
+            case TIPO_NULO:
+                return null;
+            case TIPO_FALSO:
+                return Boolean.FALSE;
+            case TIPO_VERDADERO:
+                return Boolean.TRUE;
+            case TIPO_ENTERO:
+                return lector.leerVarlong();
+            case TIPO_DECIMAL:
+                return Double.longBitsToDouble(lector.leerLong());
+            case TIPO_TEXTO:
+                return lector.leerTexto();
+            case TIPO_LISTA: {
+                int cantidad = lector.leerVarint();
+                List<Object> lista = new ArrayList<>(Math.min(cantidad, 1024));
+                for (int i = 0; i < cantidad; i++) {
+                    lista.add(leerValor(lector));
+                }
+                return lista;
+            }
+            case TIPO_MAPA: {
+                int cantidad = lector.leerVarint();
+                Map<String, Object> mapa = new LinkedHashMap<>();
+                for (int i = 0; i < cantidad; i++) {
+                    String clave = lector.leerTexto();
+                    mapa.put(clave, leerValor(lector));
+                }
+                return mapa;
+            }
+            default:
+                throw new IllegalArgumentException("Tipo de valor desconocido: " + tipo);
+        }
+    }
+
+    /**
+     * Arreglo de bytes que crece a medida que se escribe (sin sincronización,
+     * a diferencia de ByteArrayOutputStream) con escritura de varints
+     */
+    private static final class Bufer {
+        private byte[] datos;
+        private int tamanio;
+
+        Bufer(int capacidadInicial) {
+            this.datos = new byte[capacidadInicial];
+        }
+
+        void reiniciar() {
+            tamanio = 0;
+        }
+
+        private void asegurar(int adicional) {
+            if (tamanio + adicional > datos.length) {
+                byte[] nuevo = new byte[Math.max(datos.length * 2, tamanio + adicional)];
+                System.arraycopy(datos, 0, nuevo, 0, tamanio);
+                datos = nuevo;
+            }
+        }
+
+        void escribirByte(int valor) {
+            asegurar(1);
+            datos[tamanio++] = (byte) valor;
+        }
+
+        void escribir(byte[] origen, int desde, int cantidad) {
+            asegurar(cantidad);
+            System.arraycopy(origen, desde, datos, tamanio, cantidad);
+            tamanio += cantidad;
+        }
+
+        void escribirVarint(int valor) {
+            escribirVarlongSinSigno(valor & 0xFFFFFFFFL);
+        }
+
+        void escribirVarlong(long valor) {
+            // Zigzag: los negativos chicos también ocupan pocos bytes
+            escribirVarlongSinSigno((valor << 1) ^ (valor >> 63));
+        }
+
+        private void escribirVarlongSinSigno(long valor) {
+            asegurar(10);
+            while ((valor & ~0x7FL) != 0) {
+                datos[tamanio++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            datos[tamanio++] = (byte) valor;
+        }
+
+        void escribirLong(long valor) {
+            asegurar(8);
+            for (int desplazamiento = 56; desplazamiento >= 0; desplazamiento -= 8) {
+                datos[tamanio++] = (byte) (valor >>> desplazamiento);
+            }
+        }
+
+        void escribirTexto(String texto) {
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            escribirVarint(bytes.length);
+            escribir(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Cursor de lectura sobre el contenido de un bloque ya verificado
+     */
+    private static final class Lector {
+        private final byte[] datos;
+        private final int limite;
+        private int posicion;
+
+        Lector(byte[] datos, int limite) {
+            this.datos = datos;
+            this.limite = limite;
+        }
+
+        byte leerByte() {
+            if (posicion >= limite) {
+                throw new IndexOutOfBoundsException("fin de bloque inesperado");
+            }
+            return datos[posicion++];
+        }
+
+        int leerVarint() {
+            long valor = leerVarlongSinSigno();
+            if (valor > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("longitud fuera de rango: " + valor);
+            }
+            return (int) valor;
+        }
+
+        long leerVarlong() {
+            long valor = leerVarlongSinSigno();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+
+        private long leerVarlongSinSigno() {
+            long valor = 0;
+            for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+                byte b = leerByte();
+                valor |= (long) (b & 0x7F) << desplazamiento;
+                if ((b & 0x80) == 0) {
+                    return valor;
+                }
+            }
+            throw new IllegalArgumentException("varint demasiado largo");
+        }
+
+        long leerLong() {
+            long valor = 0;
+            for (int i = 0; i < 8; i++) {
+                valor = (valor << 8) | (leerByte() & 0xFF);
+            }
+            return valor;
+        }
+
+        String leerTexto() {
+            int longitud = leerVarint();
+            if (posicion + longitud > limite) {
+                throw new IndexOutOfBoundsException("texto más largo que el bloque");
+            }
+            String texto = new String(datos, posicion, longitud, StandardCharsets.UTF_8);
+            posicion += longitud;
+            return texto;
+        }
+    }
+}
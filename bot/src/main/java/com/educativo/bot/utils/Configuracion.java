@@ -0,0 +1,77 @@
+package com.educativo.bot.utils;
+
+/**
+ * CONCEPTO: FUNCIONES (métodos estáticos utilitarios)
+ *
+ * Esta clase centraliza la lectura de parámetros de configuración del bot.
+ * Cada parámetro se busca primero como propiedad del sistema (-Dbot.datos.modo=...)
+ * y luego como variable de entorno (BOT_DATOS_MODO=...). Si no se encuentra,
+ * se usa el valor por defecto indicado por quien lo consulta.
+ */
+public class Configuracion {
+
+    /**
+     * Constructor privado: clase utilitaria, no se instancia
+     */
+    private Configuracion() {
+    }
+
+    /**
+     * Obtiene un parámetro de texto
+     *
+     * @param clave Nombre del parámetro (ej: "bot.datos.modo")
+     * @param porDefecto Valor a usar si el parámetro no está definido
+     * @return Valor configurado o el valor por defecto
+     */
+    public static String getTexto(String clave, String porDefecto) {
+        String valor = System.getProperty(clave);
+        if (valor == null || valor.trim().isEmpty()) {
+            valor = System.getenv(aVariableEntorno(clave));
+        }
+        return valor == null || valor.trim().isEmpty() ? porDefecto : valor.trim();
+    }
+
+    /**
+     * Obtiene un parámetro entero
+     * Si el valor configurado no es un número válido se usa el valor por defecto
+     */
+    public static int getEntero(String clave, int porDefecto) {
+        try {
+            return Integer.parseInt(getTexto(clave, String.valueOf(porDefecto)));
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Valor inválido para '" + clave + "', usando " + porDefecto);
+            return porDefecto;
+        }
+    }
+
+    /**
+     * Obtiene un parámetro entero largo
+     * Si el valor configurado no es un número válido se usa el valor por defecto
+     */
+    public static long getLargo(String clave, long porDefecto) {
+        try {
+            return Long.parseLong(getTexto(clave, String.valueOf(porDefecto)));
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Valor inválido para '" + clave + "', usando " + porDefecto);
+            return porDefecto;
+        }
+    }
+
+    /**
+     * Obtiene un parámetro booleano ("true"/"false", "si"/"no")
+     */
+    public static boolean getBooleano(String clave, boolean porDefecto) {
+        String valor = getTexto(clave, null);
+        if (valor == null) {
+            return porDefecto;
+        }
+        return valor.equalsIgnoreCase("true") || valor.equalsIgnoreCase("si") || valor.equals("1");
+    }
+
+    /**
+     * Convierte "bot.datos.modo" en "BOT_DATOS_MODO"
+     */
+    private static String aVariableEntorno(String clave) {
+        return clave.toUpperCase().replace('.', '_');
+    }
+}
@@ -0,0 +1,71 @@
+package com.educativo.bot;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.educativo.bot.interfaces.Comando;
+
+/**
+ * Pruebas de {@link BotEducativo}: con replicación, cada mensaje lo responde una
+ * sola instancia
+ */
+class BotEducativoTest {
+
+    private static final String[] SIN_ARGUMENTOS = new String[0];
+
+    private static Comando comando(boolean soloLectura) {
+        return new Comando() {
+            @Override
+            public String ejecutar(String[] args, String canalId, String usuarioId) {
+                return "";
+            }
+
+            @Override
+            public boolean esSoloLectura(String[] args) {
+                return soloLectura;
+            }
+
+            @Override
+            public String getNombre() {
+                return soloLectura ? "consulta" : "cambio";
+            }
+
+            @Override
+            public String getDescripcion() {
+                return "";
+            }
+
+            @Override
+            public String getUso() {
+                return "";
+            }
+
+            @Override
+            public boolean tienePermisos(String usuarioId) {
+                return true;
+            }
+        };
+    }
+
+    @Test
+    void unaReplicaNoRespondeUnComandoDesconocido() {
+        assertFalse(BotEducativo.respondeEstaInstancia(true, false, null, SIN_ARGUMENTOS));
+        // El primario es el único que avisa que el comando no existe
+        assertTrue(BotEducativo.respondeEstaInstancia(false, true, null, SIN_ARGUMENTOS));
+    }
+
+    @Test
+    void unaReplicaSoloRespondeConsultas() {
+        assertTrue(BotEducativo.respondeEstaInstancia(true, false, comando(true), SIN_ARGUMENTOS));
+        assertFalse(BotEducativo.respondeEstaInstancia(true, false, comando(false), SIN_ARGUMENTOS));
+    }
+
+    @Test
+    void elPrimarioDejaLasConsultasALaReplicaQueAtiende() {
+        assertFalse(BotEducativo.respondeEstaInstancia(false, true, comando(true), SIN_ARGUMENTOS));
+        assertTrue(BotEducativo.respondeEstaInstancia(false, false, comando(true), SIN_ARGUMENTOS));
+        assertTrue(BotEducativo.respondeEstaInstancia(false, true, comando(false), SIN_ARGUMENTOS));
+    }
+}
@@ -0,0 +1,73 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de {@link CerrojosComandos}: los cambios de usuarios distintos no se
+ * esperan entre sí, pero los datos compartidos sí
+ */
+class CerrojosComandosTest {
+
+    private final CerrojosComandos cerrojos = new CerrojosComandos();
+    private final ExecutorService otroHilo = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void cerrar() {
+        otroHilo.shutdownNow();
+    }
+
+    /**
+     * Toma y suelta los cerrojos desde otro hilo
+     */
+    private Future<Boolean> ejecutar(String usuarioId, boolean soloLectura, boolean soloDelUsuario) {
+        return otroHilo.submit(() -> {
+            cerrojos.soltar(cerrojos.tomar(usuarioId, soloLectura, soloDelUsuario));
+            return true;
+        });
+    }
+
+    @Test
+    void cambiosDeUsuariosDistintosNoSeEsperan() throws Exception {
+        // "1" y "2" caen en grupos distintos
+        List<Lock> tomados = cerrojos.tomar("1", false, true);
+        try {
+            assertTrue(ejecutar("2", false, true).get(2, TimeUnit.SECONDS));
+        } finally {
+            cerrojos.soltar(tomados);
+        }
+    }
+
+    @Test
+    void unaConsultaGeneralEsperaLosCambiosDeUnUsuario() throws Exception {
+        List<Lock> tomados = cerrojos.tomar("1", false, true);
+        Future<Boolean> ranking = ejecutar("2", true, false);
+        assertThrows(TimeoutException.class, () -> ranking.get(200, TimeUnit.MILLISECONDS));
+        assertFalse(ranking.isDone());
+
+        cerrojos.soltar(tomados);
+        assertTrue(ranking.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void unCambioCompartidoEsperaALosDemas() throws Exception {
+        List<Lock> tomados = cerrojos.tomar("1", true, true);
+        Future<Boolean> crearMateria = ejecutar("2", false, false);
+        assertThrows(TimeoutException.class, () -> crearMateria.get(200, TimeUnit.MILLISECONDS));
+
+        cerrojos.soltar(tomados);
+        assertTrue(crearMateria.get(2, TimeUnit.SECONDS));
+    }
+}
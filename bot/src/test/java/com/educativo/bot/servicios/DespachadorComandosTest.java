@@ -0,0 +1,207 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de {@link DespachadorComandos}: orden de los comandos de cada canal,
+ * canales en paralelo y elección de hilos virtuales según la JVM
+ */
+class DespachadorComandosTest {
+
+    private static final int CANALES = 8;
+    private static final int COMANDOS_POR_CANAL = 100;
+
+    /**
+     * Despacha comandos intercalados de varios canales y comprueba que cada canal
+     * los ejecutó en orden y de a uno
+     */
+    private static void comprobarOrdenPorCanal(DespachadorComandos despachador) throws InterruptedException {
+        Map<String, List<Integer>> ejecutados = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> enCurso = new ConcurrentHashMap<>();
+        AtomicBoolean solapados = new AtomicBoolean();
+        CountDownLatch terminados = new CountDownLatch(CANALES * COMANDOS_POR_CANAL);
+        for (int canal = 0; canal < CANALES; canal++) {
+            ejecutados.put("canal" + canal, Collections.synchronizedList(new ArrayList<>()));
+            enCurso.put("canal" + canal, new AtomicInteger());
+        }
+
+        for (int numero = 0; numero < COMANDOS_POR_CANAL; numero++) {
+            for (int canal = 0; canal < CANALES; canal++) {
+                String canalId = "canal" + canal;
+                int orden = numero;
+                assertTrue(despachador.despachar(canalId, () -> {
+                    if (enCurso.get(canalId).incrementAndGet() > 1) {
+                        solapados.set(true);
+                    }
+                    if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                        Thread.yield(); // Desordena los hilos sin alargar la prueba
+                    }
+                    ejecutados.get(canalId).add(orden);
+                    enCurso.get(canalId).decrementAndGet();
+                    terminados.countDown();
+                }, terminados::countDown));
+            }
+        }
+
+        assertTrue(terminados.await(10, TimeUnit.SECONDS), "Quedaron comandos sin ejecutar");
+        assertFalse(solapados.get(), "Dos comandos del mismo canal se ejecutaron a la vez");
+        List<Integer> esperado = new ArrayList<>();
+        for (int numero = 0; numero < COMANDOS_POR_CANAL; numero++) {
+            esperado.add(numero);
+        }
+        for (Map.Entry<String, List<Integer>> canal : ejecutados.entrySet()) {
+            assertEquals(esperado, canal.getValue(), "Orden de " + canal.getKey());
+        }
+    }
+
+    @Test
+    void cadaCanalEjecutaSusComandosEnOrdenYDeAUno() throws InterruptedException {
+        DespachadorComandos despachador = new DespachadorComandos(4, CANALES * COMANDOS_POR_CANAL, PoliticaRechazo.AVISAR);
+        try {
+            comprobarOrdenPorCanal(despachador);
+        } finally {
+            despachador.cerrar();
+        }
+    }
+
+    @Test
+    void conHilosVirtualesCadaCanalTambienRespetaElOrden() throws InterruptedException {
+        assumeTrue(DespachadorComandos.hilosVirtualesDisponibles(), "Requiere Java 21");
+        DespachadorComandos despachador = DespachadorComandos.conHilosVirtuales(
+                CANALES * COMANDOS_POR_CANAL, PoliticaRechazo.AVISAR);
+        try {
+            comprobarOrdenPorCanal(despachador);
+        } finally {
+            despachador.cerrar();
+        }
+    }
+
+    @Test
+    void unErrorEnUnComandoNoTrabaSuCanal() throws InterruptedException {
+        DespachadorComandos despachador = new DespachadorComandos(1, 10, PoliticaRechazo.AVISAR);
+        CountDownLatch siguiente = new CountDownLatch(1);
+        try {
+            despachador.despachar("canal", () -> {
+                throw new AssertionError("falla a propósito");
+            }, null);
+            despachador.despachar("canal", siguiente::countDown, null);
+
+            assertTrue(siguiente.await(5, TimeUnit.SECONDS), "El comando siguiente del canal debería ejecutarse");
+            long limite = System.currentTimeMillis() + 5000;
+            while (despachador.getCanales() > 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, despachador.getCanales(), "El canal vacío debería liberarse");
+            assertEquals(2, despachador.getCompletados());
+        } finally {
+            despachador.cerrar();
+        }
+    }
+
+    @Test
+    void unCanalOcupadoNoFrenaALosDemas() throws InterruptedException {
+        DespachadorComandos despachador = new DespachadorComandos(2, 10, PoliticaRechazo.AVISAR);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch otroCanal = new CountDownLatch(1);
+        try {
+            despachador.despachar("lento", () -> {
+                try {
+                    liberar.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, null);
+            despachador.despachar("lento", () -> { }, null);
+            despachador.despachar("rapido", otroCanal::countDown, null);
+
+            assertTrue(otroCanal.await(5, TimeUnit.SECONDS), "El otro canal debería avanzar en el hilo libre");
+        } finally {
+            liberar.countDown();
+            despachador.cerrar();
+        }
+    }
+
+    @Test
+    void unCanalMuyActivoDejaPasarAOtroEntreComandos() throws InterruptedException {
+        // Con un solo hilo, después de cada comando el canal vuelve al final de la fila
+        DespachadorComandos despachador = new DespachadorComandos(1, 10, PoliticaRechazo.AVISAR);
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<String> orden = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch terminados = new CountDownLatch(4);
+        try {
+            despachador.despachar("activo", () -> {
+                try {
+                    liberar.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                orden.add("activo-1");
+                terminados.countDown();
+            }, null);
+            despachador.despachar("activo", () -> {
+                orden.add("activo-2");
+                terminados.countDown();
+            }, null);
+            despachador.despachar("activo", () -> {
+                orden.add("activo-3");
+                terminados.countDown();
+            }, null);
+            despachador.despachar("otro", () -> {
+                orden.add("otro-1");
+                terminados.countDown();
+            }, null);
+            liberar.countDown();
+
+            assertTrue(terminados.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("activo-1", "otro-1", "activo-2", "activo-3"), orden);
+        } finally {
+            despachador.cerrar();
+        }
+    }
+
+    @Test
+    void hilosVirtualesSoloDesdeJava21() {
+        assertEquals(Runtime.version().feature() >= 21, DespachadorComandos.hilosVirtualesDisponibles());
+    }
+
+    @Test
+    void modoVirtualSinHilosVirtualesUsaUnGrupoDeHilos() throws InterruptedException {
+        System.setProperty("bot.despacho.modo", "virtual");
+        DespachadorComandos despachador;
+        try {
+            despachador = DespachadorComandos.desdeConfiguracion();
+        } finally {
+            System.clearProperty("bot.despacho.modo");
+        }
+        try {
+            assertEquals(DespachadorComandos.hilosVirtualesDisponibles(), despachador.isVirtual());
+
+            List<Integer> ejecutados = new ArrayList<>();
+            CountDownLatch listo = new CountDownLatch(1);
+            assertTrue(despachador.despachar(() -> {
+                ejecutados.add(1);
+                listo.countDown();
+            }, null));
+            assertTrue(listo.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(1), ejecutados);
+        } finally {
+            despachador.cerrar();
+        }
+    }
+}
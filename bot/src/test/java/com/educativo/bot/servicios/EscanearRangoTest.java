@@ -0,0 +1,56 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * Todos los tipos de almacenamiento deben poder recorrer un rango en orden:
+ * de eso dependen las estadísticas, los reportes y la copia completa de la replicación
+ */
+class EscanearRangoTest {
+
+    @TempDir
+    Path directorio;
+
+    private static List<String> claves(Iterator<Map.Entry<String, Object>> cursor) {
+        List<String> claves = new ArrayList<>();
+        while (cursor.hasNext()) {
+            claves.add(cursor.next().getKey());
+        }
+        return claves;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"archivo", "log", "mapeado", "fragmentado", "jdbc"})
+    void recorreElRangoEnOrden(String tipo) {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setTipo(tipo);
+        config.setIntervaloEscrituraMs(0);
+        config.setProgresoCarga(null);
+        GestorDatos gestor = FabricaGestorDatos.crear(config);
+
+        gestor.guardar("stats_comando_tarea", 3L);
+        gestor.guardar("stats_comando_ayuda", 1L);
+        gestor.guardar("stats_comando_materia", 2L);
+        gestor.guardar("stats_subcomando_tarea_lista", 1L);
+        gestor.guardar("ultima_actividad_1", 10L);
+
+        assertEquals(List.of("stats_comando_ayuda", "stats_comando_materia", "stats_comando_tarea"),
+                claves(gestor.escanearPrefijo("stats_comando_")));
+        assertEquals(List.of("stats_comando_materia", "stats_comando_tarea"),
+                claves(gestor.escanearRango("stats_comando_b", "stats_comando_u")));
+        assertEquals(5, claves(gestor.escanearRango(null, null)).size());
+        gestor.cerrar();
+    }
+}
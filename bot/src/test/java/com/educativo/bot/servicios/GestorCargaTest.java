@@ -0,0 +1,171 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.educativo.bot.interfaces.Comando;
+
+/**
+ * Pruebas de {@link GestorCarga}: subida inmediata de nivel, bajada de a un nivel
+ * con histéresis y medidas de cada nivel
+ */
+class GestorCargaTest {
+
+    private final AtomicInteger cola = new AtomicInteger();
+    private final long inicio = System.currentTimeMillis();
+
+    /**
+     * Gestor sin hilo de fondo: cola 10 (alta) y 20 (crítica), p99 2000 y 5000 ms,
+     * 10 segundos para bajar de nivel
+     */
+    private GestorCarga crear() {
+        GestorCarga gestor = new GestorCarga(cola::get, 0);
+        gestor.setUmbralesCola(10, 20);
+        gestor.setUmbralesLatencia(2000, 5000);
+        gestor.setRecuperacionMs(10000);
+        return gestor;
+    }
+
+    private static Comando comando(boolean costoso) {
+        return new Comando() {
+            @Override
+            public String ejecutar(String[] args, String canalId, String usuarioId) {
+                return "";
+            }
+
+            @Override
+            public boolean esCostoso(String[] args) {
+                return costoso;
+            }
+
+            @Override
+            public String getNombre() {
+                return costoso ? "ranking" : "tarea";
+            }
+
+            @Override
+            public String getDescripcion() {
+                return "";
+            }
+
+            @Override
+            public String getUso() {
+                return "";
+            }
+
+            @Override
+            public boolean tienePermisos(String usuarioId) {
+                return true;
+            }
+        };
+    }
+
+    @Test
+    void subeEnCuantoSeSuperaUnUmbral() {
+        GestorCarga gestor = crear();
+        cola.set(9);
+        assertEquals(NivelCarga.NORMAL, gestor.evaluar(inicio));
+        cola.set(10);
+        assertEquals(NivelCarga.ALTA, gestor.evaluar(inicio));
+        cola.set(20);
+        assertEquals(NivelCarga.CRITICA, gestor.evaluar(inicio));
+
+        // De normal a crítica sin pasar por alta
+        GestorCarga otro = crear();
+        assertEquals(NivelCarga.CRITICA, otro.evaluar(inicio));
+    }
+
+    @Test
+    void noBajaMientrasLaCargaRondaElUmbral() {
+        GestorCarga gestor = crear();
+        cola.set(10);
+        assertEquals(NivelCarga.ALTA, gestor.evaluar(inicio));
+
+        // Debajo del umbral pero encima de la mitad: no se baja por más que pase el tiempo
+        for (int i = 0; i < 10; i++) {
+            cola.set(i % 2 == 0 ? 9 : 5);
+            assertEquals(NivelCarga.ALTA, gestor.evaluar(inicio + i * 10000L), "Evaluación " + i);
+        }
+    }
+
+    @Test
+    void bajaDeAUnNivelTrasElTiempoDeRecuperacion() {
+        GestorCarga gestor = crear();
+        cola.set(20);
+        assertEquals(NivelCarga.CRITICA, gestor.evaluar(inicio));
+
+        cola.set(0);
+        assertEquals(NivelCarga.CRITICA, gestor.evaluar(inicio + 1000));
+        assertEquals(NivelCarga.CRITICA, gestor.evaluar(inicio + 10999));
+        assertEquals(NivelCarga.ALTA, gestor.evaluar(inicio + 11000));
+        // El nivel siguiente necesita su propio tiempo de calma
+        assertEquals(NivelCarga.ALTA, gestor.evaluar(inicio + 20999));
+        assertEquals(NivelCarga.NORMAL, gestor.evaluar(inicio + 21000));
+    }
+
+    @Test
+    void unRepunteReiniciaElTiempoDeRecuperacion() {
+        GestorCarga gestor = crear();
+        cola.set(20);
+        gestor.evaluar(inicio);
+
+        cola.set(0);
+        gestor.evaluar(inicio + 1000);
+        // Vuelve a subir por encima de la mitad del umbral crítico, sin llegar a él
+        cola.set(12);
+        assertEquals(NivelCarga.CRITICA, gestor.evaluar(inicio + 6000));
+        cola.set(0);
+        assertEquals(NivelCarga.CRITICA, gestor.evaluar(inicio + 7000));
+        assertEquals(NivelCarga.CRITICA, gestor.evaluar(inicio + 16999));
+        assertEquals(NivelCarga.ALTA, gestor.evaluar(inicio + 17000));
+    }
+
+    @Test
+    void laLatenciaTambienSubeElNivel() {
+        GestorCarga gestor = crear();
+        for (int i = 0; i < 19; i++) {
+            gestor.registrarEjecucion(3000);
+        }
+        assertEquals(NivelCarga.NORMAL, gestor.evaluar(inicio), "Con pocas muestras el p99 no cuenta");
+
+        gestor.registrarEjecucion(3000);
+        assertEquals(NivelCarga.ALTA, gestor.evaluar(inicio));
+        assertEquals(3000, gestor.getP99Ms());
+
+        // Pasada la ventana, las duraciones viejas dejan de contar y empieza la recuperación
+        assertEquals(NivelCarga.ALTA, gestor.evaluar(inicio + 31000));
+        assertEquals(0, gestor.getP99Ms());
+        assertEquals(NivelCarga.NORMAL, gestor.evaluar(inicio + 41000));
+    }
+
+    @Test
+    void cadaNivelAplicaSusMedidas() {
+        GestorCarga gestor = crear();
+        List<NivelCarga> cambios = new ArrayList<>();
+        gestor.alCambiarNivel(cambios::add);
+        String[] args = new String[0];
+
+        assertTrue(gestor.admitir(comando(true), args));
+        assertFalse(gestor.isPostergarEscrituras());
+
+        cola.set(10);
+        gestor.evaluar(inicio);
+        assertFalse(gestor.admitir(comando(true), args));
+        assertTrue(gestor.admitir(comando(false), args));
+        assertFalse(gestor.isPostergarEscrituras());
+
+        cola.set(20);
+        gestor.evaluar(inicio);
+        gestor.evaluar(inicio);
+        assertTrue(gestor.isPostergarEscrituras());
+        assertEquals(1, gestor.getRechazados());
+        assertEquals(List.of(NivelCarga.ALTA, NivelCarga.CRITICA), cambios, "Solo se avisan los cambios");
+    }
+}
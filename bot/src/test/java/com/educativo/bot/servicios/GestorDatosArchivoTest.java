@@ -0,0 +1,149 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas del modo de escritura diferida (write-behind) de {@link GestorDatosArchivo}
+ */
+class GestorDatosArchivoTest {
+
+    @TempDir
+    Path directorio;
+
+    private ConfiguracionDatos configuracion(long intervaloEscrituraMs, int umbral) {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setIntervaloEscrituraMs(intervaloEscrituraMs);
+        config.setUmbralClavesSucias(umbral);
+        config.setProgresoCarga(null);
+        return config;
+    }
+
+    private Object leerDeDisco(String clave) {
+        GestorDatosArchivo lector = new GestorDatosArchivo(configuracion(0, 1000));
+        try {
+            return lector.obtener(clave);
+        } finally {
+            lector.cerrar();
+        }
+    }
+
+    @Test
+    void inmediatoEscribeAntesDeVolver() {
+        GestorDatosArchivo gestor = new GestorDatosArchivo(configuracion(0, 1000));
+        assertTrue(gestor.guardar("a", "uno"));
+        assertEquals("uno", leerDeDisco("a"));
+        gestor.cerrar();
+    }
+
+    @Test
+    void diferidoNoEscribeHastaSincronizar() {
+        GestorDatosArchivo gestor = new GestorDatosArchivo(configuracion(60_000, 1000));
+        assertTrue(gestor.guardar("a", "uno"));
+        assertEquals("uno", gestor.obtener("a"));
+        assertFalse(Files.exists(directorio.resolve("datos.json")), "El cambio no debería estar escrito todavía");
+
+        gestor.sincronizar();
+        assertEquals("uno", leerDeDisco("a"));
+        gestor.cerrar();
+    }
+
+    @Test
+    void diferidoAgrupaUnLoteEnUnaEscritura() {
+        GestorDatosArchivo gestor = new GestorDatosArchivo(configuracion(60_000, 1000));
+        Map<String, Object> lote = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            lote.put("clave" + i, "valor" + i);
+        }
+        assertTrue(gestor.guardarTodos(lote));
+        assertTrue(gestor.eliminar("clave0"));
+        gestor.sincronizar();
+
+        GestorDatosArchivo lector = new GestorDatosArchivo(configuracion(0, 1000));
+        assertEquals(49, lector.getTamanio());
+        assertNull(lector.obtener("clave0"));
+        assertEquals("valor49", lector.obtener("clave49"));
+        lector.cerrar();
+        gestor.cerrar();
+    }
+
+    @Test
+    void superarElUmbralAdelantaLaEscritura() throws InterruptedException {
+        GestorDatosArchivo gestor = new GestorDatosArchivo(configuracion(60_000, 5));
+        for (int i = 0; i < 5; i++) {
+            gestor.guardar("clave" + i, i);
+        }
+        Path archivo = directorio.resolve("datos.json");
+        long limite = System.currentTimeMillis() + 5000;
+        while (!Files.exists(archivo) && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertTrue(Files.exists(archivo), "El umbral de claves modificadas debería forzar un volcado");
+        gestor.cerrar();
+    }
+
+    @Test
+    void cerrarVuelcaLoPendiente() {
+        GestorDatosArchivo gestor = new GestorDatosArchivo(configuracion(60_000, 1000));
+        gestor.guardar("a", "uno");
+        gestor.cerrar();
+        assertEquals("uno", leerDeDisco("a"));
+    }
+
+    @Test
+    void enEsperaLasEscriturasFallanYActualizarLanza() {
+        GestorDatosArchivo gestor = new GestorDatosArchivo(configuracion(0, 1000));
+        gestor.guardar("a", 1L);
+        gestor.cerrar();
+
+        GestorDatosArchivo enEspera = new GestorDatosArchivo(configuracion(0, 1000), true);
+        assertFalse(enEspera.guardar("a", 2L));
+        assertFalse(enEspera.eliminar("a"));
+        assertThrows(IllegalStateException.class, () -> enEspera.actualizar("a", valor -> 3L));
+        assertEquals(1.0, enEspera.obtener("a"));
+        enEspera.cerrar();
+    }
+
+    @Test
+    void inmediatoSinPoderEscribirActualizarLanza() throws Exception {
+        Path carpeta = directorio.resolve("datos");
+        ConfiguracionDatos config = new ConfiguracionDatos(carpeta.resolve("datos.json").toString());
+        config.setIntervaloEscrituraMs(0);
+        config.setProgresoCarga(null);
+        GestorDatosArchivo gestor = new GestorDatosArchivo(config);
+        assertTrue(gestor.guardar("a", 1L));
+
+        // La carpeta de datos pasa a ser un archivo: ya no se puede escribir ahí (ni siendo root)
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            for (Path archivo : (Iterable<Path>) archivos::iterator) {
+                Files.delete(archivo);
+            }
+        }
+        Files.delete(carpeta);
+        Files.write(carpeta, new byte[0]);
+
+        assertFalse(gestor.guardar("b", 2L));
+        assertThrows(IllegalStateException.class, () -> gestor.actualizar("a", valor -> 3L));
+        gestor.cerrar();
+    }
+
+    @Test
+    void valorNullSeRechazaSinExcepcion() {
+        GestorDatosArchivo gestor = new GestorDatosArchivo(configuracion(0, 1000));
+        assertFalse(gestor.guardar("a", null));
+        assertFalse(gestor.guardar(null, "uno"));
+        gestor.cerrar();
+    }
+}
@@ -0,0 +1,163 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas de {@link GestorDatosAsincrono}: orden por clave y lotes que se guardan
+ * enteros aunque sus claves caigan en distintos carriles
+ */
+class GestorDatosAsincronoTest {
+
+    // Con dos carriles, "a" (hash 97) va al carril 1 y "b" (hash 98) al carril 0
+    private static final String CLAVE_CARRIL_1 = "a";
+    private static final String CLAVE_CARRIL_0 = "b";
+
+    @TempDir
+    Path directorio;
+
+    /**
+     * Gestor de archivo que cuenta los lotes que recibe
+     */
+    private static class GestorQueCuentaLotes extends GestorDatosArchivo {
+        private final AtomicInteger lotes = new AtomicInteger();
+
+        GestorQueCuentaLotes(ConfiguracionDatos config) {
+            super(config);
+        }
+
+        @Override
+        public boolean guardarTodos(Map<String, ?> datos) {
+            lotes.incrementAndGet();
+            return super.guardarTodos(datos);
+        }
+    }
+
+    private ConfiguracionDatos configuracion() {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setProgresoCarga(null);
+        return config;
+    }
+
+    private GestorDatosAsincrono crear(int hilos) {
+        return new GestorDatosAsincrono(new GestorDatosArchivo(configuracion()), hilos, 100);
+    }
+
+    private static Map<String, Object> lote(String valor, String... claves) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        for (String clave : claves) {
+            datos.put(clave, valor);
+        }
+        return datos;
+    }
+
+    @Test
+    void unLoteDeVariosCarrilesLlegaEnteroAlDelegado() {
+        GestorQueCuentaLotes delegado = new GestorQueCuentaLotes(configuracion());
+        GestorDatosAsincrono gestor = new GestorDatosAsincrono(delegado, 2, 100);
+
+        assertTrue(gestor.guardarTodos(lote("uno", CLAVE_CARRIL_0, CLAVE_CARRIL_1)));
+        assertEquals(1, delegado.lotes.get(), "El lote no debe dividirse por carril");
+        assertEquals("uno", gestor.obtener(CLAVE_CARRIL_0));
+        assertEquals("uno", gestor.obtener(CLAVE_CARRIL_1));
+        gestor.cerrar();
+    }
+
+    @Test
+    void unLoteRespetaElOrdenDeCadaClave() throws Exception {
+        GestorDatosAsincrono gestor = crear(2);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        // El carril 1 queda ocupado con una operación anterior al lote
+        gestor.actualizarAsincrono(CLAVE_CARRIL_1, actual -> {
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "antes";
+        });
+        CompletableFuture<Boolean> guardado = gestor.guardarTodosAsincrono(
+                lote("lote", CLAVE_CARRIL_0, CLAVE_CARRIL_1));
+        CompletableFuture<Boolean> despues = gestor.guardarAsincrono(CLAVE_CARRIL_0, "despues");
+
+        Thread.sleep(100);
+        assertFalse(guardado.isDone(), "El lote debe esperar a lo anterior del carril 1");
+        assertFalse(despues.isDone(), "Lo posterior del carril 0 debe esperar al lote");
+
+        liberar.countDown();
+        assertTrue(guardado.get(5, TimeUnit.SECONDS));
+        assertTrue(despues.get(5, TimeUnit.SECONDS));
+        assertEquals("lote", gestor.obtener(CLAVE_CARRIL_1));
+        assertEquals("despues", gestor.obtener(CLAVE_CARRIL_0));
+        gestor.cerrar();
+    }
+
+    @Test
+    void lotesConcurrentesNoSeBloqueanEntreSi() throws Exception {
+        GestorDatosAsincrono gestor = crear(4);
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int hilo = 0; hilo < 4; hilo++) {
+            int numero = hilo;
+            tareas.add(hilos.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    assertTrue(gestor.guardarTodos(lote(numero + "-" + i, "k" + i, "k" + (i + 1), "k" + (i + 7))));
+                    gestor.guardarAsincrono("k" + numero, i);
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get(10, TimeUnit.SECONDS);
+        }
+        hilos.shutdown();
+        gestor.cerrar();
+    }
+
+    @Test
+    void sincronizarDesdeElCarrilCeroNoSeBloquea() throws Exception {
+        GestorDatosAsincrono gestor = crear(1);
+        GestorDatosAsincrono[] referencia = {gestor};
+
+        // La función corre en el único carril y espera la sincronización desde ahí
+        Object resultado = gestor.actualizarAsincrono("a", actual -> {
+            try {
+                referencia[0].sincronizarAsincrono().get(2, TimeUnit.SECONDS);
+                return "sincronizado";
+            } catch (Exception e) {
+                return "bloqueado: " + e;
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals("sincronizado", resultado);
+        gestor.cerrar();
+    }
+
+    @Test
+    void lasOperacionesDeUnaClaveSeAplicanEnOrden() throws Exception {
+        GestorDatosAsincrono gestor = crear(4);
+        for (int i = 1; i <= 100; i++) {
+            gestor.guardarAsincrono("contador", (long) i);
+        }
+        gestor.sincronizarAsincrono().get(5, TimeUnit.SECONDS);
+        assertEquals(100.0, ((Number) gestor.obtener("contador")).doubleValue());
+        gestor.cerrar();
+    }
+}
@@ -0,0 +1,105 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas de {@link GestorDatosCache}: descarte LRU, escritura directa y vencimientos
+ */
+class GestorDatosCacheTest {
+
+    @TempDir
+    Path directorio;
+
+    private GestorDatosArchivo almacenamiento;
+    private GestorDatosCache cache;
+
+    @BeforeEach
+    void crear() {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setIntervaloEscrituraMs(0);
+        config.setProgresoCarga(null);
+        almacenamiento = new GestorDatosArchivo(config);
+        cache = new GestorDatosCache(almacenamiento, 3);
+    }
+
+    @AfterEach
+    void cerrar() {
+        cache.cerrar();
+    }
+
+    @Test
+    void descartaLaEntradaUsadaHaceMasTiempo() {
+        cache.guardar("a", "1");
+        cache.guardar("b", "2");
+        cache.guardar("c", "3");
+        cache.obtener("a");            // "b" pasa a ser la menos usada
+        cache.guardar("d", "4");
+
+        assertEquals(3, cache.getTamanio());
+        assertEquals(1, cache.getDesalojos());
+
+        long fallosAntes = cache.getFallos();
+        assertEquals("1", cache.obtener("a"));
+        assertEquals(fallosAntes, cache.getFallos(), "'a' debería seguir en memoria");
+        assertEquals("2", cache.obtener("b"), "Lo descartado se vuelve a leer de abajo");
+        assertEquals(fallosAntes + 1, cache.getFallos());
+    }
+
+    @Test
+    void escribeAbajoAntesDeVolver() {
+        cache.guardar("a", "1");
+        assertEquals("1", almacenamiento.obtener("a"));
+        cache.eliminar("a");
+        assertNull(almacenamiento.obtener("a"));
+        assertNull(cache.obtener("a"));
+    }
+
+    @Test
+    void recuerdaLasClavesQueNoExisten() {
+        assertNull(cache.obtener("nada"));
+        long fallos = cache.getFallos();
+        assertFalse(cache.existe("nada"));
+        assertNull(cache.obtener("nada"));
+        assertEquals(fallos, cache.getFallos());
+    }
+
+    @Test
+    void unDatoGuardadoConVigenciaVenceEnLaCache() throws InterruptedException {
+        cache.guardar("ultima_actividad_1", "hoy", Duration.ofMillis(100));
+        assertEquals("hoy", cache.obtener("ultima_actividad_1"));
+
+        Thread.sleep(300);
+        assertNull(cache.obtener("ultima_actividad_1"));
+        assertFalse(cache.existe("ultima_actividad_1"));
+    }
+
+    @Test
+    void unDatoConVigenciaLeidoDeAbajoTambienVence() throws InterruptedException {
+        // Guardado por otro camino (por ejemplo en una ejecución anterior)
+        almacenamiento.guardar("ultima_actividad_2", "ayer", Duration.ofMillis(100));
+        assertEquals("ayer", cache.obtener("ultima_actividad_2"));
+
+        Thread.sleep(300);
+        assertNull(cache.obtener("ultima_actividad_2"));
+    }
+
+    @Test
+    void actualizarConservaElVencimiento() throws InterruptedException {
+        cache.guardar("contador", 1L, Duration.ofMillis(100));
+        cache.actualizar("contador", actual -> ((Number) actual).longValue() + 1);
+        assertEquals(2.0, ((Number) cache.obtener("contador")).doubleValue());
+
+        Thread.sleep(300);
+        assertNull(cache.obtener("contador"));
+    }
+}
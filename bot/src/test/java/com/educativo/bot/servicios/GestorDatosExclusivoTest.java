@@ -0,0 +1,62 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas de {@link GestorDatosExclusivo}: una sola instancia escribe, y la que
+ * espera no se da por activa hasta terminar de pasar a escribir
+ */
+class GestorDatosExclusivoTest {
+
+    @TempDir
+    Path directorio;
+
+    private ConfiguracionDatos configuracion() {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setProgresoCarga(null);
+        config.setIntervaloEscrituraMs(0);
+        config.setIntervaloEsperaMs(100);
+        return config;
+    }
+
+    @Test
+    void sigueEnEsperaHastaTerminarDePromover() throws InterruptedException {
+        GestorDatosExclusivo primero = new GestorDatosExclusivo(configuracion());
+        assertFalse(primero.isEnEspera());
+        primero.guardar("a", "uno");
+
+        GestorDatosExclusivo segundo = new GestorDatosExclusivo(configuracion());
+        assertTrue(segundo.isEnEspera());
+        assertThrows(IllegalStateException.class, () -> segundo.actualizar("a", valor -> "dos"));
+
+        AtomicBoolean enEsperaAlAvisar = new AtomicBoolean();
+        CountDownLatch avisado = new CountDownLatch(1);
+        segundo.alPromover(() -> {
+            enEsperaAlAvisar.set(segundo.isEnEspera());
+            avisado.countDown();
+        });
+
+        primero.cerrar();
+        assertTrue(avisado.await(5, TimeUnit.SECONDS), "La instancia en espera debería haber tomado el bloqueo");
+        assertTrue(enEsperaAlAvisar.get(), "Mientras se avisa la promoción todavía no acepta cambios");
+
+        long limite = System.currentTimeMillis() + 5000;
+        while (segundo.isEnEspera() && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertFalse(segundo.isEnEspera());
+        assertEquals("dos", segundo.actualizar("a", valor -> "dos"));
+        segundo.cerrar();
+    }
+}
@@ -0,0 +1,89 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * Pruebas de {@link GestorDatosFragmentado}: lecturas sin crear archivos y
+ * recorridos por rango que cruzan servidores
+ */
+class GestorDatosFragmentadoTest {
+
+    @TempDir
+    Path directorio;
+
+    private GestorDatosFragmentado crear() {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setIntervaloEscrituraMs(0);
+        config.setProgresoCarga(null);
+        return new GestorDatosFragmentado(config);
+    }
+
+    private static List<String> claves(Iterator<Map.Entry<String, Object>> cursor) {
+        List<String> claves = new ArrayList<>();
+        while (cursor.hasNext()) {
+            claves.add(cursor.next().getKey());
+        }
+        return claves;
+    }
+
+    @Test
+    void leerUnServidorDesconocidoNoCreaSuArchivo() {
+        GestorDatosFragmentado gestor = crear();
+        String clave = GestorDatos.claveServidor("999", "stats_comando_ayuda");
+
+        assertNull(gestor.obtener(clave));
+        assertFalse(gestor.existe(clave));
+        assertFalse(gestor.eliminar(clave));
+        assertFalse(gestor.escanearPrefijo(GestorDatos.claveServidor("999", "")).hasNext());
+
+        assertEquals(0, gestor.getCantidadServidores());
+        assertFalse(Files.exists(directorio.resolve("servidores").resolve("999.json")));
+        gestor.cerrar();
+    }
+
+    @Test
+    void unServidorGuardadoSeLeeAlVolverAAbrir() {
+        GestorDatosFragmentado gestor = crear();
+        gestor.guardar(GestorDatos.claveServidor("1", "a"), "uno");
+        gestor.cerrar();
+
+        GestorDatosFragmentado lector = crear();
+        assertEquals("uno", lector.obtener(GestorDatos.claveServidor("1", "a")));
+        lector.cerrar();
+    }
+
+    @Test
+    void recorrerTodoMezclaGlobalYServidoresEnOrden() {
+        GestorDatosFragmentado gestor = crear();
+        gestor.guardar("zeta", 1);
+        gestor.guardar("academico/materia/1", 1);
+        gestor.guardar(GestorDatos.claveServidor("2", "b"), 1);
+        gestor.guardar(GestorDatos.claveServidor("1", "a"), 1);
+        gestor.guardar(GestorDatos.claveServidor("12", "c"), 1);
+        gestor.cerrar();
+
+        // Con los servidores todavía sin abrir, se leen desde disco
+        GestorDatosFragmentado lector = crear();
+        assertEquals(List.of("academico/materia/1", "servidor/1/a", "servidor/12/c", "servidor/2/b", "zeta"),
+                claves(lector.escanearRango(null, null)));
+        assertEquals(List.of("servidor/1/a", "servidor/12/c", "servidor/2/b"),
+                claves(lector.escanearPrefijo(GestorDatos.PREFIJO_SERVIDOR)));
+        assertEquals(List.of("servidor/12/c"),
+                claves(lector.escanearPrefijo(GestorDatos.claveServidor("12", ""))));
+        lector.cerrar();
+    }
+}
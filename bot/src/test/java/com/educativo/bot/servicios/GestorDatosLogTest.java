@@ -0,0 +1,142 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas del log de escritura anticipada (WAL) de {@link GestorDatosLog}:
+ * recuperación de un final cortado, snapshot ilegible y compactación
+ */
+class GestorDatosLogTest {
+
+    @TempDir
+    Path directorio;
+
+    private ConfiguracionDatos configuracion() {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setProgresoCarga(null);
+        return config;
+    }
+
+    private Path archivoLog() {
+        return directorio.resolve("datos.json.log");
+    }
+
+    @Test
+    void reabrirReproduceElLog() {
+        GestorDatosLog gestor = new GestorDatosLog(configuracion());
+        assertTrue(gestor.guardar("a", "uno"));
+        assertTrue(gestor.guardar("b", "dos"));
+        assertTrue(gestor.eliminar("a"));
+        gestor.cerrar();
+
+        GestorDatosLog lector = new GestorDatosLog(configuracion());
+        assertNull(lector.obtener("a"));
+        assertEquals("dos", lector.obtener("b"));
+        lector.cerrar();
+    }
+
+    @Test
+    void registroCortadoAlFinalSeDescarta() throws Exception {
+        GestorDatosLog gestor = new GestorDatosLog(configuracion());
+        gestor.guardar("a", "uno");
+        gestor.guardar("b", "dos");
+        gestor.cerrar();
+
+        // Simula que el proceso murió a mitad del último registro
+        try (RandomAccessFile log = new RandomAccessFile(archivoLog().toFile(), "rw")) {
+            log.setLength(log.length() - 3);
+        }
+
+        GestorDatosLog recuperado = new GestorDatosLog(configuracion());
+        assertEquals("uno", recuperado.obtener("a"));
+        assertNull(recuperado.obtener("b"));
+        // Lo escrito después de recuperar no debe quedar detrás del registro roto
+        assertTrue(recuperado.guardar("c", "tres"));
+        recuperado.cerrar();
+
+        GestorDatosLog lector = new GestorDatosLog(configuracion());
+        assertEquals("uno", lector.obtener("a"));
+        assertEquals("tres", lector.obtener("c"));
+        lector.cerrar();
+    }
+
+    @Test
+    void basuraAlFinalDelLogSeDescarta() throws Exception {
+        GestorDatosLog gestor = new GestorDatosLog(configuracion());
+        gestor.guardar("a", "uno");
+        gestor.cerrar();
+
+        Files.write(archivoLog(), new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        GestorDatosLog recuperado = new GestorDatosLog(configuracion());
+        assertEquals("uno", recuperado.obtener("a"));
+        assertTrue(recuperado.guardar("b", "dos"));
+        recuperado.cerrar();
+
+        GestorDatosLog lector = new GestorDatosLog(configuracion());
+        assertEquals("dos", lector.obtener("b"));
+        lector.cerrar();
+    }
+
+    @Test
+    void snapshotIlegibleImpideAbrirYNoSePisa() throws Exception {
+        Path snapshot = directorio.resolve("datos.json");
+        byte[] contenido = "{\"a\": \"uno\", \"b\": ".getBytes(StandardCharsets.UTF_8);
+        Files.write(snapshot, contenido);
+
+        assertThrows(IllegalStateException.class, () -> new GestorDatosLog(configuracion()));
+        assertArrayEquals(contenido, Files.readAllBytes(snapshot));
+    }
+
+    @Test
+    void valoresNullSeRechazanSinTocarLaMemoria() {
+        GestorDatosLog gestor = new GestorDatosLog(configuracion());
+        assertFalse(gestor.guardar("a", null));
+
+        Map<String, Object> lote = new LinkedHashMap<>();
+        lote.put("b", "dos");
+        lote.put("c", null);
+        assertFalse(gestor.guardarTodos(lote));
+        assertNull(gestor.obtener("b"), "Un lote rechazado no debe aplicarse a medias");
+        assertEquals(0, gestor.getTamanio());
+        gestor.cerrar();
+    }
+
+    @Test
+    void compactarConservaLosDatos() {
+        ConfiguracionDatos config = configuracion();
+        config.setUmbralCompactacionBytes(1024);
+        GestorDatosLog gestor = new GestorDatosLog(config);
+        for (int ronda = 0; ronda < 20; ronda++) {
+            for (int i = 0; i < 20; i++) {
+                gestor.guardar("clave" + i, "valor" + ronda + "-" + i);
+            }
+        }
+        gestor.eliminar("clave0");
+        gestor.cerrar();
+
+        assertTrue(Files.exists(directorio.resolve("datos.json")), "Debería haberse escrito un snapshot");
+
+        GestorDatosLog lector = new GestorDatosLog(configuracion());
+        assertEquals(19, lector.getTamanio());
+        assertNull(lector.obtener("clave0"));
+        assertEquals("valor19-7", lector.obtener("clave7"));
+        lector.cerrar();
+    }
+}
@@ -0,0 +1,152 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas de {@link GestorDatosMapeado}: crecimiento del índice, compactación
+ * sin renombrar archivos mapeados y recorrido por rango
+ */
+class GestorDatosMapeadoTest {
+
+    @TempDir
+    Path directorio;
+
+    private ConfiguracionDatos configuracion() {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setProgresoCarga(null);
+        return config;
+    }
+
+    private List<String> archivos() throws IOException {
+        try (Stream<Path> lista = Files.list(directorio)) {
+            return lista.map(ruta -> ruta.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void elIndiceCreceSinPerderClaves() throws IOException {
+        GestorDatosMapeado gestor = new GestorDatosMapeado(configuracion());
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(gestor.guardar("clave" + i, i));
+        }
+        assertEquals(5000, gestor.getTamanio());
+        assertEquals(3.0, gestor.obtener("clave3"));
+        gestor.cerrar();
+
+        // Solo queda el índice en uso, no las versiones anteriores
+        assertEquals(2, archivos().size(), "Archivos: " + archivos());
+
+        GestorDatosMapeado lector = new GestorDatosMapeado(configuracion());
+        assertEquals(5000, lector.getTamanio());
+        assertEquals(4999.0, lector.obtener("clave4999"));
+        lector.cerrar();
+    }
+
+    @Test
+    void compactarCambiaDeArchivoYConservaLosDatos() throws IOException {
+        GestorDatosMapeado gestor = new GestorDatosMapeado(configuracion());
+        for (int i = 0; i < 200; i++) {
+            gestor.guardar("clave" + i, "primera-" + i);
+        }
+        for (int i = 0; i < 200; i++) {
+            gestor.guardar("clave" + i, "segunda-" + i);
+        }
+        gestor.eliminar("clave0");
+        List<String> antes = archivos();
+
+        gestor.compactar();
+        List<String> despues = archivos();
+        assertEquals(2, despues.size(), "Archivos: " + despues);
+        assertFalse(despues.contains("datos.json.dat"), "El archivo de datos anterior debería haberse borrado");
+        assertTrue(despues.contains("datos.json.1.dat"), "Archivos: " + despues);
+        assertFalse(antes.equals(despues));
+
+        assertEquals("segunda-5", gestor.obtener("clave5"));
+        assertNull(gestor.obtener("clave0"));
+        assertTrue(gestor.guardar("nueva", "despues de compactar"));
+        gestor.cerrar();
+
+        GestorDatosMapeado lector = new GestorDatosMapeado(configuracion());
+        assertEquals(200, lector.getTamanio());
+        assertEquals("segunda-199", lector.obtener("clave199"));
+        assertEquals("despues de compactar", lector.obtener("nueva"));
+        lector.cerrar();
+    }
+
+    @Test
+    void archivosSinConfirmarSeIgnoranAlAbrir() throws IOException {
+        GestorDatosMapeado gestor = new GestorDatosMapeado(configuracion());
+        gestor.guardar("a", "uno");
+        gestor.cerrar();
+
+        // Simula una compactación cortada: archivos de número mayor sin número mágico
+        Files.write(directorio.resolve("datos.json.7.dat"), new byte[64]);
+        Files.write(directorio.resolve("datos.json.7.idx"), new byte[64]);
+
+        GestorDatosMapeado recuperado = new GestorDatosMapeado(configuracion());
+        assertEquals("uno", recuperado.obtener("a"));
+        recuperado.cerrar();
+        assertFalse(archivos().contains("datos.json.7.dat"), "Archivos: " + archivos());
+        assertFalse(archivos().contains("datos.json.7.idx"), "Archivos: " + archivos());
+    }
+
+    @Test
+    void indiceDeOtraGeneracionSeReconstruye() throws IOException {
+        GestorDatosMapeado gestor = new GestorDatosMapeado(configuracion());
+        for (int i = 0; i < 50; i++) {
+            gestor.guardar("clave" + i, i);
+        }
+        gestor.compactar();
+        gestor.cerrar();
+
+        // Simula que el proceso murió antes de confirmar el índice nuevo
+        List<String> actuales = archivos();
+        String indice = actuales.stream().filter(nombre -> nombre.endsWith(".idx")).findFirst().orElseThrow();
+        Files.delete(directorio.resolve(indice));
+
+        GestorDatosMapeado recuperado = new GestorDatosMapeado(configuracion());
+        assertEquals(50, recuperado.getTamanio());
+        assertEquals(49.0, recuperado.obtener("clave49"));
+        recuperado.cerrar();
+    }
+
+    @Test
+    void escanearRangoDevuelveLasClavesEnOrden() {
+        GestorDatosMapeado gestor = new GestorDatosMapeado(configuracion());
+        gestor.guardar("stats_comando_tarea", 3);
+        gestor.guardar("stats_comando_ayuda", 1);
+        gestor.guardar("stats_comando_materia", 2);
+        gestor.guardar("ultima_actividad_1", 10);
+        gestor.guardar("academico/materia/1", "x");
+
+        List<String> claves = new ArrayList<>();
+        Iterator<Map.Entry<String, Object>> cursor = gestor.escanearPrefijo("stats_comando_");
+        while (cursor.hasNext()) {
+            claves.add(cursor.next().getKey());
+        }
+        assertEquals(List.of("stats_comando_ayuda", "stats_comando_materia", "stats_comando_tarea"), claves);
+
+        int total = 0;
+        for (Iterator<Map.Entry<String, Object>> todo = gestor.escanearRango(null, null); todo.hasNext(); todo.next()) {
+            total++;
+        }
+        assertEquals(5, total);
+        gestor.cerrar();
+    }
+}
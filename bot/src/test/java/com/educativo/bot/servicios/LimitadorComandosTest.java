@@ -0,0 +1,137 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.educativo.bot.servicios.LimitadorComandos.Ambito;
+import com.educativo.bot.servicios.LimitadorComandos.Limite;
+import com.educativo.bot.servicios.LimitadorComandos.Rechazo;
+
+/**
+ * Pruebas de {@link LimitadorComandos}: cubeta compartida por ámbito, límites
+ * propios de un comando, reposición de fichas y avisos por racha
+ */
+class LimitadorComandosTest {
+
+    // Hora fija de partida: las pruebas avanzan el reloj a mano, sin llegar a la barrida
+    private final long inicio = System.currentTimeMillis();
+
+    private static LimitadorComandos soloUsuario(Limite limite) {
+        return new LimitadorComandos(limite, null, null);
+    }
+
+    @Test
+    void cambiarDeComandoNoDaMasMargen() {
+        LimitadorComandos limitador = soloUsuario(new Limite(2, 10));
+
+        assertNull(limitador.intentar("tarea", "u1", "c1", "s1", inicio));
+        assertNull(limitador.intentar("materia", "u1", "c1", "s1", inicio));
+        Rechazo rechazo = limitador.intentar("sistema", "u1", "c1", "s1", inicio);
+        assertNotNull(rechazo, "Todos los comandos gastan de la misma cubeta del usuario");
+        assertEquals(Ambito.USUARIO, rechazo.getAmbito());
+        // Otro usuario tiene su propia cubeta
+        assertNull(limitador.intentar("tarea", "u2", "c1", "s1", inicio));
+    }
+
+    @Test
+    void comandoDesconocidoTambienGastaDeLaCubetaDelUsuario() {
+        LimitadorComandos limitador = soloUsuario(new Limite(1, 10));
+
+        assertNull(limitador.intentar(null, "u1", "c1", "s1", inicio));
+        assertNotNull(limitador.intentar("tarea", "u1", "c1", "s1", inicio));
+    }
+
+    @Test
+    void elLimiteDeUnComandoSeSumaAlGeneral() {
+        LimitadorComandos limitador = soloUsuario(new Limite(5, 10));
+        limitador.setLimite("tarea", Ambito.USUARIO, new Limite(1, 10));
+
+        assertNull(limitador.intentar("tarea", "u1", null, null, inicio));
+        assertNotNull(limitador.intentar("tarea", "u1", null, null, inicio), "El comando agotó su propia cubeta");
+        // El rechazo devolvió la ficha general: quedan 4 para los demás comandos
+        for (int i = 0; i < 4; i++) {
+            assertNull(limitador.intentar("materia", "u1", null, null, inicio), "Comando " + i);
+        }
+        assertNotNull(limitador.intentar("materia", "u1", null, null, inicio));
+    }
+
+    @Test
+    void unComandoConLimiteCeroNoCuentaParaElAmbito() {
+        LimitadorComandos limitador = new LimitadorComandos(null, null, new Limite(1, 10));
+        limitador.setLimite("sistema", Ambito.SERVIDOR, null);
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(limitador.intentar("sistema", "u" + i, "c1", "s1", inicio));
+        }
+        assertNull(limitador.intentar("tarea", "u1", "c1", "s1", inicio));
+        Rechazo rechazo = limitador.intentar("tarea", "u2", "c1", "s1", inicio);
+        assertNotNull(rechazo);
+        assertEquals(Ambito.SERVIDOR, rechazo.getAmbito());
+    }
+
+    @Test
+    void unRechazoDelCanalDevuelveLaFichaDelUsuario() {
+        LimitadorComandos limitador = new LimitadorComandos(new Limite(2, 10), new Limite(1, 10), null);
+
+        assertNull(limitador.intentar("tarea", "u1", "c1", null, inicio));
+        Rechazo rechazo = limitador.intentar("tarea", "u1", "c1", null, inicio);
+        assertNotNull(rechazo);
+        assertEquals(Ambito.CANAL, rechazo.getAmbito());
+        // La ficha del usuario tomada antes del rechazo se devolvió
+        assertNull(limitador.intentar("tarea", "u1", "c2", null, inicio));
+        assertNotNull(limitador.intentar("tarea", "u1", "c3", null, inicio));
+    }
+
+    @Test
+    void lasFichasSeReponenConElTiempo() {
+        // 2 fichas en 10 segundos: una cada 5 segundos
+        LimitadorComandos limitador = soloUsuario(new Limite(2, 10));
+        assertNull(limitador.intentar("tarea", "u1", null, null, inicio));
+        assertNull(limitador.intentar("tarea", "u1", null, null, inicio));
+
+        Rechazo rechazo = limitador.intentar("tarea", "u1", null, null, inicio);
+        assertNotNull(rechazo);
+        assertEquals(5000, rechazo.getEsperaMs());
+        assertNotNull(limitador.intentar("tarea", "u1", null, null, inicio + 4999));
+        assertNull(limitador.intentar("tarea", "u1", null, null, inicio + 5000));
+        assertNotNull(limitador.intentar("tarea", "u1", null, null, inicio + 5000));
+
+        // Una cubeta no junta más fichas que su capacidad
+        assertNull(limitador.intentar("tarea", "u1", null, null, inicio + 50000));
+        assertNull(limitador.intentar("tarea", "u1", null, null, inicio + 50000));
+        assertNotNull(limitador.intentar("tarea", "u1", null, null, inicio + 50000));
+    }
+
+    @Test
+    void soloSeAvisaElPrimerRechazoDeLaRacha() {
+        LimitadorComandos limitador = soloUsuario(new Limite(1, 10));
+        assertNull(limitador.intentar("tarea", "u1", null, null, inicio));
+
+        assertTrue(limitador.intentar("tarea", "u1", null, null, inicio).isAvisar());
+        assertFalse(limitador.intentar("tarea", "u1", null, null, inicio).isAvisar());
+        assertEquals(1, limitador.getSilenciados());
+
+        // Cuando un comando vuelve a pasar, la próxima racha se avisa otra vez
+        assertNull(limitador.intentar("tarea", "u1", null, null, inicio + 10000));
+        assertTrue(limitador.intentar("tarea", "u1", null, null, inicio + 10000).isAvisar());
+        assertEquals(2, limitador.getPermitidos());
+        assertEquals(3, limitador.getRechazados());
+    }
+
+    @Test
+    void limiteDesdeTexto() {
+        Limite limite = Limite.desdeTexto(" 5 / 10 ");
+        assertEquals(5, limite.getCapacidad());
+        assertEquals("5/10", limite.toString());
+        assertNull(Limite.desdeTexto("0"));
+        assertThrows(IllegalArgumentException.class, () -> Limite.desdeTexto("5"));
+        assertThrows(IllegalArgumentException.class, () -> Limite.desdeTexto("cinco/10"));
+        assertThrows(IllegalArgumentException.class, () -> Limite.desdeTexto("0/10"));
+    }
+}
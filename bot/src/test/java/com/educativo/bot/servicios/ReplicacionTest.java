@@ -0,0 +1,149 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas de la replicación entre {@link GestorDatosReplicado} y {@link GestorDatosSeguidor}:
+ * copia completa, reanudación tras un corte y versión de los datos académicos
+ */
+class ReplicacionTest {
+
+    private static final long ESPERA_MAXIMA_MS = 10_000;
+
+    @TempDir
+    Path directorio;
+
+    private GestorDatosReplicado primario;
+    private GestorDatosSeguidor seguidor;
+    private int puerto;
+
+    @AfterEach
+    void cerrar() {
+        if (seguidor != null) {
+            seguidor.cerrar();
+        }
+        if (primario != null) {
+            primario.cerrar();
+        }
+    }
+
+    private GestorDatosReplicado crearPrimario(int historial) throws IOException {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setIntervaloEscrituraMs(0);
+        config.setProgresoCarga(null);
+        config.setHistorialReplicacion(historial);
+        try (ServerSocket libre = new ServerSocket(0)) {
+            puerto = libre.getLocalPort();
+            config.setPuertoReplicacion(puerto);
+        }
+        return new GestorDatosReplicado(new GestorDatosArchivo(config), config);
+    }
+
+    private GestorDatosSeguidor seguir(boolean atiendeConsultas) {
+        return new GestorDatosSeguidor("127.0.0.1", puerto, atiendeConsultas);
+    }
+
+    private static void esperar(BooleanSupplier condicion, String descripcion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + ESPERA_MAXIMA_MS;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                throw new AssertionError("No se cumplió a tiempo: " + descripcion);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void unSeguidorNuevoRecibeCopiaCompletaYDespuesLosCambios() throws Exception {
+        primario = crearPrimario(100);
+        primario.guardar("a", "uno");
+        primario.guardar("academico/tarea/1", "tarea");
+
+        seguidor = seguir(false);
+        esperar(() -> "tarea".equals(seguidor.obtener("academico/tarea/1")), "copia completa");
+        assertEquals("uno", seguidor.obtener("a"));
+        assertEquals(1, seguidor.getCopiasCompletas());
+
+        primario.guardar("b", "dos");
+        primario.eliminar("a");
+        esperar(() -> "dos".equals(seguidor.obtener("b")) && seguidor.obtener("a") == null, "cambios");
+        assertEquals(primario.getSecuencia(), seguidor.getSecuenciaAplicada());
+    }
+
+    @Test
+    void trasUnCorteSigueDesdeElUltimoCambio() throws Exception {
+        primario = crearPrimario(100);
+        primario.guardar("a", "uno");
+        seguidor = seguir(false);
+        esperar(() -> seguidor.getSecuenciaAplicada() == primario.getSecuencia() && seguidor.isConectado(), "conexión");
+
+        seguidor.cortarConexion();
+        primario.guardar("b", "dos");
+        primario.guardar("c", "tres");
+
+        esperar(() -> "tres".equals(seguidor.obtener("c")), "reanudación");
+        assertEquals("dos", seguidor.obtener("b"));
+        assertEquals(1, seguidor.getCopiasCompletas(), "Con los cambios en el historial no hace falta otra copia");
+    }
+
+    @Test
+    void siElHistorialYaNoTieneLosCambiosRecibeOtraCopia() throws Exception {
+        primario = crearPrimario(4);
+        seguidor = seguir(false);
+        esperar(seguidor::isConectado, "conexión");
+
+        seguidor.cortarConexion();
+        for (int i = 0; i < 10; i++) {
+            primario.guardar("clave" + i, i);
+        }
+
+        esperar(() -> seguidor.getCopiasCompletas() == 2, "segunda copia completa");
+        esperar(() -> seguidor.obtener("clave9") != null, "datos");
+        assertEquals(10, seguidor.getTamanio());
+    }
+
+    @Test
+    void laVersionAcademicaSoloCambiaConClavesAcademicas() throws Exception {
+        primario = crearPrimario(100);
+        seguidor = seguir(false);
+        esperar(seguidor::isConectado, "conexión");
+        long inicial = seguidor.getVersionAcademica();
+
+        primario.guardar("ultima_actividad_1", 1);
+        primario.guardar("stats_comando_ayuda", 2);
+        esperar(() -> seguidor.getSecuenciaAplicada() == primario.getSecuencia(), "cambios no académicos");
+        assertEquals(inicial, seguidor.getVersionAcademica());
+
+        primario.guardar("academico/usuario/1", "usuario");
+        esperar(() -> seguidor.getSecuenciaAplicada() == primario.getSecuencia(), "cambio académico");
+        assertEquals(inicial + 1, seguidor.getVersionAcademica());
+    }
+
+    @Test
+    void elPrimarioCuentaSoloLosSeguidoresQueAtiendenConsultas() throws Exception {
+        primario = crearPrimario(100);
+        seguidor = seguir(false);
+        esperar(seguidor::isConectado, "conexión del monitor");
+        esperar(() -> primario.getSeguidores() == 1, "seguidor registrado");
+        assertEquals(0, primario.getSeguidoresQueAtienden());
+
+        GestorDatosSeguidor replica = seguir(true);
+        try {
+            esperar(() -> primario.getSeguidoresQueAtienden() == 1, "réplica que atiende");
+        } finally {
+            replica.cerrar();
+        }
+        esperar(() -> primario.getSeguidoresQueAtienden() == 0, "réplica desconectada");
+        assertTrue(primario.getSeguidores() >= 1);
+    }
+}
@@ -0,0 +1,189 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.educativo.bot.interfaces.GestorDatos;
+import com.educativo.bot.modelos.Materia;
+import com.educativo.bot.modelos.Tarea;
+import com.educativo.bot.modelos.Usuario;
+
+/**
+ * Pruebas del guardado por lotes de {@link RepositorioAcademico} (los borrados
+ * esperan a que el lote se escriba) y de las consultas indexadas con "jdbc"
+ */
+class RepositorioAcademicoTest {
+
+    @TempDir
+    Path directorio;
+
+    /**
+     * Gestor en archivo cuyos lotes se pueden hacer fallar
+     */
+    private static final class GestorConFallas extends GestorDatosArchivo {
+        private volatile boolean fallarLotes;
+        private volatile boolean fallarBorrados;
+
+        GestorConFallas(ConfiguracionDatos config) {
+            super(config);
+        }
+
+        @Override
+        public boolean guardarTodos(Map<String, ?> datos) {
+            return !fallarLotes && super.guardarTodos(datos);
+        }
+
+        @Override
+        public boolean eliminar(String clave) {
+            return !fallarBorrados && super.eliminar(clave);
+        }
+    }
+
+    private GestorConFallas crear() {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setIntervaloEscrituraMs(0);
+        config.setProgresoCarga(null);
+        return new GestorConFallas(config);
+    }
+
+    @Test
+    void unLoteFallidoNoBorraYElBorradoSeReintenta() {
+        GestorConFallas gestor = crear();
+        RepositorioAcademico repositorio = new RepositorioAcademico(gestor, 0);
+        Tarea tarea = new Tarea("t1", "Leer", "capítulo 1", "MAT", "u1", 2);
+        repositorio.agregarTarea(tarea);
+        repositorio.guardarCambios();
+        String clave = RepositorioAcademico.PREFIJO_TAREA + "t1";
+        assertNotNull(gestor.obtener(clave));
+
+        gestor.fallarLotes = true;
+        repositorio.eliminarTarea(tarea);
+        assertEquals(0, repositorio.guardarCambios());
+        assertNotNull(gestor.obtener(clave), "Sin el índice escrito, la tarea no debe borrarse");
+
+        gestor.fallarLotes = false;
+        repositorio.guardarCambios();
+        assertFalse(gestor.existe(clave), "El borrado debería reintentarse junto con el lote");
+        gestor.cerrar();
+
+        RepositorioAcademico recargado = new RepositorioAcademico(crear(), 0);
+        assertEquals(0, recargado.getTareas().size());
+    }
+
+    @Test
+    void unBorradoQueDevuelveFalseSeReintenta() {
+        GestorConFallas gestor = crear();
+        RepositorioAcademico repositorio = new RepositorioAcademico(gestor, 0);
+        Tarea tarea = new Tarea("t1", "Leer", "capítulo 1", "MAT", "u1", 2);
+        repositorio.agregarTarea(tarea);
+        repositorio.guardarCambios();
+        String clave = RepositorioAcademico.PREFIJO_TAREA + "t1";
+
+        gestor.fallarBorrados = true;
+        repositorio.eliminarTarea(tarea);
+        repositorio.guardarCambios();
+        assertTrue(gestor.existe(clave));
+
+        gestor.fallarBorrados = false;
+        assertEquals(1, repositorio.guardarCambios(), "El borrado fallido debería haber quedado pendiente");
+        assertFalse(gestor.existe(clave));
+        gestor.cerrar();
+    }
+
+    @Test
+    void borrarUnaClaveQueYaNoEstaCuentaComoBorrada() {
+        GestorConFallas gestor = crear();
+        RepositorioAcademico repositorio = new RepositorioAcademico(gestor, 0);
+        Tarea tarea = new Tarea("t1", "Leer", "capítulo 1", "MAT", "u1", 2);
+        repositorio.agregarTarea(tarea);
+        repositorio.guardarCambios();
+
+        // Otro proceso ya la borró: eliminar devuelve false, pero no hay nada que reintentar
+        gestor.eliminar(RepositorioAcademico.PREFIJO_TAREA + "t1");
+        repositorio.eliminarTarea(tarea);
+        repositorio.guardarCambios();
+        assertEquals(0, repositorio.guardarCambios());
+        gestor.cerrar();
+    }
+
+    @Test
+    void elGuardadoEsperaAQueTermineElCambioDeUnComando() throws Exception {
+        GestorConFallas gestor = crear();
+        RepositorioAcademico repositorio = new RepositorioAcademico(gestor, 0);
+        CerrojosComandos cerrojos = new CerrojosComandos();
+        repositorio.setCerrojos(cerrojos);
+        Usuario usuario = repositorio.obtenerOCrearUsuario("u1");
+
+        // Un comando del usuario está a mitad de un cambio
+        List<Lock> comando = cerrojos.tomar("u1", false, true);
+        usuario.agregarPuntos(10, "MAT");
+        CompletableFuture<Integer> guardado = CompletableFuture.supplyAsync(repositorio::guardarCambios);
+        Thread.sleep(100);
+        assertFalse(guardado.isDone(), "El guardado no debe codificar un objeto a mitad de un cambio");
+
+        usuario.agregarPuntos(5, "MAT");
+        repositorio.usuarioModificado(usuario);
+        cerrojos.soltar(comando);
+        assertTrue(guardado.get(5, TimeUnit.SECONDS) > 0);
+        gestor.cerrar();
+
+        RepositorioAcademico recargado = new RepositorioAcademico(crear(), 0);
+        assertEquals(usuario.getPuntos(), recargado.buscarUsuario("u1").getPuntos());
+    }
+
+    @Test
+    void conJdbcLasConsultasUsanLaBaseYDevuelvenLosObjetosDeMemoria() {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setProgresoCarga(null);
+        config.setTipo("jdbc");
+        GestorDatos gestor = FabricaGestorDatos.crear(config);
+        RepositorioAcademico repositorio = new RepositorioAcademico(gestor, 0);
+
+        Materia materia = new Materia("m1", "Matemática", "MAT", "u1");
+        repositorio.agregarMateria(materia);
+        Tarea atrasada = new Tarea("t1", "Leer", null, "MAT", "u1", 2);
+        atrasada.setFechaVencimiento(LocalDateTime.now().minusDays(2));
+        Tarea reciente = new Tarea("t2", "Resumir", null, "MAT", "u1", 2);
+        reciente.setFechaVencimiento(LocalDateTime.now().minusHours(1));
+        Tarea futura = new Tarea("t3", "Entregar", null, "MAT", "u1", 2);
+        futura.setFechaVencimiento(LocalDateTime.now().plusDays(1));
+        repositorio.agregarTarea(reciente);
+        repositorio.agregarTarea(atrasada);
+        repositorio.agregarTarea(futura);
+        Usuario primero = repositorio.obtenerOCrearUsuario("u1");
+        primero.agregarPuntos(50, "MAT");
+        repositorio.usuarioModificado(primero);
+        repositorio.obtenerOCrearUsuario("u2");
+        repositorio.guardarCambios();
+
+        assertSame(materia, repositorio.buscarMateria("mat"));
+        List<Tarea> vencidas = repositorio.getTareasVencidasPorUsuario("u1");
+        assertEquals(List.of("t1", "t2"), List.of(vencidas.get(0).getId(), vencidas.get(1).getId()));
+        assertSame(atrasada, vencidas.get(0));
+        assertSame(primero, repositorio.getMejoresUsuarios(1).get(0));
+
+        // Un cambio avisado pero sin escribir se responde desde memoria
+        atrasada.setCompletada(true);
+        repositorio.tareaModificada(atrasada);
+        assertEquals(List.of(reciente), repositorio.getTareasVencidasPorUsuario("u1"));
+        repositorio.guardarCambios();
+        assertEquals(List.of(reciente), repositorio.getTareasVencidasPorUsuario("u1"));
+
+        repositorio.cerrar();
+        gestor.cerrar();
+    }
+}
@@ -0,0 +1,90 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas del conversor de {@link SnapshotBinario} junto con la suma de
+ * verificación que comprueba {@link GestorDatosArchivo} al arrancar
+ */
+class SnapshotBinarioTest {
+
+    @TempDir
+    Path directorio;
+
+    private Path archivo() {
+        return directorio.resolve("datos.json");
+    }
+
+    private GestorDatosArchivo crear() {
+        ConfiguracionDatos config = new ConfiguracionDatos(archivo().toString());
+        config.setIntervaloEscrituraMs(0);
+        config.setProgresoCarga(null);
+        return new GestorDatosArchivo(config);
+    }
+
+    private List<String> apartados() throws IOException {
+        try (Stream<Path> lista = Files.list(directorio)) {
+            return lista.map(ruta -> ruta.getFileName().toString())
+                    .filter(nombre -> nombre.contains(".danado-") && !nombre.endsWith(RespaldosArchivo.EXTENSION_SUMA))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void guardarEnJson() {
+        GestorDatosArchivo gestor = crear();
+        gestor.guardar("a", "uno");
+        gestor.guardar("b", "dos");
+        gestor.cerrar();
+        assertTrue(Files.exists(directorio.resolve("datos.json.crc")));
+    }
+
+    @Test
+    void convertirEnElLugarSeCargaAlArrancar() throws IOException {
+        guardarEnJson();
+
+        assertEquals(2, SnapshotBinario.convertirDesdeJson(archivo().toFile(), archivo().toFile()));
+        assertTrue(SnapshotBinario.esBinario(archivo().toFile()));
+        assertTrue(RespaldosArchivo.verificar(archivo().toFile()));
+
+        GestorDatosArchivo lector = crear();
+        assertEquals("uno", lector.obtener("a"));
+        assertEquals("dos", lector.obtener("b"));
+        lector.cerrar();
+        assertEquals(List.of(), apartados(), "El archivo convertido no debe tomarse por dañado");
+    }
+
+    @Test
+    void convertidoDanadoSeRecuperaDelJsonOriginal() throws IOException {
+        guardarEnJson();
+        SnapshotBinario.convertirDesdeJson(archivo().toFile(), archivo().toFile());
+
+        // Un byte cambiado en el medio: la suma no coincide
+        try (RandomAccessFile datos = new RandomAccessFile(archivo().toFile(), "rw")) {
+            long posicion = datos.length() / 2;
+            datos.seek(posicion);
+            int original = datos.read();
+            datos.seek(posicion);
+            datos.write(original ^ 0xFF);
+        }
+        assertFalse(RespaldosArchivo.verificar(archivo().toFile()));
+
+        GestorDatosArchivo lector = crear();
+        assertEquals("uno", lector.obtener("a"));
+        assertEquals("dos", lector.obtener("b"));
+        lector.cerrar();
+        assertEquals(1, apartados().size(), "El convertido dañado debería quedar apartado");
+    }
+}
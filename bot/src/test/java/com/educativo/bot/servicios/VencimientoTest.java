@@ -0,0 +1,98 @@
+package com.educativo.bot.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.educativo.bot.interfaces.GestorDatos;
+
+/**
+ * Pruebas del vencimiento por clave ({@link GestorDatos#guardar(String, Object, Duration)})
+ * en los almacenamientos que lo manejan
+ */
+class VencimientoTest {
+
+    private static final Duration VIGENCIA_CORTA = Duration.ofMillis(100);
+
+    @TempDir
+    Path directorio;
+
+    private GestorDatos crear(String tipo) {
+        ConfiguracionDatos config = new ConfiguracionDatos(directorio.resolve("datos.json").toString());
+        config.setTipo(tipo);
+        config.setIntervaloEscrituraMs(0);
+        config.setProgresoCarga(null);
+        return FabricaGestorDatos.crear(config);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"archivo", "fragmentado", "jdbc"})
+    void unDatoVencidoDejaDeVerse(String tipo) throws InterruptedException {
+        GestorDatos gestor = crear(tipo);
+        assertTrue(gestor.guardar("ultima_actividad_1", 10L, VIGENCIA_CORTA));
+        assertTrue(gestor.guardar("ultima_actividad_2", 20L, Duration.ofHours(1)));
+        assertEquals(10.0, ((Number) gestor.obtener("ultima_actividad_1")).doubleValue());
+
+        Thread.sleep(VIGENCIA_CORTA.toMillis() * 3);
+
+        assertNull(gestor.obtener("ultima_actividad_1"));
+        assertFalse(gestor.existe("ultima_actividad_1"));
+        assertEquals(1, contar(gestor, "ultima_actividad_"), "El recorrido no debe incluir los vencidos");
+        assertEquals(20.0, ((Number) gestor.obtener("ultima_actividad_2")).doubleValue());
+        gestor.cerrar();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"archivo", "jdbc"})
+    void guardarSinVigenciaQuitaElVencimiento(String tipo) throws InterruptedException {
+        GestorDatos gestor = crear(tipo);
+        gestor.guardar("a", "uno", VIGENCIA_CORTA);
+        gestor.guardar("a", "dos");
+
+        Thread.sleep(VIGENCIA_CORTA.toMillis() * 3);
+        assertEquals("dos", gestor.obtener("a"));
+        gestor.cerrar();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"archivo", "jdbc"})
+    void elVencimientoSobreviveAlReinicio(String tipo) throws InterruptedException {
+        GestorDatos gestor = crear(tipo);
+        gestor.guardar("corta", "uno", VIGENCIA_CORTA);
+        gestor.guardar("larga", "dos", Duration.ofHours(1));
+        gestor.cerrar();
+
+        Thread.sleep(VIGENCIA_CORTA.toMillis() * 3);
+
+        GestorDatos reabierto = crear(tipo);
+        assertNull(reabierto.obtener("corta"));
+        assertEquals("dos", reabierto.obtener("larga"));
+        reabierto.cerrar();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"archivo", "jdbc"})
+    void vigenciaInvalidaSeRechaza(String tipo) {
+        GestorDatos gestor = crear(tipo);
+        assertFalse(gestor.guardar("a", "uno", Duration.ZERO));
+        assertFalse(gestor.guardar("a", "uno", Duration.ofSeconds(-1)));
+        assertNull(gestor.obtener("a"));
+        gestor.cerrar();
+    }
+
+    private static int contar(GestorDatos gestor, String prefijo) {
+        int total = 0;
+        for (var cursor = gestor.escanearPrefijo(prefijo); cursor.hasNext(); cursor.next()) {
+            total++;
+        }
+        return total;
+    }
+}